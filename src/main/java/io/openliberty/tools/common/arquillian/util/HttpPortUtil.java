@@ -28,28 +28,21 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 import org.w3c.dom.NodeList;
 
+import io.openliberty.tools.common.plugins.util.XmlParserUtil;
+
 public class HttpPortUtil {
 
     public static final int DEFAULT_PORT = 9080;
-    private static final XPath XPATH = XPathFactory.newInstance().newXPath();
-
-    private static final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-    static {
-        factory.setNamespaceAware(true);
-    }
 
     public static Integer getHttpPort(File serverXML, File bootstrapProperties)
             throws FileNotFoundException, IOException, ParserConfigurationException, SAXException,
@@ -83,10 +76,10 @@ public class HttpPortUtil {
 
     protected static Integer getHttpPortForServerXML(String serverXML, Properties bootstrapProperties, String configVariableXML) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException,
             ArquillianConfigurationException {
-        DocumentBuilder builder = factory.newDocumentBuilder();
+        DocumentBuilder builder = XmlParserUtil.getNamespaceAwareDocumentBuilder();
         Document doc = builder.parse(new ByteArrayInputStream(serverXML.getBytes()));
 
-        XPathExpression httpEndpointExpr = XPATH.compile("/server/httpEndpoint");
+        XPathExpression httpEndpointExpr = XmlParserUtil.getXPathExpression("/server/httpEndpoint");
         Object httpEndpointObj = httpEndpointExpr.evaluate(doc, XPathConstants.NODE);
         if (httpEndpointObj == null) {
             return DEFAULT_PORT;
@@ -134,17 +127,12 @@ public class HttpPortUtil {
         }
 
         // get input XML Document
-        DocumentBuilderFactory inputBuilderFactory = DocumentBuilderFactory.newInstance();
-        inputBuilderFactory.setIgnoringComments(true);
-        inputBuilderFactory.setCoalescing(true);
-        inputBuilderFactory.setIgnoringElementContentWhitespace(true);
-        inputBuilderFactory.setValidating(false);
-        DocumentBuilder inputBuilder = inputBuilderFactory.newDocumentBuilder();
+        DocumentBuilder inputBuilder = XmlParserUtil.getConfigDocumentBuilder();
         Document inputDoc = inputBuilder.parse(new ByteArrayInputStream(configVariableXML.getBytes()));
         
         // parse input XML Document
         String expression = "/server/variable";
-        NodeList nodes = (NodeList) XPATH.compile(expression).evaluate(inputDoc, XPathConstants.NODESET);
+        NodeList nodes = (NodeList) XmlParserUtil.getXPathExpression(expression).evaluate(inputDoc, XPathConstants.NODESET);
 
         String variableValue = null;
         String variableDefaultValue = null;
@@ -0,0 +1,271 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import io.openliberty.tools.common.CommonLoggerI;
+import io.openliberty.tools.common.plugins.util.ChecksumUtil;
+
+/**
+ * On-disk cache for server configuration files included from http and https
+ * URLs. Cached files are reused for the configured time to live, then
+ * revalidated with the server using their ETag or Last-Modified headers. If
+ * the server cannot be reached, the cached file is used.
+ */
+public class RemoteIncludeCache {
+
+    /** System property for the cache directory */
+    public static final String CACHE_DIR_PROPERTY = "io.openliberty.tools.includeCache.dir";
+
+    /** System property for the number of seconds a cached include is used without revalidation */
+    public static final String TTL_PROPERTY = "io.openliberty.tools.includeCache.ttl";
+
+    private static final long DEFAULT_TTL_SECONDS = 300;
+    private static final int DEFAULT_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    private static final String URL_KEY = "url";
+    private static final String ETAG_KEY = "etag";
+    private static final String LAST_MODIFIED_KEY = "lastModified";
+    private static final String FETCHED_KEY = "fetched";
+
+    private static RemoteIncludeCache defaultCache;
+
+    private final File cacheDirectory;
+    private final long ttlMillis;
+    private final int timeoutMillis;
+
+    /**
+     * @param cacheDirectory the directory to store cached includes in
+     * @param ttlMillis      how long a cached include is used before it is
+     *                       revalidated
+     * @param timeoutMillis  the connect and read timeout
+     */
+    public RemoteIncludeCache(File cacheDirectory, long ttlMillis, int timeoutMillis) {
+        this.cacheDirectory = cacheDirectory;
+        this.ttlMillis = ttlMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Gets the cache configured by the system properties, which is shared by all
+     * builds on the machine by default.
+     *
+     * @return the default cache
+     */
+    public static synchronized RemoteIncludeCache getDefault() {
+        if (defaultCache == null) {
+            String dir = System.getProperty(CACHE_DIR_PROPERTY);
+            File cacheDirectory = dir != null ? new File(dir)
+                    : new File(System.getProperty("java.io.tmpdir"), "liberty-include-cache");
+            long ttlSeconds = DEFAULT_TTL_SECONDS;
+            String ttl = System.getProperty(TTL_PROPERTY);
+            if (ttl != null) {
+                try {
+                    ttlSeconds = Long.parseLong(ttl.trim());
+                } catch (NumberFormatException e) {
+                    // use the default
+                }
+            }
+            defaultCache = new RemoteIncludeCache(cacheDirectory, TimeUnit.SECONDS.toMillis(ttlSeconds),
+                    DEFAULT_TIMEOUT_MILLIS);
+        }
+        return defaultCache;
+    }
+
+    /**
+     * @param url the URL
+     * @return true if includes from the URL can be cached
+     */
+    public static boolean isCacheable(URL url) {
+        String protocol = url.getProtocol();
+        return "http".equalsIgnoreCase(protocol) || "https".equalsIgnoreCase(protocol);
+    }
+
+    /**
+     * Gets the local copy of the include at the URL, downloading or revalidating
+     * it if needed.
+     *
+     * @param url the http or https URL of the include
+     * @param log the logger, or null
+     * @return the cached file
+     * @throws IOException if the include could not be downloaded and was not
+     *                     cached before
+     */
+    public synchronized File getFile(URL url, CommonLoggerI log) throws IOException {
+        String key = getKey(url);
+        File contentFile = new File(cacheDirectory, key + ".xml");
+        File metadataFile = new File(cacheDirectory, key + ".properties");
+        Properties metadata = loadMetadata(metadataFile);
+        boolean cached = contentFile.exists() && url.toExternalForm().equals(metadata.getProperty(URL_KEY));
+
+        if (cached) {
+            long fetched = parseLong(metadata.getProperty(FETCHED_KEY));
+            if (System.currentTimeMillis() - fetched < ttlMillis) {
+                debug(log, "Using cached include " + contentFile + " for " + url);
+                return contentFile;
+            }
+        }
+
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            if (cached) {
+                String etag = metadata.getProperty(ETAG_KEY);
+                String lastModified = metadata.getProperty(LAST_MODIFIED_KEY);
+                if (etag != null) {
+                    connection.setRequestProperty("If-None-Match", etag);
+                }
+                if (lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", lastModified);
+                }
+            }
+            try {
+                int status = connection.getResponseCode();
+                if (cached && status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    debug(log, "Cached include " + contentFile + " for " + url + " is up to date");
+                } else if (status == HttpURLConnection.HTTP_OK) {
+                    debug(log, "Downloading include " + url + " to " + contentFile);
+                    try (InputStream in = connection.getInputStream()) {
+                        write(in, contentFile);
+                    }
+                    metadata = new Properties();
+                    metadata.setProperty(URL_KEY, url.toExternalForm());
+                    setIfNotNull(metadata, ETAG_KEY, connection.getHeaderField("ETag"));
+                    setIfNotNull(metadata, LAST_MODIFIED_KEY, connection.getHeaderField("Last-Modified"));
+                } else {
+                    throw new IOException("Server returned HTTP response code " + status + " for URL " + url);
+                }
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            if (cached) {
+                warn(log, "The include " + url + " could not be downloaded. Using the cached copy from "
+                        + contentFile + ".");
+                debug(log, "Exception received: " + e.getMessage(), e);
+                return contentFile;
+            }
+            throw e;
+        }
+        metadata.setProperty(FETCHED_KEY, Long.toString(System.currentTimeMillis()));
+        storeMetadata(metadata, metadataFile);
+        return contentFile;
+    }
+
+    private static String getKey(URL url) {
+        return ChecksumUtil.sha256(url.toExternalForm());
+    }
+
+    /**
+     * Writes to a temporary file first so that other builds never see a partially
+     * written include.
+     */
+    private void write(InputStream in, File target) throws IOException {
+        File tempFile = createTempFile(target);
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        move(tempFile, target);
+    }
+
+    private void storeMetadata(Properties metadata, File metadataFile) throws IOException {
+        File tempFile = createTempFile(metadataFile);
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            metadata.store(out, null);
+        }
+        move(tempFile, metadataFile);
+    }
+
+    private File createTempFile(File target) throws IOException {
+        if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs() && !cacheDirectory.isDirectory()) {
+            throw new IOException("Could not create the include cache directory " + cacheDirectory);
+        }
+        return File.createTempFile(target.getName(), ".tmp", cacheDirectory);
+    }
+
+    private static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Properties loadMetadata(File metadataFile) {
+        Properties metadata = new Properties();
+        if (metadataFile.exists()) {
+            try (InputStream in = new FileInputStream(metadataFile)) {
+                metadata.load(in);
+            } catch (IOException e) {
+                // treat as not cached
+            }
+        }
+        return metadata;
+    }
+
+    private static void setIfNotNull(Properties properties, String key, String value) {
+        if (value != null) {
+            properties.setProperty(key, value);
+        }
+    }
+
+    private static long parseLong(String value) {
+        if (value != null) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                // treat as never fetched
+            }
+        }
+        return 0;
+    }
+
+    private static void debug(CommonLoggerI log, String msg) {
+        if (log != null) {
+            log.debug(msg);
+        }
+    }
+
+    private static void debug(CommonLoggerI log, String msg, Throwable e) {
+        if (log != null) {
+            log.debug(msg, e);
+        }
+    }
+
+    private static void warn(CommonLoggerI log, String msg) {
+        if (log != null) {
+            log.warn(msg);
+        }
+    }
+}
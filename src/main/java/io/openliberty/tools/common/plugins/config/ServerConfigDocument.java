@@ -21,7 +21,6 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
-import java.net.URLConnection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
@@ -32,13 +31,8 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
@@ -47,6 +41,7 @@ import org.w3c.dom.NamedNodeMap;
 import org.xml.sax.SAXException;
 
 import io.openliberty.tools.common.CommonLoggerI;
+import io.openliberty.tools.common.plugins.util.XmlParserUtil;
 
 // Moved from ci.maven/liberty-maven-plugin/src/main/java/net/wasdev/wlp/maven/plugins/ServerConfigDocument.java
 public class ServerConfigDocument {
@@ -55,8 +50,6 @@ public class ServerConfigDocument {
 
     private static CommonLoggerI log;
 
-    private static DocumentBuilder docBuilder;
-
     private static File configDirectory;
     private static File serverXMLFile;
 
@@ -70,27 +63,11 @@ public class ServerConfigDocument {
     private static final String VARIABLE_NAME_PATTERN = "\\$\\{(.*?)\\}";
     private static final Pattern varNamePattern = Pattern.compile(VARIABLE_NAME_PATTERN);
 
-    private static final XPathExpression XPATH_SERVER_APPLICATION;
-    private static final XPathExpression XPATH_SERVER_WEB_APPLICATION;
-    private static final XPathExpression XPATH_SERVER_ENTERPRISE_APPLICATION;
-    private static final XPathExpression XPATH_SERVER_INCLUDE;
-    private static final XPathExpression XPATH_SERVER_VARIABLE;
-
-    static {
-        try {
-            XPath xPath = XPathFactory.newInstance().newXPath();
-            XPATH_SERVER_APPLICATION = xPath.compile("/server/application");
-            XPATH_SERVER_WEB_APPLICATION = xPath.compile("/server/webApplication");
-            XPATH_SERVER_ENTERPRISE_APPLICATION = xPath.compile("/server/enterpriseApplication");
-            XPATH_SERVER_INCLUDE = xPath.compile("/server/include");
-            XPATH_SERVER_VARIABLE = xPath.compile("/server/variable");
-        } catch (XPathExpressionException ex) {
-            // These XPath expressions should all compile statically.
-            // Compilation failures mean the expressions are not syntactically
-            // correct
-            throw new RuntimeException(ex);
-        }
-    }
+    private static final String XPATH_SERVER_APPLICATION = "/server/application";
+    private static final String XPATH_SERVER_WEB_APPLICATION = "/server/webApplication";
+    private static final String XPATH_SERVER_ENTERPRISE_APPLICATION = "/server/enterpriseApplication";
+    private static final String XPATH_SERVER_INCLUDE = "/server/include";
+    private static final String XPATH_SERVER_VARIABLE = "/server/variable";
 
     public Set<String> getLocations() {
         return locations;
@@ -127,20 +104,8 @@ public class ServerConfigDocument {
     }
 
     private static DocumentBuilder getDocumentBuilder() {
-        if (docBuilder == null) {
-            DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-            docBuilderFactory.setIgnoringComments(true);
-            docBuilderFactory.setCoalescing(true);
-            docBuilderFactory.setIgnoringElementContentWhitespace(true);
-            docBuilderFactory.setValidating(false);
-            try {
-                docBuilder = docBuilderFactory.newDocumentBuilder();
-            } catch (ParserConfigurationException e) {
-                // fail catastrophically if we can't create a document builder
-                throw new RuntimeException(e);
-            }
-        }
-        return docBuilder;
+        // the document builder is not thread safe, so each thread uses its own
+        return XmlParserUtil.getConfigDocumentBuilder();
     }
 
     /**
@@ -238,8 +203,7 @@ public class ServerConfigDocument {
     //Checks for application names in the document. Will add locations without names to a Set
     private static void parseNames(Document doc, String expression) throws XPathExpressionException, IOException, SAXException {
         // parse input document
-        XPath xPath = XPathFactory.newInstance().newXPath();
-        NodeList nodeList = (NodeList) xPath.compile(expression).evaluate(doc, XPathConstants.NODESET);
+        NodeList nodeList = (NodeList) XmlParserUtil.getXPathExpression(expression).evaluate(doc, XPathConstants.NODESET);
 
         for (int i = 0; i < nodeList.getLength(); i++) {
             if (nodeList.item(i).getAttributes().getNamedItem("name") != null) {
@@ -293,9 +257,9 @@ public class ServerConfigDocument {
         return appName;
     }
 
-    private static void parseApplication(Document doc, XPathExpression expression) throws XPathExpressionException {
+    private static void parseApplication(Document doc, String expression) throws XPathExpressionException {
 
-        NodeList nodeList = (NodeList) expression.evaluate(doc, XPathConstants.NODESET);
+        NodeList nodeList = (NodeList) XmlParserUtil.getXPathExpression(expression).evaluate(doc, XPathConstants.NODESET);
 
         for (int i = 0; i < nodeList.getLength(); i++) {
             String nodeValue = nodeList.item(i).getAttributes().getNamedItem("location").getNodeValue();
@@ -318,7 +282,7 @@ public class ServerConfigDocument {
 
     private static void parseInclude(Document doc) throws XPathExpressionException, IOException, SAXException {
         // parse include document in source server xml
-        NodeList nodeList = (NodeList) XPATH_SERVER_INCLUDE.evaluate(doc, XPathConstants.NODESET);
+        NodeList nodeList = (NodeList) XmlParserUtil.getXPathExpression(XPATH_SERVER_INCLUDE).evaluate(doc, XPathConstants.NODESET);
 
         for (int i = 0; i < nodeList.getLength(); i++) {
             String nodeValue = nodeList.item(i).getAttributes().getNamedItem("location").getNodeValue();
@@ -391,8 +355,10 @@ public class ServerConfigDocument {
         if (loc.startsWith("http:") || loc.startsWith("https:")) {
             if (isValidURL(loc)) {
                 URL url = new URL(loc);
-                URLConnection connection = url.openConnection();
-                doc = parseDocument(connection.getInputStream());
+                File cachedFile = RemoteIncludeCache.getDefault().getFile(url, log);
+                try (InputStream inputStream = new FileInputStream(cachedFile)) {
+                    doc = parseDocument(inputStream);
+                }
             }
         } else if (loc.startsWith("file:")) {
             if (isValidURL(loc)) {
@@ -533,7 +499,7 @@ public class ServerConfigDocument {
 
     private static void parseVariables(Document doc) throws XPathExpressionException {
         // parse input document
-        NodeList nodeList = (NodeList) XPATH_SERVER_VARIABLE.evaluate(doc, XPathConstants.NODESET);
+        NodeList nodeList = (NodeList) XmlParserUtil.getXPathExpression(XPATH_SERVER_VARIABLE).evaluate(doc, XPathConstants.NODESET);
 
         for (int i = 0; i < nodeList.getLength(); i++) {
             NamedNodeMap attr = nodeList.item(i).getAttributes();
@@ -566,7 +532,7 @@ public class ServerConfigDocument {
 
     private static void parseIncludeVariables(Document doc) throws XPathExpressionException, IOException, SAXException {
         // parse include document in source server xml
-        NodeList nodeList = (NodeList) XPATH_SERVER_INCLUDE.evaluate(doc, XPathConstants.NODESET);
+        NodeList nodeList = (NodeList) XmlParserUtil.getXPathExpression(XPATH_SERVER_INCLUDE).evaluate(doc, XPathConstants.NODESET);
 
         for (int i = 0; i < nodeList.getLength(); i++) {
             String nodeValue = nodeList.item(i).getAttributes().getNamedItem("location").getNodeValue();
@@ -19,13 +19,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
@@ -33,27 +29,21 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.SAXException;
 
+import io.openliberty.tools.common.plugins.util.XmlParserUtil;
+
 public abstract class XmlDocument {
     
     protected Document doc;
     
     public void createDocument(String rootElement) throws ParserConfigurationException {
-        DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = docBuilderFactory.newDocumentBuilder();
-        doc = docBuilder.newDocument();
+        doc = XmlParserUtil.getDocumentBuilder().newDocument();
         doc.setXmlStandalone(true);
         Element element = doc.createElement(rootElement);
         doc.appendChild(element);
     }
     
     public void createDocument(File xmlFile) throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-        builderFactory.setIgnoringComments(true);
-        builderFactory.setCoalescing(true);
-        builderFactory.setIgnoringElementContentWhitespace(true);
-        builderFactory.setValidating(false);
-        DocumentBuilder builder = builderFactory.newDocumentBuilder();
-        doc = builder.parse(xmlFile);
+        doc = XmlParserUtil.getConfigDocumentBuilder().parse(xmlFile);
     }
         
     public void writeXMLDocument(String fileName) throws IOException, TransformerException {
@@ -70,14 +60,7 @@ public abstract class XmlDocument {
         DOMSource source = new DOMSource(doc);
         StreamResult result = new StreamResult(outFile);
         
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
-        transformer.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC, "yes");
-        transformer.setOutputProperty(OutputKeys.VERSION, "1.0");
-        transformer.setOutputProperty(OutputKeys.ENCODING,"UTF-8");
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
+        Transformer transformer = XmlParserUtil.getIndentingTransformer();
         
         transformer.transform(source, result);
         outFile.close();
@@ -3,10 +3,17 @@ package io.openliberty.tools.common.plugins.util;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class AbstractContainerSupportUtil {
 
+    private DockerEngineClient dockerEngineClient;
+    private boolean dockerEngineClientChecked;
+
     /**
      * Log debug
      * @param msg
@@ -64,6 +71,112 @@ public abstract class AbstractContainerSupportUtil {
         return result;
     }
 
+    /**
+     * Receives the output of a docker command one line at a time
+     */
+    public interface OutputLineHandler {
+        void handleLine(String line);
+    }
+
+    /**
+     * Run a docker command and pass each line of its combined standard output
+     * and standard error to the handler as soon as it is written.
+     * 
+     * @param timeout unit is seconds
+     * @return the exit value of the command
+     */
+    protected int execDockerCmdStreaming(String command, final int timeout, OutputLineHandler handler) {
+        debug("execDocker streaming, timeout=" + timeout + ", cmd=" + command);
+        List<String> args = new ArrayList<String>();
+        StringTokenizer st = new StringTokenizer(command);
+        while (st.hasMoreTokens()) {
+            args.add(st.nextToken());
+        }
+        final Process p;
+        try {
+            p = new ProcessBuilder(args).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            error("An error occurred while running a docker command: " + e.getMessage(), e);
+            throw new RuntimeException(e.getMessage());
+        }
+        // destroy the process if it runs too long, which ends the output stream below
+        final AtomicBoolean timedOut = new AtomicBoolean();
+        Thread watchdog = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!p.waitFor(timeout, TimeUnit.SECONDS)) {
+                        timedOut.set(true);
+                        p.destroy();
+                    }
+                } catch (InterruptedException e) {
+                    // the command finished
+                }
+            }
+        }, "docker-command-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                handler.handleLine(line);
+            }
+            if (timedOut.get() || !p.waitFor(timeout, TimeUnit.SECONDS)) {
+                throw new IllegalThreadStateException();
+            }
+            return p.exitValue();
+        } catch (IllegalThreadStateException e) {
+            p.destroy();
+            error("The docker command did not complete within the timeout period: " + timeout + " seconds.", e);
+            throw new RuntimeException("The docker command did not complete within the timeout period: " + timeout + " seconds. ");
+        } catch (InterruptedException e) {
+            p.destroy();
+            error("An interruption error occurred while running a docker command: " + e.getMessage(), e);
+            throw new RuntimeException(e.getMessage());
+        } catch (IOException e) {
+            error("An error occurred while running a docker command: " + e.getMessage(), e);
+            throw new RuntimeException(e.getMessage());
+        } finally {
+            watchdog.interrupt();
+        }
+    }
+
+    /**
+     * Get the client for the Docker Engine API, which avoids starting a docker
+     * process for inspect and container list queries. The client needs Unix
+     * domain socket channels, which require Java 16 or later, so it is null on
+     * older JVMs. Callers must fall back to the docker CLI if this returns null
+     * or a request fails.
+     * 
+     * @return the client, or null if the Docker daemon socket cannot be used
+     */
+    protected synchronized DockerEngineClient getDockerEngineClient() {
+        if (!dockerEngineClientChecked) {
+            dockerEngineClientChecked = true;
+            DockerEngineClient client = DockerEngineClient.getDefault();
+            if (client != null && client.ping()) {
+                debug("Using the Docker Engine API at " + client.getSocketFile());
+                dockerEngineClient = client;
+            } else {
+                debug("The Docker Engine API socket is not available. Using the docker command.");
+            }
+        }
+        return dockerEngineClient;
+    }
+
+    /**
+     * Log a failed Docker Engine API request. Unless the daemon returned an
+     * error, the client is not used again since the socket is not usable.
+     */
+    protected synchronized void dockerEngineRequestFailed(IOException e) {
+        if (e instanceof DockerEngineClient.ApiException) {
+            debug("Docker Engine API request failed, using the docker command instead: " + e.getMessage());
+        } else {
+            debug("Docker Engine API socket failed, using the docker command from now on: " + e.getMessage());
+            dockerEngineClient = null;
+        }
+    }
+
     protected String readStdOut(Process p) throws IOException, InterruptedException {
         String result = null;
         // Read all the output on stdout and return it to the caller
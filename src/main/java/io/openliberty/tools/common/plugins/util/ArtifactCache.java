@@ -0,0 +1,213 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Machine-wide cache of feature ESAs and JSONs that can be shared by
+ * concurrent builds. Each file is stored once under the SHA-256 of its
+ * content, and is linked into a Maven repository layout. Builds in other
+ * processes are coordinated with file locks. Version ranges and SNAPSHOT
+ * versions are not cached, since they can resolve to different files over
+ * time.
+ */
+public class ArtifactCache {
+
+    /** System property for the cache directory. The cache is disabled if it is not set. */
+    public static final String CACHE_DIR_PROPERTY = "io.openliberty.tools.artifactCache.dir";
+
+    private static final String OBJECTS_DIR = "objects";
+    private static final String REPOSITORY_DIR = "repository";
+    private static final String LOCKS_DIR = "locks";
+
+    private static ArtifactCache defaultCache;
+    private static String defaultCacheDir;
+
+    // serializes access to each lock file within this JVM, since file locks are held per process
+    private static final ConcurrentMap<String, Object> jvmLocks = new ConcurrentHashMap<String, Object>();
+
+    private final File cacheDirectory;
+
+    /**
+     * @param cacheDirectory the directory to store cached artifacts in
+     */
+    public ArtifactCache(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * Gets the cache configured by the {@value #CACHE_DIR_PROPERTY} system
+     * property.
+     *
+     * @return the cache, or null if the property is not set
+     */
+    public static synchronized ArtifactCache getDefault() {
+        String dir = System.getProperty(CACHE_DIR_PROPERTY);
+        if (dir == null || dir.trim().isEmpty()) {
+            return null;
+        }
+        if (defaultCache == null || !dir.equals(defaultCacheDir)) {
+            defaultCache = new ArtifactCache(new File(dir.trim()));
+            defaultCacheDir = dir;
+        }
+        return defaultCache;
+    }
+
+    public File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Gets the directory with the cached artifacts in a Maven repository layout,
+     * creating it if it does not exist.
+     *
+     * @return the repository directory
+     */
+    public File getRepositoryDirectory() {
+        File repositoryDirectory = new File(cacheDirectory, REPOSITORY_DIR);
+        repositoryDirectory.mkdirs();
+        return repositoryDirectory;
+    }
+
+    /**
+     * @return the path of the artifact relative to the repository directory
+     */
+    static String getRepositoryPath(String groupId, String artifactId, String type, String version) {
+        return groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version + "." + type;
+    }
+
+    /**
+     * @param version the version of an artifact
+     * @return true if the version always refers to the same file, so that the
+     *         artifact can be cached
+     */
+    public static boolean isCacheable(String version) {
+        return !version.startsWith("[") && !version.startsWith("(") && !version.endsWith("SNAPSHOT");
+    }
+
+    /**
+     * Gets a cached artifact.
+     *
+     * @param groupId    the groupId
+     * @param artifactId the artifactId
+     * @param type       the file type, such as esa or json
+     * @param version    the exact version
+     * @return the cached file, or null if the artifact is not cached
+     */
+    public File get(String groupId, String artifactId, String type, String version) {
+        if (!isCacheable(version)) {
+            return null;
+        }
+        File file = new File(cacheDirectory, REPOSITORY_DIR + "/" + getRepositoryPath(groupId, artifactId, type, version));
+        return file.isFile() && file.length() > 0 ? file : null;
+    }
+
+    /**
+     * Adds an artifact to the cache. If another build added the same artifact
+     * first, the existing copy is kept.
+     *
+     * @param groupId    the groupId
+     * @param artifactId the artifactId
+     * @param type       the file type, such as esa or json
+     * @param version    the exact version
+     * @param source     the downloaded artifact
+     * @return the cached file, or the source file if the version cannot be cached
+     * @throws IOException if the artifact could not be cached
+     */
+    public File put(String groupId, String artifactId, String type, String version, File source) throws IOException {
+        if (!isCacheable(version)) {
+            return source;
+        }
+        String repositoryPath = getRepositoryPath(groupId, artifactId, type, version);
+        File target = new File(cacheDirectory, REPOSITORY_DIR + "/" + repositoryPath);
+        String lockName = ChecksumUtil.sha256(repositoryPath);
+        File lockFile = new File(cacheDirectory, LOCKS_DIR + "/" + lockName + ".lock");
+        mkdirs(lockFile.getParentFile());
+
+        Object jvmLock = jvmLocks.putIfAbsent(lockName, new Object());
+        if (jvmLock == null) {
+            jvmLock = jvmLocks.get(lockName);
+        }
+        synchronized (jvmLock) {
+            try (RandomAccessFile raf = new RandomAccessFile(lockFile, "rw");
+                    FileChannel channel = raf.getChannel()) {
+                FileLock lock = channel.lock();
+                try {
+                    if (target.isFile() && target.length() > 0) {
+                        return target;
+                    }
+                    File object = storeObject(source);
+                    mkdirs(target.getParentFile());
+                    File tempFile = new File(target.getParentFile(), target.getName() + "." + lockName.substring(0, 8) + ".tmp");
+                    Files.deleteIfExists(tempFile.toPath());
+                    try {
+                        Files.createLink(tempFile.toPath(), object.toPath());
+                    } catch (IOException | UnsupportedOperationException e) {
+                        Files.copy(object.toPath(), tempFile.toPath());
+                    }
+                    move(tempFile, target);
+                    return target;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the file into the object store under the SHA-256 of its content.
+     */
+    private File storeObject(File source) throws IOException {
+        String checksum = ChecksumUtil.sha256(source);
+        File object = new File(cacheDirectory, OBJECTS_DIR + "/" + checksum.substring(0, 2) + "/" + checksum);
+        if (object.isFile() && object.length() == source.length()) {
+            return object;
+        }
+        mkdirs(object.getParentFile());
+        File tempFile = File.createTempFile(checksum, ".tmp", object.getParentFile());
+        try {
+            Files.copy(source.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            move(tempFile, object);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+        return object;
+    }
+
+    private static void mkdirs(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Could not create the artifact cache directory " + dir);
+        }
+    }
+
+    private static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes file and string checksums.
+ */
+public class ChecksumUtil {
+
+    public static final String SHA_256 = "SHA-256";
+    public static final String MD5 = "MD5";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // SHA-256 of files that were already hashed, keyed by path and invalidated by size and modification time
+    private static final Map<String, String[]> fileChecksums = new HashMap<String, String[]>();
+
+    private ChecksumUtil() {
+    }
+
+    public static MessageDigest getMessageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 and MD5 are required on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param value the string to hash
+     * @return the hex encoded SHA-256 of the UTF-8 bytes of the string
+     */
+    public static String sha256(String value) {
+        return toHex(getMessageDigest(SHA_256).digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param file the file to hash
+     * @return the hex encoded SHA-256 of the file
+     * @throws IOException if the file could not be read
+     */
+    public static String sha256(File file) throws IOException {
+        return checksum(file, SHA_256);
+    }
+
+    /**
+     * Gets the SHA-256 of a file, reusing the previous result if the file size
+     * and modification time have not changed since it was last hashed.
+     *
+     * @param file the file to hash
+     * @return the hex encoded SHA-256 of the file
+     * @throws IOException if the file could not be read
+     */
+    public static String cachedSha256(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        String stamp = file.length() + ":" + file.lastModified();
+        synchronized (fileChecksums) {
+            String[] cached = fileChecksums.get(path);
+            if (cached != null && cached[0].equals(stamp)) {
+                return cached[1];
+            }
+        }
+        String checksum = sha256(file);
+        synchronized (fileChecksums) {
+            fileChecksums.put(path, new String[] { stamp, checksum });
+        }
+        return checksum;
+    }
+
+    /**
+     * @param file      the file to hash
+     * @param algorithm the message digest algorithm
+     * @return the hex encoded checksum of the file
+     * @throws IOException if the file could not be read
+     */
+    public static String checksum(File file, String algorithm) throws IOException {
+        MessageDigest digest = getMessageDigest(algorithm);
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[65536];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,389 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.xml.parsers.DocumentBuilder;
+
+import org.apache.commons.io.FileUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Determines the cheapest action needed for a configuration file change to
+ * take effect in a running server.
+ */
+public class ConfigChangeAnalyzer {
+
+    /**
+     * The impact of a configuration change, in increasing order of cost
+     */
+    public enum Impact {
+        /** Nothing relevant changed */
+        NONE,
+        /** Liberty picks up the change dynamically */
+        DYNAMIC,
+        /** The application must be redeployed */
+        APP_REDEPLOY,
+        /** The server must be restarted */
+        RESTART
+    }
+
+    /**
+     * Server configuration elements that define applications or their class path.
+     * Liberty updates existing elements dynamically, but these elements in a new
+     * configuration file only take effect when the application is redeployed.
+     */
+    private static final Set<String> APPLICATION_ELEMENTS = new HashSet<String>(Arrays.asList("application",
+            "webApplication", "enterpriseApplication", "springBootApplication", "library"));
+
+    private final Map<File, String> snapshots = new HashMap<File, String>();
+
+    /**
+     * The result of analyzing a configuration change
+     */
+    public static class Result {
+        private final Impact impact;
+        private final List<String> reasons;
+
+        public Result(Impact impact, List<String> reasons) {
+            this.impact = impact;
+            this.reasons = Collections.unmodifiableList(reasons);
+        }
+
+        public Impact getImpact() {
+            return impact;
+        }
+
+        /**
+         * @return descriptions of the changes that determined the impact
+         */
+        public List<String> getReasons() {
+            return reasons;
+        }
+
+        public boolean requiresRestart() {
+            return impact == Impact.RESTART;
+        }
+
+        public boolean requiresRedeploy() {
+            return impact == Impact.APP_REDEPLOY;
+        }
+
+        @Override
+        public String toString() {
+            return impact + " " + reasons;
+        }
+    }
+
+    /**
+     * Records the current contents of a file so that a later call to
+     * analyzeChange can compare against it.
+     *
+     * @param file the file to record
+     */
+    public void snapshot(File file) {
+        String content = readContent(file);
+        if (content != null) {
+            snapshots.put(file.getAbsoluteFile(), content);
+        } else {
+            snapshots.remove(file.getAbsoluteFile());
+        }
+    }
+
+    /**
+     * Analyzes the change of a file compared to its last snapshot, and records its
+     * current contents as the new snapshot. A file without a previous snapshot is
+     * treated as new.
+     *
+     * @param file the changed file
+     * @return the impact of the change
+     */
+    public Result analyzeChange(File file) {
+        String oldContent = snapshots.get(file.getAbsoluteFile());
+        String newContent = readContent(file);
+        snapshot(file);
+        return analyze(file.getName(), oldContent, newContent);
+    }
+
+    /**
+     * Analyzes the change from the old file to the new file.
+     *
+     * @param oldFile the previous version of the file, which may not exist
+     * @param newFile the new version of the file
+     * @return the impact of the change
+     */
+    public static Result analyze(File oldFile, File newFile) {
+        return analyze(newFile.getName(), readContent(oldFile), readContent(newFile));
+    }
+
+    /**
+     * Analyzes the change of a configuration file.
+     *
+     * @param fileName   the name of the configuration file
+     * @param oldContent the previous contents, or null if the file is new
+     * @param newContent the new contents
+     * @return the impact of the change
+     */
+    public static Result analyze(String fileName, String oldContent, String newContent) {
+        List<String> reasons = new ArrayList<String>();
+        if (oldContent != null && oldContent.equals(newContent)) {
+            return new Result(Impact.NONE, reasons);
+        }
+        if (newContent == null) {
+            reasons.add(fileName + " could not be read");
+            return new Result(Impact.RESTART, reasons);
+        }
+        Impact impact;
+        if (fileName.equals("bootstrap.properties") || fileName.equals("server.env")) {
+            impact = analyzeProperties(fileName, oldContent, newContent, reasons);
+        } else if (fileName.equals("jvm.options")) {
+            impact = analyzeJvmOptions(oldContent, newContent, reasons);
+        } else if (fileName.endsWith(".xml")) {
+            impact = analyzeServerXml(fileName, oldContent, newContent, reasons);
+        } else if (oldContent == null) {
+            reasons.add("new configuration file " + fileName);
+            impact = Impact.APP_REDEPLOY;
+        } else {
+            reasons.add("configuration file " + fileName + " changed");
+            impact = Impact.DYNAMIC;
+        }
+        return new Result(impact, reasons);
+    }
+
+    /**
+     * bootstrap.properties and server.env are only read when the server starts.
+     */
+    private static Impact analyzeProperties(String fileName, String oldContent, String newContent,
+            List<String> reasons) {
+        Map<String, String> oldProps = loadProperties(oldContent);
+        Map<String, String> newProps = loadProperties(newContent);
+        Set<String> keys = new HashSet<String>(oldProps.keySet());
+        keys.addAll(newProps.keySet());
+        for (String key : new TreeSet<String>(keys)) {
+            String oldValue = oldProps.get(key);
+            String newValue = newProps.get(key);
+            if (oldValue == null) {
+                reasons.add(fileName + " property " + key + " was added");
+            } else if (newValue == null) {
+                reasons.add(fileName + " property " + key + " was removed");
+            } else if (!oldValue.equals(newValue)) {
+                reasons.add(fileName + " property " + key + " was changed");
+            }
+        }
+        return reasons.isEmpty() ? Impact.NONE : Impact.RESTART;
+    }
+
+    /**
+     * jvm.options is only read when the server starts. Later options override
+     * earlier ones, so the order of the options is significant.
+     */
+    private static Impact analyzeJvmOptions(String oldContent, String newContent, List<String> reasons) {
+        List<String> oldOptions = getJvmOptions(oldContent);
+        List<String> newOptions = getJvmOptions(newContent);
+        if (oldOptions.equals(newOptions)) {
+            return Impact.NONE;
+        }
+        Set<String> added = new HashSet<String>(newOptions);
+        added.removeAll(oldOptions);
+        Set<String> removed = new HashSet<String>(oldOptions);
+        removed.removeAll(newOptions);
+        if (!added.isEmpty()) {
+            reasons.add("jvm.options added " + added);
+        }
+        if (!removed.isEmpty()) {
+            reasons.add("jvm.options removed " + removed);
+        }
+        if (added.isEmpty() && removed.isEmpty()) {
+            reasons.add("jvm.options were reordered");
+        }
+        return Impact.RESTART;
+    }
+
+    /**
+     * Liberty applies server.xml changes dynamically. New application elements
+     * in a new configuration file need the application to be redeployed.
+     */
+    private static Impact analyzeServerXml(String fileName, String oldContent, String newContent,
+            List<String> reasons) {
+        Map<String, List<String>> oldElements;
+        Map<String, List<String>> newElements;
+        try {
+            oldElements = oldContent == null ? new HashMap<String, List<String>>() : getElements(oldContent);
+            newElements = getElements(newContent);
+        } catch (Exception e) {
+            // Liberty reports the configuration error itself
+            reasons.add(fileName + " could not be parsed");
+            return oldContent == null ? Impact.APP_REDEPLOY : Impact.DYNAMIC;
+        }
+        Set<String> changed = new HashSet<String>();
+        Set<String> names = new HashSet<String>(oldElements.keySet());
+        names.addAll(newElements.keySet());
+        for (String name : names) {
+            List<String> oldValues = oldElements.get(name);
+            List<String> newValues = newElements.get(name);
+            if (oldValues == null || newValues == null || !oldValues.equals(newValues)) {
+                changed.add(name);
+            }
+        }
+        if (changed.isEmpty()) {
+            return Impact.NONE;
+        }
+        Set<String> sortedChanged = new TreeSet<String>(changed);
+        if (oldContent == null) {
+            Set<String> applicationChanges = new HashSet<String>(changed);
+            applicationChanges.retainAll(APPLICATION_ELEMENTS);
+            if (!applicationChanges.isEmpty()) {
+                reasons.add("new configuration file " + fileName + " defines " + applicationChanges);
+                return Impact.APP_REDEPLOY;
+            }
+            reasons.add("new configuration file " + fileName + " defines " + sortedChanged);
+        } else {
+            reasons.add(fileName + " changed " + sortedChanged);
+        }
+        return Impact.DYNAMIC;
+    }
+
+    /**
+     * Gets the top level elements of a server configuration document, as
+     * canonical strings grouped by element name
+     */
+    private static Map<String, List<String>> getElements(String content) throws Exception {
+        DocumentBuilder builder = XmlParserUtil.getConfigDocumentBuilder();
+        builder.setErrorHandler(new ErrorHandler() {
+            @Override
+            public void warning(SAXParseException e) throws SAXException {
+                // ignore
+            }
+
+            @Override
+            public void error(SAXParseException e) throws SAXException {
+                throw e;
+            }
+
+            @Override
+            public void fatalError(SAXParseException e) throws SAXException {
+                throw e;
+            }
+        });
+        Document doc = builder.parse(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        Map<String, List<String>> elements = new LinkedHashMap<String, List<String>>();
+        NodeList nodes = doc.getDocumentElement().getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (nodes.item(i) instanceof Element) {
+                Element element = (Element) nodes.item(i);
+                List<String> values = elements.get(element.getNodeName());
+                if (values == null) {
+                    values = new ArrayList<String>();
+                    elements.put(element.getNodeName(), values);
+                }
+                StringBuilder sb = new StringBuilder();
+                appendCanonical(element, sb);
+                values.add(sb.toString());
+            }
+        }
+        for (List<String> values : elements.values()) {
+            Collections.sort(values);
+        }
+        return elements;
+    }
+
+    private static void appendCanonical(Element element, StringBuilder sb) {
+        sb.append('<').append(element.getNodeName());
+        NamedNodeMap attributes = element.getAttributes();
+        Map<String, String> sortedAttributes = new TreeMap<String, String>();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            sortedAttributes.put(attributes.item(i).getNodeName(), attributes.item(i).getNodeValue());
+        }
+        for (Map.Entry<String, String> attribute : sortedAttributes.entrySet()) {
+            sb.append(' ').append(attribute.getKey()).append("=\"").append(attribute.getValue()).append('"');
+        }
+        sb.append('>');
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child instanceof Element) {
+                appendCanonical((Element) child, sb);
+            } else if (child.getNodeType() == Node.TEXT_NODE || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+                sb.append(child.getNodeValue().trim());
+            }
+        }
+        sb.append("</").append(element.getNodeName()).append('>');
+    }
+
+    private static Map<String, String> loadProperties(String content) {
+        Map<String, String> result = new HashMap<String, String>();
+        if (content != null) {
+            Properties properties = new Properties();
+            try {
+                properties.load(new StringReader(content));
+            } catch (IOException e) {
+                // not expected when reading from a string
+            }
+            for (String key : properties.stringPropertyNames()) {
+                result.put(key, properties.getProperty(key));
+            }
+        }
+        return result;
+    }
+
+    private static List<String> getJvmOptions(String content) {
+        List<String> options = new ArrayList<String>();
+        if (content != null) {
+            for (String line : content.split("\\r?\\n")) {
+                String option = line.trim();
+                if (!option.isEmpty() && !option.startsWith("#")) {
+                    options.add(option);
+                }
+            }
+        }
+        return options;
+    }
+
+    private static String readContent(File file) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        try {
+            return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
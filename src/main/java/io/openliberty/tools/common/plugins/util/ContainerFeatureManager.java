@@ -0,0 +1,128 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tracks the features installed in dev mode containers, so that only the
+ * features a container does not already have are sent to featureUtility. The
+ * installed features of each container are queried once and then updated as
+ * features are installed. Containers are identified by their ID rather than
+ * their name, since a restarted container reuses the name but starts again
+ * from the image.
+ */
+public class ContainerFeatureManager {
+
+    // lower case installed features keyed by container ID
+    private static final Map<String, Set<String>> installedFeatures = new HashMap<String, Set<String>>();
+
+    // a feature name such as jaxrs-2.1 or usr:myFeature-1.0 at the start of a productInfo featureInfo line
+    private static final Pattern FEATURE_INFO_LINE = Pattern.compile("^\\s*((?:\\w+:)?[A-Za-z][\\w.]*-\\d+(?:\\.\\d+)*)(?:\\s|$)");
+
+    private ContainerFeatureManager() {
+    }
+
+    /**
+     * Parse the output of "productInfo featureInfo".
+     *
+     * @param output the command output
+     * @return the lower case names of the installed features
+     */
+    public static Set<String> parseFeatureInfo(String output) {
+        Set<String> features = new HashSet<String>();
+        if (output == null) {
+            return features;
+        }
+        for (String line : output.split("\\r?\\n")) {
+            Matcher m = FEATURE_INFO_LINE.matcher(line);
+            if (m.find()) {
+                features.add(m.group(1).toLowerCase());
+            }
+        }
+        return features;
+    }
+
+    /**
+     * @param containerId the container ID
+     * @return the known installed features of the container, or null if they
+     *         have not been queried yet
+     */
+    public static synchronized Set<String> getInstalledFeatures(String containerId) {
+        Set<String> features = installedFeatures.get(containerId);
+        return features == null ? null : new HashSet<String>(features);
+    }
+
+    /**
+     * @param containerId the container ID
+     * @param features    all of the features installed in the container
+     */
+    public static synchronized void setInstalledFeatures(String containerId, Set<String> features) {
+        installedFeatures.put(containerId, toLowerCase(features));
+    }
+
+    /**
+     * @param containerId the container ID
+     * @param features    features that were just installed in the container
+     */
+    public static synchronized void addInstalledFeatures(String containerId, Collection<String> features) {
+        Set<String> installed = installedFeatures.get(containerId);
+        if (installed != null) {
+            installed.addAll(toLowerCase(features));
+        }
+    }
+
+    /**
+     * Forget the features of a container so that they are queried again.
+     *
+     * @param containerId the container ID
+     */
+    public static synchronized void forget(String containerId) {
+        installedFeatures.remove(containerId);
+    }
+
+    /**
+     * @param requested the features to install
+     * @param installed the lower case installed features
+     * @return the requested features that are not installed, in the requested
+     *         order
+     */
+    public static List<String> getMissingFeatures(Collection<String> requested, Set<String> installed) {
+        List<String> missing = new ArrayList<String>();
+        for (String feature : requested) {
+            if (!installed.contains(feature.trim().toLowerCase())) {
+                missing.add(feature);
+            }
+        }
+        return missing;
+    }
+
+    private static Set<String> toLowerCase(Collection<String> features) {
+        Set<String> result = new HashSet<String>();
+        for (String feature : features) {
+            result.add(feature.trim().toLowerCase());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the directories copied by Dockerfile COPY and ADD commands to their
+ * destinations in the container, so that files changed in those directories
+ * can be copied into the running container instead of rebuilding the image.
+ */
+public class ContainerFileSync {
+
+    /**
+     * A container destination of a source directory
+     */
+    public static class Destination {
+        private final String path;
+        private final int uid;
+        private final int gid;
+
+        /**
+         * @param path the absolute path in the container
+         * @param uid  the owner from the --chown option, or 0
+         * @param gid  the group from the --chown option, or 0
+         */
+        public Destination(String path, int uid, int gid) {
+            this.path = path;
+            this.uid = uid;
+            this.gid = gid;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public int getUid() {
+            return uid;
+        }
+
+        public int getGid() {
+            return gid;
+        }
+
+        @Override
+        public String toString() {
+            return path;
+        }
+    }
+
+    private final Map<Path, List<Destination>> mappings = new LinkedHashMap<Path, List<Destination>>();
+
+    /**
+     * Map a source directory to a COPY or ADD destination. Destinations that are
+     * relative to the WORKDIR or use variables cannot be mapped and are
+     * ignored.
+     *
+     * @param sourceDirectory the canonical source directory
+     * @param destination     the destination argument of the COPY or ADD
+     * @param chown           the value of the --chown option, or null
+     * @return true if the mapping was added
+     */
+    public synchronized boolean addMapping(Path sourceDirectory, String destination, String chown) {
+        if (!destination.startsWith("/") || destination.contains("$")) {
+            return false;
+        }
+        String path = destination.replaceAll("/+$", "");
+        int uid = 0;
+        int gid = 0;
+        if (chown != null) {
+            String[] ids = chown.split(":");
+            try {
+                uid = Integer.parseInt(ids[0]);
+                gid = ids.length > 1 ? Integer.parseInt(ids[1]) : uid;
+            } catch (NumberFormatException e) {
+                return false; // user and group names must be resolved in the container
+            }
+        }
+        List<Destination> destinations = mappings.get(sourceDirectory);
+        if (destinations == null) {
+            destinations = new ArrayList<Destination>();
+            mappings.put(sourceDirectory, destinations);
+        }
+        destinations.add(new Destination(path, uid, gid));
+        return true;
+    }
+
+    public synchronized void clear() {
+        mappings.clear();
+    }
+
+    /**
+     * @param file the canonical path of a changed file
+     * @return the container paths of the file, which is empty if the file is not
+     *         in a mapped directory
+     */
+    public synchronized List<Destination> getDestinations(Path file) {
+        List<Destination> result = new ArrayList<Destination>();
+        for (Map.Entry<Path, List<Destination>> mapping : mappings.entrySet()) {
+            if (file.startsWith(mapping.getKey()) && !file.equals(mapping.getKey())) {
+                String relativePath = mapping.getKey().relativize(file).toString().replace(File.separatorChar, '/');
+                for (Destination destination : mapping.getValue()) {
+                    result.add(new Destination(destination.getPath() + "/" + relativePath, destination.getUid(),
+                            destination.getGid()));
+                }
+            }
+        }
+        return result;
+    }
+}
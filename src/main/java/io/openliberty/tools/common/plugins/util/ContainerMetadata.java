@@ -0,0 +1,138 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ID, state, network addresses and port mappings of a container, read
+ * from a single "docker inspect" result so that they can be looked up without
+ * inspecting the container again.
+ */
+public class ContainerMetadata {
+
+    private final String id;
+    private final String name;
+    private final boolean running;
+    private final String healthStatus;
+    private final Map<String, String> networks;
+    private final Map<String, String> hostPorts;
+
+    private ContainerMetadata(String id, String name, boolean running, String healthStatus, Map<String, String> networks,
+            Map<String, String> hostPorts) {
+        this.id = id;
+        this.name = name;
+        this.running = running;
+        this.healthStatus = healthStatus;
+        this.networks = networks;
+        this.hostPorts = hostPorts;
+    }
+
+    /**
+     * @param inspect the JSON object of a container from the Engine API or the
+     *                "docker container inspect" command
+     * @return the metadata, or null if the value is not a container
+     */
+    public static ContainerMetadata fromInspect(Object inspect) {
+        if (inspect instanceof List && !((List<?>) inspect).isEmpty()) {
+            inspect = ((List<?>) inspect).get(0); // the command prints an array
+        }
+        if (!(inspect instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> container = (Map<?, ?>) inspect;
+        String id = getString(container, "Id");
+        if (id == null) {
+            return null;
+        }
+        String name = getString(container, "Name");
+        if (name != null && name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        Map<?, ?> state = getMap(container, "State");
+        boolean running = Boolean.TRUE.equals(state.get("Running"));
+        String healthStatus = getString(getMap(state, "Health"), "Status");
+
+        Map<?, ?> networkSettings = getMap(container, "NetworkSettings");
+        Map<String, String> networks = new LinkedHashMap<String, String>();
+        for (Map.Entry<?, ?> network : getMap(networkSettings, "Networks").entrySet()) {
+            String address = network.getValue() instanceof Map ? getString((Map<?, ?>) network.getValue(), "IPAddress") : null;
+            networks.put(String.valueOf(network.getKey()), address);
+        }
+        Map<String, String> hostPorts = new LinkedHashMap<String, String>();
+        for (Map.Entry<?, ?> port : getMap(networkSettings, "Ports").entrySet()) {
+            Object bindings = port.getValue();
+            if (bindings instanceof List && !((List<?>) bindings).isEmpty() && ((List<?>) bindings).get(0) instanceof Map) {
+                hostPorts.put(String.valueOf(port.getKey()), getString((Map<?, ?>) ((List<?>) bindings).get(0), "HostPort"));
+            }
+        }
+        return new ContainerMetadata(id, name, running, healthStatus, Collections.unmodifiableMap(networks),
+                Collections.unmodifiableMap(hostPorts));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the container name without the leading slash
+     */
+    public String getName() {
+        return name;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the health status, such as starting or healthy, or null if the
+     *         image does not have a HEALTHCHECK
+     */
+    public String getHealthStatus() {
+        return healthStatus;
+    }
+
+    /**
+     * @return the IP address of the container on each network it is connected
+     *         to, keyed by network name
+     */
+    public Map<String, String> getNetworks() {
+        return networks;
+    }
+
+    /**
+     * @param containerPort the port in the container, such as 9080 or 9080/tcp
+     * @return the host port mapped to the container port, or null if the port is
+     *         not mapped
+     */
+    public String getHostPort(String containerPort) {
+        return hostPorts.get(containerPort.contains("/") ? containerPort : containerPort + "/tcp");
+    }
+
+    private static Map<?, ?> getMap(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        return value instanceof Map ? (Map<?, ?>) value : Collections.emptyMap();
+    }
+
+    private static String getString(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        return value == null ? null : value.toString();
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Waits for the server in a container to be ready using several checks, and
+ * reports the check that detected it first. The container output is checked
+ * for the server started message, the Docker health status and an HTTP
+ * endpoint on the mapped port are probed, and messages.log in the mounted logs
+ * directory is checked as before. On hosts where the mounted log lags behind,
+ * one of the other checks detects the started server first.
+ */
+public class ContainerReadiness {
+
+    /** A comma separated list of the strategies to use, such as log,health */
+    public static final String STRATEGIES_PROPERTY = "io.openliberty.tools.devmode.readiness";
+
+    public enum Strategy {
+        /** The server started message in the container output */
+        LOG,
+        /** The health status of a container image with a HEALTHCHECK */
+        HEALTH,
+        /** A successful response from an HTTP endpoint on the mapped HTTP port */
+        HTTP,
+        /** The server started message in the mounted messages.log */
+        FILE;
+
+        /**
+         * @param value a comma separated list of strategy names, or null
+         * @return the strategies, or all strategies if the value has none
+         */
+        public static Set<Strategy> parse(String value) {
+            Set<Strategy> strategies = EnumSet.noneOf(Strategy.class);
+            if (value != null) {
+                for (String name : value.split(",")) {
+                    for (Strategy strategy : values()) {
+                        if (strategy.name().equalsIgnoreCase(name.trim())) {
+                            strategies.add(strategy);
+                        }
+                    }
+                }
+            }
+            return strategies.isEmpty() ? EnumSet.allOf(Strategy.class) : strategies;
+        }
+    }
+
+    /**
+     * Checks whether the server is ready
+     */
+    public interface Probe {
+        /**
+         * @return true if the server is ready
+         * @throws Exception if the check failed, which is treated as not ready
+         */
+        boolean isReady() throws Exception;
+    }
+
+    /**
+     * Called between checks to stop waiting, for example when the container has
+     * stopped
+     */
+    public interface StopCheck {
+        void check() throws PluginScenarioException;
+    }
+
+    /**
+     * The check that detected the ready server and when
+     */
+    public static class Result {
+        private final Strategy strategy;
+        private final long elapsedMillis;
+
+        private Result(Strategy strategy, long elapsedMillis) {
+            this.strategy = strategy;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public Strategy getStrategy() {
+            return strategy;
+        }
+
+        /**
+         * @return the milliseconds from the start of waiting until the server was
+         *         detected as ready
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return strategy + " after " + elapsedMillis + " ms";
+        }
+    }
+
+    private static class ProbeState {
+        private final Probe probe;
+        private final long intervalMillis;
+        private final boolean background;
+        private long nextCheck;
+        private int failures;
+        // the running background check, which returns the time it detected the ready server or null
+        private Future<Long> running;
+
+        private ProbeState(Probe probe, long intervalMillis, boolean background) {
+            this.probe = probe;
+            this.intervalMillis = intervalMillis;
+            this.background = background;
+        }
+    }
+
+    private static final long POLL_MILLIS = 50;
+
+    private final Map<Strategy, ProbeState> probes = new LinkedHashMap<Strategy, ProbeState>();
+    private final List<String> failures = new ArrayList<String>();
+
+    /**
+     * Add a check. Checks are run in the order they are added.
+     *
+     * @param strategy       the strategy of the check
+     * @param intervalMillis the time between checks, so that checks that call
+     *                       the Docker daemon or the server are not run as often
+     *                       as checks of a flag
+     * @param probe          the check
+     * @return this
+     */
+    public ContainerReadiness add(Strategy strategy, long intervalMillis, Probe probe) {
+        probes.put(strategy, new ProbeState(probe, intervalMillis, false));
+        return this;
+    }
+
+    /**
+     * Add a check that can block, such as a network request. The check runs on
+     * a background thread so that it does not delay the other checks, and the
+     * interval starts when the previous check finishes.
+     *
+     * @param strategy       the strategy of the check
+     * @param intervalMillis the time between checks
+     * @param probe          the check
+     * @return this
+     */
+    public ContainerReadiness addBackground(Strategy strategy, long intervalMillis, Probe probe) {
+        probes.put(strategy, new ProbeState(probe, intervalMillis, true));
+        return this;
+    }
+
+    public Set<Strategy> getStrategies() {
+        return Collections.unmodifiableSet(probes.keySet());
+    }
+
+    /**
+     * @return a message for the first failure of each check that failed while
+     *         waiting
+     */
+    public List<String> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Wait until any of the checks detects the ready server. If several checks
+     * detect it at the same poll, the one that detected it first is reported.
+     *
+     * @param timeoutMillis the time to wait
+     * @param stopCheck     called between checks, or null
+     * @return the check that detected the ready server, or null if none did
+     *         within the timeout
+     */
+    public Result await(long timeoutMillis, StopCheck stopCheck) throws PluginScenarioException, InterruptedException {
+        long start = System.currentTimeMillis();
+        long deadline = start + timeoutMillis;
+        ExecutorService executor = null;
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                Result first = null;
+                for (Map.Entry<Strategy, ProbeState> entry : probes.entrySet()) {
+                    final ProbeState state = entry.getValue();
+                    Long readyTime = null;
+                    if (state.running != null) {
+                        if (!state.running.isDone()) {
+                            continue;
+                        }
+                        try {
+                            readyTime = state.running.get();
+                        } catch (ExecutionException e) {
+                            addFailure(entry.getKey(), state, e.getCause());
+                        }
+                        state.running = null;
+                        state.nextCheck = System.currentTimeMillis() + state.intervalMillis;
+                    } else if (now >= state.nextCheck) {
+                        if (state.background) {
+                            if (executor == null) {
+                                executor = createExecutor();
+                            }
+                            state.running = executor.submit(new Callable<Long>() {
+                                @Override
+                                public Long call() throws Exception {
+                                    return state.probe.isReady() ? System.currentTimeMillis() : null;
+                                }
+                            });
+                            continue;
+                        }
+                        state.nextCheck = now + state.intervalMillis;
+                        try {
+                            if (state.probe.isReady()) {
+                                readyTime = System.currentTimeMillis();
+                            }
+                        } catch (Exception e) {
+                            addFailure(entry.getKey(), state, e);
+                        }
+                    }
+                    if (readyTime != null && (first == null || readyTime - start < first.elapsedMillis)) {
+                        first = new Result(entry.getKey(), readyTime - start);
+                    }
+                }
+                if (first != null) {
+                    return first;
+                }
+                if (stopCheck != null) {
+                    stopCheck.check();
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    return null;
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private void addFailure(Strategy strategy, ProbeState state, Throwable e) {
+        if (state.failures++ == 0) {
+            failures.add(strategy + ": " + e);
+        }
+    }
+
+    private static ExecutorService createExecutor() {
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "liberty-dev-readiness-check");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -29,6 +29,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.ServerSocket;
 import java.net.URL;
@@ -53,6 +54,7 @@ import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -64,6 +66,7 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -104,6 +107,15 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
     private static final String GENERATED_HEADER_REGEX = "# Generated by liberty-.*-plugin";
     private static final String DEVMODE_CONTAINER_BASE_NAME = "liberty-dev";
     private static final String DEVMODE_IMAGE_SUFFIX = "-dev-mode";
+    private static final String CONTAINER_NAME_CONFLICT_MESSAGE = "is already in use by container";
+    private static final int MAX_CONTAINER_NAME_ATTEMPTS = 3;
+    /** The path of the HTTP readiness check on the mapped HTTP port */
+    public static final String READINESS_HTTP_PATH_PROPERTY = "io.openliberty.tools.devmode.readiness.httpPath";
+    private static final String DEFAULT_READINESS_HTTP_PATH = "/health/ready";
+    private static final int READINESS_HTTP_TIMEOUT = 1000; // milliseconds
+    private static final long MESSAGES_LOG_CATCH_UP_TIMEOUT = 10000; // milliseconds
+    /** Set to true to split and reorder the layers of the dev mode Dockerfile to improve Docker cache hits */
+    public static final String LAYER_OPTIMIZATION_PROPERTY = "io.openliberty.tools.devmode.layerOptimization";
     public static final String SKIP_BETA_INSTALL_WARNING = "skipBetaInstallFeatureWarning";
     public static final String DEVC_HIDDEN_FOLDER = ".libertyDevc";
 
@@ -211,7 +223,10 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
     public abstract void runIntegrationTests() throws PluginScenarioException, PluginExecutionException;
 
     /**
-     * Check the configuration file for new features
+     * Check the configuration file for new features. DevUtil does not install
+     * features itself, so implementations must call installAddedFeatures with
+     * the features from ServerFeatureUtil.getServerFeatures to install only the
+     * features that were added. Otherwise every change runs a full install.
      * 
      * @param configFile
      * @param serverDir
@@ -317,6 +332,7 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
     private File dockerfile;
     private File dockerBuildContext;
     private Path tempDockerfilePath = null;
+    private List<String> previousLayerKeys;
     private String dockerRunOpts;
     private volatile Process dockerRunProcess;
     private File defaultDockerfile;
@@ -330,6 +346,20 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
     private Set<Path> dockerfileDirectoriesTracked = new HashSet<Path>();
     private Set<WatchKey> dockerfileDirectoriesWatchKeys = new HashSet<WatchKey>();
     private Set<FileAlterationObserver> dockerfileDirectoriesFileObservers = new HashSet<FileAlterationObserver>();
+    private final ContainerFileSync containerFileSync = new ContainerFileSync();
+    private LogPatternMatcher containerOutputMatcher;
+    private LogPatternMatcher containerErrorMatcher;
+    private final AtomicBoolean serverStartedInContainerOutput = new AtomicBoolean(false);
+    private volatile ContainerMetadata containerMetadata;
+    // messages from the container output that are otherwise read from the mounted messages.log
+    private final List<String> containerOutputMessages = Collections.synchronizedList(new ArrayList<String>());
+    private volatile String generatedContainerName;
+    // the highest number of the dev mode container names in use, or null if not known yet
+    private AtomicInteger containerNameNumber;
+    private volatile SidecarContainers sidecarContainers;
+    private boolean sidecarContainersLoaded;
+    private boolean sidecarNetworkCreated;
+    private final Set<String> reportedSidecarContainers = new HashSet<String>();
     private final JavaCompilerOptions compilerOptions;
     private final String mavenCacheLocation;
     private AtomicBoolean externalContainerShutdown;
@@ -337,6 +367,10 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
     protected AtomicBoolean hasFeaturesSh;
     protected AtomicBoolean serverFullyStarted;
     private final File buildDirectory;
+    private Set<String> existingFeatures;
+    private InstallFeatureUtil featureInstaller;
+    private boolean linkedConfigValidation = true;
+    private final ConfigChangeAnalyzer configChangeAnalyzer = new ConfigChangeAnalyzer();
 
     public DevUtil(File buildDirectory, File serverDirectory, File sourceDirectory, File testSourceDirectory, File configDirectory, File projectDirectory, File multiModuleProjectDirectory,
             List<File> resourceDirs, boolean hotTests, boolean skipTests, boolean skipUTs, boolean skipITs,
@@ -596,6 +630,8 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
 
             if (container) {
                 checkDockerVersion();
+                // the sidecar containers start while the image is built
+                startSidecarContainers();
             }
 
             // build Docker image if in container mode
@@ -621,6 +657,11 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
 
             // Watch logs directory if it already exists
             boolean logsExist = new File(logsDirectory).isDirectory();
+            final long messagesLogModified = messagesLogFile.lastModified();
+
+            if (container) {
+                awaitSidecarContainers();
+            }
 
             // Start server
             serverThread = new Thread(new Runnable() {
@@ -655,110 +696,114 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
             // that the server stopped
             setDevStop(false);
 
-            // If there were already logs from a previous server run, wait for it to be updated.
-            if (logsExist) {
-                final AtomicBoolean messagesModified = new AtomicBoolean(false);
-
-                // If logs already exist, then watch the directory to ensure
-                // messages.log is modified before continuing.
-                FileFilter singleFileFilter = new FileFilter() {
-                    @Override
-                    public boolean accept(File file) {
-                        try {
-                            if (file.getCanonicalFile().equals(messagesLogFile.getCanonicalFile())) {
-                                return true;
-                            }
-                        } catch (IOException e) {
-                            if (file.equals(messagesLogFile)) {
-                                return true;
+            if (container) {
+                waitForContainerReadiness(serverTask, messagesLogFile, messagesLogModified);
+            } else {
+                // If there were already logs from a previous server run, wait for it to be updated.
+                if (logsExist) {
+                    final AtomicBoolean messagesModified = new AtomicBoolean(false);
+
+                    // If logs already exist, then watch the directory to ensure
+                    // messages.log is modified before continuing.
+                    FileFilter singleFileFilter = new FileFilter() {
+                        @Override
+                        public boolean accept(File file) {
+                            try {
+                                if (file.getCanonicalFile().equals(messagesLogFile.getCanonicalFile())) {
+                                    return true;
+                                }
+                            } catch (IOException e) {
+                                if (file.equals(messagesLogFile)) {
+                                    return true;
+                                }
                             }
+                            return false;
                         }
-                        return false;
-                    }
-                };
+                    };
 
-                FileAlterationObserver observer = new FileAlterationObserver(logsDirectory, singleFileFilter);
-                observer.addListener(new FileAlterationListenerAdaptor() {
-                    @Override
-                    public void onFileCreate(File file) {
-                        messagesModified.set(true);
-                    }
+                    FileAlterationObserver observer = new FileAlterationObserver(logsDirectory, singleFileFilter);
+                    observer.addListener(new FileAlterationListenerAdaptor() {
+                        @Override
+                        public void onFileCreate(File file) {
+                            messagesModified.set(true);
+                        }
 
-                    @Override
-                    public void onFileChange(File file) {
-                        messagesModified.set(true);
-                    }
-                });
+                        @Override
+                        public void onFileChange(File file) {
+                            messagesModified.set(true);
+                        }
+                    });
 
-                try {
-                    observer.initialize();
-                    while (!messagesModified.get()) {
-                        checkStopDevMode(false); // stop dev mode if the server thread was terminated
-                        observer.checkAndNotify();
-                        // wait for the log file to update during server startup
-                        Thread.sleep(500);
-                    }
-                    debug("messages.log has been changed");
-                } catch (PluginScenarioException e) {
-                    if (serverThreadException != null) {
-                        throw serverThreadException;
-                    } else {
-                        // the server/container failed to start, so wrap this as an execution exception
-                        throw new PluginExecutionException(e);
+                    try {
+                        observer.initialize();
+                        while (!messagesModified.get()) {
+                            checkStopDevMode(false); // stop dev mode if the server thread was terminated
+                            observer.checkAndNotify();
+                            // wait for the log file to update during server startup
+                            Thread.sleep(500);
+                        }
+                        debug("messages.log has been changed");
+                    } catch (PluginScenarioException e) {
+                        if (serverThreadException != null) {
+                            throw serverThreadException;
+                        } else {
+                            // the server/container failed to start, so wrap this as an execution exception
+                            throw new PluginExecutionException(e);
+                        }
+                    } catch (Exception e) {
+                        error("An error occured while waiting for the server to update messages.log: " + e.getMessage(), e);
+                    } finally {
+                        try {
+                            observer.destroy();
+                        } catch (Exception e) {
+                            debug("Could not destroy FileAlterationObserver for logs directory " + logsDirectory, e);
+                        }
                     }
-                } catch (Exception e) {
-                    error("An error occured while waiting for the server to update messages.log: " + e.getMessage(), e);
-                } finally {
+                } else {
+                    // Wait until log exists
                     try {
-                        observer.destroy();
+                        while (!messagesLogFile.exists()) {
+                            checkStopDevMode(false); // stop dev mode if the server thread was terminated
+                            // wait for the log file to appear during server startup
+                            Thread.sleep(500);
+                        }
+                        debug("messages.log has been created");
+                    } catch (PluginScenarioException e) {
+                        if (serverThreadException != null) {
+                            throw serverThreadException;
+                        } else {
+                            // the server/container failed to start, so wrap this as an execution exception
+                            throw new PluginExecutionException(e);
+                        }
                     } catch (Exception e) {
-                        debug("Could not destroy FileAlterationObserver for logs directory " + logsDirectory, e);
+                        error("An error occured while waiting for the server to create messages.log: " + e.getMessage(), e);
                     }
                 }
-            } else {
-                // Wait until log exists
-                try {
-                    while (!messagesLogFile.exists()) {
-                        checkStopDevMode(false); // stop dev mode if the server thread was terminated
-                        // wait for the log file to appear during server startup
-                        Thread.sleep(500);
-                    }
-                    debug("messages.log has been created");
-                } catch (PluginScenarioException e) {
-                    if (serverThreadException != null) {
-                        throw serverThreadException;
+                // Set server start timeout
+                if (serverStartTimeout < 0) {
+                    warn("The serverStartTimeout value needs to be an integer greater than or equal to 0.  The default value of 90 seconds will be used.");
+                    serverStartTimeout = 90;
+                }
+                long serverStartTimeoutMillis = serverStartTimeout * 1000;
+                // Wait for the server started message in messages.log
+                String startMessage = serverTask.waitForStringInLog(START_SERVER_MESSAGE_PREFIX, serverStartTimeoutMillis,
+                        messagesLogFile);
+                if (startMessage == null) {
+                    setDevStop(true);
+                    if (container) {
+                        stopContainer();
                     } else {
-                        // the server/container failed to start, so wrap this as an execution exception
-                        throw new PluginExecutionException(e);
+                        stopServer();
                     }
-                } catch (Exception e) {
-                    error("An error occured while waiting for the server to create messages.log: " + e.getMessage(), e);
-                }
-            }
-            // Set server start timeout
-            if (serverStartTimeout < 0) {
-                warn("The serverStartTimeout value needs to be an integer greater than or equal to 0.  The default value of 90 seconds will be used.");
-                serverStartTimeout = 90;
-            }
-            long serverStartTimeoutMillis = serverStartTimeout * 1000;
-            // Wait for the server started message in messages.log
-            String startMessage = serverTask.waitForStringInLog(START_SERVER_MESSAGE_PREFIX, serverStartTimeoutMillis,
-                    messagesLogFile);
-            if (startMessage == null) {
-                setDevStop(true);
-                if (container) {
-                    stopContainer();
+                    throw new PluginExecutionException("The server has not started within " + serverStartTimeout + " seconds. " +
+                            "Consider increasing the server start timeout if this continues to occur. " +
+                            "For example, " + getServerStartTimeoutExample());
                 } else {
-                    stopServer();
+                    serverFullyStarted.set(true);
                 }
-                throw new PluginExecutionException("The server has not started within " + serverStartTimeout + " seconds. " +
-                        "Consider increasing the server start timeout if this continues to occur. " +
-                        "For example, " + getServerStartTimeoutExample());
-            } else {
-                serverFullyStarted.set(true);
             }
             // Check for port already in use error
-            String portError = serverTask.findStringInFile(PORT_IN_USE_MESSAGE_PREFIX, messagesLogFile);
+            String portError = findServerMessage(serverTask, PORT_IN_USE_MESSAGE_PREFIX, messagesLogFile);
             if (portError != null) {
                 error(portError.split(PORT_IN_USE_MESSAGE_PREFIX)[1]);
             }
@@ -770,22 +815,34 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
     }
 
     /**
-     * Retrieve the current docker version and compare to a known value.
+     * Retrieve the current Docker engine version and compare to a known value.
+     * The Engine API and the docker CLI fallback both report the engine version.
      * The Maven class ComparableVersion allows for numbers, letters and certain words.
      * Throw an exception if there is a problem with the version.
      */
     private static final String MIN_DOCKER_VERSION = "18.03.0"; // Must use Docker 18.03.0 or higher
     private void checkDockerVersion() throws PluginExecutionException {
-        String versionCmd = "docker version --format {{.Client.Version}}";
-        String dockerVersion = execDockerCmd(versionCmd, DOCKER_TIMEOUT);
+        String dockerVersion = null;
+        DockerEngineClient client = getDockerEngineClient();
+        if (client != null) {
+            try {
+                dockerVersion = client.getVersion();
+            } catch (IOException e) {
+                dockerEngineRequestFailed(e);
+            }
+        }
+        if (dockerVersion == null) {
+            String versionCmd = "docker version --format {{.Server.Version}}";
+            dockerVersion = execDockerCmd(versionCmd, DOCKER_TIMEOUT);
+        }
         if (dockerVersion == null) {
             return; // can't tell if the version is valid.
         }
-        debug("Detected Docker version >" + dockerVersion);
+        debug("Detected Docker engine version >" + dockerVersion);
         ComparableVersion minVer = new ComparableVersion(MIN_DOCKER_VERSION);
         ComparableVersion curVer = new ComparableVersion(dockerVersion);
         if (curVer.compareTo(minVer) < 0) {
-            throw new PluginExecutionException("The detected Docker client version number is not supported:" + dockerVersion.trim() + ". Docker version must be 18.03.0 or higher.");
+            throw new PluginExecutionException("The detected Docker engine version number is not supported:" + dockerVersion.trim() + ". Docker version must be 18.03.0 or higher.");
         }
     }
 
@@ -810,26 +867,7 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
      * Docker documents a couple of directives, but it seems escape must always be the first line to work.
      */
     protected static char getEscapeCharacter(List<String> dockerfileLines) throws PluginExecutionException {
-        if (dockerfileLines.size() > 0) {
-            // Remove white space from the beginning and end of the line
-            String pendingLine = dockerfileLines.get(0).trim();
-            int directiveSymbolIndex = pendingLine.indexOf("#");
-            if (directiveSymbolIndex >= 0) {
-                String contentAfterSymbol = pendingLine.substring(directiveSymbolIndex + 1, pendingLine.length());
-                // trim again after removing preceding symbol
-                String directive = contentAfterSymbol.trim();
-                String[] split = directive.split("=");
-                if (split.length == 2 && split[0].trim().equalsIgnoreCase("escape")) {
-                    String escapeChar = split[1].trim();
-                    if (escapeChar.length() > 0) {
-                        // Get the first char, and don't validate here whether it's a valid escape char
-                        // but just let Docker fail the build if it determines that it is invalid.
-                        return escapeChar.charAt(0);
-                    }
-                }
-            }
-        }
-        return '\\';
+        return dockerfileLines.size() > 0 ? DockerfileModel.getEscapeDirective(dockerfileLines.get(0)) : '\\';
     }
 
     /**
@@ -941,101 +979,125 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
     }
 
     protected void detectFeaturesSh(List<String> dockerfileLines) {
-        // Reset features.sh warning flag
-        shownFeaturesShWarning.set(false);
-
         final String FEATURES_SH_COMMAND_LOWERCASE = "run features.sh";
         for (int i=0; i<dockerfileLines.size(); i++) {
             String line = dockerfileLines.get(i);
             // RUN command is case insensitive, so use lowercase matching.
             if (line.toLowerCase().equals(FEATURES_SH_COMMAND_LOWERCASE)) {
-                debug("Detected RUN features.sh command.");
-                hasFeaturesSh.set(true);
+                setHasFeaturesSh(true);
                 return;
             }
         }
-        // if not detected, reset to false in case the Dockerfile is being rebuilt
-        debug("Did not find RUN features.sh command.");
-        hasFeaturesSh.set(false);
+        setHasFeaturesSh(false);
+    }
+
+    private void setHasFeaturesSh(boolean detected) {
+        // Reset features.sh warning flag
+        shownFeaturesShWarning.set(false);
+        if (detected) {
+            debug("Detected RUN features.sh command.");
+        } else {
+            // if not detected, reset to false in case the Dockerfile is being rebuilt
+            debug("Did not find RUN features.sh command.");
+        }
+        hasFeaturesSh.set(detected);
     }
 
     protected void processCopyLines(List<String> dockerfileLines, String buildContext) throws PluginExecutionException {
+        DockerfileModel model = DockerfileModel.parse(dockerfileLines);
+        processCopyInstructions(model, model.getInstructions(), buildContext);
+    }
+
+    /**
+     * Find the files and directories of COPY and ADD instructions to mount into the container, to
+     * watch for changes and to copy into the running container. Variables are resolved from the ARG
+     * and ENV instructions, and COPY --from of an earlier stage is followed to the COPY instructions
+     * of that stage.
+     */
+    private void processCopyInstructions(DockerfileModel model, List<DockerfileModel.Instruction> instructions,
+            String buildContext) throws PluginExecutionException {
         srcMount.clear();
         destMount.clear();
-        for (String line : dockerfileLines) {
-            // Remove white space from the beginning and end of the line
-            String trimLine = line.trim();
-            if (!trimLine.startsWith("#")) {
-                // Break the Dockerfile line down into segments based on any amount of whitespace.
-                // The command must be to the left of any comments.
-                String[] cmdSegments = trimLine.split("#")[0].split("\\s+");
-                // If the line starts with COPY or ADD
-                if (cmdSegments[0].equalsIgnoreCase("COPY") || cmdSegments[0].equalsIgnoreCase("ADD")) {
-                    if (cmdSegments.length < 3) { // preliminary check but some of these segments could be options
-                        throw new PluginExecutionException("Incorrect syntax on this line in the Dockerfile: '" + line + 
-                        "'. There must be at least two arguments for the COPY or ADD command, a source path and a destination path.");
-                    }
-                    if (line.contains("$")) {
-                        warn("The Dockerfile line '" + line + "' will not be able to be hot deployed to the dev mode container. Dev mode does not currently support environment variables in COPY or ADD commands. If you make changes to files specified by this line, type 'r' and press Enter to rebuild the Docker image and restart the container.");
-                        continue;
-                    }
-                    List<String> srcOrDestArguments = new ArrayList<String>();
-                    boolean skipLine = false;
-                    for (int i = 1; i < cmdSegments.length; i++) { // start after the word COPY (or ADD)
-                        String segment = cmdSegments[i];
-                        if (segment.startsWith("--from")) {
-                            // multi-stage build, COPY only (not ADD), give a warning
-                            warn("The Dockerfile line '" + line + "' will not be able to be hot deployed to the dev mode container. Dev mode does not currently support hot deployment with multi-stage COPY commands.");
-                            skipLine = true; // don't mount the dirs in this COPY command
-                            break;
-                        } else if (segment.startsWith("--")) {
-                            continue; // ignore options
-                        } else {
-                            srcOrDestArguments.add(segment);
-                        }
-                    }
-                    if (skipLine) {
-                        continue;
-                    }
-                    if (srcOrDestArguments.size() < 2) { // proper check for number of src and dest args
-                        throw new PluginExecutionException("Incorrect syntax on this line in the Dockerfile: '" + line + 
-                        "'. There must be at least two arguments for the COPY or ADD command, a source path and a destination path.");
+        containerFileSync.clear();
+        for (DockerfileModel.Instruction instruction : instructions) {
+            if (!instruction.isCopyOrAdd()) {
+                continue;
+            }
+            String line = instruction.getLine();
+            if (instruction.getPaths().size() < 2) {
+                throw new PluginExecutionException("Incorrect syntax on this line in the Dockerfile: '" + line + 
+                "'. There must be at least two arguments for the COPY or ADD command, a source path and a destination path.");
+            }
+            List<String> srcOrDestArguments = instruction.getResolvedPaths();
+            if (srcOrDestArguments == null) {
+                warn("The Dockerfile line '" + line + "' will not be able to be hot deployed to the dev mode container. Dev mode only supports variables in COPY or ADD commands that have a default value from an ARG or ENV command. If you make changes to files specified by this line, type 'r' and press Enter to rebuild the Docker image and restart the container.");
+                continue;
+            }
+            boolean hasVariables = line.contains("$");
+            String from = instruction.getFlag("from");
+            String chown = instruction.getFlag("chown");
+            // dest is the last argument
+            String dest = srcOrDestArguments.get(srcOrDestArguments.size() - 1);
+            List<String> srcArguments = srcOrDestArguments.subList(0, srcOrDestArguments.size() - 1);
+            for (String src : srcArguments) {
+                if (isURL(src)) {
+                    debug("COPY/ADD do not watch/mount URL:" + src);
+                    continue;
+                }
+                if (from != null) {
+                    src = getStageSource(model, instruction, src, buildContext);
+                    if (src == null) {
+                        // multi-stage build from an image, or from files created in the stage, give a warning
+                        warn("The Dockerfile line '" + line + "' will not be able to be hot deployed to the dev mode container. Dev mode only supports hot deployment with multi-stage COPY commands of files that the earlier stage copies from the build context.");
+                        break;
                     }
-                    // dest is the last argument
-                    String dest = srcOrDestArguments.get(srcOrDestArguments.size() - 1);
-                    List<String> srcArguments = srcOrDestArguments.subList(0, srcOrDestArguments.size() - 1);
-                    for (String src : srcArguments) {
-                        if (isURL(src)) {
-                            debug("COPY/ADD do not watch/mount URL:" + src);
-                            continue;
-                        }
-                        String sourcePath = buildContext + "/" + src;
-                        File sourceFile = new File(sourcePath);
-                        if (src.contains("*") || src.contains("?")) {
-                            warn("The COPY or ADD source " + src + " in the Dockerfile line '" + line + "' will not be able to be hot deployed to the dev mode container. Dev mode does not currently support wildcards in the COPY or ADD commands. If you make changes to files specified by this line, type 'r' and press Enter to rebuild the Docker image and restart the container.");
-                        } else if (sourceFile.isDirectory() || cmdSegments[0].equalsIgnoreCase("ADD")) {
-                            synchronized(dockerfileDirectoriesToWatch) {
-                                try {
-                                    dockerfileDirectoriesToWatch.add(sourceFile.getCanonicalFile().toPath());
-                                    debug("COPY/ADD line=" + line + ", src=" + sourcePath + ", added to dockerfileDirectoriesToWatch: " + sourceFile);
-                                } catch (IOException e) {
-                                    // Do not fail here.  Let the Docker build fail instead.
-                                    error("Could not resolve the canonical path of the directory specified in the Dockerfile: " + sourcePath, e);
-                                }
+                }
+                String sourcePath = buildContext + "/" + src;
+                File sourceFile = new File(sourcePath);
+                if (src.contains("*") || src.contains("?")) {
+                    warn("The COPY or ADD source " + src + " in the Dockerfile line '" + line + "' will not be able to be hot deployed to the dev mode container. Dev mode does not currently support wildcards in the COPY or ADD commands. If you make changes to files specified by this line, type 'r' and press Enter to rebuild the Docker image and restart the container.");
+                } else if (hasVariables && !sourceFile.exists()) {
+                    // the variable may be set differently when the image is built, so only use existing files
+                    warn("The COPY or ADD source " + src + " in the Dockerfile line '" + line + "' will not be able to be hot deployed to the dev mode container because it does not exist in the build context. If you make changes to files specified by this line, type 'r' and press Enter to rebuild the Docker image and restart the container.");
+                } else if (sourceFile.isDirectory() || instruction.getKeyword().equals("ADD")) {
+                    synchronized(dockerfileDirectoriesToWatch) {
+                        try {
+                            Path sourceDirectory = sourceFile.getCanonicalFile().toPath();
+                            dockerfileDirectoriesToWatch.add(sourceDirectory);
+                            debug("COPY/ADD line=" + line + ", src=" + sourcePath + ", added to dockerfileDirectoriesToWatch: " + sourceFile);
+                            if (sourceFile.isDirectory() && containerFileSync.addMapping(sourceDirectory, dest, chown)) {
+                                debug("Changes in " + sourceDirectory + " will be copied into the container at " + dest);
                             }
-                        } else {
-                            // No need to validate existence of the file, just let the Docker build fail
-                            String destMountString = formatDestMount(dest, sourceFile);
-                            srcMount.add(sourcePath);
-                            destMount.add(destMountString);
-                            debug("COPY line=" + line + ", src=" + sourcePath + ", dest=" + destMountString);
+                        } catch (IOException e) {
+                            // Do not fail here.  Let the Docker build fail instead.
+                            error("Could not resolve the canonical path of the directory specified in the Dockerfile: " + sourcePath, e);
                         }
                     }
+                } else {
+                    // No need to validate existence of the file, just let the Docker build fail
+                    String destMountString = formatDestMount(dest, sourceFile);
+                    srcMount.add(sourcePath);
+                    destMount.add(destMountString);
+                    debug("COPY line=" + line + ", src=" + sourcePath + ", dest=" + destMountString);
                 }
             }
         }
     }
 
+    /**
+     * @return the existing build context path that an earlier stage copies to the source of a
+     *         COPY --from, or null if there is none
+     */
+    private String getStageSource(DockerfileModel model, DockerfileModel.Instruction copy, String source, String buildContext) {
+        for (String candidate : model.getStageSources(copy, source)) {
+            if (new File(buildContext, candidate).exists()) {
+                debug("COPY --from source " + source + " is copied from the build context path " + candidate);
+                return candidate;
+            }
+        }
+        return null;
+    }
+
     private String formatDestMount(String destMountString, File srcMountFile) {
         // Cannot mount a file onto a directory, so must add a filename to the end of the destination argument for mounting
         if (destMountString.endsWith("/") || destMountString.endsWith("\\")) {
@@ -1061,18 +1123,29 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
     protected File prepareTempDockerfile(File dockerfile, String buildContextString) throws PluginExecutionException {
         // Create a temp Dockerfile to build image from
 
-        List<String> dockerfileLines = readDockerfile(dockerfile);
-        char escape = getEscapeCharacter(dockerfileLines);
-        dockerfileLines = getCleanedLines(dockerfileLines);
-        dockerfileLines = getCombinedLines(dockerfileLines, escape);
-        removeWarFileLines(dockerfileLines);
-        removeEarFileLines(dockerfileLines);
-        processCopyLines(dockerfileLines, buildContextString);
-        detectFeaturesSh(dockerfileLines);
-        disableOpenJ9SCC(dockerfileLines);
+        DockerfileModel model;
+        try {
+            // parsed once per Dockerfile content and reused when the container is rebuilt
+            model = DockerfileModel.load(dockerfile);
+        } catch (IOException e) {
+            error("Failed to read Dockerfile located at " + dockerfile);
+            throw new PluginExecutionException("Could not read Dockerfile " + dockerfile + ": " + e.getMessage(), e);
+        }
+        debug("Application file lines: " + model.getApplicationCopies());
+        processCopyInstructions(model, model.getDevInstructions(), buildContextString);
+        setHasFeaturesSh(model.hasFeaturesSh());
+        if (model.hasConfigureSh()) {
+            debug("Detected RUN configure.sh command.  Skipping OpenJ9 Shared Class Cache.");
+        }
+        List<String> dockerfileLines = model.getDevLines();
+        File buildContext = new File(buildContextString);
+        if ("true".equalsIgnoreCase(System.getProperty(LAYER_OPTIMIZATION_PROPERTY))) {
+            dockerfileLines = optimizeLayers(dockerfileLines, buildContext);
+        }
         for (String line : dockerfileLines) {
             debug(line);
         }
+        reportExpectedCacheHits(dockerfileLines, buildContext);
 
         File tempDockerfile = null;
         try {
@@ -1094,19 +1167,84 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
         return tempDockerfile;
     }
 
+    /**
+     * Compare the layers of the Dockerfile with the previous build to report how
+     * many instructions the Docker build cache is expected to reuse.
+     */
+    /**
+     * Apply each step of the DockerfileLayerOptimizer and log every instruction
+     * it splits or moves.
+     */
+    private List<String> optimizeLayers(List<String> dockerfileLines, File buildContext) {
+        try {
+            List<String> split = DockerfileLayerOptimizer.splitCopies(dockerfileLines);
+            for (String line : dockerfileLines) {
+                if (!split.contains(line)) {
+                    info("Split Dockerfile instruction into one COPY per file: " + line);
+                }
+            }
+            List<String> deferred = DockerfileLayerOptimizer.deferPastFeatures(split, buildContext);
+            logMovedInstructions(split, deferred);
+            List<String> ordered = DockerfileLayerOptimizer.orderByChangeFrequency(deferred, buildContext);
+            logMovedInstructions(deferred, ordered);
+            return ordered;
+        } catch (IOException e) {
+            debug("Could not optimize the layers of the Dockerfile", e);
+            return dockerfileLines;
+        }
+    }
+
+    private void logMovedInstructions(List<String> before, List<String> after) {
+        for (int i = 0; i < after.size(); i++) {
+            String line = after.get(i);
+            int original = before.indexOf(line);
+            if (!line.equals(before.get(i)) && original >= 0) {
+                info("Moved Dockerfile instruction from line " + (original + 1) + " to line " + (i + 1) + ": " + line);
+            }
+        }
+    }
+
+    private void reportExpectedCacheHits(List<String> dockerfileLines, File buildContext) {
+        List<String> layerKeys;
+        try {
+            layerKeys = DockerfileLayerOptimizer.getLayerKeys(dockerfileLines, buildContext);
+        } catch (IOException e) {
+            debug("Could not compute the layer keys of the Dockerfile", e);
+            return;
+        }
+        if (previousLayerKeys != null) {
+            int hits = DockerfileLayerOptimizer.countCacheHits(previousLayerKeys, layerKeys);
+            if (hits < dockerfileLines.size()) {
+                info("Expected Docker build cache hits: " + hits + " of " + dockerfileLines.size()
+                        + " instructions. The first instruction to rebuild is: " + dockerfileLines.get(hits));
+            }
+        }
+        previousLayerKeys = layerKeys;
+    }
+
     private void buildDockerImage(File tempDockerfile, File userDockerfile, boolean pullParentImage, File buildContext) throws PluginExecutionException {
+        imageName = getProjectName() + DEVMODE_IMAGE_SUFFIX;
+        // Name rules: may contain lowercase letters, digits and a period, one or two underscores, or one or more dashes. Cannot start with dash.
+        imageName = imageName.replaceAll("[^a-zA-Z0-9]", "-").replaceAll("^[\\-]+", "").toLowerCase();
+
+        String fingerprint = getBuildFingerprint(tempDockerfile, pullParentImage, buildContext);
+        if (fingerprint != null && fingerprint.equals(getImageLabel(imageName, DockerBuildFingerprint.LABEL))) {
+            info("Reusing Docker image " + imageName + " since the Dockerfile, its parent images and the files it copies have not changed.");
+            return;
+        }
+
         info("Building Docker image...");
 
         try {
-            imageName = getProjectName() + DEVMODE_IMAGE_SUFFIX;
-            // Name rules: may contain lowercase letters, digits and a period, one or two underscores, or one or more dashes. Cannot start with dash.
-            imageName = imageName.replaceAll("[^a-zA-Z0-9]", "-").replaceAll("^[\\-]+", "").toLowerCase();
-
             StringBuilder sb = new StringBuilder();
             sb.append("docker build ");
-            if (pullParentImage) {
+            // a fingerprint means that every parent image was just pulled, so do not ask the registry again
+            if (pullParentImage && fingerprint == null) {
                 sb.append("--pull ");
             }
+            if (fingerprint != null) {
+                sb.append("--label " + DockerBuildFingerprint.LABEL + "=" + fingerprint + " ");
+            }
             sb.append("-f " + tempDockerfile + " -t " + imageName + " " + buildContext.getAbsolutePath());
             String buildCmd = sb.toString();
             info(buildCmd);
@@ -1137,6 +1275,89 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
         }
     }
 
+    /**
+     * Compute the fingerprint of the docker build, pulling the parent images
+     * first if requested so that their current IDs are used.
+     * 
+     * @return the fingerprint, or null if it cannot be determined and the image must be built.
+     *         If pullParentImage is true, a fingerprint is only returned when every parent image was pulled.
+     */
+    private String getBuildFingerprint(File tempDockerfile, boolean pullParentImage, File buildContext) {
+        try {
+            long startTime = System.currentTimeMillis();
+            List<String> dockerfileLines = Files.readAllLines(tempDockerfile.toPath(), StandardCharsets.UTF_8);
+            Map<String, String> parentImageIds = new HashMap<String, String>();
+            for (String parentImage : DockerBuildFingerprint.getParentImages(dockerfileLines)) {
+                if (parentImage.contains("$")) {
+                    return null;
+                }
+                if (pullParentImage) {
+                    String pullResult = execDockerCmd("docker pull " + parentImage, dockerBuildTimeout, false);
+                    if (pullResult != null && pullResult.contains(" RC=")) { // RC is added in execDockerCmd if there is an error
+                        debug("Could not pull the parent image " + parentImage + ": " + pullResult);
+                        return null;
+                    }
+                }
+                String imageId = getImageId(parentImage);
+                if (imageId == null) {
+                    return null;
+                }
+                parentImageIds.put(parentImage, imageId);
+            }
+            String fingerprint = DockerBuildFingerprint.compute(dockerfileLines, parentImageIds, buildContext);
+            debug("Docker build fingerprint " + fingerprint + " computed in " + (System.currentTimeMillis() - startTime) + " ms");
+            return fingerprint;
+        } catch (IOException | RuntimeException e) {
+            debug("Could not compute the Docker build fingerprint", e);
+            return null;
+        }
+    }
+
+    private String getImageId(String image) {
+        DockerEngineClient client = getDockerEngineClient();
+        if (client != null) {
+            try {
+                return client.getImageId(image);
+            } catch (IOException e) {
+                dockerEngineRequestFailed(e);
+            }
+        }
+        String result = execDockerCmd("docker image inspect -f {{.Id}} " + image, DOCKER_TIMEOUT, false);
+        if (result == null || result.contains(" RC=")) { // RC is added in execDockerCmd if there is an error
+            return null;
+        }
+        return result.trim();
+    }
+
+    /**
+     * @return the value of the label on the image, or null if the image or label does not exist
+     */
+    private String getImageLabel(String image, String label) {
+        DockerEngineClient client = getDockerEngineClient();
+        if (client != null) {
+            try {
+                Map<String, String> labels = client.getImageLabels(image);
+                return labels == null ? null : labels.get(label);
+            } catch (IOException e) {
+                dockerEngineRequestFailed(e);
+            }
+        }
+        String result = execDockerCmd("docker image inspect -f {{json .Config.Labels}} " + image, DOCKER_TIMEOUT, false);
+        if (result == null || result.contains(" RC=")) { // RC is added in execDockerCmd if there is an error
+            return null;
+        }
+        try {
+            Object json = JsonParser.parse(result.trim());
+            if (json instanceof Map) {
+                Object value = ((Map<?, ?>) json).get(label);
+                return value == null ? null : value.toString();
+            }
+        } catch (IOException e) {
+            debug("Could not parse the labels of image " + image + ": " + result, e);
+        }
+        return null;
+    }
+
     // Suggest a performance improvement if docker build takes too long.
     private static final long DOCKER_BUILD_SOFT_TIMEOUT = 30000; // millis
     private void checkDockerBuildTime(long startTime, File dockerBuildContext) {
@@ -1160,12 +1381,33 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
     }
 
     private void startContainer() {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                runContainer();
+                return;
+            } catch (RuntimeException r) {
+                // another dev mode process may have started a container with the generated name first
+                if (attempt < MAX_CONTAINER_NAME_ATTEMPTS && containerName != null && containerName.equals(generatedContainerName)
+                        && r.getMessage() != null && r.getMessage().contains(CONTAINER_NAME_CONFLICT_MESSAGE)) {
+                    info("The container name " + containerName + " is already in use. Starting the container with another name...");
+                    resetContainerNameAllocation();
+                    continue;
+                }
+                throw r;
+            }
+        }
+    }
+
+    private void runContainer() {
         try {
             if (OSUtil.isLinux()) {
                 // Allow the server to write to the log files. If we don't create it here docker daemon will create it as root.
                 runCmd("mkdir -p " + serverDirectory + "/logs");
             }
 
+            serverStartedInContainerOutput.set(false);
+            containerMetadata = null;
+            containerOutputMessages.clear();
             info("Starting Docker container...");
             String startContainerCommand = getContainerCommand();
             info(startContainerCommand);
@@ -1177,10 +1419,12 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
         } catch (InterruptedException e) {
             error("Thread was interrupted while starting the container: " + e.getMessage());
         } catch (RuntimeException r) {
+            if (r.getMessage() != null && r.getMessage().contains(CONTAINER_NAME_CONFLICT_MESSAGE)) {
+                throw r; // the container with this name belongs to someone else
+            }
             try {
                 // remove container in case of an error trying to run the container because the docker run --rm will not rm the container
-                String dockerRmCmd = "docker container rm " + containerName;
-                execDockerCmd(dockerRmCmd, DOCKER_TIMEOUT);
+                removeContainer(containerName);
             } catch (Exception e) {
                 // do not report the "docker container rm" error so that we can instead report the startContainer() error
                 debug("Exception running docker container rm:", e);
@@ -1203,22 +1447,28 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
     }
 
     private void execDockerCmdAndLog(final Process startingProcess, int timeout) throws InterruptedException {
-        Thread logCopyInputThread = new Thread(new Runnable() {
+        final LogPatternMatcher outputMatcher = getContainerOutputMatcher();
+        LogPump logPump = LogPump.getShared();
+        logPump.pump(startingProcess.getInputStream(), startingProcess, new LogPump.LineHandler() {
             @Override
-            public void run() {
-                copyStreamToBuildLog(startingProcess.getInputStream(), true);
+            public void handleLines(List<String> lines) {
+                for (String line : lines) {
+                    info(line);
+                    outputMatcher.match(line);
+                }
             }
         });
-        logCopyInputThread.start();
 
-        final StringBuilder firstErrorLine = new StringBuilder();
-        Thread logCopyErrorThread = new Thread(new Runnable() {
+        final LogPatternMatcher errorMatcher = getContainerErrorMatcher();
+        LogPump.Handle errorHandle = logPump.pump(startingProcess.getErrorStream(), startingProcess, new LogPump.LineHandler() {
             @Override
-            public void run() {
-                firstErrorLine.append(copyStreamToBuildLog(startingProcess.getErrorStream(), false));
+            public void handleLines(List<String> lines) {
+                for (String line : lines) {
+                    error(line);
+                    errorMatcher.match(line);
+                }
             }
         });
-        logCopyErrorThread.start();
 
         if (timeout == 0) {
             startingProcess.waitFor();
@@ -1233,68 +1483,77 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
             }
             debug("Unexpected exit running docker command, return value=" + startingProcess.exitValue());
             // show first message from standard err
-            String errorMessage = new String(firstErrorLine).trim() + " RC=" + startingProcess.exitValue();
+            errorHandle.await(DOCKER_TIMEOUT, TimeUnit.SECONDS);
+            String firstErrorLine = errorHandle.getFirstLine();
+            String errorMessage = (firstErrorLine == null ? "" : firstErrorLine.trim()) + " RC=" + startingProcess.exitValue();
             throw new RuntimeException(errorMessage);
         }
     }
 
-    private String runCmd(String cmd) throws IOException, InterruptedException {
-        String result = null;
-        Process p = Runtime.getRuntime().exec(cmd);
-        p.waitFor(5, TimeUnit.SECONDS);
-        if (p.exitValue() != 0) {
-            error("Error running command:" + cmd + ", return value=" + p.exitValue());
-        } else {
-            result = readStdOut(p);
+    /**
+     * @return the matcher for messages on standard output of docker commands
+     */
+    private synchronized LogPatternMatcher getContainerOutputMatcher() {
+        if (containerOutputMatcher == null) {
+            containerOutputMatcher = new LogPatternMatcher().register(START_SERVER_MESSAGE_PREFIX, new LogPatternMatcher.Listener() {
+                @Override
+                public void matched(String code, String line) {
+                    debug("Detected the server started message in the container output.");
+                    serverStartedInContainerOutput.set(true);
+                }
+            });
+            LogPatternMatcher.Listener messageCollector = new LogPatternMatcher.Listener() {
+                @Override
+                public void matched(String code, String line) {
+                    containerOutputMessages.add(line);
+                }
+            };
+            containerOutputMatcher.register(WEB_APP_AVAILABLE_MESSAGE_PREFIX, messageCollector)
+                    .register(LISTENING_ON_PORT_MESSAGE_PREFIX, messageCollector)
+                    .register(PORT_IN_USE_MESSAGE_PREFIX, messageCollector);
         }
-        return result;
+        return containerOutputMatcher;
     }
 
     /**
-     * Copies the process output to the Maven/Gradle logs
-     * 
-     * @param stream The stream to copy
-     * @param info If true, log as info. Else log as error.
-     * @throws RuntimeException if there was an error reading the process output
-     * @return The first line from the stream
-     */
-    private String copyStreamToBuildLog(InputStream stream, boolean info) {
-        String firstLine = null;
-        BufferedReader inputReader = new BufferedReader(new InputStreamReader(stream));
-        try {
-            for (String line; (line = inputReader.readLine()) != null;) {
-                if (firstLine == null) {
-                    firstLine = line;
-                }
-                if (info) {
-                    info(line);
-                } else {
-                    error(line);
-
+     * @return the matcher for messages on standard error of docker commands
+     */
+    private synchronized LogPatternMatcher getContainerErrorMatcher() {
+        if (containerErrorMatcher == null) {
+            containerErrorMatcher = new LogPatternMatcher().register("JVMCFRE003", new LogPatternMatcher.Listener() {
+                @Override
+                public void matched(String code, String line) {
                     // Look for JVM version error in the line
-                    alertOnServerError(line, "JVMCFRE003",
+                    alertOnServerError(line, code,
                             "Java classes were compiled with a higher version of Java than the JVM in the container. To resolve this issue, set the source and target Java versions in your Gradle build to correspond to the Java version used in your Dockerfile or its parent image, then restart dev mode.",
                             // Maven project should be cleaned before restarting dev mode, otherwise compile does not realize Java version settings have changed
                             "Java classes were compiled with a higher version of Java than the JVM in the container. To resolve this issue, set the source and target Java versions in your Maven build to correspond to the Java version used in your Dockerfile or its parent image, then clean the project output and restart dev mode.",
                             false);
-
+                }
+            }).register("CWWKF0001E", new LogPatternMatcher.Listener() {
+                @Override
+                public void matched(String code, String line) {
                     // Look for features not available message during server startup if features.sh was not defined in Dockerfile
-                    if (!serverFullyStarted.get() && !hasFeaturesSh.get() && !shownFeaturesShWarning.get()) {
+                    if (!serverFullyStarted.get() && !serverStartedInContainerOutput.get() && !hasFeaturesSh.get() && !shownFeaturesShWarning.get()) {
                         String errMsg = "Feature definitions were not found in the container. To install features to the container, specify 'RUN features.sh' in your Dockerfile. For an example of how to configure a Dockerfile, see https://github.com/OpenLiberty/ci.docker";
-                        shownFeaturesShWarning.set(alertOnServerError(line, "CWWKF0001E", errMsg, errMsg, true));
+                        shownFeaturesShWarning.set(alertOnServerError(line, code, errMsg, errMsg, true));
                     }
                 }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Error reading container output: " + e.getMessage());
-        } finally {
-            try {
-                inputReader.close();
-            } catch (IOException e) {
-                // nothing to do
-            }
+            });
         }
-        return firstLine;
+        return containerErrorMatcher;
+    }
+
+    private String runCmd(String cmd) throws IOException, InterruptedException {
+        String result = null;
+        Process p = Runtime.getRuntime().exec(cmd);
+        p.waitFor(5, TimeUnit.SECONDS);
+        if (p.exitValue() != 0) {
+            error("Error running command:" + cmd + ", return value=" + p.exitValue());
+        } else {
+            result = readStdOut(p);
+        }
+        return result;
     }
 
     private boolean alertOnServerError(String line, String errorCode, String gradleMessage, String mavenMessage, boolean warning) {
@@ -1330,12 +1589,14 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
     private void stopContainer() {
         try {
             serverFullyStarted.set(false);
+            serverStartedInContainerOutput.set(false);
+            containerMetadata = null;
 
             // see if docker run command (container) is still running before trying to stop it.
             if (dockerRunProcess != null && dockerRunProcess.isAlive()) {
                 info("Stopping container...");
-                String dockerStopCmd = "docker stop " + containerName;
                 debug("Stopping container " + containerName);
+                String dockerStopCmd = "docker stop " + containerName;
                 execDockerCmd(dockerStopCmd, DOCKER_TIMEOUT + 20); // allow extra time for server shutdown
             }
         } catch (RuntimeException r) {
@@ -1346,10 +1607,165 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
         }
     }
 
-    private String execDockerCmd(String command, int timeout) {
-        return execDockerCmd(command, timeout, true);
-    }
-
+    private String execDockerCmd(String command, int timeout) {
+        return execDockerCmd(command, timeout, true);
+    }
+
+    private void removeContainer(String contName) {
+        String dockerRmCmd = "docker container rm " + contName;
+        execDockerCmd(dockerRmCmd, DOCKER_TIMEOUT);
+    }
+
+    /**
+     * @return the sidecar containers declared in the file named by the
+     *         io.openliberty.tools.devmode.sidecars system property, or null if
+     *         none are declared
+     */
+    private SidecarContainers getSidecarContainers() throws PluginExecutionException {
+        if (sidecarContainersLoaded) {
+            return sidecarContainers;
+        }
+        sidecarContainersLoaded = true;
+        String path = System.getProperty(SidecarContainers.PROPERTY);
+        if (path == null || path.trim().isEmpty()) {
+            return null;
+        }
+        File file = new File(path.trim());
+        if (!file.isAbsolute()) {
+            file = new File(projectDirectory, path.trim());
+        }
+        List<SidecarContainers.Sidecar> sidecars;
+        try {
+            sidecars = SidecarContainers.load(file);
+        } catch (IOException e) {
+            throw new PluginExecutionException("Could not read the sidecar containers from " + file + ": " + e.getMessage(), e);
+        }
+        if (sidecars.isEmpty()) {
+            return null;
+        }
+        // Name rules: may contain lowercase letters, digits and a period, one or two underscores, or one or more dashes. Cannot start with dash.
+        String prefix = getProjectName().replaceAll("[^a-zA-Z0-9]", "-").replaceAll("^[\\-]+", "").toLowerCase();
+        String network = getDockerOption("--network");
+        if (network == null) {
+            network = getDockerOption("--net");
+        }
+        if (network == null) {
+            network = prefix + "-dev-network";
+            sidecarNetworkCreated = createNetwork(network);
+        }
+        sidecarContainers = new SidecarContainers(sidecars, prefix, network, new SidecarContainers.Docker() {
+            @Override
+            public void run(String command) throws PluginExecutionException {
+                info(command);
+                // allow time to pull the image
+                String result = execDockerCmd(command, dockerBuildTimeout, false);
+                if (result != null && result.contains(" RC=")) { // RC is added in execDockerCmd if there is an error
+                    throw new PluginExecutionException("Could not start the sidecar container: " + result);
+                }
+            }
+
+            @Override
+            public ContainerMetadata inspect(String containerName) {
+                return inspectContainer(containerName);
+            }
+
+            @Override
+            public void followLogs(String containerName, OutputLineHandler handler) {
+                try {
+                    Process process = new ProcessBuilder("docker", "logs", "-f", containerName).redirectErrorStream(true).start();
+                    try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                        String line;
+                        while ((line = in.readLine()) != null) {
+                            handler.handleLine(line);
+                        }
+                    }
+                } catch (IOException e) {
+                    debug("Could not follow the output of the sidecar container " + containerName, e);
+                }
+            }
+
+            @Override
+            public void remove(String containerName) {
+                execDockerCmd("docker rm -f " + containerName, DOCKER_TIMEOUT, false);
+            }
+        });
+        return sidecarContainers;
+    }
+
+    /**
+     * @return true if the network was created, or false if it already exists
+     */
+    private boolean createNetwork(String network) throws PluginExecutionException {
+        String result = execDockerCmd("docker network inspect " + network, DOCKER_TIMEOUT, false);
+        if (result != null && !result.contains(" RC=")) { // RC is added in execDockerCmd if there is an error
+            return false;
+        }
+        result = execDockerCmd("docker network create " + network, DOCKER_TIMEOUT, false);
+        if (result != null && result.contains(" RC=")) {
+            throw new PluginExecutionException("Could not create the Docker network " + network + " for the sidecar containers: " + result);
+        }
+        return true;
+    }
+
+    /**
+     * Start the sidecar containers in the background, if any are declared and they are not
+     * running yet. They keep running when the dev mode container is restarted.
+     */
+    private void startSidecarContainers() throws PluginExecutionException {
+        SidecarContainers sidecars = getSidecarContainers();
+        if (sidecars == null) {
+            return;
+        }
+        if (serverStartTimeout < 0) {
+            warn("The serverStartTimeout value needs to be an integer greater than or equal to 0.  The default value of 90 seconds will be used.");
+            serverStartTimeout = 90;
+        }
+        if (sidecars.start((serverStartTimeout + DOCKER_TIMEOUT) * 1000L)) {
+            info("Starting the sidecar containers " + sidecars.getSidecars() + " on the Docker network " + sidecars.getNetwork() + "...");
+        }
+    }
+
+    /**
+     * Wait until all sidecar containers are ready, so that the server can connect to them when it starts.
+     */
+    private void awaitSidecarContainers() throws PluginExecutionException {
+        SidecarContainers sidecars = sidecarContainers;
+        if (sidecars == null) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        Map<SidecarContainers.Sidecar, ContainerReadiness.Result> results = sidecars.awaitReady();
+        for (Map.Entry<SidecarContainers.Sidecar, ContainerReadiness.Result> result : results.entrySet()) {
+            String name = sidecars.getContainerName(result.getKey());
+            if (!reportedSidecarContainers.add(name)) {
+                continue;
+            }
+            ContainerMetadata metadata = inspectContainer(name);
+            String address = metadata == null ? null : metadata.getNetworks().get(sidecars.getNetwork());
+            info("The sidecar container " + name + " is ready and reachable as host " + result.getKey().getName()
+                    + (address == null || address.isEmpty() ? "" : " with IP address " + address) + " on the Docker network "
+                    + sidecars.getNetwork() + ".");
+            debug("The sidecar container " + name + " was detected as ready by the " + result.getValue().getStrategy()
+                    + " readiness check after " + result.getValue().getElapsedMillis() + " ms.");
+        }
+        debug("Waited " + (System.currentTimeMillis() - startTime) + " ms for the sidecar containers.");
+    }
+
+    private void stopSidecarContainers() {
+        SidecarContainers sidecars = sidecarContainers;
+        if (sidecars == null) {
+            return;
+        }
+        info("Stopping the sidecar containers...");
+        sidecars.stop(DOCKER_TIMEOUT * 1000L);
+        if (sidecarNetworkCreated) {
+            String result = execDockerCmd("docker network rm " + sidecars.getNetwork(), DOCKER_TIMEOUT, false);
+            if (result != null && result.contains(" RC=")) {
+                debug("Could not remove the Docker network " + sidecars.getNetwork() + ": " + result);
+            }
+        }
+    }
+
     /**
      * Get the root directory for mounting loose app in container.  This is the longest common directory between the projectDirectory and multiModuleProjectDirectory.
      * 
@@ -1457,6 +1873,12 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
         }
         debug("containerName: " + containerName + ".");
 
+        // join the network of the sidecar containers, unless the user chose a network for both
+        SidecarContainers sidecars = sidecarContainers;
+        if (sidecars != null && getDockerOption("--network") == null && getDockerOption("--net") == null) {
+            command.append(" --network " + sidecars.getNetwork());
+        }
+
         // Allow the user to add their own options to this command via a system property.
         if (dockerRunOpts != null) {
             command.append(" "+dockerRunOpts);
@@ -1495,17 +1917,63 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
         return null;
     }
 
+    /**
+     * Allocate a name for the dev mode container. The names in use are listed once, filtered by the
+     * daemon to the dev mode container names, and later names are allocated from a counter. A
+     * restarted container reuses the name of the container it replaces, which was removed when it
+     * stopped. If docker run reports that the name is in use, the names are listed again.
+     */
     private String generateNewContainerName() {
-        String dockerContNamesCmd = "docker ps -a --format \"{{.Names}}\"";
-        debug("docker container names list command: " + dockerContNamesCmd);
-        String result = execDockerCmd(dockerContNamesCmd, DOCKER_TIMEOUT);
-        if (result == null) {
-            return DEVMODE_CONTAINER_BASE_NAME;
+        String previous = generatedContainerName;
+        if (previous != null) {
+            return previous;
+        }
+        AtomicInteger number = containerNameNumber;
+        if (number == null) {
+            number = new AtomicInteger(getHighestContainerNameNumber());
+            containerNameNumber = number;
+        }
+        int next = number.incrementAndGet();
+        String name = DEVMODE_CONTAINER_BASE_NAME + (next > 0 ? "-" + next : "");
+        generatedContainerName = name;
+        return name;
+    }
+
+    private void resetContainerNameAllocation() {
+        generatedContainerName = null;
+        containerNameNumber = null;
+    }
+
+    /**
+     * @return the highest number of the dev mode container names in use, 0 for the base name, or -1
+     *         if none are in use
+     */
+    private int getHighestContainerNameNumber() {
+        List<String> containerNames = null;
+        DockerEngineClient client = getDockerEngineClient();
+        if (client != null) {
+            try {
+                containerNames = client.getContainerNames(true, DEVMODE_CONTAINER_BASE_NAME);
+            } catch (IOException e) {
+                dockerEngineRequestFailed(e);
+            }
+        }
+        if (containerNames == null) {
+            String dockerContNamesCmd = "docker ps -a --filter name=" + DEVMODE_CONTAINER_BASE_NAME + " --format \"{{.Names}}\"";
+            debug("docker container names list command: " + dockerContNamesCmd);
+            String result = execDockerCmd(dockerContNamesCmd, DOCKER_TIMEOUT);
+            if (result == null) {
+                return -1;
+            }
+            containerNames = Arrays.asList(result.split(" "));
         }
-        String[] containerNames = result.split(" ");
+        return getHighestContainerNameNumber(containerNames);
+    }
+
+    protected static int getHighestContainerNameNumber(List<String> containerNames) {
         int highestNum = -1;
-        for(int i = 0; i < containerNames.length; i++) {
-            String name = removeSurroundingQuotes(containerNames[i]);
+        for (String containerName : containerNames) {
+            String name = removeSurroundingQuotes(containerName);
             int num = -1;
             if (name.equals(DEVMODE_CONTAINER_BASE_NAME)) {
                 num = 0;
@@ -1517,7 +1985,7 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
                     try {
                         num = Integer.parseInt(lastSegment);
                     } catch (NumberFormatException e) {
-                        debug("Last segment of container name is not a number.");
+                        // not a generated dev mode container name
                     }
                 }
             }
@@ -1525,8 +1993,83 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
                 highestNum = num;
             }
         }
-        
-        return DEVMODE_CONTAINER_BASE_NAME + ((highestNum != -1) ? "-" + ++highestNum : "");
+        return highestNum;
+    }
+
+    /**
+     * Get the metadata of the dev mode container from one inspection. The metadata of a running
+     * container is kept until the container is started or stopped again.
+     *
+     * @return the metadata, or null if the container could not be inspected
+     */
+    private ContainerMetadata getContainerMetadata() {
+        return getContainerMetadata(false);
+    }
+
+    /**
+     * @param refresh true to inspect the container again, such as to get its current health status
+     */
+    private ContainerMetadata getContainerMetadata(boolean refresh) {
+        String name = containerName;
+        ContainerMetadata metadata = containerMetadata;
+        if (!refresh && metadata != null && name != null && name.equals(metadata.getName())) {
+            return metadata;
+        }
+        if (name == null) {
+            return null;
+        }
+        metadata = inspectContainer(name);
+        if (metadata != null && metadata.isRunning()) {
+            // the networks and ports of a running container do not change until it is restarted
+            containerMetadata = metadata;
+        }
+        return metadata;
+    }
+
+    /**
+     * @param contName the name of a container
+     * @return the metadata, or null if the container does not exist or could not be inspected
+     */
+    private ContainerMetadata inspectContainer(String contName) {
+        DockerEngineClient client = getDockerEngineClient();
+        if (client != null) {
+            try {
+                return client.getContainerMetadata(contName);
+            } catch (IOException e) {
+                dockerEngineRequestFailed(e);
+            }
+        }
+        ContainerMetadata metadata = null;
+        String result = execDockerCmd("docker container inspect " + contName, DOCKER_TIMEOUT, false);
+        if (result != null && !result.contains(" RC=")) { // RC is added in execDockerCmd if there is an error
+            try {
+                metadata = ContainerMetadata.fromInspect(JsonParser.parse(result));
+            } catch (IOException e) {
+                debug("Could not parse the docker container inspect result", e);
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Retrieves the IP addresses of a container on each network it is connected to
+     * @param contName name of the container to check for networks
+     * @return the IP addresses keyed by network name, or null if the networks could not be retrieved
+     */
+    private Map<String, String> getContainerNetworkAddresses(String contName) {
+        ContainerMetadata metadata = getContainerMetadata();
+        if (metadata != null && contName.equals(metadata.getName())) {
+            return metadata.getNetworks();
+        }
+        String[] networks = getContainerNetworks(contName);
+        if (networks == null) {
+            return null;
+        }
+        Map<String, String> addresses = new LinkedHashMap<String, String>();
+        for (String network : networks) {
+            addresses.put(network, getContainerIPAddress(contName, network));
+        }
+        return addresses;
     }
 
     /**
@@ -1660,9 +2203,13 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
         }
         // suppress install feature warning
         System.setProperty(SKIP_BETA_INSTALL_WARNING, Boolean.TRUE.toString());
+        if (!container) {
+            prefetchFeatures();
+        }
         libertyCreate();
         // Skip installing features on container during restart, since the Dockerfile should have 'RUN features.sh'
         if (!container) {
+            awaitFeaturePrefetch();
             libertyInstallFeature();
         }
         libertyDeploy();
@@ -1672,16 +2219,170 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
         printDevModeMessages(inputUnavailable.get(), true);
     }
 
+    /**
+     * Wait for the server in the container to start, using the readiness checks from the
+     * io.openliberty.tools.devmode.readiness system property. The container output and the Docker
+     * and HTTP checks are not delayed by the file sharing of the mounted logs directory.
+     */
+    private void waitForContainerReadiness(final ServerTask serverTask, final File messagesLogFile,
+            final long messagesLogModified) throws PluginExecutionException {
+        // Set server start timeout
+        if (serverStartTimeout < 0) {
+            warn("The serverStartTimeout value needs to be an integer greater than or equal to 0.  The default value of 90 seconds will be used.");
+            serverStartTimeout = 90;
+        }
+        ContainerReadiness.Probe fileProbe = new ContainerReadiness.Probe() {
+            @Override
+            public boolean isReady() throws Exception {
+                // wait for the messages.log of this server run, not of the previous one
+                return messagesLogFile.lastModified() != messagesLogModified
+                        && serverTask.findStringInFile(START_SERVER_MESSAGE_PREFIX, messagesLogFile) != null;
+            }
+        };
+        ContainerReadiness readiness = getContainerReadiness(fileProbe);
+        debug("Waiting for the server to start with the readiness checks " + readiness.getStrategies());
+        ContainerReadiness.Result result;
+        // allow time for the container to start before the server start timeout
+        long timeoutSeconds = serverStartTimeout + DOCKER_TIMEOUT;
+        try {
+            result = readiness.await(timeoutSeconds * 1000, new ContainerReadiness.StopCheck() {
+                @Override
+                public void check() throws PluginScenarioException {
+                    checkStopDevMode(false); // stop dev mode if the server thread was terminated
+                }
+            });
+        } catch (PluginScenarioException e) {
+            if (serverThreadException != null) {
+                throw serverThreadException;
+            } else {
+                // the server/container failed to start, so wrap this as an execution exception
+                throw new PluginExecutionException(e);
+            }
+        } catch (InterruptedException e) {
+            throw new PluginExecutionException("Interrupted while waiting for the server to start", e);
+        }
+        for (String failure : readiness.getFailures()) {
+            debug("Readiness check failed: " + failure);
+        }
+        if (result == null) {
+            setDevStop(true);
+            stopContainer();
+            throw new PluginExecutionException("The server has not started within " + timeoutSeconds + " seconds, which includes "
+                    + DOCKER_TIMEOUT + " seconds for the container to start. " +
+                    "Consider increasing the server start timeout if this continues to occur. " +
+                    "For example, " + getServerStartTimeoutExample());
+        }
+        serverFullyStarted.set(true);
+        debug("The server start was detected by the " + result.getStrategy() + " readiness check after "
+                + result.getElapsedMillis() + " ms.");
+
+        if (result.getStrategy() != ContainerReadiness.Strategy.FILE
+                && getContainerOutputMessages(LISTENING_ON_PORT_MESSAGE_PREFIX).isEmpty()) {
+            // the ports that are not in the container output are read from messages.log, so let it catch up
+            try {
+                ContainerReadiness.Result caughtUp = new ContainerReadiness()
+                        .add(ContainerReadiness.Strategy.FILE, 250, fileProbe)
+                        .await(MESSAGES_LOG_CATCH_UP_TIMEOUT, null);
+                debug(caughtUp == null ? "messages.log did not show the server start within " + MESSAGES_LOG_CATCH_UP_TIMEOUT + " ms."
+                        : "messages.log showed the server start " + caughtUp.getElapsedMillis() + " ms later.");
+            } catch (PluginScenarioException | InterruptedException e) {
+                debug("Stopped waiting for messages.log", e);
+            }
+        }
+    }
+
+    private ContainerReadiness getContainerReadiness(ContainerReadiness.Probe fileProbe) {
+        Set<ContainerReadiness.Strategy> strategies = ContainerReadiness.Strategy.parse(
+                System.getProperty(ContainerReadiness.STRATEGIES_PROPERTY));
+        ContainerReadiness readiness = new ContainerReadiness();
+        if (strategies.contains(ContainerReadiness.Strategy.LOG)) {
+            readiness.add(ContainerReadiness.Strategy.LOG, 0, new ContainerReadiness.Probe() {
+                @Override
+                public boolean isReady() {
+                    return serverStartedInContainerOutput.get();
+                }
+            });
+        }
+        if (strategies.contains(ContainerReadiness.Strategy.HEALTH)) {
+            readiness.addBackground(ContainerReadiness.Strategy.HEALTH, 1000, new ContainerReadiness.Probe() {
+                private volatile boolean noHealthCheck;
+
+                @Override
+                public boolean isReady() {
+                    if (noHealthCheck) {
+                        return false;
+                    }
+                    ContainerMetadata metadata = getContainerMetadata(true);
+                    if (metadata != null && metadata.isRunning() && metadata.getHealthStatus() == null) {
+                        debug("The container image does not have a HEALTHCHECK.");
+                        noHealthCheck = true;
+                    }
+                    return metadata != null && "healthy".equals(metadata.getHealthStatus());
+                }
+            });
+        }
+        if (strategies.contains(ContainerReadiness.Strategy.HTTP) && !skipDefaultPorts) {
+            final String path = System.getProperty(READINESS_HTTP_PATH_PROPERTY, DEFAULT_READINESS_HTTP_PATH);
+            readiness.addBackground(ContainerReadiness.Strategy.HTTP, 500, new ContainerReadiness.Probe() {
+                @Override
+                public boolean isReady() throws IOException {
+                    ContainerMetadata metadata = getContainerMetadata();
+                    String port = metadata == null ? null : metadata.getHostPort(String.valueOf(LIBERTY_DEFAULT_HTTP_PORT));
+                    if (port == null) {
+                        return false;
+                    }
+                    HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+                    connection.setConnectTimeout(READINESS_HTTP_TIMEOUT);
+                    connection.setReadTimeout(READINESS_HTTP_TIMEOUT);
+                    try {
+                        int status = connection.getResponseCode();
+                        return status >= 200 && status < 300;
+                    } finally {
+                        connection.disconnect();
+                    }
+                }
+            });
+        }
+        if (strategies.contains(ContainerReadiness.Strategy.FILE)) {
+            readiness.add(ContainerReadiness.Strategy.FILE, 500, fileProbe);
+        }
+        return readiness;
+    }
+
+    private List<String> getContainerOutputMessages(String prefix) {
+        List<String> messages = new ArrayList<String>();
+        if (container) {
+            synchronized (containerOutputMessages) {
+                for (String message : containerOutputMessages) {
+                    if (message.contains(prefix)) {
+                        messages.add(message);
+                    }
+                }
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * @return the first message with the prefix from the container output, or from messages.log
+     */
+    private String findServerMessage(ServerTask serverTask, String prefix, File messagesLogFile) {
+        List<String> messages = getContainerOutputMessages(prefix);
+        return messages.isEmpty() ? serverTask.findStringInFile(prefix, messagesLogFile) : messages.get(0);
+    }
+
     private void parseHostNameAndPorts(final ServerTask serverTask, File messagesLogFile)
             throws PluginExecutionException {
-        String webAppMessage = serverTask.findStringInFile(WEB_APP_AVAILABLE_MESSAGE_PREFIX, messagesLogFile);
+        String webAppMessage = findServerMessage(serverTask, WEB_APP_AVAILABLE_MESSAGE_PREFIX, messagesLogFile);
         debug("Web app available message: " + webAppMessage);
         if (webAppMessage != null) {
             int portPrefixIndex = parseHostName(webAppMessage);
             parseHttpPort(webAppMessage, portPrefixIndex);
         }
-        List<String> listeningOnPortMessages = serverTask.findStringsInFile(LISTENING_ON_PORT_MESSAGE_PREFIX,
-                messagesLogFile);
+        List<String> listeningOnPortMessages = getContainerOutputMessages(LISTENING_ON_PORT_MESSAGE_PREFIX);
+        if (listeningOnPortMessages.isEmpty()) {
+            listeningOnPortMessages = serverTask.findStringsInFile(LISTENING_ON_PORT_MESSAGE_PREFIX, messagesLogFile);
+        }
         if (listeningOnPortMessages != null) {
             parseHttpsPort(listeningOnPortMessages);
         }
@@ -1802,6 +2503,12 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
     }
 
     private String findLocalPort(String internalContainerPort) {
+        ContainerMetadata metadata = getContainerMetadata();
+        String mappedPort = metadata == null ? null : metadata.getHostPort(internalContainerPort);
+        if (mappedPort != null) {
+            debug("Local port: " + mappedPort);
+            return mappedPort;
+        }
         String dockerPortCmd = "docker port " + containerName + " " + internalContainerPort;
         String cmdResult = execDockerCmd(dockerPortCmd, DOCKER_TIMEOUT, false);
         if (cmdResult == null) {
@@ -1898,6 +2605,7 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
             }
 
             setDevStop(true);
+            closeFeatureInstaller();
             cleanUpTempConfig();
             cleanUpServerEnv();
 
@@ -1912,6 +2620,7 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
             if (container) {
                 cleanUpTempDockerfile();
                 stopContainer();
+                stopSidecarContainers();
             } else {
                 stopServer();
             }
@@ -2226,10 +2935,11 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
                 info(formatAttentionTitle("Docker network information:"));
                 info(formatAttentionMessage("Container name: [ " + containerName + " ]"));
 
-                String[] networks = getContainerNetworks(containerName);
+                Map<String, String> networks = getContainerNetworkAddresses(containerName);
                 if (networks != null) {
-                    for (String network : networks) {
-                        info(formatAttentionMessage("IP address [ " + getContainerIPAddress(containerName, network) + " ] on Docker network [ " + network + " ]"));
+                    for (Map.Entry<String, String> network : networks.entrySet()) {
+                        String ipAddress = network.getValue() == null || network.getValue().isEmpty() ? "<no value>" : network.getValue();
+                        info(formatAttentionMessage("IP address [ " + ipAddress + " ] on Docker network [ " + network.getKey() + " ]"));
                     }
                 }
             }
@@ -2429,12 +3139,14 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
             if (bootstrapPropertiesFile != null && bootstrapPropertiesFile.exists() && bootstrapPropertiesFileParent.exists()) {
                 Path bootstrapPropertiesFilePath = bootstrapPropertiesFileParent.getCanonicalFile().toPath();
                 registerAll(bootstrapPropertiesFilePath, executor);
+                configChangeAnalyzer.snapshot(bootstrapPropertiesFile);
                 bootstrapPropertiesFileRegistered = true;
             }
 
             if (jvmOptionsFile != null && jvmOptionsFile.exists() && jvmOptionsFileParent.exists()) {
                 Path jvmOptionsFilePath = jvmOptionsFileParent.getCanonicalFile().toPath();
                 registerAll(jvmOptionsFilePath, executor);
+                configChangeAnalyzer.snapshot(jvmOptionsFile);
                 jvmOptionsFileRegistered = true;
             }
 
@@ -3003,31 +3715,40 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
                                                                                             // files
             if (fileChanged.exists() && (changeType == ChangeType.MODIFY
                     || changeType == ChangeType.CREATE)) {
+                // compare with the previous version of the file before it is replaced in the server directory
+                File previousFile = getTargetFile(fileChanged, configDirectory, serverDirectory, null);
+                ConfigChangeAnalyzer.Result configChange = ConfigChangeAnalyzer.analyze(previousFile, fileChanged);
+                debug("Impact of the change to " + fileChanged.getName() + ": " + configChange);
+
                 // suppress install feature warning - property must be set before calling copyConfigFolder
                 System.setProperty(SKIP_BETA_INSTALL_WARNING, Boolean.TRUE.toString());
                 copyConfigFolder(fileChanged, configDirectory, null);
                 copyFile(fileChanged, configDirectory, serverDirectory, null);
 
-                if (isDockerfileDirectoryChanged(serverDirectory, fileChanged)) {
+                if (isDockerfileRebuildRequired(changeType, previousFile, fileChanged)) {
                     untrackDockerfileDirectoriesAndRestart();
                 } else {
-                    if (changeType == ChangeType.CREATE) {
+                    if (isRedeployRequired(changeType == ChangeType.CREATE, configChange)) {
+                        info("Redeploying the application for the configuration change to " + fileChanged.getName()
+                                + (configChange.getReasons().isEmpty() ? "" : ": " + configChange.getReasons()));
                         redeployApp();
                     }
                     if (fileChanged.getName().equals("server.env")) {
                         // re-enable debug variables in server.env
                         enableServerDebug(false);
+                        if (configChange.requiresRestart()) {
+                            info("Changes to server.env take effect the next time the server is restarted: " + configChange.getReasons());
+                        }
                     } else if ((fileChanged.getName().equals("bootstrap.properties") && bootstrapPropertiesFileParent == null)
                          || (fileChanged.getName().equals("jvm.options") && jvmOptionsFileParent == null)) {
-                        // restart server to load new properties
-                        restartServer(false);
+                        restartServerForConfigChange(configChange);
                     }
                 }
                 runTestThread(true, executor, numApplicationUpdatedMessages, true, false);
             } else if (changeType == ChangeType.DELETE) {
                 info("Config file deleted: " + fileChanged.getName());
                 deleteFile(fileChanged, configDirectory, serverDirectory, null);
-                if (isDockerfileDirectoryChanged(serverDirectory, fileChanged)) {
+                if (isDockerfileRebuildRequired(changeType, getTargetFile(fileChanged, configDirectory, serverDirectory, null), fileChanged)) {
                     untrackDockerfileDirectoriesAndRestart();
                 } else {
                     if (fileChanged.getName().equals("server.env")) {
@@ -3055,7 +3776,7 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
                 System.setProperty(SKIP_BETA_INSTALL_WARNING, Boolean.TRUE.toString());
                 copyConfigFolder(fileChanged, serverXmlFileParent, "server.xml");
                 copyFile(fileChanged, serverXmlFileParent, serverDirectory, "server.xml");
-                if (isDockerfileDirectoryChanged(serverDirectory, fileChanged)) {
+                if (isDockerfileRebuildRequired(changeType, getTargetFile(fileChanged, serverXmlFileParent, serverDirectory, "server.xml"), fileChanged)) {
                     untrackDockerfileDirectoriesAndRestart();
                 } else if (changeType == ChangeType.CREATE) {
                     redeployApp();
@@ -3066,7 +3787,7 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
                 info("Config file deleted: " + fileChanged.getName());
                 deleteFile(fileChanged, configDirectory, serverDirectory, "server.xml");
                 // Let this restart if needed for container mode.  Otherwise, nothing else needs to be done for config file delete.
-                if (isDockerfileDirectoryChanged(serverDirectory, fileChanged)) {
+                if (isDockerfileRebuildRequired(changeType, getTargetFile(fileChanged, serverXmlFileParent, serverDirectory, "server.xml"), fileChanged)) {
                     untrackDockerfileDirectoriesAndRestart();
                 }
                 runTestThread(true, executor, numApplicationUpdatedMessages, true, false);
@@ -3076,20 +3797,22 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
                    && fileChanged.getCanonicalPath().endsWith(bootstrapPropertiesFile.getName())) {
             // This is for bootstrap.properties outside of the config folder
             // restart server to load new properties
-            if (isDockerfileDirectoryChanged(fileChanged)) {
+            ConfigChangeAnalyzer.Result configChange = configChangeAnalyzer.analyzeChange(fileChanged);
+            if (isDockerfileRebuildRequired(changeType, fileChanged)) {
                 untrackDockerfileDirectoriesAndRestart();
             } else {
-                restartServer(false);
+                restartServerForConfigChange(configChange);
             }
         } else if (jvmOptionsFileParent != null
                 && directory.equals(jvmOptionsFileParent.getCanonicalFile().toPath())
                 && fileChanged.getCanonicalPath().endsWith(jvmOptionsFile.getName())) {
             // This is for jvm.options outside of the config folder
             // restart server to load new options
-            if (isDockerfileDirectoryChanged(fileChanged)) {
+            ConfigChangeAnalyzer.Result configChange = configChangeAnalyzer.analyzeChange(fileChanged);
+            if (isDockerfileRebuildRequired(changeType, fileChanged)) {
                 untrackDockerfileDirectoriesAndRestart();
             } else {
-                restartServer(false);
+                restartServerForConfigChange(configChange);
             }
         } else if (resourceParent != null
                 && directory.startsWith(resourceParent.getCanonicalFile().toPath())) { // resources
@@ -3133,12 +3856,40 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
             if (reloadedPropertyFile) {
                 runTestThread(true, executor, numApplicationUpdatedMessages, false, false);
             }
-        } else if (isDockerfileDirectoryChanged(fileChanged)) {
+        } else if (isDockerfileRebuildRequired(changeType, fileChanged)) {
             // If contents within a directory specified in a Dockerfile COPY command were changed, and not already processed by one of the other conditions above.
             untrackDockerfileDirectoriesAndRestart();
         }
     }
 
+    /**
+     * A new configuration file always redeploys the application, since it can add
+     * features or configuration that the application reads when it is deployed.
+     * A modified file redeploys only if the analyzer found application elements.
+     * 
+     * @param newFile      whether the configuration file was created
+     * @param configChange the analyzed configuration change
+     * @return true if the application must be redeployed
+     */
+    protected static boolean isRedeployRequired(boolean newFile, ConfigChangeAnalyzer.Result configChange) {
+        return newFile || configChange.requiresRedeploy();
+    }
+
+    /**
+     * Restarts the server if the configuration change requires it.
+     * 
+     * @param configChange the analyzed configuration change
+     * @throws PluginExecutionException if the server could not be restarted
+     */
+    private void restartServerForConfigChange(ConfigChangeAnalyzer.Result configChange) throws PluginExecutionException {
+        if (configChange.requiresRestart()) {
+            info("Restarting the server for configuration changes: " + configChange.getReasons());
+            restartServer(false);
+        } else {
+            debug("The configuration change does not require a server restart.");
+        }
+    }
+
     /**
      * Unwatches all directories that were specified in Dockerfile COPY commands, then does a container
      * rebuild and restart.
@@ -3183,23 +3934,126 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
      */
     private boolean isDockerfileDirectoryChanged(File... files) throws IOException {
         // Check for directory content changes from directories specified in Dockerfile
+        for (File file : files) {
+            if (getDockerfileDirectory(file) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param file the file to check
+     * @return the directory specified in one of the Dockerfile's COPY commands that contains the file,
+     *         or null if there is none or if not container mode
+     * @throws IOException if there was an error getting canonical paths
+     */
+    private Path getDockerfileDirectory(File file) throws IOException {
         if (container && !dockerfileDirectoriesTracked.isEmpty()) {
+            Path logsPath = new File(serverDirectory, "logs").getCanonicalFile().toPath();
+            // if the file's path is a child of the tracked path, except for the server logs folder or if it's the loose application itself
+            Path filePath = file.getCanonicalFile().toPath();
             for (Path trackedPath : dockerfileDirectoriesTracked) {
-                Path logsPath = new File(serverDirectory, "logs").getCanonicalFile().toPath();
-
-                for (File file : files) {
-                    // if the file's path is a child of the tracked path, except for the server logs folder or if it's the loose application itself
-                    Path filePath = file.getCanonicalFile().toPath();
-                    if (filePath.startsWith(trackedPath) && !filePath.startsWith(logsPath) && !filePath.toString().endsWith(".war.xml") && !filePath.toString().endsWith(".ear.xml")) {
-                        debug("isDockerfileDirectoryChanged=true for directory " + trackedPath + " with file " + file);
-                        return true;
-                    }
+                if (filePath.startsWith(trackedPath) && !filePath.startsWith(logsPath) && !filePath.toString().endsWith(".war.xml") && !filePath.toString().endsWith(".ear.xml")) {
+                    debug("isDockerfileDirectoryChanged=true for directory " + trackedPath + " with file " + file);
+                    return trackedPath;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * If container mode and any of the changed files are within a directory specified in one of the
+     * Dockerfile's COPY commands, copy them into the running container.
+     * 
+     * @param changeType the type of change
+     * @param files      the changed files, which are deleted if the change is a deletion
+     * @return true if a file in a Dockerfile directory could not be copied, so the image must be rebuilt
+     * @throws IOException if there was an error getting canonical paths
+     */
+    private boolean isDockerfileRebuildRequired(ChangeType changeType, File... files) throws IOException {
+        if (!isDockerfileDirectoryChanged(files)) {
+            return false;
+        }
+        if (dockerRunProcess == null || !dockerRunProcess.isAlive()) {
+            return true;
+        }
+        Map<File, List<ContainerFileSync.Destination>> syncs = new LinkedHashMap<File, List<ContainerFileSync.Destination>>();
+        for (File file : files) {
+            if (getDockerfileDirectory(file) != null) {
+                List<ContainerFileSync.Destination> destinations = containerFileSync.getDestinations(file.getCanonicalFile().toPath());
+                if (destinations.isEmpty()) {
+                    debug("No container destination is known for " + file);
+                    return true;
+                }
+                syncs.put(file, destinations);
+            }
+        }
+        for (Map.Entry<File, List<ContainerFileSync.Destination>> sync : syncs.entrySet()) {
+            for (ContainerFileSync.Destination destination : sync.getValue()) {
+                if (!syncFileToContainer(changeType, sync.getKey(), destination)) {
+                    return true;
                 }
             }
         }
         return false;
     }
 
+    /**
+     * Copy a changed file into the running container, or delete it from the container.
+     * 
+     * @return true if the container was updated
+     */
+    private boolean syncFileToContainer(ChangeType changeType, File file, ContainerFileSync.Destination destination) {
+        String path = destination.getPath();
+        if (path.matches(".*\\s.*") || file.getAbsolutePath().matches(".*\\s.*")) {
+            return false; // docker commands are split on whitespace
+        }
+        String parent = path.substring(0, path.lastIndexOf('/') + 1);
+        try {
+            if (changeType == ChangeType.DELETE || !file.exists()) {
+                String result = execDockerCmd("docker exec " + containerName + " rm -rf " + path, DOCKER_TIMEOUT, false);
+                if (result != null && result.contains(" RC=")) { // RC is added in execDockerCmd if there is an error
+                    debug("Could not delete " + path + " from the container: " + result);
+                    return false;
+                }
+                info("Deleted " + path + " from the container.");
+                return true;
+            }
+            if (file.isDirectory()) {
+                return makeContainerDirectory(path);
+            }
+            if (destination.getUid() != 0 || destination.getGid() != 0) {
+                // docker cp cannot apply the --chown owner, so rebuild to keep the same ownership as the image
+                debug("Cannot copy " + file + " into the container with owner " + destination.getUid() + ":" + destination.getGid());
+                return false;
+            }
+            if (!makeContainerDirectory(parent)) {
+                return false;
+            }
+            String result = execDockerCmd("docker cp " + file.getAbsolutePath() + " " + containerName + ":" + path, DOCKER_TIMEOUT, false);
+            if (result != null && result.contains(" RC=")) { // RC is added in execDockerCmd if there is an error
+                debug("Could not copy " + file + " into the container: " + result);
+                return false;
+            }
+            info("Copied " + file.getName() + " into the container at " + path);
+            return true;
+        } catch (RuntimeException e) {
+            debug("Could not update " + path + " in the container", e);
+            return false;
+        }
+    }
+
+    private boolean makeContainerDirectory(String path) {
+        String result = execDockerCmd("docker exec " + containerName + " mkdir -p " + path, DOCKER_TIMEOUT, false);
+        if (result != null && result.contains(" RC=")) { // RC is added in execDockerCmd if there is an error
+            debug("Could not create the directory " + path + " in the container: " + result);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Determines if the corresponding target config file was generated by a Liberty
      * plugin
@@ -3250,27 +4104,115 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
      * @throws IOException creating and copying to tempConfig directory
      */
     public void copyConfigFolder(File fileChanged, File srcDir, String targetFileName) throws IOException {
-        this.tempConfigPath = Files.createTempDirectory("tempConfig");
+        if (linkedConfigValidation && buildDirectory != null && buildDirectory.isDirectory()) {
+            // keep the folder on the same file system as the server directory so files can be hard linked
+            this.tempConfigPath = Files.createTempDirectory(buildDirectory.toPath(), "tempConfig");
+        } else {
+            this.tempConfigPath = Files.createTempDirectory("tempConfig");
+        }
         File tempConfig = tempConfigPath.toFile();
         debug("Temporary configuration folder created: " + tempConfig);
 
-        FileUtils.copyDirectory(serverDirectory, tempConfig, new FileFilter() {
-            public boolean accept(File pathname) {
-                String name = pathname.getName();
-                // skip:
-                // - ignore list
-                // - workarea and logs dirs from the server directory, since those can be
-                // changing
-                boolean skip = ignoreFileOrDir(pathname)
-                        || (pathname.isDirectory() && (name.equals("workarea") || name.equals("logs")));
-                return !skip;
-            }
-        }, true);
+        boolean viewCreated = false;
+        if (linkedConfigValidation) {
+            try {
+                File overlayFile = getTargetFile(fileChanged, srcDir, serverDirectory, targetFileName);
+                createConfigView(serverDirectory.getCanonicalFile(), tempConfig, overlayFile, false);
+                viewCreated = true;
+            } catch (IOException | UnsupportedOperationException | SecurityException e) {
+                debug("Could not link the server directory into the temporary configuration folder. Copying it instead.", e);
+                FileUtils.cleanDirectory(tempConfig);
+            }
+        }
+        if (!viewCreated) {
+            FileUtils.copyDirectory(serverDirectory, tempConfig, new FileFilter() {
+                public boolean accept(File pathname) {
+                    return !skipConfigViewEntry(pathname);
+                }
+            }, true);
+        }
         copyFile(fileChanged, srcDir, tempConfig, targetFileName);
         checkConfigFile(fileChanged, tempConfig);
         cleanUpTempConfig();
     }
 
+    /**
+     * Sets whether the temporary configuration folder used to check config
+     * changes links to the server directory instead of copying it. Defaults to
+     * true.
+     * 
+     * @param linkedConfigValidation whether to link instead of copy
+     */
+    public void setLinkedConfigValidation(boolean linkedConfigValidation) {
+        this.linkedConfigValidation = linkedConfigValidation;
+    }
+
+    /**
+     * Builds a view of the source directory in the view directory without copying
+     * file contents. Files are hard linked so that their canonical paths stay in
+     * the view, and directories that do not contain configuration are symbolically
+     * linked as a whole. The overlay file is left out so that the changed file can
+     * be copied into the view without modifying the source directory.
+     * 
+     * @param sourceDir   the directory to build the view of
+     * @param viewDir     the directory to create the view in
+     * @param overlayFile the file in the source directory that will be replaced
+     * @param mirror      whether all subdirectories must be recreated instead of
+     *                    linked
+     * @throws IOException if a link could not be created
+     */
+    protected void createConfigView(File sourceDir, File viewDir, File overlayFile, boolean mirror) throws IOException {
+        File[] children = sourceDir.listFiles();
+        if (children == null) {
+            return;
+        }
+        String overlayPath = overlayFile.getCanonicalPath();
+        for (File child : children) {
+            if (skipConfigViewEntry(child)) {
+                continue;
+            }
+            String childPath = child.getCanonicalPath();
+            Path target = new File(viewDir, child.getName()).toPath();
+            if (child.isDirectory()) {
+                boolean containsOverlay = overlayPath.startsWith(childPath + File.separator);
+                boolean configDropins = mirror || child.getName().equals("configDropins");
+                if (!containsOverlay && !configDropins && createSymbolicLink(target, child)) {
+                    continue;
+                }
+                Files.createDirectory(target);
+                createConfigView(child, target.toFile(), overlayFile, configDropins);
+            } else if (!childPath.equals(overlayPath)) {
+                try {
+                    Files.createLink(target, child.toPath());
+                } catch (IOException | UnsupportedOperationException e) {
+                    // hard links are not supported across file systems
+                    Files.copy(child.toPath(), target, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        }
+    }
+
+    private boolean createSymbolicLink(Path link, File target) {
+        try {
+            Files.createSymbolicLink(link, target.toPath().toAbsolutePath());
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            // for example on Windows without the symbolic link privilege
+            debug("Could not create a symbolic link to " + target, e);
+            return false;
+        }
+    }
+
+    private boolean skipConfigViewEntry(File pathname) {
+        String name = pathname.getName();
+        // skip:
+        // - ignore list
+        // - workarea and logs dirs from the server directory, since those can be
+        // changing
+        return ignoreFileOrDir(pathname)
+                || (pathname.isDirectory() && (name.equals("workarea") || name.equals("logs")));
+    }
+
     /**
      * Whether dev mode should ignore a file or directory.
      * 
@@ -3903,4 +4845,108 @@ public abstract class DevUtil extends AbstractContainerSupportUtil {
         return containerName;
     }
 
+    /**
+     * Sets the features that are currently installed for the server, which are
+     * used as the baseline for subsequent feature changes.
+     * 
+     * @param existingFeatures the features from ServerFeatureUtil.getServerFeatures
+     */
+    public void setExistingFeatures(Set<String> existingFeatures) {
+        this.existingFeatures = existingFeatures == null ? null : new HashSet<String>(existingFeatures);
+    }
+
+    /**
+     * Compares the given features with the features of the last successful
+     * install. The baseline is not changed, so features that fail to install are
+     * part of the next delta again. If the features could not be determined
+     * (null), the delta is empty, so callers should check for null first as
+     * installAddedFeatures does.
+     * 
+     * @param currentFeatures the features from ServerFeatureUtil.getServerFeatures
+     * @return the added and removed features since the last successful install
+     */
+    public ServerFeatureUtil.FeatureDelta getFeatureDelta(Set<String> currentFeatures) {
+        if (currentFeatures == null) {
+            return ServerFeatureUtil.getFeatureDelta(existingFeatures, existingFeatures);
+        }
+        return ServerFeatureUtil.getFeatureDelta(existingFeatures, currentFeatures);
+    }
+
+    /**
+     * Installs the features that were added since the last successful install,
+     * then records the current features as the baseline. If the install fails,
+     * the baseline is kept so that the same features are installed again on the
+     * next configuration change. If the features cannot be determined, a warning
+     * is logged and the baseline is cleared so that the next configuration change
+     * installs all of the server features. This is not called by DevUtil, so each
+     * plugin calls it from its checkConfigFile implementation. The installer keeps
+     * the install kernel loaded between calls, and is closed when dev mode exits
+     * or when a different installer is passed.
+     * 
+     * @param installFeatureUtil the installer to use
+     * @param isAcceptLicense    whether license is accepted
+     * @param currentFeatures    the features from ServerFeatureUtil.getServerFeatures,
+     *                           or null if they could not be determined
+     * @throws PluginExecutionException if any of the features could not be installed
+     */
+    public void installAddedFeatures(InstallFeatureUtil installFeatureUtil, boolean isAcceptLicense, Set<String> currentFeatures)
+            throws PluginExecutionException {
+        if (currentFeatures == null) {
+            warn("The server features could not be determined from the server configuration, so no features were installed. "
+                    + "All of the server features will be installed after the next configuration change.");
+            setExistingFeatures(null);
+            return;
+        }
+        setFeatureInstaller(installFeatureUtil);
+        ServerFeatureUtil.FeatureDelta delta = getFeatureDelta(currentFeatures);
+        installFeatureUtil.installFeatures(isAcceptLicense, delta);
+        setExistingFeatures(delta.getFeatures());
+    }
+
+    private synchronized void setFeatureInstaller(InstallFeatureUtil installFeatureUtil) {
+        if (installFeatureUtil != featureInstaller) {
+            closeFeatureInstaller();
+            featureInstaller = installFeatureUtil;
+        }
+    }
+
+    /**
+     * Start downloading the features in the server configuration with the installer
+     * from the last installAddedFeatures call while the server is created, so that
+     * libertyInstallFeature finds them locally.
+     */
+    private void prefetchFeatures() {
+        InstallFeatureUtil installer;
+        synchronized (this) {
+            installer = featureInstaller;
+        }
+        if (installer == null) {
+            return;
+        }
+        File configSource = configDirectory != null && new File(configDirectory, "server.xml").isFile() ? configDirectory
+                : serverDirectory;
+        Set<String> features = installer.getServerFeatures(configSource, new HashMap<String, File>());
+        if (features != null && !features.isEmpty()) {
+            debug("Prefetching features " + features);
+            installer.prefetchFeatures(new ArrayList<String>(features));
+        }
+    }
+
+    private void awaitFeaturePrefetch() throws PluginExecutionException {
+        InstallFeatureUtil installer;
+        synchronized (this) {
+            installer = featureInstaller;
+        }
+        if (installer != null) {
+            installer.awaitPrefetch();
+        }
+    }
+
+    private synchronized void closeFeatureInstaller() {
+        if (featureInstaller != null) {
+            featureInstaller.close();
+            featureInstaller = null;
+        }
+    }
+
 }
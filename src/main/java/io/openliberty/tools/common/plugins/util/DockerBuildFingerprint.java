@@ -0,0 +1,218 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Computes a fingerprint of everything a docker build of the dev mode image
+ * depends on: the processed Dockerfile lines, the IDs of the parent images and
+ * the content of the build context files referenced by COPY and ADD, honouring
+ * the .dockerignore file. The fingerprint is stored as a label on the image so
+ * that an unchanged image can be reused instead of being rebuilt.
+ */
+public class DockerBuildFingerprint {
+
+    /** The image label that holds the fingerprint */
+    public static final String LABEL = "io.openliberty.tools.devmode.fingerprint";
+
+    private DockerBuildFingerprint() {
+    }
+
+    /**
+     * Gets the images named in FROM lines, leaving out build stages and scratch.
+     *
+     * @param dockerfileLines the cleaned and combined Dockerfile lines
+     * @return the parent image names
+     */
+    public static List<String> getParentImages(List<String> dockerfileLines) {
+        List<String> images = new ArrayList<String>();
+        Set<String> stages = new HashSet<String>();
+        for (String line : dockerfileLines) {
+            String[] segments = line.trim().split("\\s+");
+            if (segments.length < 2 || !segments[0].equalsIgnoreCase("FROM")) {
+                continue;
+            }
+            int i = 1;
+            while (i < segments.length - 1 && segments[i].startsWith("--")) {
+                i++; // skip options such as --platform
+            }
+            String image = segments[i];
+            if (!stages.contains(image.toLowerCase()) && !image.equalsIgnoreCase("scratch") && !images.contains(image)) {
+                images.add(image);
+            }
+            if (i + 2 < segments.length && segments[i + 1].equalsIgnoreCase("AS")) {
+                stages.add(segments[i + 2].toLowerCase());
+            }
+        }
+        return images;
+    }
+
+    /**
+     * @param dockerfileLines the cleaned and combined Dockerfile lines that are
+     *                        built
+     * @param parentImageIds  the local image ID of each parent image from
+     *                        {@link #getParentImages(List)}
+     * @param buildContext    the build context directory
+     * @return the fingerprint, or null if the build depends on something that
+     *         cannot be fingerprinted, such as a remote ADD source or a parent
+     *         image without an ID
+     */
+    public static String compute(List<String> dockerfileLines, Map<String, String> parentImageIds, File buildContext)
+            throws IOException {
+        MessageDigest digest = ChecksumUtil.getMessageDigest(ChecksumUtil.SHA_256);
+        for (String line : dockerfileLines) {
+            update(digest, "line", line);
+        }
+        for (String image : getParentImages(dockerfileLines)) {
+            String id = parentImageIds.get(image);
+            if (id == null || image.contains("$")) {
+                return null;
+            }
+            update(digest, "from", image + "@" + id);
+        }
+
+        List<String> sources = new ArrayList<String>();
+        boolean allFiles = false;
+        for (String line : dockerfileLines) {
+            List<String> lineSources = getSources(line);
+            if (lineSources == null) {
+                continue;
+            }
+            for (String source : lineSources) {
+                if (source.contains("://")) {
+                    return null; // remote content is always checked by docker build
+                } else if (source.contains("$")) {
+                    allFiles = true; // cannot tell which files a variable refers to
+                } else {
+                    sources.add(source);
+                }
+            }
+        }
+        for (Map.Entry<String, String> file : getContextFiles(buildContext, sources, allFiles).entrySet()) {
+            update(digest, "file", file.getKey() + "=" + file.getValue());
+        }
+        return ChecksumUtil.toHex(digest.digest());
+    }
+
+    /**
+     * @return the source arguments of a COPY or ADD line from the build context,
+     *         or null for other lines and for COPY --from
+     */
+    static List<String> getSources(String line) throws IOException {
+        String trimmed = line.trim();
+        String[] segments = trimmed.split("\\s+", 2);
+        if (segments.length < 2 || !(segments[0].equalsIgnoreCase("COPY") || segments[0].equalsIgnoreCase("ADD"))) {
+            return null;
+        }
+        List<String> arguments = new ArrayList<String>();
+        String rest = segments[1].trim();
+        while (rest.startsWith("--")) {
+            String[] option = rest.split("\\s+", 2);
+            if (option[0].startsWith("--from")) {
+                return null; // copied from another stage or image
+            }
+            rest = option.length > 1 ? option[1].trim() : "";
+        }
+        if (rest.startsWith("[")) {
+            Object json = JsonParser.parse(rest);
+            if (json instanceof List) {
+                for (Object argument : (List<?>) json) {
+                    arguments.add(String.valueOf(argument));
+                }
+            }
+        } else {
+            for (String argument : rest.split("\\s+")) {
+                if (!argument.isEmpty()) {
+                    arguments.add(argument);
+                }
+            }
+        }
+        // the last argument is the destination
+        return arguments.size() < 2 ? new ArrayList<String>() : arguments.subList(0, arguments.size() - 1);
+    }
+
+    /**
+     * @return the SHA-256 of each build context file that matches a source,
+     *         keyed and sorted by relative path
+     */
+    private static Map<String, String> getContextFiles(File buildContext, List<String> sources, final boolean allFiles)
+            throws IOException {
+        final Map<String, String> files = new TreeMap<String, String>();
+        if (!allFiles && sources.isEmpty()) {
+            return files;
+        }
+        final DockerIgnore dockerIgnore = DockerIgnore.load(buildContext);
+        final List<Pattern> sourcePatterns = new ArrayList<Pattern>();
+        for (String source : sources) {
+            String cleaned = DockerIgnore.cleanPath(source);
+            // a source of . or / copies the whole build context
+            sourcePatterns.add(Pattern.compile(cleaned.isEmpty() || cleaned.equals(".") ? ".*" : DockerIgnore.toRegex(cleaned)));
+        }
+        final Path root = buildContext.toPath();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(root) && !dockerIgnore.hasExceptions() && dockerIgnore.isExcluded(getRelativePath(root, dir))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String relativePath = getRelativePath(root, file);
+                if (!dockerIgnore.isExcluded(relativePath) && (allFiles || matchesSource(sourcePatterns, relativePath))) {
+                    files.put(relativePath, ChecksumUtil.cachedSha256(file.toFile()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    private static boolean matchesSource(List<Pattern> sourcePatterns, String relativePath) {
+        for (Pattern pattern : sourcePatterns) {
+            if (DockerIgnore.matchesPathOrParent(pattern, relativePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getRelativePath(Path root, Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private static void update(MessageDigest digest, String type, String value) {
+        digest.update((type + ":" + value + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,580 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal read-only client for the Docker Engine API, which talks HTTP over
+ * the Docker daemon's Unix socket instead of starting a docker CLI process for
+ * each query. It only covers the container and image inspect and container
+ * list queries that dev mode runs repeatedly. Everything else uses the docker
+ * CLI. Unix domain socket channels require Java 16 or later and are used
+ * through reflection, so callers must fall back to the docker CLI when
+ * {@link #getDefault()} returns null or a request fails with an IOException
+ * that is not an {@link ApiException}.
+ */
+public class DockerEngineClient {
+
+    /** System property that disables the client when set to false */
+    public static final String DOCKER_API_PROPERTY = "io.openliberty.tools.docker.api";
+
+    private static final String DEFAULT_SOCKET = "/var/run/docker.sock";
+    private static final String UNIX_SCHEME = "unix://";
+
+    // the default request timeout in seconds
+    private static final int DEFAULT_TIMEOUT = 20;
+
+    private static Boolean supported;
+
+    // closes the channels of requests that take too long, since blocking channel reads cannot time out
+    private static ScheduledExecutorService watchdog;
+
+    private final File socketFile;
+
+    /**
+     * An error status returned by the Docker daemon
+     */
+    public static class ApiException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        public ApiException(int status, String message) {
+            super(message + " (HTTP status " + status + ")");
+            this.status = status;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * @param socketFile the Docker daemon socket
+     */
+    public DockerEngineClient(File socketFile) {
+        this.socketFile = socketFile;
+    }
+
+    /**
+     * @return true if this JVM supports Unix domain socket channels
+     */
+    public static synchronized boolean isSupported() {
+        if (supported == null) {
+            try {
+                Class.forName("java.net.UnixDomainSocketAddress");
+                StandardProtocolFamily.valueOf("UNIX");
+                supported = true;
+            } catch (ClassNotFoundException | IllegalArgumentException e) {
+                supported = false;
+            }
+        }
+        return supported;
+    }
+
+    /**
+     * Gets a client for the local Docker daemon socket, as set by the
+     * DOCKER_HOST environment variable or at /var/run/docker.sock by default.
+     *
+     * @return the client, or null if the daemon is remote, the socket does not
+     *         exist, the client is disabled, or this JVM does not support Unix
+     *         domain sockets
+     */
+    public static DockerEngineClient getDefault() {
+        if ("false".equalsIgnoreCase(System.getProperty(DOCKER_API_PROPERTY)) || !isSupported()) {
+            return null;
+        }
+        File socket = getSocketFile(System.getenv("DOCKER_HOST"));
+        return socket != null && socket.exists() ? new DockerEngineClient(socket) : null;
+    }
+
+    /**
+     * @param dockerHost the value of DOCKER_HOST, or null
+     * @return the socket file, or null if DOCKER_HOST is not a Unix socket
+     */
+    static File getSocketFile(String dockerHost) {
+        if (dockerHost == null || dockerHost.trim().isEmpty()) {
+            return new File(DEFAULT_SOCKET);
+        }
+        if (dockerHost.startsWith(UNIX_SCHEME)) {
+            return new File(dockerHost.substring(UNIX_SCHEME.length()));
+        }
+        return null;
+    }
+
+    public File getSocketFile() {
+        return socketFile;
+    }
+
+    /**
+     * @return true if the daemon responded
+     */
+    public boolean ping() {
+        try {
+            return "OK".equals(request("GET", "/_ping", DEFAULT_TIMEOUT).trim());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the version of the Docker engine, such as 20.10.5
+     */
+    public String getVersion() throws IOException {
+        return getString(requestJson("GET", "/version"), "Version");
+    }
+
+    /**
+     * @param all true to include stopped containers
+     * @return the names of the containers, without the leading slash
+     */
+    public List<String> getContainerNames(boolean all) throws IOException {
+        return getContainerNames(all, null);
+    }
+
+    /**
+     * List the containers with names that contain a value, filtered by the
+     * daemon instead of listing every container.
+     *
+     * @param all        true to include stopped containers
+     * @param nameFilter the value that the names contain, or null for all names
+     * @return the names of the containers, without the leading slash
+     */
+    public List<String> getContainerNames(boolean all, String nameFilter) throws IOException {
+        List<String> names = new ArrayList<String>();
+        StringBuilder path = new StringBuilder("/containers/json");
+        if (all) {
+            path.append("?all=1");
+        }
+        if (nameFilter != null) {
+            path.append(all ? '&' : '?').append("filters=").append(encode("{\"name\":[\"" + nameFilter + "\"]}"));
+        }
+        Object containers = requestJson("GET", path.toString());
+        if (containers instanceof List) {
+            for (Object container : (List<?>) containers) {
+                Object containerNames = container instanceof Map ? ((Map<?, ?>) container).get("Names") : null;
+                if (containerNames instanceof List) {
+                    for (Object name : (List<?>) containerNames) {
+                        String s = String.valueOf(name);
+                        names.add(s.startsWith("/") ? s.substring(1) : s);
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @param container the container name or ID
+     * @return the "docker inspect" JSON of the container, or null if it does not
+     *         exist
+     */
+    public Map<String, Object> inspectContainer(String container) throws IOException {
+        try {
+            return asMap(requestJson("GET", "/containers/" + encode(container) + "/json"));
+        } catch (ApiException e) {
+            if (e.getStatus() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param container the container name or ID
+     * @return the ID of the container, or null if it does not exist
+     */
+    public String getContainerId(String container) throws IOException {
+        return getString(inspectContainer(container), "Id");
+    }
+
+    /**
+     * @param container the container name or ID
+     * @return the metadata of the container, or null if it does not exist
+     */
+    public ContainerMetadata getContainerMetadata(String container) throws IOException {
+        return ContainerMetadata.fromInspect(inspectContainer(container));
+    }
+
+    /**
+     * @param image the image name or ID
+     * @return the "docker image inspect" JSON of the image, or null if it is not
+     *         in the local image store
+     */
+    public Map<String, Object> inspectImage(String image) throws IOException {
+        try {
+            return asMap(requestJson("GET", "/images/" + encodeImage(image) + "/json"));
+        } catch (ApiException e) {
+            if (e.getStatus() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @param image the image name
+     * @return the ID of the local image, or null if it is not in the local image
+     *         store
+     */
+    public String getImageId(String image) throws IOException {
+        return getString(inspectImage(image), "Id");
+    }
+
+    /**
+     * @param image the image name or ID
+     * @return the labels of the image, or null if it is not in the local image
+     *         store
+     */
+    public Map<String, String> getImageLabels(String image) throws IOException {
+        Map<String, Object> inspect = inspectImage(image);
+        if (inspect == null) {
+            return null;
+        }
+        Map<String, String> labels = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, Object> label : asMap(asMap(inspect.get("Config")).get("Labels")).entrySet()) {
+            labels.put(label.getKey(), String.valueOf(label.getValue()));
+        }
+        return labels;
+    }
+
+    private Object requestJson(String method, String path) throws IOException {
+        return JsonParser.parse(request(method, path, DEFAULT_TIMEOUT));
+    }
+
+    /**
+     * @param timeout unit is seconds
+     * @return the response body
+     */
+    private String request(String method, String path, int timeout) throws IOException {
+        try (SocketChannel channel = connect()) {
+            ScheduledFuture<?> timer = scheduleClose(channel, timeout);
+            try {
+                Response response = sendRequest(channel, method, path);
+                String body = new String(readFully(response.body), StandardCharsets.UTF_8);
+                if (response.status >= 300) {
+                    throw new ApiException(response.status, getErrorMessage(body.getBytes(StandardCharsets.UTF_8)));
+                }
+                return body;
+            } finally {
+                timer.cancel(false);
+            }
+        }
+    }
+
+    private SocketChannel connect() throws IOException {
+        if (!isSupported()) {
+            throw new IOException("Unix domain sockets require Java 16 or later");
+        }
+        try {
+            Object address = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", String.class)
+                    .invoke(null, socketFile.getPath());
+            ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+            SocketChannel channel = (SocketChannel) SocketChannel.class.getMethod("open", ProtocolFamily.class)
+                    .invoke(null, unix);
+            try {
+                channel.connect((SocketAddress) address);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            return channel;
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Could not connect to " + socketFile, e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Could not connect to " + socketFile, e);
+        }
+    }
+
+    private static class Response {
+        private final int status;
+        private final InputStream body;
+
+        private Response(int status, InputStream body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private static Response sendRequest(SocketChannel channel, String method, String path) throws IOException {
+        OutputStream out = Channels.newOutputStream(channel);
+        String request = method + " " + path + " HTTP/1.1\r\n"
+                + "Host: docker\r\n"
+                + "Connection: close\r\n"
+                + "\r\n";
+        out.write(request.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+        String statusLine = readLine(in);
+        String[] statusParts = statusLine == null ? new String[0] : statusLine.split(" ");
+        if (statusParts.length < 2 || !statusParts[0].startsWith("HTTP/")) {
+            throw new IOException("Invalid response from the Docker daemon: " + statusLine);
+        }
+        int status;
+        try {
+            status = Integer.parseInt(statusParts[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid response from the Docker daemon: " + statusLine);
+        }
+        Map<String, String> headers = new HashMap<String, String>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ENGLISH), line.substring(colon + 1).trim());
+            }
+        }
+        if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+            return new Response(status, new ChunkedInputStream(in));
+        }
+        String contentLength = headers.get("content-length");
+        if (contentLength != null) {
+            try {
+                return new Response(status, new BoundedInputStream(in, Long.parseLong(contentLength)));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid Content-Length from the Docker daemon: " + contentLength);
+            }
+        }
+        return new Response(status, in);
+    }
+
+    private static class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        private BoundedInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+    }
+
+    private static class ChunkedInputStream extends InputStream {
+        private final InputStream in;
+        private long chunkRemaining;
+        private boolean done;
+
+        private ChunkedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (done) {
+                return false;
+            }
+            if (chunkRemaining == 0) {
+                String size = readLine(in);
+                if (size != null && size.isEmpty()) {
+                    // the line ending after the previous chunk
+                    size = readLine(in);
+                }
+                if (size == null) {
+                    done = true;
+                    return false;
+                }
+                int extension = size.indexOf(';');
+                try {
+                    chunkRemaining = Long.parseLong((extension >= 0 ? size.substring(0, extension) : size).trim(), 16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid chunk size from the Docker daemon: " + size);
+                }
+                if (chunkRemaining == 0) {
+                    done = true;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            int b = in.read();
+            if (b == -1) {
+                done = true;
+            } else {
+                chunkRemaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, chunkRemaining));
+            if (n == -1) {
+                done = true;
+            } else {
+                chunkRemaining -= n;
+            }
+            return n;
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static String getErrorMessage(byte[] body) {
+        String text = new String(body, StandardCharsets.UTF_8).trim();
+        try {
+            String message = getString(asMap(JsonParser.parse(text)), "message");
+            if (message != null) {
+                return message;
+            }
+        } catch (IOException e) {
+            // not a JSON error
+        }
+        return text;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value) {
+        return value instanceof Map ? (Map<String, Object>) value : new HashMap<String, Object>();
+    }
+
+    private static String getString(Object map, String key) {
+        Object value = map instanceof Map ? ((Map<?, ?>) map).get(key) : null;
+        return value == null ? null : value.toString();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // image names may contain a registry, a repository path and a tag
+    private static String encodeImage(String image) {
+        return encode(image).replace("%2F", "/").replace("%3A", ":");
+    }
+
+    /**
+     * Close the channel after the timeout so that a blocked request fails with
+     * an IOException. Cancel the returned future when the request completes.
+     * 
+     * @param timeout unit is seconds
+     */
+    private static ScheduledFuture<?> scheduleClose(final Closeable channel, int timeout) {
+        return getWatchdog().schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // the request fails with an IOException
+                }
+            }
+        }, timeout, TimeUnit.SECONDS);
+    }
+
+    private static synchronized ScheduledExecutorService getWatchdog() {
+        if (watchdog == null) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "docker-engine-watchdog");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return watchdog;
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The exclusion rules of a .dockerignore file. Patterns use the Docker syntax:
+ * * and ? do not match the path separator, ** matches any number of
+ * directories, and a leading ! re-includes paths excluded by an earlier
+ * pattern. A pattern that matches a directory also excludes everything in it.
+ */
+public class DockerIgnore {
+
+    private static class Rule {
+        private final Pattern pattern;
+        private final boolean exception;
+
+        private Rule(Pattern pattern, boolean exception) {
+            this.pattern = pattern;
+            this.exception = exception;
+        }
+    }
+
+    private final List<Rule> rules;
+    private final boolean hasExceptions;
+
+    /**
+     * @param patterns the lines of a .dockerignore file
+     */
+    public DockerIgnore(List<String> patterns) {
+        List<Rule> rules = new ArrayList<Rule>();
+        boolean hasExceptions = false;
+        for (String line : patterns) {
+            String pattern = line.trim();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                continue;
+            }
+            boolean exception = pattern.startsWith("!");
+            if (exception) {
+                pattern = pattern.substring(1).trim();
+                hasExceptions = true;
+            }
+            pattern = cleanPath(pattern);
+            if (!pattern.isEmpty()) {
+                rules.add(new Rule(Pattern.compile(toRegex(pattern)), exception));
+            }
+        }
+        this.rules = Collections.unmodifiableList(rules);
+        this.hasExceptions = hasExceptions;
+    }
+
+    /**
+     * Read the .dockerignore file of a build context.
+     *
+     * @param buildContext the Docker build context directory
+     * @return the rules, which exclude nothing if there is no .dockerignore file
+     */
+    public static DockerIgnore load(File buildContext) throws IOException {
+        File file = new File(buildContext, ".dockerignore");
+        if (!file.isFile()) {
+            return new DockerIgnore(Collections.<String>emptyList());
+        }
+        return new DockerIgnore(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param relativePath a path relative to the build context, using / as the
+     *                     separator
+     * @return true if the path is excluded from the build context
+     */
+    public boolean isExcluded(String relativePath) {
+        String path = cleanPath(relativePath);
+        boolean excluded = false;
+        for (Rule rule : rules) {
+            if (excluded == rule.exception && matchesPathOrParent(rule.pattern, path)) {
+                excluded = !rule.exception;
+            }
+        }
+        return excluded;
+    }
+
+    /**
+     * @return true if an excluded directory may contain paths that are included
+     *         again, so that it still has to be walked
+     */
+    public boolean hasExceptions() {
+        return hasExceptions;
+    }
+
+    static boolean matchesPathOrParent(Pattern pattern, String path) {
+        int index = path.length();
+        while (index > 0) {
+            if (pattern.matcher(path.substring(0, index)).matches()) {
+                return true;
+            }
+            index = path.lastIndexOf('/', index - 1);
+        }
+        return false;
+    }
+
+    static String cleanPath(String path) {
+        String cleaned = path;
+        while (cleaned.startsWith("/") || cleaned.startsWith("./")) {
+            cleaned = cleaned.substring(cleaned.startsWith("/") ? 1 : 2);
+        }
+        while (cleaned.endsWith("/")) {
+            cleaned = cleaned.substring(0, cleaned.length() - 1);
+        }
+        return cleaned.replaceAll("/+", "/").replaceAll("(^|/)\\./", "$1");
+    }
+
+    /**
+     * Convert a Docker path pattern to a regular expression.
+     */
+    static String toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        int i = 0;
+        while (i < pattern.length()) {
+            char c = pattern.charAt(i);
+            if (c == '*') {
+                if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                    i += 2;
+                    if (i < pattern.length() && pattern.charAt(i) == '/') {
+                        // **/ matches zero or more directories
+                        regex.append("(?:.*/)?");
+                        i++;
+                    } else {
+                        regex.append(".*");
+                    }
+                    continue;
+                }
+                regex.append("[^/]*");
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else if (c == '[') {
+                int end = pattern.indexOf(']', i + 1);
+                if (end < 0) {
+                    regex.append("\\[");
+                } else {
+                    String charClass = pattern.substring(i + 1, end);
+                    if (charClass.startsWith("!") || charClass.startsWith("^")) {
+                        charClass = "^" + charClass.substring(1);
+                    }
+                    regex.append('[').append(charClass.replace("\\", "\\\\")).append(']');
+                    i = end;
+                }
+            } else if (c == '\\' && i + 1 < pattern.length()) {
+                regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+            i++;
+        }
+        return regex.toString();
+    }
+}
@@ -0,0 +1,411 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import io.openliberty.tools.common.plugins.util.DockerfileModel.Instruction;
+
+/**
+ * Arranges the layers of the dev mode Dockerfile so that a change to a
+ * frequently changing file rebuilds as few layers as possible. Docker reuses
+ * the cached layers of a build up to the first instruction whose line or
+ * copied files changed, so:
+ * <ul>
+ * <li>COPY instructions with several files are split into one COPY per
+ * file,</li>
+ * <li>COPY instructions of configuration files that do not declare features
+ * are moved after RUN features.sh, so that changing them does not install the
+ * features again, and</li>
+ * <li>consecutive COPY and ADD instructions are ordered features first, then
+ * shared libraries, then server configuration and then other files.</li>
+ * </ul>
+ * Instructions are only moved past each other when they copy to different
+ * paths, so the image content is the same as without the optimization.
+ * DevUtil applies the steps in this order when the layer optimization is
+ * enabled.
+ */
+public class DockerfileLayerOptimizer {
+
+    /** The rank of files that change least often, such as feature definitions */
+    static final int RANK_FEATURES = 0;
+    static final int RANK_LIBRARIES = 1;
+    static final int RANK_CONFIG = 2;
+    /** The rank of other files, which are assumed to change most often */
+    static final int RANK_OTHER = 3;
+
+    /** Splitting stops at this many instructions to stay well below the Docker layer limit */
+    private static final int MAX_INSTRUCTIONS = 64;
+    private static final List<String> SPLITTABLE_FLAGS = Arrays.asList("chown", "chmod", "link");
+    private static final List<String> MOVABLE_PAST_KEYWORDS = Arrays.asList("COPY", "ADD", "ENV", "ARG", "LABEL", "EXPOSE");
+    private static final List<String> LIBRARY_EXTENSIONS = Arrays.asList(".jar", ".rar", ".zip");
+    private static final List<String> LIBRARY_DIRECTORIES = Arrays.asList("lib", "libs", "shared");
+    private static final List<String> CONFIG_EXTENSIONS = Arrays.asList(".xml", ".properties", ".env", ".options");
+
+    private DockerfileLayerOptimizer() {
+    }
+
+    /**
+     * Split COPY instructions of several build context files into a directory
+     * into one COPY per file. Instructions with wildcards or variables are not
+     * split.
+     */
+    static List<String> splitCopies(List<String> dockerfileLines) {
+        List<Instruction> instructions = DockerfileModel.parse(dockerfileLines).getInstructions();
+        List<String> result = new ArrayList<String>(dockerfileLines.size());
+        int count = instructions.size();
+        for (Instruction instruction : instructions) {
+            List<String> split = split(instruction);
+            if (split.size() > 1 && count + split.size() - 1 <= MAX_INSTRUCTIONS) {
+                result.addAll(split);
+                count += split.size() - 1;
+            } else {
+                result.add(instruction.getLine());
+            }
+        }
+        return result;
+    }
+
+    private static List<String> split(Instruction instruction) {
+        List<String> paths = instruction.getPaths();
+        if (!"COPY".equals(instruction.getKeyword()) || paths.size() < 3 || instruction.getLine().contains("$")
+                || !paths.get(paths.size() - 1).endsWith("/")) {
+            return Collections.singletonList(instruction.getLine());
+        }
+        String[] tokens = instruction.getLine().split("\\s+");
+        StringBuilder prefix = new StringBuilder(tokens[0]);
+        int i = 1;
+        for (; i < tokens.length && tokens[i].startsWith("--"); i++) {
+            String flag = tokens[i].substring(2).split("=", 2)[0];
+            if (!SPLITTABLE_FLAGS.contains(flag)) {
+                return Collections.singletonList(instruction.getLine());
+            }
+            prefix.append(' ').append(tokens[i]);
+        }
+        // the JSON form and quoted paths are left as they are
+        if (!Arrays.asList(tokens).subList(i, tokens.length).equals(paths)) {
+            return Collections.singletonList(instruction.getLine());
+        }
+        String dest = paths.get(paths.size() - 1);
+        List<String> result = new ArrayList<String>();
+        for (String source : paths.subList(0, paths.size() - 1)) {
+            if (hasWildcard(source)) {
+                return Collections.singletonList(instruction.getLine());
+            }
+            result.add(prefix + " " + source + " " + dest);
+        }
+        return result;
+    }
+
+    /**
+     * Move the COPY instructions of XML files that neither declare features nor
+     * include other files from before the first RUN features.sh to right after
+     * it, since the features that are installed do not depend on them. Nothing
+     * is moved if another copied file of the stage could include them.
+     */
+    static List<String> deferPastFeatures(List<String> dockerfileLines, File buildContext) throws IOException {
+        List<Instruction> instructions = DockerfileModel.parse(dockerfileLines).getInstructions();
+        List<String> result = new ArrayList<String>(dockerfileLines.size());
+        for (int i = 0; i < instructions.size(); i++) {
+            if (!instructions.get(i).getLine().toLowerCase().equals(DockerfileModel.RUN_FEATURES_COMMAND_LOWERCASE)) {
+                continue;
+            }
+            // walk back over the instructions that can be moved past
+            int start = i;
+            while (start > 0 && MOVABLE_PAST_KEYWORDS.contains(instructions.get(start - 1).getKeyword())) {
+                start--;
+            }
+            List<Instruction> staying = new ArrayList<Instruction>();
+            List<Instruction> deferred = new ArrayList<Instruction>();
+            for (int j = i - 1; j >= start; j--) {
+                Instruction instruction = instructions.get(j);
+                if (isDeferrable(instruction, buildContext) && !conflicts(instruction, staying, buildContext)) {
+                    deferred.add(0, instruction);
+                } else {
+                    staying.add(0, instruction);
+                }
+            }
+            if (deferred.isEmpty() || mayInclude(instructions.subList(0, i), instructions.get(i).getStage(), buildContext)) {
+                continue;
+            }
+            List<String> lines = new ArrayList<String>();
+            for (Instruction instruction : instructions.subList(0, start)) {
+                lines.add(instruction.getLine());
+            }
+            for (Instruction instruction : staying) {
+                lines.add(instruction.getLine());
+            }
+            lines.add(instructions.get(i).getLine());
+            for (Instruction instruction : deferred) {
+                lines.add(instruction.getLine());
+            }
+            for (Instruction instruction : instructions.subList(i + 1, instructions.size())) {
+                lines.add(instruction.getLine());
+            }
+            return lines;
+        }
+        for (Instruction instruction : instructions) {
+            result.add(instruction.getLine());
+        }
+        return result;
+    }
+
+    private static boolean isDeferrable(Instruction instruction, File buildContext) throws IOException {
+        if (!isMovable(instruction) || !"COPY".equals(instruction.getKeyword()) || instruction.getFlag("from") != null) {
+            return false;
+        }
+        List<String> paths = instruction.getPaths();
+        for (String source : paths.subList(0, paths.size() - 1)) {
+            File file = new File(buildContext, source);
+            if (!file.isFile() || !source.toLowerCase().endsWith(".xml")) {
+                return false;
+            }
+            String content = read(file);
+            if (content.contains("featureManager") || content.contains("<include")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if a file copied by the instructions of the stage could
+     *         include another file, which then has to be copied before the
+     *         features are installed
+     */
+    private static boolean mayInclude(List<Instruction> instructions, int stage, File buildContext) throws IOException {
+        for (Instruction instruction : instructions) {
+            if (instruction.getStage() != stage || !instruction.isCopyOrAdd()) {
+                continue;
+            }
+            if (!isMovable(instruction) || instruction.getFlag("from") != null) {
+                return true;
+            }
+            List<String> paths = instruction.getPaths();
+            for (String source : paths.subList(0, paths.size() - 1)) {
+                File file = new File(buildContext, source);
+                if (hasWildcard(source) || !file.exists() || containsInclude(file)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsInclude(File file) throws IOException {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    if (containsInclude(child)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        return file.getName().toLowerCase().endsWith(".xml") && read(file).contains("<include");
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Order each run of consecutive COPY and ADD instructions by the rank of
+     * their sources, keeping instructions that copy to the same paths in their
+     * original order.
+     */
+    static List<String> orderByChangeFrequency(List<String> dockerfileLines, File buildContext) {
+        List<Instruction> instructions = DockerfileModel.parse(dockerfileLines).getInstructions();
+        List<String> result = new ArrayList<String>(dockerfileLines.size());
+        List<Instruction> run = new ArrayList<Instruction>();
+        for (Instruction instruction : instructions) {
+            if (!isMovable(instruction)) {
+                for (Instruction copy : run) {
+                    result.add(copy.getLine());
+                }
+                run.clear();
+                result.add(instruction.getLine());
+                continue;
+            }
+            int rank = getRank(instruction);
+            int position = run.size();
+            while (position > 0 && getRank(run.get(position - 1)) > rank
+                    && !conflicts(instruction, Collections.singletonList(run.get(position - 1)), buildContext)) {
+                position--;
+            }
+            run.add(position, instruction);
+        }
+        for (Instruction copy : run) {
+            result.add(copy.getLine());
+        }
+        return result;
+    }
+
+    private static boolean isMovable(Instruction instruction) {
+        return instruction.isCopyOrAdd() && instruction.getPaths().size() >= 2 && !instruction.getLine().contains("$");
+    }
+
+    private static int getRank(Instruction instruction) {
+        List<String> paths = instruction.getPaths();
+        int rank = RANK_FEATURES;
+        for (String source : paths.subList(0, paths.size() - 1)) {
+            rank = Math.max(rank, getRank(source));
+        }
+        return rank;
+    }
+
+    /**
+     * @param source a COPY or ADD source
+     * @return the rank of the source, where lower ranks are assumed to change
+     *         less often
+     */
+    static int getRank(String source) {
+        String path = source.replace('\\', '/').toLowerCase();
+        List<String> segments = Arrays.asList(path.split("/"));
+        String name = segments.isEmpty() ? "" : segments.get(segments.size() - 1);
+        if (name.contains("feature")) {
+            return RANK_FEATURES;
+        }
+        for (String extension : LIBRARY_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return RANK_LIBRARIES;
+            }
+        }
+        for (String directory : LIBRARY_DIRECTORIES) {
+            if (segments.contains(directory)) {
+                return RANK_LIBRARIES;
+            }
+        }
+        for (String extension : CONFIG_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return RANK_CONFIG;
+            }
+        }
+        return path.contains("config") ? RANK_CONFIG : RANK_OTHER;
+    }
+
+    /**
+     * @return true if the instruction may write a path that one of the other
+     *         instructions also writes, so that their order matters
+     */
+    private static boolean conflicts(Instruction instruction, List<Instruction> others, File buildContext) {
+        List<String> targets = getTargets(instruction, buildContext);
+        for (Instruction other : others) {
+            if (!other.isCopyOrAdd()) {
+                continue; // ENV, ARG, LABEL and EXPOSE do not write files
+            }
+            if (!isMovable(other)) {
+                return true;
+            }
+            for (String target : targets) {
+                for (String otherTarget : getTargets(other, buildContext)) {
+                    if (overlaps(target, otherTarget)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the paths in the image that the instruction writes. A directory
+     *         source writes into its destination, so the destination is used.
+     */
+    private static List<String> getTargets(Instruction instruction, File buildContext) {
+        List<String> paths = instruction.getPaths();
+        String dest = paths.get(paths.size() - 1);
+        boolean destIsDirectory = dest.endsWith("/") || paths.size() > 2;
+        String destPath = dest.replaceAll("/+$", "");
+        List<String> targets = new ArrayList<String>();
+        for (String source : paths.subList(0, paths.size() - 1)) {
+            if (destIsDirectory && "COPY".equals(instruction.getKeyword()) && instruction.getFlag("from") == null
+                    && !hasWildcard(source) && new File(buildContext, source).isFile()) {
+                targets.add(destPath + "/" + new File(source).getName());
+            } else {
+                targets.add(destPath);
+            }
+        }
+        return targets;
+    }
+
+    private static boolean overlaps(String target, String otherTarget) {
+        if (target.contains("\\") || otherTarget.contains("\\") || target.startsWith("/") != otherTarget.startsWith("/")) {
+            return true; // Windows paths, or a relative path whose WORKDIR is not known
+        }
+        return target.equals(otherTarget) || isAncestor(target, otherTarget) || isAncestor(otherTarget, target);
+    }
+
+    private static boolean isAncestor(String path, String descendant) {
+        return path.isEmpty() || path.equals(".") || descendant.startsWith(path + "/");
+    }
+
+    private static boolean hasWildcard(String path) {
+        return path.contains("*") || path.contains("?") || path.contains("[");
+    }
+
+    /**
+     * Compute a key for each line that changes when the line, a file it copies
+     * from the build context or any earlier line changes, like the Docker build
+     * cache does.
+     *
+     * @param dockerfileLines the lines of the Dockerfile that is built
+     * @param buildContext    the build context directory
+     * @return a key for each line, or null for a line that is always rebuilt,
+     *         such as an ADD of a remote file, and every line after it
+     */
+    public static List<String> getLayerKeys(List<String> dockerfileLines, File buildContext) throws IOException {
+        List<String> keys = new ArrayList<String>(dockerfileLines.size());
+        String key = "";
+        for (String line : dockerfileLines) {
+            if (key != null) {
+                String lineKey = line;
+                if (DockerBuildFingerprint.getSources(line) != null) {
+                    lineKey = DockerBuildFingerprint.compute(Collections.singletonList(line), new HashMap<String, String>(),
+                            buildContext);
+                }
+                key = lineKey == null ? null : ChecksumUtil.sha256(key + "\n" + lineKey);
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    /**
+     * @param previousKeys the layer keys of the previous build
+     * @param keys         the layer keys of this build
+     * @return the number of leading instructions that are expected to be reused
+     *         from the build cache
+     */
+    public static int countCacheHits(List<String> previousKeys, List<String> keys) {
+        int hits = 0;
+        while (hits < previousKeys.size() && hits < keys.size() && keys.get(hits) != null
+                && keys.get(hits).equals(previousKeys.get(hits))) {
+            hits++;
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,633 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The instructions of a Dockerfile, read in a single pass that handles the
+ * escape directive, comments, line continuations, build stages and ARG and ENV
+ * variables. Models are cached by the checksum of the Dockerfile, so that
+ * rebuilding an unchanged Dockerfile does not parse it again.
+ */
+public class DockerfileModel {
+
+    /**
+     * A Dockerfile instruction, or a line before the first FROM
+     */
+    public static class Instruction {
+        private final String line;
+        private final String keyword;
+        private final int stage;
+        private final Map<String, String> flags;
+        private final List<String> paths;
+        private final Map<String, String> variables;
+
+        private Instruction(String line, String keyword, int stage, Map<String, String> flags, List<String> paths,
+                Map<String, String> variables) {
+            this.line = line;
+            this.keyword = keyword;
+            this.stage = stage;
+            this.flags = flags;
+            this.paths = paths;
+            this.variables = variables;
+        }
+
+        /**
+         * @return the trimmed line, combined with its continuation lines
+         */
+        public String getLine() {
+            return line;
+        }
+
+        /**
+         * @return the upper case instruction keyword, or null for comments and
+         *         directives before the first FROM
+         */
+        public String getKeyword() {
+            return keyword;
+        }
+
+        /**
+         * @return the index of the build stage, or -1 before the first FROM
+         */
+        public int getStage() {
+            return stage;
+        }
+
+        public boolean isCopyOrAdd() {
+            return "COPY".equals(keyword) || "ADD".equals(keyword);
+        }
+
+        /**
+         * @param name the flag name without the leading dashes, such as chown
+         * @return the value of the flag, an empty string for a flag without a
+         *         value, or null if the flag is not set
+         */
+        public String getFlag(String name) {
+            return flags.get(name);
+        }
+
+        /**
+         * @return the source and destination arguments of a COPY or ADD, with the
+         *         destination last
+         */
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        /**
+         * @return the source and destination arguments of a COPY or ADD with the
+         *         ARG and ENV variables substituted, or null if a variable has no
+         *         value
+         */
+        public List<String> getResolvedPaths() {
+            List<String> resolved = new ArrayList<String>(paths.size());
+            for (String path : paths) {
+                String value = substitute(path, variables);
+                if (value == null) {
+                    return null;
+                }
+                resolved.add(value);
+            }
+            return resolved;
+        }
+
+        @Override
+        public String toString() {
+            return line;
+        }
+    }
+
+    /**
+     * A build stage started by a FROM instruction
+     */
+    public static class Stage {
+        private final String image;
+        private final String name;
+
+        private Stage(String image, String name) {
+            this.image = image;
+            this.name = name;
+        }
+
+        /**
+         * @return the image with ARG variables substituted where they are known
+         */
+        public String getImage() {
+            return image;
+        }
+
+        /**
+         * @return the name given with AS, or null
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final String RUN_CONFIGURE_COMMAND_LOWERCASE = "run configure.sh";
+    static final String RUN_FEATURES_COMMAND_LOWERCASE = "run features.sh";
+    private static final String[] APPLICATION_EXTENSIONS = { ".war", ".ear" };
+    private static final int MAX_CACHED_MODELS = 16;
+
+    private static final Map<String, DockerfileModel> cache = new LinkedHashMap<String, DockerfileModel>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DockerfileModel> eldest) {
+            return size() > MAX_CACHED_MODELS;
+        }
+    };
+
+    private final char escape;
+    private final List<Instruction> instructions = new ArrayList<Instruction>();
+    private final List<Stage> stages = new ArrayList<Stage>();
+    private final List<Instruction> applicationCopies = new ArrayList<Instruction>();
+    private boolean hasFeaturesSh;
+    private boolean hasConfigureSh;
+
+    // variable state while parsing
+    private final Map<String, String> globalArgs = new HashMap<String, String>();
+    private Map<String, String> stageVariables = new HashMap<String, String>();
+
+    private DockerfileModel(char escape) {
+        this.escape = escape;
+    }
+
+    /**
+     * Get the model of a Dockerfile, parsing it only if a Dockerfile with the
+     * same content has not been parsed before.
+     *
+     * @param dockerfile the Dockerfile
+     * @return the model
+     */
+    public static DockerfileModel load(File dockerfile) throws IOException {
+        String checksum = ChecksumUtil.cachedSha256(dockerfile);
+        synchronized (cache) {
+            DockerfileModel model = cache.get(checksum);
+            if (model != null) {
+                return model;
+            }
+        }
+        DockerfileModel model = parse(Files.readAllLines(dockerfile.toPath()));
+        synchronized (cache) {
+            cache.put(checksum, model);
+        }
+        return model;
+    }
+
+    /**
+     * Parse the lines of a Dockerfile.
+     *
+     * @param dockerfileLines the lines as read from the Dockerfile
+     * @return the model
+     */
+    public static DockerfileModel parse(List<String> dockerfileLines) {
+        DockerfileModel model = new DockerfileModel(
+                dockerfileLines.isEmpty() ? '\\' : getEscapeDirective(dockerfileLines.get(0)));
+        boolean fromFound = false;
+        String pendingLine = null;
+        for (String rawLine : dockerfileLines) {
+            // Remove white space from the beginning and end of the line
+            String line = rawLine.trim();
+            if (!fromFound && line.startsWith("FROM")) {
+                fromFound = true;
+            }
+            if (fromFound) {
+                int commentIndex = line.indexOf('#');
+                if (commentIndex >= 0) {
+                    line = line.substring(0, commentIndex).trim();
+                }
+                if (line.isEmpty()) {
+                    continue;
+                }
+            }
+            if (pendingLine != null) {
+                // trim the combined string to remove whitespace around any further line escapes
+                line = (pendingLine.substring(0, pendingLine.length() - 1) + line).trim();
+                pendingLine = null;
+            }
+            if (line.length() > 0 && !line.startsWith("#") && line.charAt(line.length() - 1) == model.escape) {
+                pendingLine = line;
+            } else {
+                model.add(line);
+            }
+        }
+        if (pendingLine != null) {
+            model.add(pendingLine);
+        }
+        return model;
+    }
+
+    /**
+     * @return the escape character of an escape directive, or the default of
+     *         backslash
+     */
+    static char getEscapeDirective(String firstLine) {
+        String line = firstLine.trim();
+        int directiveSymbolIndex = line.indexOf('#');
+        if (directiveSymbolIndex >= 0) {
+            String[] split = line.substring(directiveSymbolIndex + 1).trim().split("=");
+            if (split.length == 2 && split[0].trim().equalsIgnoreCase("escape")) {
+                String escapeChar = split[1].trim();
+                if (escapeChar.length() > 0) {
+                    // let docker fail the build if the character is not valid
+                    return escapeChar.charAt(0);
+                }
+            }
+        }
+        return '\\';
+    }
+
+    private void add(String line) {
+        if (line.isEmpty() || line.startsWith("#")) {
+            instructions.add(new Instruction(line, null, stages.size() - 1, Collections.<String, String>emptyMap(),
+                    Collections.<String>emptyList(), Collections.<String, String>emptyMap()));
+            return;
+        }
+        String[] segments = line.split("\\s+", 2);
+        String keyword = segments[0].toUpperCase();
+        String arguments = segments.length > 1 ? segments[1] : "";
+        Map<String, String> flags = Collections.emptyMap();
+        List<String> paths = Collections.emptyList();
+        Map<String, String> variables = Collections.emptyMap();
+        if (keyword.equals("FROM")) {
+            addStage(arguments);
+        } else if (keyword.equals("ARG")) {
+            addArgs(arguments);
+        } else if (keyword.equals("ENV")) {
+            addEnv(arguments);
+        } else if (keyword.equals("COPY") || keyword.equals("ADD")) {
+            flags = new HashMap<String, String>();
+            paths = parsePaths(arguments, flags);
+            variables = new HashMap<String, String>(stageVariables);
+        } else if (keyword.equals("RUN")) {
+            String lowerCaseLine = line.toLowerCase();
+            // RUN command is case insensitive, so use lowercase matching.
+            hasConfigureSh |= lowerCaseLine.equals(RUN_CONFIGURE_COMMAND_LOWERCASE);
+            hasFeaturesSh |= lowerCaseLine.equals(RUN_FEATURES_COMMAND_LOWERCASE);
+        }
+        Instruction instruction = new Instruction(line, keyword, stages.size() - 1, flags, paths, variables);
+        instructions.add(instruction);
+        if (instruction.isCopyOrAdd() && isApplicationCopy(line)) {
+            applicationCopies.add(instruction);
+        }
+    }
+
+    private void addStage(String arguments) {
+        String[] segments = arguments.split("\\s+");
+        int i = 0;
+        while (i < segments.length - 1 && segments[i].startsWith("--")) {
+            i++; // skip options such as --platform
+        }
+        String image = substitute(segments[i], globalArgs);
+        String name = i + 2 < segments.length && segments[i + 1].equalsIgnoreCase("AS") ? segments[i + 2] : null;
+        stages.add(new Stage(image != null ? image : segments[i], name));
+        // each stage only sees the global ARGs that it declares again
+        stageVariables = new HashMap<String, String>();
+    }
+
+    private void addArgs(String arguments) {
+        for (String argument : splitArguments(arguments)) {
+            int equals = argument.indexOf('=');
+            String name = equals < 0 ? argument : argument.substring(0, equals);
+            String value;
+            if (equals >= 0) {
+                value = substitute(unquote(argument.substring(equals + 1)), stages.isEmpty() ? globalArgs : stageVariables);
+            } else {
+                value = stages.isEmpty() ? null : globalArgs.get(name);
+            }
+            if (stages.isEmpty()) {
+                globalArgs.put(name, value);
+            } else if (value != null || !stageVariables.containsKey(name)) {
+                stageVariables.put(name, value);
+            }
+        }
+    }
+
+    private void addEnv(String arguments) {
+        List<String> parts = splitArguments(arguments);
+        if (!parts.isEmpty() && !parts.get(0).contains("=")) {
+            // legacy ENV key value form, where the rest of the line is the value
+            String[] keyValue = arguments.split("\\s+", 2);
+            stageVariables.put(keyValue[0], keyValue.length > 1 ? substitute(unquote(keyValue[1]), stageVariables) : "");
+            return;
+        }
+        for (String part : parts) {
+            int equals = part.indexOf('=');
+            if (equals > 0) {
+                stageVariables.put(unquote(part.substring(0, equals)),
+                        substitute(unquote(part.substring(equals + 1)), stageVariables));
+            }
+        }
+    }
+
+    private static List<String> parsePaths(String arguments, Map<String, String> flags) {
+        String rest = arguments.trim();
+        while (rest.startsWith("--")) {
+            String[] option = rest.split("\\s+", 2);
+            int equals = option[0].indexOf('=');
+            if (equals < 0) {
+                flags.put(option[0].substring(2), "");
+            } else {
+                flags.put(option[0].substring(2, equals), option[0].substring(equals + 1));
+            }
+            rest = option.length > 1 ? option[1].trim() : "";
+        }
+        List<String> paths = new ArrayList<String>();
+        if (rest.startsWith("[")) {
+            try {
+                Object json = JsonParser.parse(rest);
+                if (json instanceof List) {
+                    for (Object path : (List<?>) json) {
+                        paths.add(String.valueOf(path));
+                    }
+                    return paths;
+                }
+            } catch (IOException e) {
+                // not a JSON array, so read it like any other arguments
+            }
+        }
+        for (String path : rest.split("\\s+")) {
+            if (!path.isEmpty()) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    // split on whitespace outside of quotes
+    private static List<String> splitArguments(String arguments) {
+        List<String> result = new ArrayList<String>();
+        StringBuilder current = new StringBuilder();
+        char quote = 0;
+        for (int i = 0; i < arguments.length(); i++) {
+            char c = arguments.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                current.append(c);
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                current.append(c);
+            } else if (Character.isWhitespace(c)) {
+                if (current.length() > 0) {
+                    result.add(current.toString());
+                    current.setLength(0);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        if (current.length() > 0) {
+            result.add(current.toString());
+        }
+        return result;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'')
+                && value.charAt(value.length() - 1) == value.charAt(0)) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * Substitute $NAME, ${NAME}, ${NAME:-default} and ${NAME:+value} variables.
+     *
+     * @param value     the value with variables
+     * @param variables the known variables, where a null value is declared
+     *                  without a default
+     * @return the substituted value, or null if a variable has no value
+     */
+    static String substitute(String value, Map<String, String> variables) {
+        if (value == null || value.indexOf('$') < 0) {
+            return value;
+        }
+        StringBuilder result = new StringBuilder();
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length() && value.charAt(i + 1) == '$') {
+                result.append('$');
+                i += 2;
+            } else if (c != '$' || i + 1 == value.length()) {
+                result.append(c);
+                i++;
+            } else if (value.charAt(i + 1) == '{') {
+                int end = value.indexOf('}', i + 2);
+                if (end < 0) {
+                    return null;
+                }
+                String expression = value.substring(i + 2, end);
+                String name = expression;
+                String modifier = null;
+                int colon = expression.indexOf(':');
+                if (colon > 0 && colon + 1 < expression.length()) {
+                    name = expression.substring(0, colon);
+                    modifier = expression.substring(colon + 1);
+                }
+                String variable = variables.get(name);
+                if (modifier != null && modifier.charAt(0) == '-') {
+                    variable = variable == null || variable.isEmpty() ? modifier.substring(1) : variable;
+                } else if (modifier != null && modifier.charAt(0) == '+') {
+                    variable = variable == null || variable.isEmpty() ? "" : modifier.substring(1);
+                }
+                if (variable == null) {
+                    return null;
+                }
+                result.append(variable);
+                i = end + 1;
+            } else {
+                int end = i + 1;
+                while (end < value.length() && (Character.isLetterOrDigit(value.charAt(end)) || value.charAt(end) == '_')) {
+                    end++;
+                }
+                if (end == i + 1) {
+                    result.append(c);
+                    i++;
+                    continue;
+                }
+                String variable = variables.get(value.substring(i + 1, end));
+                if (variable == null) {
+                    return null;
+                }
+                result.append(variable);
+                i = end;
+            }
+        }
+        return result.toString();
+    }
+
+    // a COPY or ADD of a .war or .ear file, which dev mode deploys from the loose application instead
+    private static boolean isApplicationCopy(String line) {
+        String lowerCaseLine = line.toLowerCase();
+        String[] segments = lowerCaseLine.split("\\s+");
+        if (segments.length < 3) {
+            return false;
+        }
+        for (String extension : APPLICATION_EXTENSIONS) {
+            if (segments[segments.length - 2].endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public char getEscape() {
+        return escape;
+    }
+
+    /**
+     * @return all instructions in order, including the lines before the first FROM
+     */
+    public List<Instruction> getInstructions() {
+        return Collections.unmodifiableList(instructions);
+    }
+
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(stages);
+    }
+
+    /**
+     * @return the COPY and ADD instructions of .war and .ear files, which are left
+     *         out of the dev mode Dockerfile
+     */
+    public List<Instruction> getApplicationCopies() {
+        return Collections.unmodifiableList(applicationCopies);
+    }
+
+    /**
+     * @return the instructions of the dev mode Dockerfile, without the
+     *         application copies
+     */
+    public List<Instruction> getDevInstructions() {
+        List<Instruction> result = new ArrayList<Instruction>(instructions.size());
+        for (Instruction instruction : instructions) {
+            if (!applicationCopies.contains(instruction)) {
+                result.add(instruction);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the lines of the dev mode Dockerfile. The application copies are left
+     * out, and OpenJ9 SCC is disabled before RUN configure.sh to speed up the
+     * build. Reference:
+     * https://github.com/OpenLiberty/ci.docker#openj9-shared-class-cache-scc
+     *
+     * @return a new list of lines
+     */
+    public List<String> getDevLines() {
+        List<String> lines = new ArrayList<String>(instructions.size() + 1);
+        boolean sccDisabled = false;
+        for (Instruction instruction : getDevInstructions()) {
+            if (!sccDisabled && hasConfigureSh && instruction.getLine().toLowerCase().equals(RUN_CONFIGURE_COMMAND_LOWERCASE)) {
+                lines.add("ENV OPENJ9_SCC=false");
+                sccDisabled = true;
+            }
+            lines.add(instruction.getLine());
+        }
+        return lines;
+    }
+
+    public boolean hasConfigureSh() {
+        return hasConfigureSh;
+    }
+
+    public boolean hasFeaturesSh() {
+        return hasFeaturesSh;
+    }
+
+    /**
+     * Find the build context paths that a COPY --from of an earlier stage copies,
+     * by following the COPY instructions of that stage. Files that the stage
+     * creates or changes with RUN cannot be followed.
+     *
+     * @param copy   the COPY --from instruction
+     * @param source a resolved source path of the instruction
+     * @return the candidate build context paths, later COPY instructions first,
+     *         which is empty if the source does not come from the build context
+     */
+    public List<String> getStageSources(Instruction copy, String source) {
+        List<String> result = new ArrayList<String>();
+        int stage = findStage(copy.getFlag("from"), copy.getStage());
+        if (stage < 0) {
+            return result;
+        }
+        String sourcePath = source.replaceAll("/+$", "");
+        for (int i = instructions.size() - 1; i >= 0; i--) {
+            Instruction instruction = instructions.get(i);
+            if (instruction.getStage() != stage || !"COPY".equals(instruction.getKeyword())
+                    || instruction.getFlag("from") != null) {
+                continue;
+            }
+            List<String> paths = instruction.getResolvedPaths();
+            if (paths == null || paths.size() < 2) {
+                continue;
+            }
+            String dest = paths.get(paths.size() - 1);
+            String destPath = dest.replaceAll("/+$", "");
+            if (!dest.startsWith("/")) {
+                continue; // relative to a WORKDIR
+            }
+            for (String src : paths.subList(0, paths.size() - 1)) {
+                String srcPath = src.replaceAll("/+$", "");
+                String name = srcPath.substring(srcPath.lastIndexOf('/') + 1);
+                if (sourcePath.equals(destPath)) {
+                    result.add(srcPath); // a directory or file copied to the destination
+                } else if (sourcePath.startsWith(destPath + "/")) {
+                    String remainder = sourcePath.substring(destPath.length() + 1);
+                    if (dest.endsWith("/") && remainder.equals(name)) {
+                        result.add(srcPath); // a file copied into the destination directory
+                    }
+                    result.add(srcPath + "/" + remainder); // a file within a copied directory
+                }
+            }
+        }
+        return result;
+    }
+
+    // the index of an earlier stage by name or number, or -1 for an image
+    private int findStage(String from, int currentStage) {
+        if (from == null || from.isEmpty()) {
+            return -1;
+        }
+        for (int i = 0; i < currentStage; i++) {
+            if (from.equalsIgnoreCase(stages.get(i).getName())) {
+                return i;
+            }
+        }
+        try {
+            int index = Integer.parseInt(from);
+            return index >= 0 && index < currentStage ? index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
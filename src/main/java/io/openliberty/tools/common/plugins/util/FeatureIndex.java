@@ -0,0 +1,464 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the features described by product feature JSONs. The index of each
+ * JSON is written to a binary file next to it the first time the JSON is read,
+ * and is reused for as long as the checksum of the JSON matches.
+ */
+public class FeatureIndex {
+
+    /** Suffix appended to the JSON file name for its index file */
+    public static final String INDEX_SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x4c464958; // "LFIX"
+    private static final int FORMAT_VERSION = 1;
+
+    // indexes that were already loaded, keyed by the SHA-256 of their JSON
+    private static final Map<String, FeatureIndex> loadedIndexes = new HashMap<String, FeatureIndex>();
+
+    private final List<Feature> features;
+    private final Map<String, Feature> byName = new HashMap<String, Feature>();
+
+    /**
+     * A feature in the index
+     */
+    public static class Feature {
+        private final String symbolicName;
+        private final String shortName;
+        private final String mavenCoordinates;
+        private final List<Dependency> dependencies;
+
+        public Feature(String symbolicName, String shortName, String mavenCoordinates, List<Dependency> dependencies) {
+            this.symbolicName = symbolicName;
+            this.shortName = shortName;
+            this.mavenCoordinates = mavenCoordinates;
+            this.dependencies = Collections.unmodifiableList(new ArrayList<Dependency>(dependencies));
+        }
+
+        public String getSymbolicName() {
+            return symbolicName;
+        }
+
+        /**
+         * @return the short name of a public feature, or null
+         */
+        public String getShortName() {
+            return shortName;
+        }
+
+        /**
+         * @return the groupId:artifactId:version coordinates of the ESA, or null
+         */
+        public String getMavenCoordinates() {
+            return mavenCoordinates;
+        }
+
+        /**
+         * @return the groupId of the ESA, or null
+         */
+        public String getGroupId() {
+            return getCoordinate(0);
+        }
+
+        /**
+         * @return the artifactId of the ESA, or null
+         */
+        public String getArtifactId() {
+            return getCoordinate(1);
+        }
+
+        private String getCoordinate(int index) {
+            if (mavenCoordinates == null) {
+                return null;
+            }
+            String[] coordinates = mavenCoordinates.split(":");
+            return coordinates.length > index ? coordinates[index] : null;
+        }
+
+        /**
+         * @return the features this feature requires
+         */
+        public List<Dependency> getDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public String toString() {
+            return shortName != null ? shortName : symbolicName;
+        }
+    }
+
+    /**
+     * A required feature and the other versions of it that are tolerated
+     */
+    public static class Dependency {
+        private final String symbolicName;
+        private final List<String> toleratedVersions;
+
+        public Dependency(String symbolicName, List<String> toleratedVersions) {
+            this.symbolicName = symbolicName;
+            this.toleratedVersions = Collections.unmodifiableList(new ArrayList<String>(toleratedVersions));
+        }
+
+        /**
+         * @return the symbolic name of the preferred version of the feature
+         */
+        public String getSymbolicName() {
+            return symbolicName;
+        }
+
+        /**
+         * @return the other versions, such as "1.2", that satisfy the dependency
+         */
+        public List<String> getToleratedVersions() {
+            return toleratedVersions;
+        }
+
+        /**
+         * @return the symbolic names of the preferred and tolerated versions
+         */
+        public List<String> getAcceptedSymbolicNames() {
+            List<String> names = new ArrayList<String>();
+            names.add(symbolicName);
+            int versionIndex = symbolicName.lastIndexOf('-');
+            if (versionIndex > 0) {
+                String baseName = symbolicName.substring(0, versionIndex + 1);
+                for (String version : toleratedVersions) {
+                    names.add(baseName + version);
+                }
+            }
+            return names;
+        }
+    }
+
+    public FeatureIndex(List<Feature> features) {
+        this.features = Collections.unmodifiableList(new ArrayList<Feature>(features));
+        for (Feature feature : features) {
+            if (feature.getShortName() != null) {
+                byName.put(feature.getShortName().toLowerCase(), feature);
+            }
+            if (feature.getSymbolicName() != null) {
+                byName.put(feature.getSymbolicName().toLowerCase(), feature);
+            }
+        }
+    }
+
+    /**
+     * Get the index of a product JSON, loading it from the index file next to
+     * the JSON or creating the index file if it is missing or out of date.
+     *
+     * @param json the product JSON file
+     * @return the index
+     * @throws IOException if the JSON could not be read or parsed
+     */
+    public static FeatureIndex load(File json) throws IOException {
+        String checksum = ChecksumUtil.cachedSha256(json);
+        File indexFile = new File(json.getAbsoluteFile().getParentFile(), json.getName() + INDEX_SUFFIX);
+        FeatureIndex index;
+        synchronized (loadedIndexes) {
+            index = loadedIndexes.get(checksum);
+        }
+        if (index != null) {
+            if (!indexFile.exists()) {
+                // the same JSON was loaded from another location
+                index.writeQuietly(indexFile, checksum);
+            }
+            return index;
+        }
+        index = read(indexFile, checksum);
+        if (index == null) {
+            index = fromJson(json);
+            index.writeQuietly(indexFile, checksum);
+        }
+        synchronized (loadedIndexes) {
+            loadedIndexes.put(checksum, index);
+        }
+        return index;
+    }
+
+    /**
+     * Get a combined index of several product JSONs.
+     *
+     * @param jsons the product JSON files
+     * @return the combined index
+     * @throws IOException if a JSON could not be read or parsed
+     */
+    public static FeatureIndex load(Collection<File> jsons) throws IOException {
+        if (jsons.size() == 1) {
+            return load(jsons.iterator().next());
+        }
+        List<Feature> features = new ArrayList<Feature>();
+        for (File json : jsons) {
+            features.addAll(load(json).getFeatures());
+        }
+        return new FeatureIndex(features);
+    }
+
+    /**
+     * Create an index by parsing a product JSON.
+     *
+     * @param json the product JSON file
+     * @return the index
+     * @throws IOException if the JSON could not be read or parsed
+     */
+    @SuppressWarnings("unchecked")
+    public static FeatureIndex fromJson(File json) throws IOException {
+        Object parsed = JsonParser.parse(json);
+        if (!(parsed instanceof List)) {
+            throw new IOException("The feature JSON " + json + " does not contain an array.");
+        }
+        List<Feature> features = new ArrayList<Feature>();
+        for (Object element : (List<Object>) parsed) {
+            if (!(element instanceof Map)) {
+                continue;
+            }
+            Map<String, Object> asset = (Map<String, Object>) element;
+            Object wlpInformation = asset.get("wlpInformation");
+            Map<String, Object> info = wlpInformation instanceof Map ? (Map<String, Object>) wlpInformation
+                    : Collections.<String, Object>emptyMap();
+
+            String symbolicName = null;
+            Object provideFeature = info.get("provideFeature");
+            if (provideFeature instanceof List && !((List<Object>) provideFeature).isEmpty()) {
+                symbolicName = asString(((List<Object>) provideFeature).get(0));
+            }
+            if (symbolicName == null) {
+                symbolicName = asString(asset.get("name"));
+            }
+            String shortName = asString(info.get("shortName"));
+            String mavenCoordinates = asString(info.get("mavenCoordinates"));
+            if (symbolicName == null && mavenCoordinates == null) {
+                continue;
+            }
+
+            List<Dependency> dependencies = new ArrayList<Dependency>();
+            Object withTolerates = info.get("requireFeatureWithTolerates");
+            Object requireFeature = info.get("requireFeature");
+            if (withTolerates instanceof List) {
+                for (Object required : (List<Object>) withTolerates) {
+                    if (required instanceof Map) {
+                        Map<String, Object> requiredMap = (Map<String, Object>) required;
+                        String name = asString(requiredMap.get("feature"));
+                        if (name != null) {
+                            List<String> tolerates = new ArrayList<String>();
+                            Object toleratesList = requiredMap.get("tolerates");
+                            if (toleratesList instanceof List) {
+                                for (Object version : (List<Object>) toleratesList) {
+                                    tolerates.add(String.valueOf(version));
+                                }
+                            }
+                            dependencies.add(new Dependency(name, tolerates));
+                        }
+                    }
+                }
+            } else if (requireFeature instanceof List) {
+                for (Object required : (List<Object>) requireFeature) {
+                    if (required instanceof String) {
+                        dependencies.add(new Dependency((String) required, Collections.<String>emptyList()));
+                    }
+                }
+            }
+            features.add(new Feature(symbolicName, shortName, mavenCoordinates, dependencies));
+        }
+        return new FeatureIndex(features);
+    }
+
+    private static String asString(Object value) {
+        return value instanceof String ? (String) value : null;
+    }
+
+    /**
+     * Read an index file.
+     *
+     * @return the index, or null if the file is missing, unreadable or was
+     *         created for a different JSON checksum
+     */
+    private static FeatureIndex read(File indexFile, String checksum) {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !checksum.equals(in.readUTF())) {
+                return null;
+            }
+            int featureCount = in.readInt();
+            List<Feature> features = new ArrayList<Feature>(featureCount);
+            for (int i = 0; i < featureCount; i++) {
+                String symbolicName = readNullableUTF(in);
+                String shortName = readNullableUTF(in);
+                String mavenCoordinates = readNullableUTF(in);
+                int dependencyCount = in.readInt();
+                List<Dependency> dependencies = new ArrayList<Dependency>(dependencyCount);
+                for (int j = 0; j < dependencyCount; j++) {
+                    String name = in.readUTF();
+                    int toleratesCount = in.readInt();
+                    List<String> tolerates = new ArrayList<String>(toleratesCount);
+                    for (int k = 0; k < toleratesCount; k++) {
+                        tolerates.add(in.readUTF());
+                    }
+                    dependencies.add(new Dependency(name, tolerates));
+                }
+                features.add(new Feature(symbolicName, shortName, mavenCoordinates, dependencies));
+            }
+            return new FeatureIndex(features);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeQuietly(File indexFile, String checksum) {
+        try {
+            write(indexFile, checksum);
+        } catch (IOException e) {
+            // the index is still cached in memory
+        }
+    }
+
+    private void write(File indexFile, String checksum) throws IOException {
+        File tempFile = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getParentFile());
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(checksum);
+                out.writeInt(features.size());
+                for (Feature feature : features) {
+                    writeNullableUTF(out, feature.getSymbolicName());
+                    writeNullableUTF(out, feature.getShortName());
+                    writeNullableUTF(out, feature.getMavenCoordinates());
+                    out.writeInt(feature.getDependencies().size());
+                    for (Dependency dependency : feature.getDependencies()) {
+                        out.writeUTF(dependency.getSymbolicName());
+                        out.writeInt(dependency.getToleratedVersions().size());
+                        for (String version : dependency.getToleratedVersions()) {
+                            out.writeUTF(version);
+                        }
+                    }
+                }
+            }
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * @return all features in the index
+     */
+    public List<Feature> getFeatures() {
+        return features;
+    }
+
+    /**
+     * @param name the short name or symbolic name of a feature, in any case
+     * @return the feature, or null if it is not in the index
+     */
+    public Feature getFeature(String name) {
+        return byName.get(name.toLowerCase());
+    }
+
+    /**
+     * @param name the short name or symbolic name of a feature, in any case
+     * @return true if the feature is in the index
+     */
+    public boolean contains(String name) {
+        return getFeature(name) != null;
+    }
+
+    /**
+     * @param groupId the Maven groupId
+     * @return the artifactIds of the ESAs in the groupId
+     */
+    public Set<String> getArtifactIds(String groupId) {
+        Set<String> artifactIds = new LinkedHashSet<String>();
+        for (Feature feature : features) {
+            if (groupId.equals(feature.getGroupId()) && feature.getArtifactId() != null) {
+                artifactIds.add(feature.getArtifactId());
+            }
+        }
+        return artifactIds;
+    }
+
+    /**
+     * Get the features and all of the features they require, using the preferred
+     * version of each dependency. Names that are not in the index are ignored.
+     *
+     * @param names the short names or symbolic names of features
+     * @return the features in the closure, keyed by lower case symbolic name
+     */
+    public Map<String, Feature> getClosure(Collection<String> names) {
+        Map<String, Feature> closure = new LinkedHashMap<String, Feature>();
+        Deque<Feature> toVisit = new ArrayDeque<Feature>();
+        for (String name : names) {
+            Feature feature = getFeature(name);
+            if (feature != null) {
+                toVisit.add(feature);
+            }
+        }
+        while (!toVisit.isEmpty()) {
+            Feature feature = toVisit.poll();
+            if (closure.put(getClosureKey(feature), feature) != null) {
+                continue;
+            }
+            for (Dependency dependency : feature.getDependencies()) {
+                Feature required = getFeature(dependency.getSymbolicName());
+                if (required != null && !closure.containsKey(getClosureKey(required))) {
+                    toVisit.add(required);
+                }
+            }
+        }
+        return closure;
+    }
+
+    private static String getClosureKey(Feature feature) {
+        return feature.getSymbolicName() != null ? feature.getSymbolicName().toLowerCase() : feature.getMavenCoordinates();
+    }
+}
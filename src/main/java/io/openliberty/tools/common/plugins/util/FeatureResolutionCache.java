@@ -0,0 +1,272 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Persistent cache of install kernel resolution results. Each entry is keyed on
+ * the features to install, the product JSONs, the Open Liberty version and the
+ * override bundle, and records the resolved Maven coordinates and whether they
+ * were installed. An installed entry is only valid while the runtime's feature
+ * manifests are unchanged.
+ */
+public class FeatureResolutionCache {
+
+    private static final int MAX_ENTRIES = 50;
+
+    private static final String RESOLVED_SUFFIX = ".resolved";
+    private static final String INSTALLED_SUFFIX = ".installed";
+    private static final String RUNTIME_SUFFIX = ".runtime";
+    private static final String TIME_SUFFIX = ".time";
+
+    private final File cacheFile;
+
+    /**
+     * @param cacheFile the properties file to store the cache in
+     */
+    public FeatureResolutionCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * A cached resolution result
+     */
+    public static class Entry {
+        private final List<String> resolvedFeatures;
+        private final boolean installed;
+        private final String runtimeFingerprint;
+
+        public Entry(List<String> resolvedFeatures, boolean installed, String runtimeFingerprint) {
+            this.resolvedFeatures = Collections.unmodifiableList(new ArrayList<String>(resolvedFeatures));
+            this.installed = installed;
+            this.runtimeFingerprint = runtimeFingerprint;
+        }
+
+        /**
+         * @return the Maven coordinates of the resolved ESAs in install order
+         */
+        public List<String> getResolvedFeatures() {
+            return resolvedFeatures;
+        }
+
+        /**
+         * @return true if the resolved features were installed
+         */
+        public boolean isInstalled() {
+            return installed;
+        }
+
+        /**
+         * @return the runtime fingerprint after the features were installed
+         */
+        public String getRuntimeFingerprint() {
+            return runtimeFingerprint;
+        }
+    }
+
+    /**
+     * Gets the cache key for a resolution.
+     *
+     * @param features           the features to install
+     * @param jsons              the product JSON files
+     * @param openLibertyVersion the Open Liberty version
+     * @param overrideBundle     the override bundle descriptor, or null
+     * @param to                 the extension to install to, or null
+     * @return the cache key
+     * @throws IOException if a JSON file could not be read
+     */
+    public static String getKey(Collection<String> features, Collection<File> jsons, String openLibertyVersion,
+            String overrideBundle, String to) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        TreeSet<String> sortedFeatures = new TreeSet<String>();
+        for (String feature : features) {
+            sortedFeatures.add(feature.trim().toLowerCase());
+        }
+        sb.append("features=").append(sortedFeatures).append('\n');
+        TreeSet<String> jsonChecksums = new TreeSet<String>();
+        for (File json : jsons) {
+            jsonChecksums.add(ChecksumUtil.cachedSha256(json));
+        }
+        sb.append("jsons=").append(jsonChecksums).append('\n');
+        sb.append("version=").append(openLibertyVersion).append('\n');
+        sb.append("override=").append(overrideBundle).append('\n');
+        sb.append("to=").append(to).append('\n');
+        return ChecksumUtil.sha256(sb.toString());
+    }
+
+    /**
+     * Gets a fingerprint of the features installed in the runtime, from the names
+     * and modification times of the feature manifests.
+     *
+     * @param installDirectory the runtime install directory
+     * @return the fingerprint
+     */
+    public static String getRuntimeFingerprint(File installDirectory) {
+        StringBuilder sb = new StringBuilder();
+        appendManifests(new File(installDirectory, "lib/features"), sb);
+        appendManifests(new File(installDirectory, "usr/extension/lib/features"), sb);
+        return ChecksumUtil.sha256(sb.toString());
+    }
+
+    private static void appendManifests(File featuresDir, StringBuilder sb) {
+        String[] names = featuresDir.list();
+        if (names == null) {
+            return;
+        }
+        Arrays.sort(names);
+        for (String name : names) {
+            if (name.endsWith(".mf")) {
+                sb.append(name).append(':').append(new File(featuresDir, name).lastModified()).append('\n');
+            }
+        }
+    }
+
+    /**
+     * @param key the cache key
+     * @return the cached entry, or null if there is none
+     */
+    public synchronized Entry get(String key) {
+        Properties properties = load();
+        String resolved = properties.getProperty(key + RESOLVED_SUFFIX);
+        if (resolved == null) {
+            return null;
+        }
+        List<String> resolvedFeatures = new ArrayList<String>();
+        for (String coordinates : resolved.split(",")) {
+            if (!coordinates.isEmpty()) {
+                resolvedFeatures.add(coordinates);
+            }
+        }
+        return new Entry(resolvedFeatures, Boolean.parseBoolean(properties.getProperty(key + INSTALLED_SUFFIX)),
+                properties.getProperty(key + RUNTIME_SUFFIX));
+    }
+
+    /**
+     * Stores an entry, evicting the oldest entries if the cache is full.
+     *
+     * @param key   the cache key
+     * @param entry the entry to store
+     * @throws IOException if the cache could not be written
+     */
+    public synchronized void put(String key, Entry entry) throws IOException {
+        Properties properties = load();
+        StringBuilder resolved = new StringBuilder();
+        for (String coordinates : entry.getResolvedFeatures()) {
+            if (resolved.length() > 0) {
+                resolved.append(',');
+            }
+            resolved.append(coordinates);
+        }
+        properties.setProperty(key + RESOLVED_SUFFIX, resolved.toString());
+        properties.setProperty(key + INSTALLED_SUFFIX, Boolean.toString(entry.isInstalled()));
+        if (entry.getRuntimeFingerprint() != null) {
+            properties.setProperty(key + RUNTIME_SUFFIX, entry.getRuntimeFingerprint());
+        } else {
+            properties.remove(key + RUNTIME_SUFFIX);
+        }
+        properties.setProperty(key + TIME_SUFFIX, Long.toString(System.currentTimeMillis()));
+        evict(properties);
+        store(properties);
+    }
+
+    /**
+     * Removes an entry.
+     *
+     * @param key the cache key
+     * @throws IOException if the cache could not be written
+     */
+    public synchronized void remove(String key) throws IOException {
+        Properties properties = load();
+        if (properties.remove(key + RESOLVED_SUFFIX) != null) {
+            properties.remove(key + INSTALLED_SUFFIX);
+            properties.remove(key + RUNTIME_SUFFIX);
+            properties.remove(key + TIME_SUFFIX);
+            store(properties);
+        }
+    }
+
+    private static void evict(Properties properties) {
+        List<String> keys = new ArrayList<String>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.endsWith(TIME_SUFFIX)) {
+                keys.add(name.substring(0, name.length() - TIME_SUFFIX.length()));
+            }
+        }
+        while (keys.size() > MAX_ENTRIES) {
+            String oldest = null;
+            long oldestTime = Long.MAX_VALUE;
+            for (String key : keys) {
+                long time = parseLong(properties.getProperty(key + TIME_SUFFIX));
+                if (time < oldestTime) {
+                    oldestTime = time;
+                    oldest = key;
+                }
+            }
+            keys.remove(oldest);
+            properties.remove(oldest + RESOLVED_SUFFIX);
+            properties.remove(oldest + INSTALLED_SUFFIX);
+            properties.remove(oldest + RUNTIME_SUFFIX);
+            properties.remove(oldest + TIME_SUFFIX);
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private Properties load() {
+        Properties properties = new Properties();
+        if (cacheFile.exists()) {
+            try (InputStream in = new FileInputStream(cacheFile)) {
+                properties.load(in);
+            } catch (IOException e) {
+                // start with an empty cache
+            }
+        }
+        return properties;
+    }
+
+    private void store(Properties properties) throws IOException {
+        File dir = cacheFile.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Could not create the directory " + dir);
+        }
+        File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", dir);
+        try (OutputStream out = new FileOutputStream(tempFile)) {
+            properties.store(out, null);
+        }
+        Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
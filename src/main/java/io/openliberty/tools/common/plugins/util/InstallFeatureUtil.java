@@ -17,6 +17,7 @@
 package io.openliberty.tools.common.plugins.util;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -39,15 +40,26 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarFile;
 import java.util.logging.Level;
 import java.util.regex.MatchResult;
 
 /**
- * Utility class to install features from Maven repositories.
+ * Utility class to install features from Maven repositories. The install kernel
+ * is loaded on the first call to installFeatures and kept for later calls, so
+ * the utility must be closed when no more features will be installed with it.
  */
-public abstract class InstallFeatureUtil extends ServerFeatureUtil {
+public abstract class InstallFeatureUtil extends ServerFeatureUtil implements Closeable {
 
     public static final String OPEN_LIBERTY_GROUP_ID = "io.openliberty.features";
     public static final String REPOSITORY_RESOLVER_ARTIFACT_ID = "repository-resolver";
@@ -71,6 +83,26 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
 
     private final String containerName;
 
+    private static final int DOCKER_QUERY_TIMEOUT = 60;
+
+    private FeatureResolutionCache resolutionCache;
+
+    private static final int DEFAULT_DOWNLOAD_CONCURRENCY = 4;
+    private static final int DEFAULT_DOWNLOAD_RETRIES = 0;
+    private static final long DOWNLOAD_RETRY_DELAY_MILLIS = 500;
+    private int downloadConcurrency = DEFAULT_DOWNLOAD_CONCURRENCY;
+    private int downloadRetries = DEFAULT_DOWNLOAD_RETRIES;
+
+    // the install kernel class loader and install map, kept between installFeatures calls
+    private URLClassLoader installKernelLoader;
+    private Map<String, Object> installKernelMap;
+    private String installKernelKey;
+    private boolean batchInstall = false;
+    private Future<?> prefetch;
+    private ArtifactCache artifactCache = ArtifactCache.getDefault();
+    private File overrideBundleJar;
+    private String overrideBundleDescriptor;
+
     /**
      * Initialize the utility and check for unsupported scenarios.
      * 
@@ -98,6 +130,7 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
         this.openLibertyVersion = openLibertyVersion;
         this.containerName = containerName;
         if (containerName == null) {
+            resolutionCache = new FeatureResolutionCache(new File(installDirectory, "usr/tmp/featureResolution.properties"));
             installJarFile = loadInstallJarFile(installDirectory);
             if (installJarFile == null) {
                 throw new PluginScenarioException("Install map jar not found.");
@@ -184,7 +217,9 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
 
     /**
      * Download the artifact from the specified Maven coordinates, or retrieve it
-     * from the cache if it already exists.
+     * from the cache if it already exists. ESAs are downloaded on several threads
+     * at the same time, so this must be thread-safe. Otherwise call
+     * setDownloadConcurrency(1) to download each ESA on the installing thread.
      * 
      * @param groupId    The group ID
      * @param artifactId The artifact ID
@@ -251,7 +286,7 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
     private File downloadJsons(String productId, String productVersion) {
         String jsonGroupId = productId + ".features";
         try {
-            return downloadArtifact(jsonGroupId, "features", "json", productVersion);
+            return getArtifact(jsonGroupId, "features", "json", productVersion);
         } catch (PluginExecutionException e) {
             debug("Cannot find json for productId " + productId + ", productVersion " + productVersion, e);
             return null;
@@ -370,15 +405,161 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
         String groupId = mavenCoordinateArray[0];
         String artifactId = mavenCoordinateArray[1];
         String version = mavenCoordinateArray[2];
-        return downloadArtifact(groupId, artifactId, "esa", version);
+        return getArtifact(groupId, artifactId, "esa", version);
+    }
+
+    /**
+     * Set the machine-wide cache to check for ESAs and JSONs before downloading
+     * them.
+     * 
+     * @param artifactCache the cache, or null to always download artifacts
+     */
+    public void setArtifactCache(ArtifactCache artifactCache) {
+        this.artifactCache = artifactCache;
+    }
+
+    /**
+     * Get an artifact from the artifact cache, or download it and add it to the
+     * cache. Version ranges are always resolved by downloadArtifact.
+     */
+    private File getArtifact(String groupId, String artifactId, String type, String version) throws PluginExecutionException {
+        if (artifactCache == null || !ArtifactCache.isCacheable(version)) {
+            return downloadArtifact(groupId, artifactId, type, version);
+        }
+        File cached = artifactCache.get(groupId, artifactId, type, version);
+        if (cached != null) {
+            debug("Using " + groupId + ":" + artifactId + ":" + version + " from the artifact cache: " + cached);
+            return cached;
+        }
+        File downloaded = downloadArtifact(groupId, artifactId, type, version);
+        if (downloaded != null && downloaded.isFile()) {
+            try {
+                artifactCache.put(groupId, artifactId, type, version, downloaded);
+            } catch (IOException e) {
+                debug("Could not add " + downloaded + " to the artifact cache", e);
+            }
+        }
+        return downloaded;
+    }
+
+    /**
+     * Set the maximum number of ESAs to download at the same time. The default
+     * is 4. A value of 1 downloads each ESA on the installing thread just before
+     * it is installed, for callers whose downloadArtifact is not thread-safe.
+     * 
+     * @param downloadConcurrency the number of parallel downloads, at least 1
+     */
+    public void setDownloadConcurrency(int downloadConcurrency) {
+        this.downloadConcurrency = Math.max(1, downloadConcurrency);
+    }
+
+    /**
+     * Set whether to install all resolved ESAs in one install kernel operation.
+     * This is off by default. A batch install waits for every ESA to be
+     * downloaded before installing any of them, instead of installing each ESA
+     * as soon as it is downloaded. If the install kernel rejects the batch or
+     * reports an error, the ESAs are installed one at a time.
+     * 
+     * @param batchInstall true to install the ESAs in one operation
+     */
+    public void setBatchInstall(boolean batchInstall) {
+        this.batchInstall = batchInstall;
+    }
+
+    /**
+     * Set the number of times to retry a failed ESA download. By default a
+     * failed download is reported without retrying.
+     * 
+     * @param downloadRetries the number of retries, or 0 to not retry
+     */
+    public void setDownloadRetries(int downloadRetries) {
+        this.downloadRetries = Math.max(0, downloadRetries);
+    }
+
+    private File downloadEsaArtifactWithRetry(String mavenCoordinates) throws PluginExecutionException, InterruptedException {
+        for (int attempt = 0;; attempt++) {
+            try {
+                return downloadEsaArtifact(mavenCoordinates);
+            } catch (PluginExecutionException | RuntimeException e) {
+                if (attempt >= downloadRetries) {
+                    throw e;
+                }
+                debug("Could not download " + mavenCoordinates + ". Retrying (" + (attempt + 1) + " of " + downloadRetries + ").", e);
+                Thread.sleep(DOWNLOAD_RETRY_DELAY_MILLIS * (attempt + 1));
+            }
+        }
     }
 
-    private List<File> downloadEsas(Collection<?> mavenCoordsList) throws PluginExecutionException {
-        List<File> repoPaths = new ArrayList<File>();
+    /**
+     * Start downloading the ESAs in the background. The returned futures are in
+     * the same order as the coordinates so that the ESAs can be installed in
+     * dependency order as each one becomes available. If there is no executor,
+     * each ESA is downloaded on the calling thread when it is awaited.
+     */
+    private List<Future<File>> startEsaDownloads(ExecutorService executor, Collection<?> mavenCoordsList) {
+        List<Future<File>> downloads = new ArrayList<Future<File>>(mavenCoordsList.size());
         for (Object coordinate : mavenCoordsList) {
-            repoPaths.add(downloadEsaArtifact((String) coordinate));
+            final String mavenCoordinates = (String) coordinate;
+            Callable<File> download = new Callable<File>() {
+                @Override
+                public File call() throws Exception {
+                    return downloadEsaArtifactWithRetry(mavenCoordinates);
+                }
+            };
+            downloads.add(executor == null ? new DeferredDownload(download) : executor.submit(download));
+        }
+        return downloads;
+    }
+
+    private File awaitEsaDownload(Future<File> download, Object mavenCoordinates) throws PluginExecutionException {
+        if (download instanceof DeferredDownload) {
+            // not submitted to an executor, so download it now
+            ((DeferredDownload) download).run();
+        }
+        try {
+            return download.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PluginExecutionException) {
+                throw (PluginExecutionException) cause;
+            }
+            throw new PluginExecutionException("Could not download " + mavenCoordinates, cause);
+        } catch (CancellationException e) {
+            throw new PluginExecutionException("The download of " + mavenCoordinates + " was cancelled.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PluginExecutionException("Interrupted while downloading " + mavenCoordinates, e);
+        }
+    }
+
+    private void cancelEsaDownloads(List<Future<File>> downloads) {
+        for (Future<File> download : downloads) {
+            download.cancel(true);
         }
-        return repoPaths;
+    }
+
+    /**
+     * A download that runs on the thread that awaits it
+     */
+    private static class DeferredDownload extends FutureTask<File> {
+        private DeferredDownload(Callable<File> download) {
+            super(download);
+        }
+    }
+
+    private ExecutorService createDownloadExecutor(int esaCount) {
+        if (downloadConcurrency <= 1) {
+            return null;
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, Math.min(downloadConcurrency, esaCount)), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "liberty-esa-download-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
     }
 
     /**
@@ -391,24 +572,38 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
     public static Set<String> getOpenLibertyFeatureSet(Set<File> jsons) throws PluginExecutionException {
         Set<String> libertyFeatures = new HashSet<String>();
         for (File file : jsons) {
-            Scanner s = null;
+            if (!file.isFile()) {
+                throw new PluginExecutionException("The JSON file is not found at " + file.getAbsolutePath());
+            }
             try {
-                s = new Scanner(file);
-                // scan Maven coordinates for artifactIds that belong to the Open Liberty
-                // groupId
-                while (s.findWithinHorizon(OPEN_LIBERTY_GROUP_ID + ":([^:]*):", 0) != null) {
-                    MatchResult match = s.match();
-                    if (match.groupCount() >= 1) {
-                        libertyFeatures.add(match.group(1));
-                    }
-                }
-            } catch (FileNotFoundException e) {
-                throw new PluginExecutionException("The JSON file is not found at " + file.getAbsolutePath(), e);
-            } finally {
-                if (s != null) {
-                    s.close();
+                libertyFeatures.addAll(FeatureIndex.load(file).getArtifactIds(OPEN_LIBERTY_GROUP_ID));
+            } catch (IOException e) {
+                // the JSON could not be indexed, so fall back to scanning it for Maven coordinates
+                libertyFeatures.addAll(scanOpenLibertyFeatureSet(file));
+            }
+        }
+        return libertyFeatures;
+    }
+
+    private static Set<String> scanOpenLibertyFeatureSet(File file) throws PluginExecutionException {
+        Set<String> libertyFeatures = new HashSet<String>();
+        Scanner s = null;
+        try {
+            s = new Scanner(file);
+            // scan Maven coordinates for artifactIds that belong to the Open Liberty
+            // groupId
+            while (s.findWithinHorizon(OPEN_LIBERTY_GROUP_ID + ":([^:]*):", 0) != null) {
+                MatchResult match = s.match();
+                if (match.groupCount() >= 1) {
+                    libertyFeatures.add(match.group(1));
                 }
             }
+        } catch (FileNotFoundException e) {
+            throw new PluginExecutionException("The JSON file is not found at " + file.getAbsolutePath(), e);
+        } finally {
+            if (s != null) {
+                s.close();
+            }
         }
         return libertyFeatures;
     }
@@ -447,6 +642,33 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
         return result;
     }
 
+    /**
+     * Set the cache of resolution results that lets repeated installs of the same
+     * features skip the resolver and the install kernel.
+     * 
+     * @param resolutionCache the cache, or null to always resolve features
+     */
+    public void setResolutionCache(FeatureResolutionCache resolutionCache) {
+        this.resolutionCache = resolutionCache;
+    }
+
+    /**
+     * Install only the features that were added since the previous feature set.
+     * The installer is skipped entirely if no features were added.
+     * 
+     * @param isAcceptLicense whether license is accepted
+     * @param delta           the difference between the previous and current server features
+     * @throws PluginExecutionException if any of the features could not be installed
+     */
+    public void installFeatures(boolean isAcceptLicense, FeatureDelta delta) throws PluginExecutionException {
+        if (!delta.hasAddedFeatures()) {
+            debug("No features were added to the server configuration (" + delta + "). Skipping feature installation.");
+            return;
+        }
+        debug("Server features changed: " + delta);
+        installFeatures(isAcceptLicense, new ArrayList<String>(delta.getAddedFeatures()));
+    }
+
     /**
      * Resolve, download, and install features from a Maven repository. This method
      * calls the resolver with the given JSONs and feature list, downloads the ESAs
@@ -466,36 +688,61 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
             installFeaturesOnContainer(featuresToInstall, isAcceptLicense);
             return;
         }
+        awaitPrefetch();
 
         info("Installing features: " + featuresToInstall);
 
+        Set<String> missingFeatures = InstalledFeatureInventory.load(installDirectory).getMissingFeatures(featuresToInstall);
+        if (missingFeatures.isEmpty()) {
+            debug("All of the features and the features they require are in the runtime's feature manifests");
+            info("The features are already installed, so no action is needed.");
+            return;
+        }
+        debug("Features that are not installed: " + missingFeatures);
+
         List<File> jsonRepos = new ArrayList<File>(downloadedJsons);
         debug("JSON repos: " + jsonRepos);
 
         // override license acceptance if installing only Open Liberty features
         boolean acceptLicenseMapValue = isOnlyOpenLibertyFeatures(featuresToInstall) ? true : isAcceptLicense;
 
-        URL installJarURL = null;
-        try {
-            installJarURL = installJarFile.toURI().toURL();
-        } catch (MalformedURLException e) {
-            throw new PluginExecutionException("Could not resolve URL from file " + installJarFile, e);
+        String bundle = getResolverOverrideBundleDescriptor();
+        String cacheKey = getResolutionCacheKey(featuresToInstall, jsonRepos, bundle);
+        String runtimeFingerprint = null;
+        FeatureResolutionCache.Entry cachedResolution = null;
+        if (cacheKey != null) {
+            runtimeFingerprint = FeatureResolutionCache.getRuntimeFingerprint(installDirectory);
+            cachedResolution = resolutionCache.get(cacheKey);
+            if (cachedResolution != null && !runtimeFingerprint.equals(cachedResolution.getRuntimeFingerprint())) {
+                debug("The runtime features changed since the features were last resolved. Resolving again.");
+                cachedResolution = null;
+            }
+            if (cachedResolution != null && cachedResolution.isInstalled()) {
+                debug("Using cached resolution result " + cacheKey);
+                info("The features are already installed, so no action is needed.");
+                return;
+            }
         }
+
         Map<String, Object> mapBasedInstallKernel = null;
+        ExecutorService downloadExecutor = null;
+        List<Future<File>> downloads = null;
 
         disableCacheInURLClassLoader();
-        try (final URLClassLoader loader = new URLClassLoader(new URL[] { installJarURL }, getClass().getClassLoader())) {
-            mapBasedInstallKernel = createMapBasedInstallKernelInstance(loader, installDirectory);
-            mapBasedInstallKernel.put("install.local.esa", true);
-            mapBasedInstallKernel.put("single.json.file", jsonRepos);
-            mapBasedInstallKernel.put("features.to.resolve", featuresToInstall);
+        try {
+            mapBasedInstallKernel = getInstallKernelMap(bundle);
+            initResolve(mapBasedInstallKernel, jsonRepos);
             mapBasedInstallKernel.put("license.accept", acceptLicenseMapValue);
 
-            if (isDebugEnabled()) {
-                mapBasedInstallKernel.put("debug", Level.FINEST);
+            Collection<?> resolvedFeatures;
+            if (cachedResolution != null) {
+                // the same features were resolved against the same runtime before but not installed
+                resolvedFeatures = cachedResolution.getResolvedFeatures();
+                debug("Using cached resolved features: " + resolvedFeatures);
+            } else {
+                mapBasedInstallKernel.put("features.to.resolve", featuresToInstall);
+                resolvedFeatures = (Collection<?>) mapBasedInstallKernel.get("action.result");
             }
-
-            Collection<?> resolvedFeatures = (Collection<?>) mapBasedInstallKernel.get("action.result");
             if (resolvedFeatures == null) {
                 debug("action.exception.stacktrace: " + mapBasedInstallKernel.get("action.exception.stacktrace"));
                 String exceptionMessage = (String) mapBasedInstallKernel.get("action.error.message");
@@ -506,26 +753,40 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
                 if (exceptionMessage == null) {
                     debug("resolvedFeatures was empty but the install kernel did not issue any messages");
                     info("The features are already installed, so no action is needed.");
+                    cacheResolution(cacheKey, resolvedFeatures, true, runtimeFingerprint);
                     return;
                 } else if (exceptionMessage.contains("CWWKF1250I")) {
                     info(exceptionMessage);
                     info("The features are already installed, so no action is needed.");
+                    cacheResolution(cacheKey, resolvedFeatures, true, runtimeFingerprint);
                     return;
                 } else {
                     throw new PluginExecutionException(exceptionMessage);
                 }
             }
-            Collection<File> artifacts = downloadEsas(resolvedFeatures);
+            if (cachedResolution == null) {
+                cacheResolution(cacheKey, resolvedFeatures, false, runtimeFingerprint);
+            }
+            downloadExecutor = createDownloadExecutor(resolvedFeatures.size());
+            downloads = startEsaDownloads(downloadExecutor, resolvedFeatures);
+            List<?> coordinatesList = new ArrayList<Object>(resolvedFeatures);
 
+            long installStartTime = System.currentTimeMillis();
             StringBuilder installedFeaturesBuilder = new StringBuilder();
             Collection<String> actionReturnResult = new ArrayList<String>();
-            for (File esaFile : artifacts) {
+            boolean batchInstalled = false;
+            if (batchInstall && downloads.size() > 1) {
+                List<File> esaFiles = new ArrayList<File>(downloads.size());
+                for (int i = 0; i < downloads.size(); i++) {
+                    esaFiles.add(awaitEsaDownload(downloads.get(i), coordinatesList.get(i)));
+                }
+                batchInstalled = installEsaBatch(mapBasedInstallKernel, esaFiles, acceptLicenseMapValue, actionReturnResult);
+            }
+            for (int i = 0; !batchInstalled && i < downloads.size(); i++) {
+                // install in resolved order while the remaining ESAs continue downloading
+                File esaFile = awaitEsaDownload(downloads.get(i), coordinatesList.get(i));
                 mapBasedInstallKernel.put("license.accept", acceptLicenseMapValue);
                 mapBasedInstallKernel.put("action.install", esaFile);
-                if (to != null) {
-                    mapBasedInstallKernel.put("to.extension", to);
-                    debug("Installing to extension: " + to);
-                }
                 Integer ac = (Integer) mapBasedInstallKernel.get("action.result");
                 debug("action.result: " + ac);
                 debug("action.error.message: " + mapBasedInstallKernel.get("action.error.message"));
@@ -535,30 +796,304 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
                     debug(exceptionMessage);
                     throw new PluginExecutionException(exceptionMessage);
                 } else if (mapBasedInstallKernel.get("action.install.result") != null) {
-                    actionReturnResult.addAll((Collection<String>) mapBasedInstallKernel.get("action.install.result"));
+                    addInstalledFeatures((Collection<String>) mapBasedInstallKernel.get("action.install.result"), actionReturnResult);
                 }
             }
             for (String installResult : actionReturnResult) {
                 installedFeaturesBuilder.append(installResult).append(" ");
             }
-            productInfoValidate();
+            productInfoValidate(installStartTime);
             info("The following features have been installed: " + installedFeaturesBuilder.toString());
-        } catch (PrivilegedActionException e) {
-            throw new PluginExecutionException("Could not load the jar " + installJarFile.getAbsolutePath(), e);
-        } catch (IOException e) {
-            throw new PluginExecutionException("Could not close the jar " + installJarFile.getAbsolutePath() + " after installing features.", e);
+            if (cacheKey != null) {
+                cacheResolution(cacheKey, resolvedFeatures, true, FeatureResolutionCache.getRuntimeFingerprint(installDirectory));
+            }
+        } catch (PluginExecutionException | RuntimeException e) {
+            // do not reuse an install map that may be in an inconsistent state
+            closeInstallKernel();
+            throw e;
         } finally {
-            if (mapBasedInstallKernel != null) {
-                try {
-                    mapBasedInstallKernel.clear();
-                } catch (UnsupportedOperationException e) {
-                    debug("This version of the install map does not support the clear operation.", e);
-                } catch (RuntimeException e) {
-                    throw new PluginExecutionException("Could not close resources after installing features.", e);
-                }
+            // stop the remaining downloads if an install or download failed
+            if (downloadExecutor != null) {
+                downloadExecutor.shutdownNow();
+            }
+            if (downloads != null) {
+                cancelEsaDownloads(downloads);
+            }
+            restoreCacheInURLClassLoader();
+        }
+    }
+
+    private void initResolve(Map<String, Object> mapBasedInstallKernel, List<File> jsonRepos) {
+        mapBasedInstallKernel.put("install.local.esa", true);
+        mapBasedInstallKernel.put("single.json.file", jsonRepos);
+        if (isDebugEnabled()) {
+            mapBasedInstallKernel.put("debug", Level.FINEST);
+        }
+        if (to != null) {
+            mapBasedInstallKernel.put("to.extension", to);
+            debug("Installing to extension: " + to);
+        }
+    }
+
+    /**
+     * Start resolving the features and downloading their ESAs in the background,
+     * for example while the server is being created. A later installFeatures call
+     * for the same features then uses the cached resolution result and finds the
+     * ESAs in the local repository. installFeatures waits for the prefetch to
+     * finish before it uses the install kernel. A failed prefetch is only logged,
+     * since installFeatures resolves and downloads anything that is missing.
+     * 
+     * @param features the features that will be installed
+     */
+    public synchronized void prefetchFeatures(final List<String> features) {
+        if (containerName != null || features == null || features.isEmpty() || prefetch != null) {
+            return;
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "liberty-feature-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        prefetch = executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                prefetch(new ArrayList<String>(features));
+                return null;
+            }
+        });
+        executor.shutdown();
+    }
+
+    private void prefetch(List<String> features) throws PluginExecutionException {
+        long start = System.currentTimeMillis();
+        if (InstalledFeatureInventory.load(installDirectory).getMissingFeatures(features).isEmpty()) {
+            debug("The features " + features + " are already installed, so there is nothing to prefetch.");
+            return;
+        }
+        List<File> jsonRepos = new ArrayList<File>(downloadedJsons);
+        String bundle = getResolverOverrideBundleDescriptor();
+        Collection<?> resolvedFeatures;
+        disableCacheInURLClassLoader();
+        try {
+            Map<String, Object> mapBasedInstallKernel = getInstallKernelMap(bundle);
+            initResolve(mapBasedInstallKernel, jsonRepos);
+            mapBasedInstallKernel.put("features.to.resolve", features);
+            resolvedFeatures = (Collection<?>) mapBasedInstallKernel.get("action.result");
+            if (resolvedFeatures == null || resolvedFeatures.isEmpty()) {
+                debug("No ESAs to prefetch for " + features + ": " + mapBasedInstallKernel.get("action.error.message"));
+                return;
             }
+        } catch (PluginExecutionException | RuntimeException e) {
+            closeInstallKernel();
+            throw e;
+        } finally {
             restoreCacheInURLClassLoader();
         }
+        cacheResolution(getResolutionCacheKey(features, jsonRepos, bundle), resolvedFeatures, false,
+                FeatureResolutionCache.getRuntimeFingerprint(installDirectory));
+
+        ExecutorService downloadExecutor = createDownloadExecutor(resolvedFeatures.size());
+        List<Future<File>> downloads = startEsaDownloads(downloadExecutor, resolvedFeatures);
+        List<?> coordinatesList = new ArrayList<Object>(resolvedFeatures);
+        try {
+            for (int i = 0; i < downloads.size(); i++) {
+                awaitEsaDownload(downloads.get(i), coordinatesList.get(i));
+            }
+        } finally {
+            if (downloadExecutor != null) {
+                downloadExecutor.shutdownNow();
+            }
+            cancelEsaDownloads(downloads);
+        }
+        debug("Prefetched " + downloads.size() + " ESAs for " + features + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Wait for a prefetch started by prefetchFeatures, so that the install kernel
+     * is not used by two threads at the same time.
+     */
+    void awaitPrefetch() throws PluginExecutionException {
+        Future<?> pending;
+        synchronized (this) {
+            pending = prefetch;
+            prefetch = null;
+        }
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (ExecutionException e) {
+            debug("Could not prefetch the features. They will be downloaded when they are installed.", e.getCause());
+        } catch (CancellationException e) {
+            debug("The feature prefetch was cancelled.", e);
+        } catch (InterruptedException e) {
+            pending.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PluginExecutionException("Interrupted while waiting for the features to be prefetched", e);
+        }
+    }
+
+    /**
+     * Install all of the ESAs in one install kernel operation by passing the
+     * ordered list of files to action.install. Older install kernels only
+     * accept a single file, so false is returned if the list is rejected or
+     * ignored, or if the install kernel reports any error, and the caller
+     * installs the ESAs one at a time instead.
+     *
+     * @return true if the ESAs were installed
+     */
+    @SuppressWarnings("unchecked")
+    private boolean installEsaBatch(Map<String, Object> mapBasedInstallKernel, List<File> esaFiles, boolean acceptLicenseMapValue,
+            Collection<String> actionReturnResult) {
+        Object ac;
+        String exceptionMessage;
+        Object installResult;
+        try {
+            mapBasedInstallKernel.put("license.accept", acceptLicenseMapValue);
+            mapBasedInstallKernel.put("action.install", esaFiles);
+            ac = mapBasedInstallKernel.get("action.result");
+            exceptionMessage = (String) mapBasedInstallKernel.get("action.error.message");
+            installResult = mapBasedInstallKernel.get("action.install.result");
+        } catch (RuntimeException e) {
+            debug("Could not install the ESAs in one operation. Installing them one at a time.", e);
+            return false;
+        }
+        debug("action.result: " + ac);
+        debug("action.error.message: " + exceptionMessage);
+        if (exceptionMessage != null) {
+            debug("action.exception.stacktrace: " + mapBasedInstallKernel.get("action.exception.stacktrace"));
+            debug("Could not install the ESAs in one operation. Installing them one at a time.");
+            return false;
+        }
+        if (!(ac instanceof Integer)) {
+            // the list was ignored rather than installed
+            debug("This version of the install map does not support installing a list of ESAs. Installing them one at a time.");
+            return false;
+        }
+        if (installResult != null) {
+            addInstalledFeatures((Collection<String>) installResult, actionReturnResult);
+        }
+        return true;
+    }
+
+    private void addInstalledFeatures(Collection<String> installResult, Collection<String> actionReturnResult) {
+        for (String feature : installResult) {
+            info("Installed " + feature);
+        }
+        actionReturnResult.addAll(installResult);
+    }
+
+    /**
+     * Release the install kernel class loader and install map that are kept
+     * between installFeatures calls, so that the install map jar is not left
+     * open. Call this when no more features will be installed with this
+     * utility, for example at the end of the plugin goal or task. Dev mode
+     * closes the utility passed to DevUtil.installAddedFeatures when it exits.
+     * A prefetch that is still running is cancelled.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (prefetch != null) {
+                prefetch.cancel(true);
+                prefetch = null;
+            }
+        }
+        closeInstallKernel();
+    }
+
+    private void closeInstallKernel() {
+        if (installKernelLoader == null) {
+            return;
+        }
+        try {
+            installKernelMap.clear();
+        } catch (UnsupportedOperationException e) {
+            debug("This version of the install map does not support the clear operation.", e);
+        } catch (RuntimeException e) {
+            debug("Could not close resources after installing features.", e);
+        } finally {
+            closeLoader(installKernelLoader);
+            installKernelLoader = null;
+            installKernelMap = null;
+            installKernelKey = null;
+        }
+    }
+
+    /**
+     * Get the install map, reusing the one from the previous installFeatures call
+     * unless the install map jar, the override bundle or the runtime changed.
+     */
+    private Map<String, Object> getInstallKernelMap(String bundle) throws PluginExecutionException {
+        String key = getInstallKernelKey(bundle);
+        if (installKernelMap != null) {
+            if (key.equals(installKernelKey)) {
+                debug("Reusing the install map");
+                return installKernelMap;
+            }
+            debug("The install map jar or override bundle changed. Loading the install map again.");
+            closeInstallKernel();
+        }
+        URL installJarURL = null;
+        try {
+            installJarURL = installJarFile.toURI().toURL();
+        } catch (MalformedURLException e) {
+            throw new PluginExecutionException("Could not resolve URL from file " + installJarFile, e);
+        }
+        URLClassLoader loader = new URLClassLoader(new URL[] { installJarURL }, getClass().getClassLoader());
+        try {
+            installKernelMap = createMapBasedInstallKernelInstance(loader, installDirectory, bundle);
+        } catch (PrivilegedActionException e) {
+            closeLoader(loader);
+            throw new PluginExecutionException("Could not load the jar " + installJarFile.getAbsolutePath(), e);
+        } catch (PluginExecutionException | RuntimeException e) {
+            closeLoader(loader);
+            throw e;
+        }
+        installKernelLoader = loader;
+        installKernelKey = key;
+        return installKernelMap;
+    }
+
+    private String getInstallKernelKey(String bundle) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(installJarFile.getAbsolutePath()).append(':').append(installJarFile.lastModified());
+        sb.append(';').append(bundle);
+        if (overrideBundleJar != null) {
+            sb.append(':').append(overrideBundleJar.lastModified());
+        }
+        File[] versionFiles = new File(installDirectory, "lib/versions").listFiles();
+        if (versionFiles != null) {
+            for (File versionFile : versionFiles) {
+                sb.append(';').append(versionFile.getName()).append(':').append(versionFile.lastModified());
+            }
+        }
+        return sb.toString();
+    }
+
+    private void closeLoader(URLClassLoader loader) {
+        try {
+            loader.close();
+        } catch (IOException e) {
+            debug("Could not close the jar " + installJarFile.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Get the override bundle descriptor for the repository resolver, reusing the
+     * previous result while the downloaded override jar still exists.
+     */
+    private String getResolverOverrideBundleDescriptor() throws PluginExecutionException {
+        if (overrideBundleJar == null || !overrideBundleJar.exists()) {
+            overrideBundleDescriptor = getOverrideBundleDescriptor(OPEN_LIBERTY_GROUP_ID, REPOSITORY_RESOLVER_ARTIFACT_ID);
+            overrideBundleJar = overrideBundleDescriptor == null ? null
+                    : new File(overrideBundleDescriptor.substring(0, overrideBundleDescriptor.lastIndexOf(';')));
+        }
+        return overrideBundleDescriptor;
     }
 
     // Attempt to disable connection caching in the URLClassLoader so that the jar files will
@@ -599,16 +1134,52 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
         }
     }
 
-    private Map<String, Object> createMapBasedInstallKernelInstance(final ClassLoader loader, File installDirectory)
+    /**
+     * Get the resolution cache key for the features, or null if the cache is
+     * disabled or the key could not be computed.
+     */
+    private String getResolutionCacheKey(List<String> featuresToInstall, List<File> jsonRepos, String bundle) {
+        if (resolutionCache == null) {
+            return null;
+        }
+        try {
+            return FeatureResolutionCache.getKey(featuresToInstall, jsonRepos, openLibertyVersion, bundle, to);
+        } catch (IOException e) {
+            debug("Could not compute the feature resolution cache key", e);
+            return null;
+        }
+    }
+
+    private void cacheResolution(String cacheKey, Collection<?> resolvedFeatures, boolean installed, String runtimeFingerprint) {
+        if (cacheKey == null) {
+            return;
+        }
+        List<String> coordinates = new ArrayList<String>(resolvedFeatures.size());
+        for (Object resolvedFeature : resolvedFeatures) {
+            coordinates.add((String) resolvedFeature);
+        }
+        try {
+            resolutionCache.put(cacheKey, new FeatureResolutionCache.Entry(coordinates, installed, runtimeFingerprint));
+        } catch (IOException e) {
+            debug("Could not update the feature resolution cache", e);
+        }
+    }
+
+    /**
+     * Create an install map instance from the install kernel class loader.
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> loadInstallMap(ClassLoader loader) throws Exception {
+        Class<Map<String, Object>> clazz = (Class<Map<String, Object>>) loader.loadClass("com.ibm.ws.install.map.InstallMap");
+        return clazz.newInstance();
+    }
+
+    private Map<String, Object> createMapBasedInstallKernelInstance(final ClassLoader loader, File installDirectory, String bundle)
             throws PrivilegedActionException, PluginExecutionException {
         Map<String, Object> mapBasedInstallKernel = AccessController.doPrivileged(new PrivilegedExceptionAction<Map<String, Object>>() {
-                @SuppressWarnings({ "unchecked" })
                 @Override
                 public Map<String, Object> run() throws Exception {
-                    
-                    Class<Map<String, Object>> clazz;
-                    clazz = (Class<Map<String, Object>>) loader.loadClass("com.ibm.ws.install.map.InstallMap");
-                    return clazz.newInstance();
+                    return loadInstallMap(loader);
                 }
             });
         if (mapBasedInstallKernel == null){
@@ -616,7 +1187,6 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
         }
 
         // Init
-        String bundle = getOverrideBundleDescriptor(OPEN_LIBERTY_GROUP_ID, REPOSITORY_RESOLVER_ARTIFACT_ID);
         if (bundle != null) {
             List<String> bundles = new ArrayList<String>();
             bundles.add(bundle);
@@ -823,7 +1393,21 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
      * @throws PluginExecutionException
      *             if product validation failed or could not be run
      */
-    private void productInfoValidate() throws PluginExecutionException {
+    private void productInfoValidate(long installStartTime) throws PluginExecutionException {
+        ProductValidator.Result result = new ProductValidator(installDirectory).validate(installStartTime);
+        if (result.isSupported()) {
+            debug("Validated " + result.getValidatedFileCount() + " files against the feature checksums");
+            if (!result.isValid()) {
+                StringBuilder sb = new StringBuilder("Product validation failed:");
+                for (String error : result.getErrors()) {
+                    sb.append(System.lineSeparator()).append("[ERROR] ").append(error);
+                }
+                throw new PluginExecutionException(sb.toString());
+            }
+            info("Product validation completed successfully.");
+            return;
+        }
+        debug("The runtime could not be validated in process. Running the productInfo validate command.");
         String output = productInfo(installDirectory, "validate");
         if (output == null) {
             throw new PluginExecutionException(
@@ -899,10 +1483,23 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
             return;
         }
 
-        info("Installing features " + features + " on container " + containerName);
+        String containerId = getContainerId();
+        List<String> missingFeatures = features;
+        if (containerId != null) {
+            Set<String> installedFeatures = getContainerInstalledFeatures(containerId);
+            if (installedFeatures != null) {
+                missingFeatures = ContainerFeatureManager.getMissingFeatures(features, installedFeatures);
+                if (missingFeatures.isEmpty()) {
+                    debug("The features " + features + " are already installed on container " + containerName);
+                    return;
+                }
+            }
+        }
+
+        info("Installing features " + missingFeatures + " on container " + containerName);
 
         StringBuilder featureList = new StringBuilder();
-        for (String feature : features) {
+        for (String feature : missingFeatures) {
             featureList.append(feature).append(" ");
         }
 
@@ -910,19 +1507,77 @@ public abstract class InstallFeatureUtil extends ServerFeatureUtil {
         if (acceptLicense) {
             featureUtilityCommand += "--acceptLicense";
         }
-        
-        String cmdResult = execDockerCmd(featureUtilityCommand, 600, false);
-        if (cmdResult.contains(" RC=")) { // This piece of the string is added in execDockerCmd if there is an error
+
+        // show featureUtility progress as it is written
+        final StringBuilder output = new StringBuilder();
+        int rc = execDockerCmdStreaming(featureUtilityCommand, 600, new OutputLineHandler() {
+            @Override
+            public void handleLine(String line) {
+                output.append(line).append(" ");
+                if (!line.trim().isEmpty()) {
+                    info(line);
+                }
+            }
+        });
+        String cmdResult = output.toString();
+        if (rc != 0) {
             if (cmdResult.contains("CWWKF1250I")) {
                 // The features are already installed message
-                debug(cmdResult);
+                debug(cmdResult + " RC=" + rc);
             } else {
-                error("An error occurred while installing features: " + cmdResult);
+                error("An error occurred while installing features: " + cmdResult + " RC=" + rc);
+                if (containerId != null) {
+                    // some features may have been installed, so query them again next time
+                    ContainerFeatureManager.forget(containerId);
+                }
+                return;
             }
-        } else {
-            // Log the successful output as debug
-            debug(cmdResult);
         }
+        if (containerId != null) {
+            ContainerFeatureManager.addInstalledFeatures(containerId, missingFeatures);
+        }
+    }
+
+    /**
+     * @return the ID of the container, or null if it could not be determined
+     */
+    private String getContainerId() {
+        DockerEngineClient client = getDockerEngineClient();
+        if (client != null) {
+            try {
+                return client.getContainerId(containerName);
+            } catch (IOException e) {
+                dockerEngineRequestFailed(e);
+            }
+        }
+        String result = execDockerCmd("docker inspect -f {{.Id}} " + containerName, DOCKER_QUERY_TIMEOUT, false);
+        if (result == null || result.contains(" RC=")) {
+            debug("Could not get the ID of container " + containerName + ": " + result);
+            return null;
+        }
+        return result.trim();
+    }
+
+    /**
+     * Get the features installed on the container, querying productInfo only the
+     * first time for each container.
+     * 
+     * @return the lower case installed features, or null if they could not be determined
+     */
+    private Set<String> getContainerInstalledFeatures(String containerId) {
+        Set<String> installedFeatures = ContainerFeatureManager.getInstalledFeatures(containerId);
+        if (installedFeatures == null) {
+            String result = execDockerCmd("docker exec " + containerName + " /liberty/bin/productInfo featureInfo",
+                    DOCKER_QUERY_TIMEOUT, false);
+            if (result == null || result.contains(" RC=")) {
+                debug("Could not query the features installed on container " + containerName + ": " + result);
+                return null;
+            }
+            installedFeatures = ContainerFeatureManager.parseFeatureInfo(result);
+            debug("Features installed on container " + containerName + ": " + installedFeatures);
+            ContainerFeatureManager.setInstalledFeatures(containerId, installedFeatures);
+        }
+        return installedFeatures;
     }
     
 }
@@ -0,0 +1,308 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * Inventory of the features installed in a runtime, read from the feature
+ * manifests in lib/features and usr/extension/lib/features. The manifests of
+ * each directory are cached until the directory's modification time changes.
+ */
+public class InstalledFeatureInventory {
+
+    private static final String USR_PREFIX = "usr:";
+    private static final String FEATURE_TYPE = "osgi.subsystem.feature";
+
+    // parsed manifests of each features directory, keyed by directory path
+    private static final Map<String, DirectoryEntry> directoryCache = new HashMap<String, DirectoryEntry>();
+
+    private final Map<String, InstalledFeature> coreFeatures;
+    private final Map<String, InstalledFeature> usrFeatures;
+
+    private static class DirectoryEntry {
+        private final long lastModified;
+        private final Map<String, InstalledFeature> features;
+
+        private DirectoryEntry(long lastModified, Map<String, InstalledFeature> features) {
+            this.lastModified = lastModified;
+            this.features = features;
+        }
+    }
+
+    /**
+     * A feature installed in the runtime
+     */
+    public static class InstalledFeature {
+        private final String symbolicName;
+        private final String shortName;
+        private final List<FeatureIndex.Dependency> dependencies;
+
+        public InstalledFeature(String symbolicName, String shortName, List<FeatureIndex.Dependency> dependencies) {
+            this.symbolicName = symbolicName;
+            this.shortName = shortName;
+            this.dependencies = Collections.unmodifiableList(new ArrayList<FeatureIndex.Dependency>(dependencies));
+        }
+
+        public String getSymbolicName() {
+            return symbolicName;
+        }
+
+        /**
+         * @return the short name of a public feature, or null
+         */
+        public String getShortName() {
+            return shortName;
+        }
+
+        /**
+         * @return the features listed in the Subsystem-Content header
+         */
+        public List<FeatureIndex.Dependency> getDependencies() {
+            return dependencies;
+        }
+    }
+
+    private InstalledFeatureInventory(Map<String, InstalledFeature> coreFeatures, Map<String, InstalledFeature> usrFeatures) {
+        this.coreFeatures = coreFeatures;
+        this.usrFeatures = usrFeatures;
+    }
+
+    /**
+     * Get the inventory of the runtime, rereading only the features directories
+     * that changed since they were last read.
+     *
+     * @param installDirectory the runtime install directory
+     * @return the inventory
+     */
+    public static InstalledFeatureInventory load(File installDirectory) {
+        return new InstalledFeatureInventory(loadDirectory(new File(installDirectory, "lib/features")),
+                loadDirectory(new File(installDirectory, "usr/extension/lib/features")));
+    }
+
+    private static Map<String, InstalledFeature> loadDirectory(File featuresDir) {
+        if (!featuresDir.isDirectory()) {
+            return Collections.emptyMap();
+        }
+        String key = featuresDir.getAbsolutePath();
+        long lastModified = featuresDir.lastModified();
+        synchronized (directoryCache) {
+            DirectoryEntry entry = directoryCache.get(key);
+            if (entry != null && entry.lastModified == lastModified) {
+                return entry.features;
+            }
+        }
+        Map<String, InstalledFeature> features = new HashMap<String, InstalledFeature>();
+        File[] manifests = featuresDir.listFiles();
+        if (manifests != null) {
+            for (File manifest : manifests) {
+                if (manifest.isFile() && manifest.getName().endsWith(".mf")) {
+                    InstalledFeature feature = readManifest(manifest);
+                    if (feature != null) {
+                        features.put(feature.getSymbolicName().toLowerCase(), feature);
+                        if (feature.getShortName() != null) {
+                            features.put(feature.getShortName().toLowerCase(), feature);
+                        }
+                    }
+                }
+            }
+        }
+        synchronized (directoryCache) {
+            directoryCache.put(key, new DirectoryEntry(lastModified, features));
+        }
+        return features;
+    }
+
+    /**
+     * Read a feature manifest.
+     *
+     * @param manifestFile the manifest file
+     * @return the feature, or null if the manifest could not be read or does not
+     *         describe a feature
+     */
+    public static InstalledFeature readManifest(File manifestFile) {
+        Attributes attributes;
+        try (InputStream in = new FileInputStream(manifestFile)) {
+            attributes = new Manifest(in).getMainAttributes();
+        } catch (IOException e) {
+            return null;
+        }
+        String symbolicNameHeader = attributes.getValue("Subsystem-SymbolicName");
+        if (symbolicNameHeader == null) {
+            return null;
+        }
+        String symbolicName = splitHeader(symbolicNameHeader, ';').get(0).trim();
+        String shortName = attributes.getValue("IBM-ShortName");
+        if (shortName != null) {
+            shortName = shortName.trim();
+        }
+
+        List<FeatureIndex.Dependency> dependencies = new ArrayList<FeatureIndex.Dependency>();
+        String content = attributes.getValue("Subsystem-Content");
+        if (content != null) {
+            for (String clause : splitHeader(content, ',')) {
+                List<String> parts = splitHeader(clause, ';');
+                String name = parts.get(0).trim();
+                boolean isFeature = false;
+                List<String> tolerates = new ArrayList<String>();
+                for (int i = 1; i < parts.size(); i++) {
+                    String part = parts.get(i).trim();
+                    int separator = part.indexOf('=');
+                    if (separator < 0) {
+                        continue;
+                    }
+                    String directive = part.substring(0, separator).replace(":", "").trim();
+                    String value = unquote(part.substring(separator + 1).trim());
+                    if (directive.equals("type")) {
+                        isFeature = value.equals(FEATURE_TYPE);
+                    } else if (directive.equals("ibm.tolerates")) {
+                        for (String version : value.split(",")) {
+                            if (!version.trim().isEmpty()) {
+                                tolerates.add(version.trim());
+                            }
+                        }
+                    }
+                }
+                if (isFeature && !name.isEmpty()) {
+                    dependencies.add(new FeatureIndex.Dependency(name, tolerates));
+                }
+            }
+        }
+        return new InstalledFeature(symbolicName, shortName, dependencies);
+    }
+
+    /**
+     * Split a manifest header at the separator, ignoring separators inside
+     * quoted values.
+     */
+    private static List<String> splitHeader(String header, char separator) {
+        List<String> parts = new ArrayList<String>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            if (c == separator && !quoted) {
+                parts.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        parts.add(current.toString());
+        return parts;
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * @param name the short name or symbolic name of a feature, in any case, with
+     *             a "usr:" prefix for user features
+     * @return the installed feature, or null if it is not installed
+     */
+    public InstalledFeature getFeature(String name) {
+        String lowerCaseName = name.trim().toLowerCase();
+        if (lowerCaseName.startsWith(USR_PREFIX)) {
+            return usrFeatures.get(lowerCaseName.substring(USR_PREFIX.length()));
+        }
+        InstalledFeature feature = coreFeatures.get(lowerCaseName);
+        return feature != null ? feature : usrFeatures.get(lowerCaseName);
+    }
+
+    /**
+     * @param name the short name or symbolic name of a feature
+     * @return true if the feature is installed
+     */
+    public boolean isInstalled(String name) {
+        return getFeature(name) != null;
+    }
+
+    /**
+     * Get the features that are not installed, either because a requested
+     * feature is missing or because a feature it requires is missing. A required
+     * feature is satisfied by its preferred version or any tolerated version.
+     *
+     * @param features the short names or symbolic names of the requested features
+     * @return the missing features, or an empty set if every feature and its
+     *         dependencies are installed
+     */
+    public Set<String> getMissingFeatures(Collection<String> features) {
+        Set<String> missing = new LinkedHashSet<String>();
+        Set<String> visited = new HashSet<String>();
+        Deque<InstalledFeature> toVisit = new ArrayDeque<InstalledFeature>();
+        for (String name : features) {
+            InstalledFeature feature = getFeature(name);
+            if (feature == null) {
+                missing.add(name);
+            } else {
+                toVisit.add(feature);
+            }
+        }
+        while (!toVisit.isEmpty()) {
+            InstalledFeature feature = toVisit.poll();
+            if (!visited.add(feature.getSymbolicName().toLowerCase())) {
+                continue;
+            }
+            for (FeatureIndex.Dependency dependency : feature.getDependencies()) {
+                InstalledFeature required = null;
+                for (String acceptedName : dependency.getAcceptedSymbolicNames()) {
+                    required = getFeature(acceptedName);
+                    if (required != null) {
+                        break;
+                    }
+                }
+                if (required == null) {
+                    missing.add(dependency.getSymbolicName());
+                } else {
+                    toVisit.add(required);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * @param features the short names or symbolic names of the requested features
+     * @return true if every feature and all of the features it requires are
+     *         installed
+     */
+    public boolean containsAll(Collection<String> features) {
+        return getMissingFeatures(features).isEmpty();
+    }
+}
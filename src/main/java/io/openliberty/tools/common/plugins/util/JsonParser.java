@@ -0,0 +1,300 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser. Objects are returned as a {@code Map<String, Object>}
+ * that preserves member order, arrays as a {@code List<Object>}, numbers as
+ * {@link BigDecimal}, and literals as {@link Boolean} or null.
+ */
+public class JsonParser {
+
+    private final Reader reader;
+    private int next = -2;
+
+    private JsonParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @param json the JSON text
+     * @return the parsed value
+     * @throws IOException if the text is not valid JSON
+     */
+    public static Object parse(String json) throws IOException {
+        return parse(new StringReader(json));
+    }
+
+    /**
+     * @param file a UTF-8 encoded JSON file
+     * @return the parsed value
+     * @throws IOException if the file could not be read or is not valid JSON
+     */
+    public static Object parse(File file) throws IOException {
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            return parse(reader);
+        }
+    }
+
+    /**
+     * @param reader the reader to parse, which is not closed
+     * @return the parsed value
+     * @throws IOException if the text could not be read or is not valid JSON
+     */
+    public static Object parse(Reader reader) throws IOException {
+        JsonParser parser = new JsonParser(reader);
+        Object value = parser.readValue();
+        if (parser.peekNonWhitespace() != -1) {
+            throw parser.error("Unexpected content after the JSON value");
+        }
+        return value;
+    }
+
+    private int peek() throws IOException {
+        if (next == -2) {
+            next = reader.read();
+        }
+        return next;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        next = -2;
+        return c;
+    }
+
+    private int peekNonWhitespace() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+            read();
+            c = peek();
+        }
+        return c;
+    }
+
+    private void expect(char expected) throws IOException {
+        int c = read();
+        if (c != expected) {
+            throw error("Expected '" + expected + "' but found " + describe(c));
+        }
+    }
+
+    private Object readValue() throws IOException {
+        int c = peekNonWhitespace();
+        switch (c) {
+        case '{':
+            return readObject();
+        case '[':
+            return readArray();
+        case '"':
+            return readString();
+        case 't':
+            readLiteral("true");
+            return Boolean.TRUE;
+        case 'f':
+            readLiteral("false");
+            return Boolean.FALSE;
+        case 'n':
+            readLiteral("null");
+            return null;
+        default:
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return readNumber();
+            }
+            throw error("Unexpected " + describe(c));
+        }
+    }
+
+    private Map<String, Object> readObject() throws IOException {
+        expect('{');
+        Map<String, Object> object = new LinkedHashMap<String, Object>();
+        if (peekNonWhitespace() == '}') {
+            read();
+            return object;
+        }
+        while (true) {
+            if (peekNonWhitespace() != '"') {
+                throw error("Expected a member name but found " + describe(peek()));
+            }
+            String name = readString();
+            peekNonWhitespace();
+            expect(':');
+            object.put(name, readValue());
+            int c = peekNonWhitespace();
+            read();
+            if (c == '}') {
+                return object;
+            } else if (c != ',') {
+                throw error("Expected ',' or '}' but found " + describe(c));
+            }
+        }
+    }
+
+    private List<Object> readArray() throws IOException {
+        expect('[');
+        List<Object> array = new ArrayList<Object>();
+        if (peekNonWhitespace() == ']') {
+            read();
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            int c = peekNonWhitespace();
+            read();
+            if (c == ']') {
+                return array;
+            } else if (c != ',') {
+                throw error("Expected ',' or ']' but found " + describe(c));
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return sb.toString();
+            } else if (c == '\\') {
+                int escaped = read();
+                switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    sb.append((char) escaped);
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    int codePoint = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw error("Invalid unicode escape");
+                        }
+                        codePoint = codePoint * 16 + digit;
+                    }
+                    sb.append((char) codePoint);
+                    break;
+                default:
+                    throw error("Invalid escape " + describe(escaped));
+                }
+            } else if (c == -1) {
+                throw error("Unterminated string");
+            } else {
+                sb.append((char) c);
+            }
+        }
+    }
+
+    private BigDecimal readNumber() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c = peek();
+        while (c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E' || (c >= '0' && c <= '9')) {
+            sb.append((char) read());
+            c = peek();
+        }
+        try {
+            return new BigDecimal(sb.toString());
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + sb);
+        }
+    }
+
+    private void readLiteral(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (read() != literal.charAt(i)) {
+                throw error("Expected " + literal);
+            }
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException("Invalid JSON: " + message);
+    }
+
+    private static String describe(int c) {
+        return c == -1 ? "end of input" : "'" + (char) c + "'";
+    }
+
+    /**
+     * Escapes a string for use as a JSON string value, including the
+     * surrounding quotes.
+     *
+     * @param value the string to quote
+     * @return the quoted string
+     */
+    public static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds any of a set of message codes in log lines with a single precompiled
+ * pattern, and notifies the listener registered for each code that is found.
+ */
+public class LogPatternMatcher {
+
+    /**
+     * Notified when a line contains a registered code
+     */
+    public interface Listener {
+        void matched(String code, String line);
+    }
+
+    private final Map<String, Listener> listeners = new LinkedHashMap<String, Listener>();
+    private final List<String> codes = new ArrayList<String>();
+    private Pattern pattern;
+
+    /**
+     * Register a listener for a code. Must not be called after the first match.
+     *
+     * @param code     the literal text to find, such as CWWKF0001E
+     * @param listener the listener
+     * @return this matcher
+     */
+    public synchronized LogPatternMatcher register(String code, Listener listener) {
+        if (pattern != null) {
+            throw new IllegalStateException("Codes cannot be registered after matching has started");
+        }
+        if (!listeners.containsKey(code)) {
+            codes.add(code);
+        }
+        listeners.put(code, listener);
+        return this;
+    }
+
+    /**
+     * Notify the listeners of each registered code in the line, once per code.
+     *
+     * @param line the log line
+     * @return true if any code was found
+     */
+    public boolean match(String line) {
+        Pattern p = getPattern();
+        if (p == null) {
+            return false;
+        }
+        Matcher m = p.matcher(line);
+        boolean[] found = null;
+        while (m.find()) {
+            for (int group = 1; group <= m.groupCount(); group++) {
+                if (m.group(group) != null) {
+                    if (found == null) {
+                        found = new boolean[codes.size()];
+                    }
+                    if (!found[group - 1]) {
+                        found[group - 1] = true;
+                        String code = codes.get(group - 1);
+                        listeners.get(code).matched(code, line);
+                    }
+                    break;
+                }
+            }
+        }
+        return found != null;
+    }
+
+    private synchronized Pattern getPattern() {
+        if (pattern == null && !codes.isEmpty()) {
+            StringBuilder regex = new StringBuilder();
+            for (String code : codes) {
+                if (regex.length() > 0) {
+                    regex.append('|');
+                }
+                regex.append('(').append(Pattern.quote(code)).append(')');
+            }
+            pattern = Pattern.compile(regex.toString());
+        }
+        return pattern;
+    }
+}
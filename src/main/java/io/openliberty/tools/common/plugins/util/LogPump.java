@@ -0,0 +1,316 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the output of child processes such as docker build and docker run to
+ * line handlers. One reader thread polls all of the registered streams with a
+ * fixed size buffer, and one dispatcher thread passes the lines to the
+ * handlers in batches, so that a slow build log does not hold up reading the
+ * process output and no threads are started per process. Both threads stop
+ * when there is nothing left to pump.
+ */
+public class LogPump {
+
+    /**
+     * Receives lines of process output on the dispatcher thread
+     */
+    public interface LineHandler {
+        void handleLines(List<String> lines);
+    }
+
+    /**
+     * A stream being pumped
+     */
+    public static class Handle {
+        private final InputStream stream;
+        private final Process process;
+        private final LineHandler handler;
+        private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private volatile String firstLine;
+        private volatile IOException failure;
+
+        private Handle(InputStream stream, Process process, LineHandler handler) {
+            this.stream = stream;
+            this.process = process;
+            this.handler = handler;
+        }
+
+        /**
+         * Wait until the end of the stream has been passed to the handler.
+         *
+         * @return true if the stream ended within the timeout
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return finished.await(timeout, unit);
+        }
+
+        /**
+         * @return the first line of the stream, or null if there was none yet
+         */
+        public String getFirstLine() {
+            return firstLine;
+        }
+
+        /**
+         * @return the error that ended the stream, or null
+         */
+        public IOException getFailure() {
+            return failure;
+        }
+    }
+
+    // lines of one handle, or the end of the handle if lines is null
+    private static class Batch {
+        private final Handle handle;
+        private final List<String> lines;
+
+        private Batch(Handle handle, List<String> lines) {
+            this.handle = handle;
+            this.lines = lines;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    private static final int MAX_QUEUED_BATCHES = 256;
+    private static final long MIN_IDLE_SLEEP_MILLIS = 2;
+    private static final long MAX_IDLE_SLEEP_MILLIS = 50;
+
+    private static LogPump shared;
+
+    private final List<Handle> handles = new ArrayList<Handle>();
+    private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(MAX_QUEUED_BATCHES);
+    private Thread reader;
+    private Thread dispatcher;
+
+    /**
+     * @return the pump shared by all dev mode and container operations
+     */
+    public static synchronized LogPump getShared() {
+        if (shared == null) {
+            shared = new LogPump();
+        }
+        return shared;
+    }
+
+    /**
+     * Start pumping a stream of a process. The stream ends when the process has
+     * exited and all of its output has been read.
+     *
+     * @param stream  the standard output or standard error of the process
+     * @param process the process
+     * @param handler receives the lines of the stream
+     * @return the handle to wait for the end of the stream
+     */
+    public Handle pump(InputStream stream, Process process, LineHandler handler) {
+        Handle handle = new Handle(stream, process, handler);
+        synchronized (handles) {
+            handles.add(handle);
+            if (reader == null) {
+                reader = startThread("liberty-log-pump-reader", new Runnable() {
+                    @Override
+                    public void run() {
+                        read();
+                    }
+                });
+            }
+            if (dispatcher == null) {
+                dispatcher = startThread("liberty-log-pump-dispatcher", new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatch();
+                    }
+                });
+            }
+        }
+        return handle;
+    }
+
+    private static Thread startThread(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void read() {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long idleSleep = MIN_IDLE_SLEEP_MILLIS;
+        try {
+            while (true) {
+                List<Handle> current;
+                synchronized (handles) {
+                    if (handles.isEmpty()) {
+                        reader = null;
+                        return;
+                    }
+                    current = new ArrayList<Handle>(handles);
+                }
+                boolean progress = false;
+                for (Handle handle : current) {
+                    int n;
+                    try {
+                        n = readAvailable(handle, buffer);
+                    } catch (IOException e) {
+                        handle.failure = e;
+                        n = -1;
+                    }
+                    if (n > 0) {
+                        progress = true;
+                        List<String> lines = splitLines(handle, buffer, n);
+                        if (!lines.isEmpty()) {
+                            queue.put(new Batch(handle, lines));
+                        }
+                    } else if (n < 0) {
+                        progress = true;
+                        if (handle.partialLine.size() > 0) {
+                            queue.put(new Batch(handle, Collections.singletonList(toLine(handle))));
+                        }
+                        // queue the end before removing the handle, so the dispatcher does not stop first
+                        queue.put(new Batch(handle, null));
+                        synchronized (handles) {
+                            handles.remove(handle);
+                        }
+                    }
+                }
+                if (progress) {
+                    idleSleep = MIN_IDLE_SLEEP_MILLIS;
+                } else {
+                    Thread.sleep(idleSleep);
+                    idleSleep = Math.min(idleSleep * 2, MAX_IDLE_SLEEP_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            synchronized (handles) {
+                reader = null;
+            }
+        }
+    }
+
+    /**
+     * Read without blocking while the process is running.
+     *
+     * @return the number of bytes read, 0 if none are available, or -1 at the end of the stream
+     */
+    private static int readAvailable(Handle handle, byte[] buffer) throws IOException {
+        int available = handle.stream.available();
+        if (available > 0) {
+            return handle.stream.read(buffer, 0, Math.min(available, buffer.length));
+        }
+        if (!handle.process.isAlive()) {
+            // the process has exited, so reading returns the rest of the output or the end of the stream
+            int n = handle.stream.read(buffer, 0, buffer.length);
+            return n == 0 ? -1 : n;
+        }
+        return 0;
+    }
+
+    private static List<String> splitLines(Handle handle, byte[] buffer, int length) {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < length; i++) {
+            byte b = buffer[i];
+            if (b == '\n') {
+                lines.add(toLine(handle));
+            } else {
+                handle.partialLine.write(b);
+                if (handle.partialLine.size() >= MAX_LINE_LENGTH) {
+                    lines.add(toLine(handle));
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static String toLine(Handle handle) {
+        byte[] bytes = handle.partialLine.toByteArray();
+        handle.partialLine.reset();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        String line = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        if (handle.firstLine == null) {
+            handle.firstLine = line;
+        }
+        return line;
+    }
+
+    private void dispatch() {
+        List<Batch> batches = new ArrayList<Batch>();
+        try {
+            while (true) {
+                Batch first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    synchronized (handles) {
+                        if (handles.isEmpty() && queue.isEmpty()) {
+                            dispatcher = null;
+                            return;
+                        }
+                    }
+                    continue;
+                }
+                batches.add(first);
+                queue.drainTo(batches);
+                // pass consecutive lines of the same handle together
+                Handle handle = null;
+                List<String> lines = new ArrayList<String>();
+                for (Batch batch : batches) {
+                    if (batch.handle != handle || batch.lines == null) {
+                        deliver(handle, lines);
+                        handle = batch.handle;
+                    }
+                    if (batch.lines == null) {
+                        batch.handle.finished.countDown();
+                        handle = null;
+                    } else {
+                        lines.addAll(batch.lines);
+                    }
+                }
+                deliver(handle, lines);
+                batches.clear();
+            }
+        } catch (InterruptedException e) {
+            synchronized (handles) {
+                dispatcher = null;
+            }
+        }
+    }
+
+    private static void deliver(Handle handle, List<String> lines) {
+        if (handle != null && !lines.isEmpty()) {
+            try {
+                handle.handler.handleLines(new ArrayList<String>(lines));
+            } catch (RuntimeException e) {
+                // a failing handler must not stop the output of other processes
+            }
+        }
+        lines.clear();
+    }
+}
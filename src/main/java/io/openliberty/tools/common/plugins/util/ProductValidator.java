@@ -0,0 +1,279 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Validates a runtime in process by comparing files against the checksums
+ * listed in the feature checksum files (lib/features/checksums/*.cs), as the
+ * productInfo validate command does. Only the checksum files modified since a
+ * given time are checked, so that only the files of newly installed features
+ * are hashed.
+ */
+public class ProductValidator {
+
+    private static final String CHECKSUMS_DIR = "lib/features/checksums";
+    private static final String USR_EXTENSION_DIR = "usr/extension";
+
+    // allow for file systems that store modification times in whole seconds
+    private static final long MODIFIED_TIME_TOLERANCE_MILLIS = 2000;
+
+    private final File installDirectory;
+
+    /**
+     * The outcome of a validation
+     */
+    public static class Result {
+        private final boolean supported;
+        private final int validatedFileCount;
+        private final List<String> errors;
+
+        private Result(boolean supported, int validatedFileCount, List<String> errors) {
+            this.supported = supported;
+            this.validatedFileCount = validatedFileCount;
+            this.errors = Collections.unmodifiableList(errors);
+        }
+
+        /**
+         * @return false if the runtime could not be validated in process, in which
+         *         case the productInfo command should be used instead
+         */
+        public boolean isSupported() {
+            return supported;
+        }
+
+        /**
+         * @return the number of files whose checksums were verified
+         */
+        public int getValidatedFileCount() {
+            return validatedFileCount;
+        }
+
+        /**
+         * @return the files that are missing or do not match their checksums
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public boolean isValid() {
+            return supported && errors.isEmpty();
+        }
+    }
+
+    /**
+     * A file and its expected checksum
+     */
+    private static class ChecksumEntry {
+        private final File file;
+        private final String path;
+        private final String algorithm;
+        private final String checksum;
+
+        private ChecksumEntry(File file, String path, String algorithm, String checksum) {
+            this.file = file;
+            this.path = path;
+            this.algorithm = algorithm;
+            this.checksum = checksum;
+        }
+    }
+
+    /**
+     * @param installDirectory the runtime install directory
+     */
+    public ProductValidator(File installDirectory) {
+        this.installDirectory = installDirectory;
+    }
+
+    /**
+     * Validate the files listed in the checksum files that were modified at or
+     * after the given time.
+     *
+     * @param modifiedSince the time in milliseconds, or 0 to validate every
+     *                      feature
+     * @return the result
+     */
+    public Result validate(long modifiedSince) {
+        if (!hasProductVersions()) {
+            return unsupported();
+        }
+        List<ChecksumEntry> entries = new ArrayList<ChecksumEntry>();
+        int checksumFileCount = 0;
+        try {
+            checksumFileCount += readChecksumFiles(installDirectory, modifiedSince, entries);
+            checksumFileCount += readChecksumFiles(new File(installDirectory, USR_EXTENSION_DIR), modifiedSince, entries);
+        } catch (IOException e) {
+            return unsupported();
+        }
+        if (checksumFileCount == 0 && modifiedSince > 0) {
+            // features were installed but no checksum files changed, so the layout is not understood
+            return unsupported();
+        }
+        return new Result(true, entries.size(), verify(entries));
+    }
+
+    private static Result unsupported() {
+        return new Result(false, 0, Collections.<String>emptyList());
+    }
+
+    private boolean hasProductVersions() {
+        File[] propertiesFiles = new File(installDirectory, "lib/versions").listFiles();
+        if (propertiesFiles == null) {
+            return false;
+        }
+        for (File propertiesFile : propertiesFiles) {
+            if (propertiesFile.getName().endsWith(".properties")) {
+                Properties properties = new Properties();
+                try (InputStream in = new FileInputStream(propertiesFile)) {
+                    properties.load(in);
+                } catch (IOException e) {
+                    return false;
+                }
+                if (properties.getProperty("com.ibm.websphere.productId") != null
+                        && properties.getProperty("com.ibm.websphere.productVersion") != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the checksum files under the base directory that were modified since
+     * the given time. Paths in the checksum files are relative to the base
+     * directory.
+     *
+     * @return the number of checksum files read
+     * @throws IOException if a checksum file could not be read or contains a
+     *                     checksum in an unknown format
+     */
+    private static int readChecksumFiles(File baseDirectory, long modifiedSince, List<ChecksumEntry> entries) throws IOException {
+        File[] checksumFiles = new File(baseDirectory, CHECKSUMS_DIR).listFiles();
+        if (checksumFiles == null) {
+            return 0;
+        }
+        int count = 0;
+        for (File checksumFile : checksumFiles) {
+            if (!checksumFile.getName().endsWith(".cs")
+                    || checksumFile.lastModified() < modifiedSince - MODIFIED_TIME_TOLERANCE_MILLIS) {
+                continue;
+            }
+            Properties checksums = new Properties();
+            try (InputStream in = new FileInputStream(checksumFile)) {
+                checksums.load(in);
+            }
+            for (String path : checksums.stringPropertyNames()) {
+                // newer checksum files list several checksums separated by commas
+                for (String checksum : checksums.getProperty(path).split(",")) {
+                    checksum = checksum.trim().toLowerCase();
+                    if (checksum.isEmpty()) {
+                        continue;
+                    }
+                    String algorithm = getAlgorithm(checksum);
+                    if (algorithm == null) {
+                        throw new IOException("Unknown checksum format in " + checksumFile + ": " + checksum);
+                    }
+                    entries.add(new ChecksumEntry(new File(baseDirectory, path), path, algorithm, checksum));
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private static String getAlgorithm(String checksum) {
+        for (int i = 0; i < checksum.length(); i++) {
+            if (Character.digit(checksum.charAt(i), 16) < 0) {
+                return null;
+            }
+        }
+        switch (checksum.length()) {
+        case 32:
+            return ChecksumUtil.MD5;
+        case 40:
+            return "SHA-1";
+        case 64:
+            return ChecksumUtil.SHA_256;
+        default:
+            return null;
+        }
+    }
+
+    private static List<String> verify(List<ChecksumEntry> entries) {
+        List<String> errors = new ArrayList<String>();
+        if (entries.isEmpty()) {
+            return errors;
+        }
+        int threads = Math.max(1, Math.min(entries.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>(entries.size());
+            for (final ChecksumEntry entry : entries) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return verify(entry);
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                String error = result.get();
+                if (error != null && !errors.contains(error)) {
+                    errors.add(error);
+                }
+            }
+        } catch (ExecutionException e) {
+            errors.add("Could not verify checksums: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errors.add("Interrupted while verifying checksums");
+        } finally {
+            executor.shutdownNow();
+        }
+        return errors;
+    }
+
+    /**
+     * @return the error message, or null if the file matches its checksum
+     */
+    private static String verify(ChecksumEntry entry) {
+        if (!entry.file.isFile()) {
+            return "The file " + entry.path + " is missing.";
+        }
+        try {
+            String actual = ChecksumUtil.checksum(entry.file, entry.algorithm);
+            if (!actual.equals(entry.checksum)) {
+                return "The file " + entry.path + " does not match its " + entry.algorithm + " checksum.";
+            }
+            return null;
+        } catch (IOException e) {
+            return "The file " + entry.path + " could not be read: " + e.getMessage();
+        }
+    }
+}
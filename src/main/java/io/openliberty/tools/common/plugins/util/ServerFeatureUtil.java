@@ -36,8 +36,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.commons.io.FileUtils;
 import org.w3c.dom.Document;
@@ -47,6 +45,9 @@ import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
+import io.openliberty.tools.common.CommonLoggerI;
+import io.openliberty.tools.common.plugins.config.RemoteIncludeCache;
+
 /**
  * Utility class to determine server features
  */
@@ -67,6 +68,7 @@ public abstract class ServerFeatureUtil extends AbstractContainerSupportUtil {
     public static final String SERVER_CONFIG_DIR = "server.config.dir";
 
     private Map<String,File> libertyDirectoryPropertyToFile = null;
+    private RemoteIncludeCache includeCache = null;
     
     /**
      * Log debug
@@ -119,6 +121,90 @@ public abstract class ServerFeatureUtil extends AbstractContainerSupportUtil {
         return getConfigDropinsFeatures(result, serverDirectory, bootstrapProperties, "overrides");
     }
 
+    /**
+     * Compare the features from a previous call to getServerFeatures with the
+     * current features.
+     * 
+     * @param previousFeatures the previously resolved features, or null if there are none
+     * @param currentFeatures  the currently configured features, or null if they could not be determined
+     * @return the delta between the two feature sets
+     */
+    public static FeatureDelta getFeatureDelta(Set<String> previousFeatures, Set<String> currentFeatures) {
+        Set<String> previous = toLowerCase(previousFeatures);
+        Set<String> current = toLowerCase(currentFeatures);
+
+        Set<String> added = new HashSet<String>(current);
+        added.removeAll(previous);
+        Set<String> removed = new HashSet<String>(previous);
+        removed.removeAll(current);
+        return new FeatureDelta(current, added, removed);
+    }
+
+    private static Set<String> toLowerCase(Set<String> features) {
+        Set<String> result = new HashSet<String>();
+        if (features != null) {
+            for (String feature : features) {
+                result.add(feature.trim().toLowerCase());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The difference between two sets of server features
+     */
+    public static class FeatureDelta {
+        private final Set<String> features;
+        private final Set<String> added;
+        private final Set<String> removed;
+
+        public FeatureDelta(Set<String> features, Set<String> added, Set<String> removed) {
+            this.features = Collections.unmodifiableSet(features);
+            this.added = Collections.unmodifiableSet(added);
+            this.removed = Collections.unmodifiableSet(removed);
+        }
+
+        /**
+         * @return the complete current feature set
+         */
+        public Set<String> getFeatures() {
+            return features;
+        }
+
+        /**
+         * @return the features that were added since the previous feature set
+         */
+        public Set<String> getAddedFeatures() {
+            return added;
+        }
+
+        /**
+         * @return the features that were removed since the previous feature set
+         */
+        public Set<String> getRemovedFeatures() {
+            return removed;
+        }
+
+        /**
+         * @return true if features were neither added nor removed
+         */
+        public boolean isUnchanged() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+
+        /**
+         * @return true if there are new features that need to be installed
+         */
+        public boolean hasAddedFeatures() {
+            return !added.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "added=" + added + ", removed=" + removed;
+        }
+    }
+
     /**
      * Initializes the pre-defined Liberty directory properties which will be used when resolving variable references in 
      * the include element location attribute, such as <include location="${server.config.dir}/xyz.xml"/>. 
@@ -251,7 +337,7 @@ public abstract class ServerFeatureUtil extends AbstractContainerSupportUtil {
             debug("The server file " + canonicalServerFile + " is empty.");
         } else {
             try {
-                DocumentBuilder db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+                DocumentBuilder db = XmlParserUtil.getDocumentBuilder();
                 db.setErrorHandler(new ErrorHandler() {
                     @Override
                     public void warning(SAXParseException e) throws SAXException {
@@ -285,7 +371,7 @@ public abstract class ServerFeatureUtil extends AbstractContainerSupportUtil {
                         }
                     }
                 }
-            } catch (IOException | ParserConfigurationException | SAXException e) {
+            } catch (IOException | SAXException e) {
                 // just skip this server.xml if it cannot be parsed
                 warn("The server file " + canonicalServerFile + " cannot be parsed. Skipping its features.");
                 debug("Exception received: "+e.getMessage(), e);
@@ -350,9 +436,14 @@ public abstract class ServerFeatureUtil extends AbstractContainerSupportUtil {
         File includeFile = null;
         if (isURL(includeFileName)) {
             try {
-                File tempFile = File.createTempFile("serverFromURL", ".xml");
-                FileUtils.copyURLToFile(new URL(includeFileName), tempFile, COPY_FILE_TIMEOUT_MILLIS, COPY_FILE_TIMEOUT_MILLIS);
-                includeFile = tempFile;
+                URL includeURL = new URL(includeFileName);
+                if (RemoteIncludeCache.isCacheable(includeURL)) {
+                    includeFile = getIncludeCache().getFile(includeURL, getIncludeCacheLogger());
+                } else {
+                    File tempFile = File.createTempFile("serverFromURL", ".xml");
+                    FileUtils.copyURLToFile(includeURL, tempFile, COPY_FILE_TIMEOUT_MILLIS, COPY_FILE_TIMEOUT_MILLIS);
+                    includeFile = tempFile;
+                }
             } catch (IOException e) {
                 // skip this xml if it cannot be accessed from URL
                 warn("The server file " + serverFile + " includes a URL " + includeFileName + " that cannot be accessed. Skipping the included features.");
@@ -386,6 +477,61 @@ public abstract class ServerFeatureUtil extends AbstractContainerSupportUtil {
         return result;
     }
     
+    /**
+     * Sets the cache used for includes from http and https URLs.
+     * 
+     * @param includeCache the include cache
+     */
+    public void setIncludeCache(RemoteIncludeCache includeCache) {
+        this.includeCache = includeCache;
+    }
+
+    private RemoteIncludeCache getIncludeCache() {
+        if (includeCache == null) {
+            includeCache = RemoteIncludeCache.getDefault();
+        }
+        return includeCache;
+    }
+
+    private CommonLoggerI getIncludeCacheLogger() {
+        return new CommonLoggerI() {
+            @Override
+            public void debug(String msg) {
+                ServerFeatureUtil.this.debug(msg);
+            }
+
+            @Override
+            public void debug(String msg, Throwable e) {
+                ServerFeatureUtil.this.debug(msg, e);
+            }
+
+            @Override
+            public void debug(Throwable e) {
+                ServerFeatureUtil.this.debug(e);
+            }
+
+            @Override
+            public void warn(String msg) {
+                ServerFeatureUtil.this.warn(msg);
+            }
+
+            @Override
+            public void info(String msg) {
+                ServerFeatureUtil.this.info(msg);
+            }
+
+            @Override
+            public void error(String msg) {
+                ServerFeatureUtil.this.error(msg, null);
+            }
+
+            @Override
+            public boolean isDebugEnabled() {
+                return true;
+            }
+        };
+    }
+
     private static boolean isURL(String url) {
         try {
             new URL(url);
@@ -0,0 +1,400 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import io.openliberty.tools.common.plugins.util.AbstractContainerSupportUtil.OutputLineHandler;
+
+/**
+ * Runs the containers that the application depends on, such as a database or
+ * a message broker, next to the dev mode container. The containers are
+ * declared in a JSON file, for example:
+ *
+ * <pre>
+ * [
+ *   { "name": "db", "image": "postgres:13", "options": "-e POSTGRES_PASSWORD=dev",
+ *     "readyMessage": "database system is ready to accept connections" },
+ *   { "name": "broker", "image": "rabbitmq:3" }
+ * ]
+ * </pre>
+ *
+ * All containers are started at the same time on a shared network, where the
+ * dev mode container reaches each of them by its declared name, and each is
+ * waited on by its own thread. A container is ready when its output contains
+ * the ready message, when its image HEALTHCHECK reports healthy, or else as
+ * soon as it is running.
+ */
+public class SidecarContainers {
+
+    /** The path of the JSON file that declares the sidecar containers */
+    public static final String PROPERTY = "io.openliberty.tools.devmode.sidecars";
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z0-9][a-zA-Z0-9_.-]*");
+
+    /**
+     * A declared sidecar container
+     */
+    public static class Sidecar {
+        private final String name;
+        private final String image;
+        private final String options;
+        private final String command;
+        private final String readyMessage;
+
+        public Sidecar(String name, String image, String options, String command, String readyMessage) {
+            this.name = name;
+            this.image = image;
+            this.options = options;
+            this.command = command;
+            this.readyMessage = readyMessage;
+        }
+
+        /**
+         * @return the name that the other containers on the network use as the
+         *         host name of this container
+         */
+        public String getName() {
+            return name;
+        }
+
+        public String getImage() {
+            return image;
+        }
+
+        /**
+         * @return a message in the container output that shows that the
+         *         container is ready, or null
+         */
+        public String getReadyMessage() {
+            return readyMessage;
+        }
+
+        /**
+         * @param containerName the name of the container
+         * @param network       the network to connect the container to
+         * @return the docker run command that starts the container in the
+         *         background
+         */
+        public String getRunCommand(String containerName, String network) {
+            StringBuilder sb = new StringBuilder("docker run -d --rm --name " + containerName);
+            sb.append(" --network " + network + " --network-alias " + name);
+            if (options != null && !options.trim().isEmpty()) {
+                sb.append(" " + options.trim());
+            }
+            sb.append(" " + image);
+            if (command != null && !command.trim().isEmpty()) {
+                sb.append(" " + command.trim());
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + image + ")";
+        }
+    }
+
+    /**
+     * The Docker operations used to run the containers
+     */
+    public interface Docker {
+        /**
+         * Run a docker run command that starts a container in the background.
+         */
+        void run(String command) throws PluginExecutionException;
+
+        /**
+         * @return the metadata of the container, or null if it does not exist
+         */
+        ContainerMetadata inspect(String containerName);
+
+        /**
+         * Pass each line of the container output to the handler, from the
+         * start of the output until the container stops. This is called on its
+         * own thread.
+         */
+        void followLogs(String containerName, OutputLineHandler handler);
+
+        /**
+         * Remove the container, stopping it if it is running. A container that
+         * does not exist is not an error.
+         */
+        void remove(String containerName);
+    }
+
+    private final List<Sidecar> sidecars;
+    private final String containerNamePrefix;
+    private final String network;
+    private final Docker docker;
+    private final ExecutorService executor;
+    private final Map<Sidecar, Future<ContainerReadiness.Result>> starting = new LinkedHashMap<Sidecar, Future<ContainerReadiness.Result>>();
+    private final List<String> startedContainers = Collections.synchronizedList(new ArrayList<String>());
+    private volatile long readinessTimeoutMillis;
+
+    /**
+     * @param sidecars            the declared containers
+     * @param containerNamePrefix the prefix of the container names, so that
+     *                            the containers of different projects do not
+     *                            clash
+     * @param network             the network shared with the dev mode container
+     * @param docker              the Docker operations
+     */
+    public SidecarContainers(List<Sidecar> sidecars, String containerNamePrefix, String network, Docker docker) {
+        this.sidecars = new ArrayList<Sidecar>(sidecars);
+        this.containerNamePrefix = containerNamePrefix;
+        this.network = network;
+        this.docker = docker;
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "liberty-dev-sidecar");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @param file a JSON array of objects with a name, an image, and optionally
+     *             docker run options, a command and a ready message
+     * @return the declared containers
+     * @throws IOException if the file cannot be read or a declaration is not
+     *                     valid
+     */
+    public static List<Sidecar> load(File file) throws IOException {
+        Object json = JsonParser.parse(file);
+        if (!(json instanceof List)) {
+            throw new IOException("The sidecar container file " + file + " must contain a JSON array.");
+        }
+        List<Sidecar> sidecars = new ArrayList<Sidecar>();
+        List<String> names = new ArrayList<String>();
+        for (Object element : (List<?>) json) {
+            if (!(element instanceof Map)) {
+                throw new IOException("Each sidecar container in " + file + " must be a JSON object.");
+            }
+            Map<?, ?> map = (Map<?, ?>) element;
+            String name = getString(map, "name");
+            String image = getString(map, "image");
+            if (name == null || !NAME_PATTERN.matcher(name).matches() || names.contains(name)) {
+                throw new IOException("The sidecar container name " + name + " in " + file + " is missing, not valid or not unique.");
+            }
+            if (image == null || image.trim().isEmpty()) {
+                throw new IOException("The sidecar container " + name + " in " + file + " does not have an image.");
+            }
+            names.add(name);
+            sidecars.add(new Sidecar(name, image.trim(), getString(map, "options"), getString(map, "command"),
+                    getString(map, "readyMessage")));
+        }
+        return sidecars;
+    }
+
+    private static String getString(Map<?, ?> map, String key) {
+        Object value = map.get(key);
+        return value == null ? null : value.toString();
+    }
+
+    public List<Sidecar> getSidecars() {
+        return Collections.unmodifiableList(sidecars);
+    }
+
+    public String getNetwork() {
+        return network;
+    }
+
+    public String getContainerName(Sidecar sidecar) {
+        return containerNamePrefix + "-" + sidecar.getName();
+    }
+
+    /**
+     * Start all containers at the same time and return without waiting for
+     * them. Containers that were already started are not started again.
+     *
+     * @param readinessTimeoutMillis the time each container has to become
+     *                               ready after it was started
+     * @return true if any container was started
+     */
+    public synchronized boolean start(long readinessTimeoutMillis) {
+        this.readinessTimeoutMillis = readinessTimeoutMillis;
+        boolean started = false;
+        for (final Sidecar sidecar : sidecars) {
+            if (starting.containsKey(sidecar)) {
+                continue;
+            }
+            started = true;
+            starting.put(sidecar, executor.submit(new Callable<ContainerReadiness.Result>() {
+                @Override
+                public ContainerReadiness.Result call() throws Exception {
+                    return startSidecar(sidecar);
+                }
+            }));
+        }
+        return started;
+    }
+
+    private ContainerReadiness.Result startSidecar(final Sidecar sidecar) throws PluginExecutionException, InterruptedException {
+        final String containerName = getContainerName(sidecar);
+        // a container left over from a dev mode process that did not stop cleanly has the same name
+        docker.remove(containerName);
+        startedContainers.add(containerName);
+        docker.run(sidecar.getRunCommand(containerName, network));
+
+        ContainerReadiness readiness = new ContainerReadiness();
+        if (sidecar.getReadyMessage() != null) {
+            // follow the output once rather than reading all of it on every check
+            final AtomicBoolean messageFound = new AtomicBoolean();
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    docker.followLogs(containerName, new OutputLineHandler() {
+                        @Override
+                        public void handleLine(String line) {
+                            if (line.contains(sidecar.getReadyMessage())) {
+                                messageFound.set(true);
+                            }
+                        }
+                    });
+                }
+            });
+            readiness.add(ContainerReadiness.Strategy.LOG, 0, new ContainerReadiness.Probe() {
+                @Override
+                public boolean isReady() {
+                    return messageFound.get();
+                }
+            });
+        }
+        final AtomicBoolean stopped = new AtomicBoolean();
+        readiness.add(ContainerReadiness.Strategy.HEALTH, 500, new ContainerReadiness.Probe() {
+            @Override
+            public boolean isReady() {
+                ContainerMetadata metadata = docker.inspect(containerName);
+                if (metadata == null || !metadata.isRunning()) {
+                    stopped.set(true);
+                    return false;
+                }
+                if (metadata.getHealthStatus() != null) {
+                    return "healthy".equals(metadata.getHealthStatus());
+                }
+                return sidecar.getReadyMessage() == null;
+            }
+        });
+        ContainerReadiness.Result result;
+        try {
+            result = readiness.await(readinessTimeoutMillis, new ContainerReadiness.StopCheck() {
+                @Override
+                public void check() throws PluginScenarioException {
+                    if (stopped.get()) {
+                        throw new PluginScenarioException("The sidecar container " + containerName + " stopped.");
+                    }
+                }
+            });
+        } catch (PluginScenarioException e) {
+            throw new PluginExecutionException(e.getMessage() + " Check its output with the command: docker logs " + containerName);
+        }
+        if (result == null) {
+            throw new PluginExecutionException("The sidecar container " + containerName + " was not ready within "
+                    + readinessTimeoutMillis / 1000 + " seconds.");
+        }
+        return result;
+    }
+
+    /**
+     * Wait until all started containers are ready.
+     *
+     * @return the readiness check that detected each container as ready
+     * @throws PluginExecutionException if a container could not be started, or
+     *                                  was not ready in time
+     */
+    public Map<Sidecar, ContainerReadiness.Result> awaitReady() throws PluginExecutionException {
+        Map<Sidecar, Future<ContainerReadiness.Result>> futures;
+        synchronized (this) {
+            futures = new LinkedHashMap<Sidecar, Future<ContainerReadiness.Result>>(starting);
+        }
+        Map<Sidecar, ContainerReadiness.Result> results = new LinkedHashMap<Sidecar, ContainerReadiness.Result>();
+        for (Map.Entry<Sidecar, Future<ContainerReadiness.Result>> entry : futures.entrySet()) {
+            try {
+                // each container has its own readiness timeout, so this only guards against a hung docker command
+                results.put(entry.getKey(), entry.getValue().get(readinessTimeoutMillis * 2, TimeUnit.MILLISECONDS));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof PluginExecutionException) {
+                    throw (PluginExecutionException) e.getCause();
+                }
+                throw new PluginExecutionException("Could not start the sidecar container " + getContainerName(entry.getKey())
+                        + ": " + e.getCause().getMessage(), e.getCause());
+            } catch (TimeoutException e) {
+                throw new PluginExecutionException("The sidecar container " + getContainerName(entry.getKey())
+                        + " did not start within " + readinessTimeoutMillis * 2 / 1000 + " seconds.");
+            } catch (InterruptedException e) {
+                throw new PluginExecutionException("Interrupted while waiting for the sidecar containers to start", e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Remove all started containers at the same time, and wait for them to be
+     * removed.
+     *
+     * @param timeoutMillis the time to wait
+     */
+    public void stop(long timeoutMillis) {
+        synchronized (this) {
+            for (Future<ContainerReadiness.Result> future : starting.values()) {
+                future.cancel(true);
+            }
+        }
+        List<Future<?>> removals = new ArrayList<Future<?>>();
+        synchronized (startedContainers) {
+            for (final String containerName : startedContainers) {
+                removals.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        docker.remove(containerName);
+                    }
+                }));
+            }
+            startedContainers.clear();
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Future<?> removal : removals) {
+            try {
+                removal.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                // the container is left to be removed by the next dev mode run
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Provides DocumentBuilder, Transformer and compiled XPathExpression instances
+ * that are confined to the calling thread. None of these classes are thread
+ * safe, so each thread gets its own instances, which are reset and reused for
+ * every document that thread parses or writes.
+ */
+public class XmlParserUtil {
+
+    private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDER = new ThreadLocal<DocumentBuilder>() {
+        @Override
+        protected DocumentBuilder initialValue() {
+            return newDocumentBuilder(DocumentBuilderFactory.newInstance());
+        }
+    };
+
+    private static final ThreadLocal<DocumentBuilder> CONFIG_DOCUMENT_BUILDER = new ThreadLocal<DocumentBuilder>() {
+        @Override
+        protected DocumentBuilder initialValue() {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setIgnoringComments(true);
+            factory.setCoalescing(true);
+            factory.setIgnoringElementContentWhitespace(true);
+            factory.setValidating(false);
+            return newDocumentBuilder(factory);
+        }
+    };
+
+    private static final ThreadLocal<DocumentBuilder> NAMESPACE_AWARE_DOCUMENT_BUILDER = new ThreadLocal<DocumentBuilder>() {
+        @Override
+        protected DocumentBuilder initialValue() {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            return newDocumentBuilder(factory);
+        }
+    };
+
+    private static final ThreadLocal<Transformer> TRANSFORMER = new ThreadLocal<Transformer>() {
+        @Override
+        protected Transformer initialValue() {
+            try {
+                return TransformerFactory.newInstance().newTransformer();
+            } catch (TransformerConfigurationException e) {
+                // the default transformer factory is always available
+                throw new RuntimeException(e);
+            }
+        }
+    };
+
+    private static final ThreadLocal<XPath> XPATH = new ThreadLocal<XPath>() {
+        @Override
+        protected XPath initialValue() {
+            return XPathFactory.newInstance().newXPath();
+        }
+    };
+
+    private static final ThreadLocal<Map<String, XPathExpression>> XPATH_EXPRESSIONS = new ThreadLocal<Map<String, XPathExpression>>() {
+        @Override
+        protected Map<String, XPathExpression> initialValue() {
+            return new HashMap<String, XPathExpression>();
+        }
+    };
+
+    private XmlParserUtil() {
+    }
+
+    private static DocumentBuilder newDocumentBuilder(DocumentBuilderFactory factory) {
+        try {
+            return factory.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            // fail catastrophically if we can't create a document builder
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static DocumentBuilder reset(DocumentBuilder builder) {
+        builder.reset();
+        return builder;
+    }
+
+    /**
+     * Gets a document builder with the default settings. Do not use it
+     * concurrently for another document until parsing has finished.
+     *
+     * @return the document builder for the current thread
+     */
+    public static DocumentBuilder getDocumentBuilder() {
+        return reset(DOCUMENT_BUILDER.get());
+    }
+
+    /**
+     * Gets a non-validating document builder that ignores comments and element
+     * content whitespace and coalesces CDATA into text nodes, for reading server
+     * configuration.
+     *
+     * @return the document builder for the current thread
+     */
+    public static DocumentBuilder getConfigDocumentBuilder() {
+        return reset(CONFIG_DOCUMENT_BUILDER.get());
+    }
+
+    /**
+     * Gets a namespace aware document builder.
+     *
+     * @return the document builder for the current thread
+     */
+    public static DocumentBuilder getNamespaceAwareDocumentBuilder() {
+        return reset(NAMESPACE_AWARE_DOCUMENT_BUILDER.get());
+    }
+
+    /**
+     * Gets a transformer that writes UTF-8 XML indented by 4 spaces.
+     *
+     * @return the transformer for the current thread
+     */
+    public static Transformer getIndentingTransformer() {
+        Transformer transformer = TRANSFORMER.get();
+        transformer.reset();
+        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no");
+        transformer.setOutputProperty(OutputKeys.DOCTYPE_PUBLIC, "yes");
+        transformer.setOutputProperty(OutputKeys.VERSION, "1.0");
+        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
+        return transformer;
+    }
+
+    /**
+     * Gets the compiled form of an XPath expression. Each expression is compiled
+     * once per thread.
+     *
+     * @param expression the XPath expression
+     * @return the compiled expression for the current thread
+     * @throws XPathExpressionException if the expression cannot be compiled
+     */
+    public static XPathExpression getXPathExpression(String expression) throws XPathExpressionException {
+        Map<String, XPathExpression> expressions = XPATH_EXPRESSIONS.get();
+        XPathExpression compiled = expressions.get(expression);
+        if (compiled == null) {
+            compiled = XPATH.get().compile(expression);
+            expressions.put(expression, compiled);
+        }
+        return compiled;
+    }
+}
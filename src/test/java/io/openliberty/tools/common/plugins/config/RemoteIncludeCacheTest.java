@@ -0,0 +1,141 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class RemoteIncludeCacheTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private URL url;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+    private final AtomicInteger notModifiedResponses = new AtomicInteger();
+    private volatile String content = "<server><featureManager><feature>jaxrs-2.1</feature></featureManager></server>";
+    private volatile String etag = ETAG;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/include.xml", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModifiedResponses.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    fullResponses.incrementAndGet();
+                    byte[] body = content.getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("ETag", etag);
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        url = new URL("http://localhost:" + server.getAddress().getPort() + "/include.xml");
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testCachedWithinTtl() throws Exception {
+        RemoteIncludeCache cache = new RemoteIncludeCache(tempFolder.newFolder(), 60000, 5000);
+        File first = cache.getFile(url, null);
+        File second = cache.getFile(url, null);
+        assertEquals(first, second);
+        assertEquals(content, read(second));
+        assertEquals(1, fullResponses.get());
+        assertEquals(0, notModifiedResponses.get());
+    }
+
+    @Test
+    public void testRevalidation() throws Exception {
+        RemoteIncludeCache cache = new RemoteIncludeCache(tempFolder.newFolder(), 0, 5000);
+        cache.getFile(url, null);
+        File revalidated = cache.getFile(url, null);
+        assertEquals(1, fullResponses.get());
+        assertEquals(1, notModifiedResponses.get());
+        assertEquals(content, read(revalidated));
+
+        content = "<server/>";
+        etag = "\"v2\"";
+        File changed = cache.getFile(url, null);
+        assertEquals(2, fullResponses.get());
+        assertEquals("<server/>", read(changed));
+    }
+
+    @Test
+    public void testOfflineFallback() throws Exception {
+        RemoteIncludeCache cache = new RemoteIncludeCache(tempFolder.newFolder(), 0, 5000);
+        String original = content;
+        cache.getFile(url, null);
+        server.stop(0);
+        server = null;
+        assertEquals(original, read(cache.getFile(url, null)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotCachedAndOffline() throws Exception {
+        RemoteIncludeCache cache = new RemoteIncludeCache(tempFolder.newFolder(), 0, 5000);
+        server.stop(0);
+        server = null;
+        cache.getFile(url, null);
+    }
+
+    @Test
+    public void testCacheable() throws Exception {
+        assertTrue(RemoteIncludeCache.isCacheable(new URL("https://example.com/a.xml")));
+        assertFalse(RemoteIncludeCache.isCacheable(new URL("file:/tmp/a.xml")));
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArtifactCacheTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        ArtifactCache cache = new ArtifactCache(temp.newFolder("cache"));
+        assertNull(cache.get("io.openliberty.features", "jaxrs-2.1", "esa", "21.0.0.1"));
+
+        File esa = temp.newFile("jaxrs-2.1.esa");
+        Files.write(esa.toPath(), "esa content".getBytes(StandardCharsets.UTF_8));
+        File cached = cache.put("io.openliberty.features", "jaxrs-2.1", "esa", "21.0.0.1", esa);
+
+        assertEquals(cached, cache.get("io.openliberty.features", "jaxrs-2.1", "esa", "21.0.0.1"));
+        assertEquals(new File(cache.getRepositoryDirectory(), "io/openliberty/features/jaxrs-2.1/21.0.0.1/jaxrs-2.1-21.0.0.1.esa"), cached);
+        assertEquals("esa content", new String(Files.readAllBytes(cached.toPath()), StandardCharsets.UTF_8));
+
+        // the same content under other coordinates is stored once
+        File other = cache.put("io.openliberty.features", "jaxrs-2.1", "esa", "21.0.0.2", esa);
+        File objectDir = new File(cache.getCacheDirectory(), "objects/" + ChecksumUtil.sha256(esa).substring(0, 2));
+        assertEquals(1, objectDir.list().length);
+        assertEquals("esa content", new String(Files.readAllBytes(other.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSnapshotsNotCached() throws Exception {
+        ArtifactCache cache = new ArtifactCache(temp.newFolder("cache"));
+        File esa = temp.newFile("jaxrs-2.1.esa");
+        Files.write(esa.toPath(), "esa content".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(esa, cache.put("io.openliberty.features", "jaxrs-2.1", "esa", "21.0.0.2-SNAPSHOT", esa));
+        assertNull(cache.get("io.openliberty.features", "jaxrs-2.1", "esa", "21.0.0.2-SNAPSHOT"));
+        assertEquals(esa, cache.put("io.openliberty.features", "jaxrs-2.1", "esa", "[21.0.0.1,21.0.0.2)", esa));
+        assertEquals(0, cache.getRepositoryDirectory().list().length);
+    }
+
+    @Test
+    public void testConcurrentPuts() throws Exception {
+        final ArtifactCache cache = new ArtifactCache(temp.newFolder("cache"));
+        final File json = temp.newFile("features.json");
+        Files.write(json.toPath(), "[]".getBytes(StandardCharsets.UTF_8));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<File>> results = new ArrayList<Future<File>>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(new Callable<File>() {
+                    @Override
+                    public File call() throws Exception {
+                        return cache.put("io.openliberty.features", "features", "json", "21.0.0.1", json);
+                    }
+                }));
+            }
+            for (Future<File> result : results) {
+                File cached = result.get();
+                assertTrue(cached.isFile());
+                assertEquals("[]", new String(Files.readAllBytes(cached.toPath()), StandardCharsets.UTF_8));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDefault() throws Exception {
+        String previous = System.getProperty(ArtifactCache.CACHE_DIR_PROPERTY);
+        try {
+            System.clearProperty(ArtifactCache.CACHE_DIR_PROPERTY);
+            assertNull(ArtifactCache.getDefault());
+            File dir = temp.newFolder("default");
+            System.setProperty(ArtifactCache.CACHE_DIR_PROPERTY, dir.getAbsolutePath());
+            assertEquals(dir, ArtifactCache.getDefault().getCacheDirectory());
+        } finally {
+            if (previous == null) {
+                System.clearProperty(ArtifactCache.CACHE_DIR_PROPERTY);
+            } else {
+                System.setProperty(ArtifactCache.CACHE_DIR_PROPERTY, previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.openliberty.tools.common.plugins.util.ConfigChangeAnalyzer.Impact;
+
+public class ConfigChangeAnalyzerTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static Impact analyze(String fileName, String oldContent, String newContent) {
+        return ConfigChangeAnalyzer.analyze(fileName, oldContent, newContent).getImpact();
+    }
+
+    @Test
+    public void testBootstrapProperties() throws Exception {
+        assertEquals(Impact.NONE, analyze("bootstrap.properties", "a=b\n", "a=b\n"));
+        assertEquals(Impact.NONE, analyze("bootstrap.properties", "a=b\n", "# comment\na = b\n\n"));
+        assertEquals(Impact.RESTART, analyze("bootstrap.properties", "a=b\n", "a=c\n"));
+        assertEquals(Impact.RESTART, analyze("bootstrap.properties", "a=b\n", "a=b\nc=d\n"));
+        assertEquals(Impact.RESTART, analyze("bootstrap.properties", null, "a=b\n"));
+    }
+
+    @Test
+    public void testJvmOptions() throws Exception {
+        assertEquals(Impact.NONE, analyze("jvm.options", "-Xmx1g\n", "# max heap\n-Xmx1g\n\n"));
+        assertEquals(Impact.RESTART, analyze("jvm.options", "-Xmx1g\n", "-Xmx2g\n"));
+        assertEquals(Impact.RESTART, analyze("jvm.options", "-Da=1\n-Da=2\n", "-Da=2\n-Da=1\n"));
+    }
+
+    @Test
+    public void testServerEnv() throws Exception {
+        assertEquals(Impact.NONE, analyze("server.env", "A=1\n", "#comment\nA=1\n"));
+        assertEquals(Impact.RESTART, analyze("server.env", "A=1\n", "A=2\n"));
+    }
+
+    @Test
+    public void testServerXml() throws Exception {
+        String server = "<server><featureManager><feature>jaxrs-2.1</feature></featureManager>"
+                + "<httpEndpoint id=\"defaultHttpEndpoint\" httpPort=\"9080\"/></server>";
+        String reformatted = "<server>\n  <!-- endpoint -->\n  <httpEndpoint httpPort=\"9080\" id=\"defaultHttpEndpoint\" />\n"
+                + "  <featureManager>\n    <feature>jaxrs-2.1</feature>\n  </featureManager>\n</server>";
+        assertEquals(Impact.NONE, analyze("server.xml", server, reformatted));
+
+        String changedPort = server.replace("9080", "9081");
+        assertEquals(Impact.DYNAMIC, analyze("server.xml", server, changedPort));
+
+        String withApp = server.replace("</server>", "<webApplication location=\"app.war\"/></server>");
+        assertEquals(Impact.DYNAMIC, analyze("server.xml", server, withApp));
+        assertEquals(Impact.APP_REDEPLOY, analyze("extra.xml", null, withApp));
+        assertEquals(Impact.DYNAMIC, analyze("extra.xml", null, server));
+
+        assertEquals(Impact.DYNAMIC, analyze("server.xml", server, "<server>"));
+    }
+
+    @Test
+    public void testOtherFiles() throws Exception {
+        assertEquals(Impact.APP_REDEPLOY, analyze("key.p12", null, "key"));
+        assertEquals(Impact.DYNAMIC, analyze("key.p12", "old", "key"));
+    }
+
+    @Test
+    public void testAnalyzeChangeSnapshot() throws Exception {
+        File jvmOptions = tempFolder.newFile("jvm.options");
+        FileUtils.writeStringToFile(jvmOptions, "-Xmx1g\n", StandardCharsets.UTF_8);
+        ConfigChangeAnalyzer analyzer = new ConfigChangeAnalyzer();
+        analyzer.snapshot(jvmOptions);
+
+        FileUtils.writeStringToFile(jvmOptions, "# comment\n-Xmx1g\n", StandardCharsets.UTF_8);
+        assertEquals(Impact.NONE, analyzer.analyzeChange(jvmOptions).getImpact());
+
+        FileUtils.writeStringToFile(jvmOptions, "-Xmx2g\n", StandardCharsets.UTF_8);
+        assertEquals(Impact.RESTART, analyzer.analyzeChange(jvmOptions).getImpact());
+        assertEquals(Impact.NONE, analyzer.analyzeChange(jvmOptions).getImpact());
+    }
+}
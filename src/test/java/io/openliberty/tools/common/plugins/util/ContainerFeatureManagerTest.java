@@ -0,0 +1,68 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ContainerFeatureManagerTest {
+
+    @Test
+    public void testParseFeatureInfo() {
+        String output = "jaxrs-2.1 [1.0.0]\n"
+                + "servlet-4.0 [1.0.0]\r\n"
+                + "microProfile-3.3 [1.0.0]\n"
+                + "usr:myFeature-1.0\n"
+                + "\n"
+                + "Some other line\n";
+        Set<String> features = ContainerFeatureManager.parseFeatureInfo(output);
+        assertEquals(new HashSet<String>(Arrays.asList("jaxrs-2.1", "servlet-4.0", "microprofile-3.3", "usr:myfeature-1.0")), features);
+        assertTrue(ContainerFeatureManager.parseFeatureInfo(null).isEmpty());
+    }
+
+    @Test
+    public void testGetMissingFeatures() {
+        Set<String> installed = new HashSet<String>(Arrays.asList("jaxrs-2.1", "servlet-4.0"));
+        assertEquals(Arrays.asList("mpHealth-2.2", "cdi-2.0"),
+                ContainerFeatureManager.getMissingFeatures(Arrays.asList("JAXRS-2.1", "mpHealth-2.2", "servlet-4.0", "cdi-2.0"), installed));
+        assertTrue(ContainerFeatureManager.getMissingFeatures(Arrays.asList("jaxrs-2.1"), installed).isEmpty());
+    }
+
+    @Test
+    public void testInstalledFeatures() {
+        String containerId = "testInstalledFeatures";
+        assertNull(ContainerFeatureManager.getInstalledFeatures(containerId));
+
+        // features are not tracked until the container has been queried
+        ContainerFeatureManager.addInstalledFeatures(containerId, Collections.singleton("jaxrs-2.1"));
+        assertNull(ContainerFeatureManager.getInstalledFeatures(containerId));
+
+        ContainerFeatureManager.setInstalledFeatures(containerId, Collections.singleton("servlet-4.0"));
+        ContainerFeatureManager.addInstalledFeatures(containerId, Collections.singleton("JAXRS-2.1"));
+        assertEquals(new HashSet<String>(Arrays.asList("servlet-4.0", "jaxrs-2.1")), ContainerFeatureManager.getInstalledFeatures(containerId));
+
+        ContainerFeatureManager.forget(containerId);
+        assertNull(ContainerFeatureManager.getInstalledFeatures(containerId));
+    }
+}
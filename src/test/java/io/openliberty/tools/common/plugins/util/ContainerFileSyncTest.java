@@ -0,0 +1,63 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ContainerFileSyncTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testDestinations() throws Exception {
+        Path config = temp.newFolder("src", "main", "liberty", "config").toPath();
+        Path resources = temp.newFolder("resources").toPath();
+        ContainerFileSync sync = new ContainerFileSync();
+        assertTrue(sync.addMapping(config, "/config/", "1001:0"));
+        assertTrue(sync.addMapping(resources, "/opt/resources", null));
+        assertTrue(sync.addMapping(resources, "/opt/copy/", null));
+        assertFalse(sync.addMapping(resources, "relative/", null));
+        assertFalse(sync.addMapping(resources, "$DEST", null));
+        assertFalse(sync.addMapping(resources, "/opt/named", "default:root"));
+
+        List<ContainerFileSync.Destination> destinations = sync.getDestinations(config.resolve("configDropins/overrides/a.xml"));
+        assertEquals(1, destinations.size());
+        assertEquals("/config/configDropins/overrides/a.xml", destinations.get(0).getPath());
+        assertEquals(1001, destinations.get(0).getUid());
+        assertEquals(0, destinations.get(0).getGid());
+
+        destinations = sync.getDestinations(resources.resolve("index.html"));
+        assertEquals(2, destinations.size());
+        assertEquals("/opt/resources/index.html", destinations.get(0).getPath());
+        assertEquals("/opt/copy/index.html", destinations.get(1).getPath());
+
+        assertTrue(sync.getDestinations(temp.getRoot().toPath().resolve("other.txt")).isEmpty());
+        assertTrue(sync.getDestinations(config).isEmpty());
+
+        sync.clear();
+        assertTrue(sync.getDestinations(resources.resolve("index.html")).isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ContainerMetadataTest {
+
+    private static final String INSPECT = "{\"Id\":\"abc123\",\"Name\":\"/liberty-dev-1\",\"State\":{\"Running\":true,\"Health\":{\"Status\":\"starting\"}},"
+            + "\"NetworkSettings\":{\"Ports\":{\"9080/tcp\":[{\"HostIp\":\"0.0.0.0\",\"HostPort\":\"32768\"}],"
+            + "\"9443/tcp\":null},\"Networks\":{\"bridge\":{\"IPAddress\":\"172.17.0.2\"},\"myNet\":{\"IPAddress\":\"\"}}}}";
+
+    @Test
+    public void testFromInspect() throws Exception {
+        ContainerMetadata metadata = ContainerMetadata.fromInspect(JsonParser.parse(INSPECT));
+        assertEquals("abc123", metadata.getId());
+        assertEquals("liberty-dev-1", metadata.getName());
+        assertTrue(metadata.isRunning());
+        assertEquals("starting", metadata.getHealthStatus());
+        assertEquals("32768", metadata.getHostPort("9080"));
+        assertEquals("32768", metadata.getHostPort("9080/tcp"));
+        assertNull(metadata.getHostPort("9443"));
+        assertEquals(Arrays.asList("bridge", "myNet"), new ArrayList<String>(metadata.getNetworks().keySet()));
+        assertEquals("172.17.0.2", metadata.getNetworks().get("bridge"));
+        assertEquals("", metadata.getNetworks().get("myNet"));
+    }
+
+    @Test
+    public void testFromInspectCommandOutput() throws Exception {
+        // docker container inspect prints an array, and readStdOut joins its lines with spaces
+        ContainerMetadata metadata = ContainerMetadata.fromInspect(JsonParser.parse("[ " + INSPECT.replace(",", ", ") + " ] "));
+        assertEquals("abc123", metadata.getId());
+        assertEquals("32768", metadata.getHostPort("9080"));
+    }
+
+    @Test
+    public void testNotAContainer() throws Exception {
+        assertNull(ContainerMetadata.fromInspect(null));
+        assertNull(ContainerMetadata.fromInspect(JsonParser.parse("[]")));
+        assertNull(ContainerMetadata.fromInspect(JsonParser.parse("{\"message\":\"No such container\"}")));
+        ContainerMetadata created = ContainerMetadata.fromInspect(JsonParser.parse("{\"Id\":\"abc\",\"State\":{\"Running\":false}}"));
+        assertFalse(created.isRunning());
+        assertNull(created.getHealthStatus());
+        assertTrue(created.getNetworks().isEmpty());
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import io.openliberty.tools.common.plugins.util.ContainerReadiness.Probe;
+import io.openliberty.tools.common.plugins.util.ContainerReadiness.Strategy;
+
+public class ContainerReadinessTest {
+
+    @Test
+    public void testParseStrategies() {
+        assertEquals(EnumSet.allOf(Strategy.class), Strategy.parse(null));
+        assertEquals(EnumSet.allOf(Strategy.class), Strategy.parse("unknown"));
+        assertEquals(EnumSet.of(Strategy.LOG, Strategy.HTTP), Strategy.parse(" log, HTTP ,other"));
+    }
+
+    @Test
+    public void testFirstReadyProbeWins() throws Exception {
+        final long start = System.currentTimeMillis();
+        final AtomicInteger slowChecks = new AtomicInteger();
+        ContainerReadiness readiness = new ContainerReadiness()
+                .add(Strategy.FILE, 1000, new Probe() {
+                    @Override
+                    public boolean isReady() {
+                        slowChecks.incrementAndGet();
+                        return false;
+                    }
+                })
+                .add(Strategy.LOG, 0, new Probe() {
+                    @Override
+                    public boolean isReady() {
+                        return System.currentTimeMillis() - start >= 200;
+                    }
+                });
+        ContainerReadiness.Result result = readiness.await(5000, null);
+        assertEquals(Strategy.LOG, result.getStrategy());
+        assertTrue(result.getElapsedMillis() >= 200);
+        // the slow check is only run once per interval
+        assertEquals(1, slowChecks.get());
+    }
+
+    @Test
+    public void testBackgroundProbeDoesNotDelayOtherProbes() throws Exception {
+        final long start = System.currentTimeMillis();
+        ContainerReadiness readiness = new ContainerReadiness()
+                .addBackground(Strategy.HTTP, 0, new Probe() {
+                    @Override
+                    public boolean isReady() throws Exception {
+                        // a request that blocks until its timeout
+                        Thread.sleep(2000);
+                        return true;
+                    }
+                })
+                .add(Strategy.LOG, 0, new Probe() {
+                    @Override
+                    public boolean isReady() {
+                        return System.currentTimeMillis() - start >= 200;
+                    }
+                });
+        ContainerReadiness.Result result = readiness.await(5000, null);
+        assertEquals(Strategy.LOG, result.getStrategy());
+        assertTrue(result.toString(), result.getElapsedMillis() < 1000);
+
+        ContainerReadiness failing = new ContainerReadiness().addBackground(Strategy.HEALTH, 0, new Probe() {
+            @Override
+            public boolean isReady() throws IOException {
+                throw new IOException("Cannot connect to the Docker daemon");
+            }
+        });
+        assertNull(failing.await(300, null));
+        assertEquals(1, failing.getFailures().size());
+        assertTrue(failing.getFailures().get(0).startsWith("HEALTH: "));
+    }
+
+    @Test
+    public void testTimeoutAndFailures() throws Exception {
+        ContainerReadiness readiness = new ContainerReadiness().add(Strategy.HTTP, 0, new Probe() {
+            @Override
+            public boolean isReady() throws IOException {
+                throw new IOException("Connection refused");
+            }
+        });
+        assertNull(readiness.await(200, null));
+        // each failing check is reported once
+        assertEquals(1, readiness.getFailures().size());
+        assertTrue(readiness.getFailures().get(0).startsWith("HTTP: "));
+    }
+
+    @Test
+    public void testStopCheck() throws Exception {
+        ContainerReadiness readiness = new ContainerReadiness().add(Strategy.LOG, 0, new Probe() {
+            @Override
+            public boolean isReady() {
+                return false;
+            }
+        });
+        try {
+            readiness.await(5000, new ContainerReadiness.StopCheck() {
+                @Override
+                public void check() throws PluginScenarioException {
+                    throw new PluginScenarioException("The container has stopped. Exiting dev mode.");
+                }
+            });
+            fail("Expected a PluginScenarioException");
+        } catch (PluginScenarioException e) {
+            assertEquals("The container has stopped. Exiting dev mode.", e.getMessage());
+        }
+    }
+}
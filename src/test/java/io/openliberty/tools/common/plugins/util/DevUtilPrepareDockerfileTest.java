@@ -20,8 +20,10 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.After;
@@ -223,6 +225,22 @@ public class DevUtilPrepareDockerfileTest extends BaseDevUtilTest {
         assertEquals(2, util.destMount.size());
     }
 
+    @Test
+    public void testMultiStageAndVariables() throws Exception {
+        testPrepareDockerfile("multiStage.txt", "multiStage-expected.txt");
+        assertTrue(util.hasFeaturesSh.get());
+        assertTrue(util.srcMount.get(0).endsWith("file1.xml"));
+        assertTrue(util.destMount.get(0).endsWith("/staging/file1.xml"));
+        // resolved from the ENV variable
+        assertTrue(util.srcMount.get(1).endsWith("server.xml"));
+        assertTrue(util.destMount.get(1).endsWith("/config/server.xml"));
+        // followed to the COPY of the staging stage
+        assertTrue(util.srcMount.get(2).endsWith("file1.xml"));
+        assertTrue(util.destMount.get(2).endsWith("/config/file1.xml"));
+        assertEquals(3, util.srcMount.size());
+        assertEquals(3, util.destMount.size());
+    }
+
     @Test
     public void testDisableOpenJ9SCC_lowercase() throws Exception {
         List<String> dockerfileLines = new ArrayList<String>();
@@ -295,6 +313,34 @@ public class DevUtilPrepareDockerfileTest extends BaseDevUtilTest {
         assertEquals("Should have resetted to not detect features.sh", false, util.hasFeaturesSh.get());
     }
 
+    @Test
+    public void testLayerOptimizationOptIn() throws Exception {
+        final List<String> messages = new ArrayList<String>();
+        util = new DevTestUtil(null, null, null, null, null, false, false) {
+            @Override
+            public void info(String msg) {
+                messages.add(msg);
+            }
+        };
+        File test = temp.newFile("layers.txt");
+        Files.write(test.toPath(), Arrays.asList("FROM open-liberty", "COPY file1.xml file2.xml /config/"));
+
+        result = util.prepareTempDockerfile(test, dockerfiles.getAbsolutePath());
+        assertEquals(Arrays.asList("FROM open-liberty", "COPY file1.xml file2.xml /config/"), util.readDockerfile(result));
+        assertTrue(messages.isEmpty());
+        result.delete();
+
+        System.setProperty(DevUtil.LAYER_OPTIMIZATION_PROPERTY, "true");
+        try {
+            result = util.prepareTempDockerfile(test, dockerfiles.getAbsolutePath());
+        } finally {
+            System.clearProperty(DevUtil.LAYER_OPTIMIZATION_PROPERTY);
+        }
+        assertEquals(Arrays.asList("FROM open-liberty", "COPY file1.xml /config/", "COPY file2.xml /config/"),
+                util.readDockerfile(result));
+        assertTrue(messages.toString(), messages.contains("Split Dockerfile instruction into one COPY per file: COPY file1.xml file2.xml /config/"));
+    }
+
     @Test
     public void testRemoveEarFileLines() throws Exception {
         List<String> dockerfileLines = new ArrayList<String>();
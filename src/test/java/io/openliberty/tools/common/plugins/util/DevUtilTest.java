@@ -32,7 +32,11 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
@@ -505,4 +509,104 @@ public class DevUtilTest extends BaseDevUtilTest {
         assertEquals("Parent should be the drive root", new File("/"), DevUtil.getLongestCommonDir(new File("/a/b/c"), new File("/d/e/f")));
     }
 
+    @Test
+    public void testFeatureDelta() throws Exception {
+        util.setExistingFeatures(new HashSet<String>(Arrays.asList("jaxrs-2.1", "cdi-2.0")));
+
+        ServerFeatureUtil.FeatureDelta delta = util.getFeatureDelta(new HashSet<String>(Arrays.asList("CDI-2.0", "jaxrs-2.1")));
+        assertTrue(delta.isUnchanged());
+        assertFalse(delta.hasAddedFeatures());
+
+        delta = util.getFeatureDelta(new HashSet<String>(Arrays.asList("jaxrs-2.1", "cdi-2.0", "mpHealth-2.2")));
+        assertFalse(delta.isUnchanged());
+        assertEquals(new HashSet<String>(Arrays.asList("mphealth-2.2")), delta.getAddedFeatures());
+        assertTrue(delta.getRemovedFeatures().isEmpty());
+
+        // the baseline only changes when the install succeeded, so the added feature is still added
+        delta = util.getFeatureDelta(new HashSet<String>(Arrays.asList("jaxrs-2.1", "cdi-2.0", "mpHealth-2.2")));
+        assertEquals(new HashSet<String>(Arrays.asList("mphealth-2.2")), delta.getAddedFeatures());
+        util.setExistingFeatures(delta.getFeatures());
+
+        delta = util.getFeatureDelta(new HashSet<String>(Arrays.asList("jaxrs-2.1")));
+        assertFalse(delta.hasAddedFeatures());
+        Set<String> removed = new HashSet<String>(Arrays.asList("cdi-2.0", "mphealth-2.2"));
+        assertEquals(removed, delta.getRemovedFeatures());
+
+        // features that cannot be determined give an empty delta
+        delta = util.getFeatureDelta(null);
+        assertTrue(delta.isUnchanged());
+
+        // the installer is not called for unknown features, and the next change installs all features
+        util.installAddedFeatures(null, false, null);
+        delta = util.getFeatureDelta(new HashSet<String>(Arrays.asList("jaxrs-2.1")));
+        assertEquals(new HashSet<String>(Arrays.asList("jaxrs-2.1")), delta.getAddedFeatures());
+    }
+
+    @Test
+    public void testRedeployForNewConfigFile() throws Exception {
+        // a new include that only adds features is still redeployed as before the change analysis
+        ConfigChangeAnalyzer.Result features = ConfigChangeAnalyzer.analyze("features.xml", null,
+                "<server><featureManager><feature>mpHealth-2.2</feature></featureManager></server>");
+        assertTrue(DevUtil.isRedeployRequired(true, features));
+        assertFalse(DevUtil.isRedeployRequired(false, features));
+
+        ConfigChangeAnalyzer.Result bootstrap = ConfigChangeAnalyzer.analyze("bootstrap.properties", null, "a=b\n");
+        assertTrue(DevUtil.isRedeployRequired(true, bootstrap));
+
+        ConfigChangeAnalyzer.Result comment = ConfigChangeAnalyzer.analyze("jvm.options", "-Xmx1g\n", "# max heap\n-Xmx1g\n");
+        assertFalse(DevUtil.isRedeployRequired(false, comment));
+        assertFalse(comment.requiresRestart());
+    }
+
+    @Test
+    public void testCreateConfigView() throws Exception {
+        File serverXml = new File(serverDirectory, "server.xml");
+        FileUtils.writeStringToFile(serverXml, "<server/>", StandardCharsets.UTF_8);
+        File bootstrap = new File(serverDirectory, "bootstrap.properties");
+        FileUtils.writeStringToFile(bootstrap, "a=b", StandardCharsets.UTF_8);
+        File override = new File(serverDirectory, "configDropins/overrides/override.xml");
+        FileUtils.writeStringToFile(override, "<server/>", StandardCharsets.UTF_8);
+        File app = new File(serverDirectory, "apps/app.war");
+        FileUtils.writeStringToFile(app, "app", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(serverDirectory, "logs/messages.log"), "log", StandardCharsets.UTF_8);
+
+        File view = new File(targetDir, "view");
+        assertTrue(view.mkdir());
+        util.createConfigView(serverDirectory, view, serverXml, false);
+
+        // the overlay file is left for the caller to copy
+        assertFalse(new File(view, "server.xml").exists());
+        assertFalse(new File(view, "logs").exists());
+        assertEquals("a=b", FileUtils.readFileToString(new File(view, "bootstrap.properties"), StandardCharsets.UTF_8));
+
+        File viewOverride = new File(view, "configDropins/overrides/override.xml");
+        assertTrue(viewOverride.exists());
+        assertFalse(Files.isSymbolicLink(viewOverride.toPath()));
+        assertEquals(override.getCanonicalFile().getName(), viewOverride.getCanonicalFile().getName());
+        assertTrue(viewOverride.getCanonicalPath().startsWith(view.getCanonicalPath()));
+
+        assertEquals("app", FileUtils.readFileToString(new File(view, "apps/app.war"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCopyConfigFolderDoesNotModifyServerDirectory() throws Exception {
+        File serverXml = new File(serverDirectory, "server.xml");
+        FileUtils.writeStringToFile(serverXml, "<server>old</server>", StandardCharsets.UTF_8);
+        File changed = new File(configDirectory, "server.xml");
+        FileUtils.writeStringToFile(changed, "<server>new</server>", StandardCharsets.UTF_8);
+
+        util.copyConfigFolder(changed, configDirectory, null);
+
+        assertEquals("<server>old</server>", FileUtils.readFileToString(serverXml, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testGetHighestContainerNameNumber() throws Exception {
+        assertEquals(-1, DevUtil.getHighestContainerNameNumber(new ArrayList<String>()));
+        assertEquals(0, DevUtil.getHighestContainerNameNumber(Arrays.asList("\"liberty-dev\"", "my-liberty-dev")));
+        // other names containing the base name are not generated dev mode container names
+        assertEquals(3, DevUtil.getHighestContainerNameNumber(
+                Arrays.asList("liberty-dev-3", "liberty-dev-1", "liberty-dev-7-db", "liberty-dev-x", "liberty-dev")));
+    }
+
 }
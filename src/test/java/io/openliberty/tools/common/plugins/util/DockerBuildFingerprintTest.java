@@ -0,0 +1,123 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DockerBuildFingerprintTest {
+
+    private static final String IMAGE = "openliberty/open-liberty:full-java11-openj9-ubi";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File context;
+    private Map<String, String> parentImageIds;
+    private List<String> lines;
+
+    @Before
+    public void setUp() throws Exception {
+        context = temp.newFolder("context");
+        write("src/main/liberty/config/server.xml", "<server/>");
+        write("target/liberty/wlp/lib/runtime.jar", "runtime");
+        write("README.md", "readme");
+        parentImageIds = new HashMap<String, String>();
+        parentImageIds.put(IMAGE, "sha256:1111");
+        lines = Arrays.asList("FROM " + IMAGE,
+                "COPY --chown=1001:0 src/main/liberty/config /config/",
+                "RUN configure.sh");
+    }
+
+    @Test
+    public void testGetParentImages() {
+        assertEquals(Arrays.asList("maven:3", IMAGE), DockerBuildFingerprint.getParentImages(Arrays.asList(
+                "FROM --platform=linux/amd64 maven:3 AS build",
+                "FROM scratch",
+                "FROM " + IMAGE,
+                "COPY --from=build /app.war /config/apps/",
+                "FROM build")));
+    }
+
+    @Test
+    public void testGetSources() throws Exception {
+        assertEquals(Arrays.asList("a.xml", "b.xml"), DockerBuildFingerprint.getSources("COPY --chown=1001:0 a.xml b.xml /config/"));
+        assertEquals(Arrays.asList("my dir"), DockerBuildFingerprint.getSources("ADD [\"my dir\", \"/opt/dir\"]"));
+        assertNull(DockerBuildFingerprint.getSources("COPY --from=build /app.war /config/apps/"));
+        assertNull(DockerBuildFingerprint.getSources("RUN configure.sh"));
+    }
+
+    @Test
+    public void testFingerprint() throws Exception {
+        String fingerprint = DockerBuildFingerprint.compute(lines, parentImageIds, context);
+        assertNotNull(fingerprint);
+        assertEquals(fingerprint, DockerBuildFingerprint.compute(lines, parentImageIds, context));
+
+        // files that are not copied do not matter
+        write("README.md", "changed");
+        write("target/liberty/wlp/lib/runtime.jar", "changed");
+        assertEquals(fingerprint, DockerBuildFingerprint.compute(lines, parentImageIds, context));
+
+        write("src/main/liberty/config/server.xml", "<server description=\"changed\"/>");
+        String changedFile = DockerBuildFingerprint.compute(lines, parentImageIds, context);
+        assertNotEquals(fingerprint, changedFile);
+
+        parentImageIds.put(IMAGE, "sha256:2222");
+        assertNotEquals(changedFile, DockerBuildFingerprint.compute(lines, parentImageIds, context));
+
+        assertNull(DockerBuildFingerprint.compute(lines, Collections.<String, String>emptyMap(), context));
+    }
+
+    @Test
+    public void testDockerIgnore() throws Exception {
+        List<String> copyAll = Arrays.asList("FROM " + IMAGE, "COPY . /opt/app/");
+        write(".dockerignore", "target\n");
+        String fingerprint = DockerBuildFingerprint.compute(copyAll, parentImageIds, context);
+        write("target/liberty/wlp/lib/runtime.jar", "changed");
+        assertEquals(fingerprint, DockerBuildFingerprint.compute(copyAll, parentImageIds, context));
+        write("README.md", "changed");
+        assertNotEquals(fingerprint, DockerBuildFingerprint.compute(copyAll, parentImageIds, context));
+    }
+
+    @Test
+    public void testRemoteSource() throws Exception {
+        assertNull(DockerBuildFingerprint.compute(Arrays.asList("FROM " + IMAGE,
+                "ADD https://repo.maven.apache.org/maven2/postgres.jar /lib/"), parentImageIds, context));
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(context, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
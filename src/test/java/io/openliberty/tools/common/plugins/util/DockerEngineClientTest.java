@@ -0,0 +1,204 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DockerEngineClientTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private FakeDaemon daemon;
+    private DockerEngineClient client;
+
+    /**
+     * Answers each request with a canned response keyed by method and path
+     */
+    private static class FakeDaemon implements Runnable {
+        private final ServerSocketChannel server;
+        private final Map<String, String> responses = new HashMap<String, String>();
+        private final List<String> requests = new ArrayList<String>();
+        private final Thread thread;
+
+        private FakeDaemon(File socket) throws Exception {
+            Object address = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", String.class)
+                    .invoke(null, socket.getPath());
+            ProtocolFamily unix = StandardProtocolFamily.valueOf("UNIX");
+            server = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class).invoke(null, unix);
+            server.bind((SocketAddress) address);
+            thread = new Thread(this, "fake-docker-daemon");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void respond(String request, String status, String headers, String body) {
+            responses.put(request, "HTTP/1.1 " + status + "\r\n" + headers + "\r\n" + body);
+        }
+
+        private void respondJson(String request, String status, String json) {
+            respond(request, status, "Content-Type: application/json\r\nContent-Length: "
+                    + json.getBytes(StandardCharsets.UTF_8).length + "\r\n", json);
+        }
+
+        @Override
+        public void run() {
+            while (server.isOpen()) {
+                try (SocketChannel channel = server.accept()) {
+                    InputStream in = Channels.newInputStream(channel);
+                    String requestLine = readLine(in);
+                    String line;
+                    int contentLength = 0;
+                    while ((line = readLine(in)) != null && !line.isEmpty()) {
+                        if (line.toLowerCase().startsWith("content-length:")) {
+                            contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+                        }
+                    }
+                    for (int i = 0; i < contentLength && in.read() != -1; i++) {
+                        // ignore the body
+                    }
+                    String[] parts = requestLine.split(" ");
+                    String request = parts[0] + " " + parts[1];
+                    synchronized (requests) {
+                        requests.add(request);
+                    }
+                    String response = responses.get(request);
+                    if (response == null) {
+                        String body = "{\"message\":\"page not found\"}";
+                        response = "HTTP/1.1 404 Not Found\r\nContent-Length: " + body.length() + "\r\n\r\n" + body;
+                    }
+                    OutputStream out = Channels.newOutputStream(channel);
+                    out.write(response.getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                } catch (IOException e) {
+                    // the server was closed
+                }
+            }
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return b == -1 && line.size() == 0 ? null : new String(line.toByteArray(), StandardCharsets.US_ASCII);
+        }
+
+        private void close() throws IOException {
+            server.close();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(DockerEngineClient.isSupported());
+        File socket = new File(temp.getRoot(), "docker.sock");
+        daemon = new FakeDaemon(socket);
+        client = new DockerEngineClient(socket);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (daemon != null) {
+            daemon.close();
+        }
+    }
+
+    @Test
+    public void testPingAndVersion() throws Exception {
+        daemon.respond("GET /_ping", "200 OK", "Content-Length: 2\r\n", "OK");
+        daemon.respondJson("GET /version", "200 OK", "{\"Version\":\"20.10.5\",\"ApiVersion\":\"1.41\"}");
+        assertTrue(client.ping());
+        assertEquals("20.10.5", client.getVersion());
+    }
+
+    @Test
+    public void testPingWithoutDaemon() throws Exception {
+        assertFalse(new DockerEngineClient(new File(temp.getRoot(), "missing.sock")).ping());
+    }
+
+    @Test
+    public void testContainerNamesChunked() throws Exception {
+        String json = "[{\"Id\":\"abc\",\"Names\":[\"/liberty-dev\"]},{\"Id\":\"def\",\"Names\":[\"/liberty-dev-1\"]}]";
+        String chunked = Integer.toHexString(10) + "\r\n" + json.substring(0, 10) + "\r\n"
+                + Integer.toHexString(json.length() - 10) + "\r\n" + json.substring(10) + "\r\n0\r\n\r\n";
+        daemon.respond("GET /containers/json?all=1", "200 OK", "Transfer-Encoding: chunked\r\n", chunked);
+        assertEquals(Arrays.asList("liberty-dev", "liberty-dev-1"), client.getContainerNames(true));
+    }
+
+    @Test
+    public void testContainerNamesFiltered() throws Exception {
+        daemon.respondJson("GET /containers/json?all=1&filters=%7B%22name%22%3A%5B%22liberty-dev%22%5D%7D", "200 OK",
+                "[{\"Id\":\"abc\",\"Names\":[\"/liberty-dev-2\"]}]");
+        assertEquals(Arrays.asList("liberty-dev-2"), client.getContainerNames(true, "liberty-dev"));
+    }
+
+    @Test
+    public void testInspect() throws Exception {
+        daemon.respondJson("GET /containers/liberty-dev/json", "200 OK", "{\"Id\":\"abc123\",\"NetworkSettings\":{"
+                + "\"Ports\":{\"9080/tcp\":[{\"HostIp\":\"0.0.0.0\",\"HostPort\":\"32768\"}],\"9443/tcp\":null},"
+                + "\"Networks\":{\"bridge\":{\"IPAddress\":\"172.17.0.2\"},\"myNet\":{\"IPAddress\":\"172.18.0.3\"}}}}");
+        assertEquals("abc123", client.getContainerId("liberty-dev"));
+        ContainerMetadata metadata = client.getContainerMetadata("liberty-dev");
+        assertEquals("32768", metadata.getHostPort("9080"));
+        assertNull(metadata.getHostPort("9443/tcp"));
+        Map<String, String> networks = metadata.getNetworks();
+        assertEquals(Arrays.asList("bridge", "myNet"), new ArrayList<String>(networks.keySet()));
+        assertEquals("172.18.0.3", networks.get("myNet"));
+
+        // a missing container is not an error
+        assertNull(client.inspectContainer("missing"));
+        assertNull(client.getContainerMetadata("missing"));
+    }
+
+    @Test
+    public void testGetSocketFile() {
+        assertEquals(new File("/var/run/docker.sock"), DockerEngineClient.getSocketFile(null));
+        assertEquals(new File("/tmp/docker.sock"), DockerEngineClient.getSocketFile("unix:///tmp/docker.sock"));
+        assertNull(DockerEngineClient.getSocketFile("tcp://localhost:2375"));
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class DockerIgnoreTest {
+
+    @Test
+    public void testPatterns() {
+        DockerIgnore ignore = new DockerIgnore(Arrays.asList(
+                "# comment",
+                "target/liberty",
+                "**/*.log",
+                "/build/",
+                "src/*/resources/tmp?",
+                ""));
+        assertTrue(ignore.isExcluded("target/liberty"));
+        assertTrue(ignore.isExcluded("target/liberty/wlp/lib/x.jar"));
+        assertFalse(ignore.isExcluded("target/app.war"));
+        assertTrue(ignore.isExcluded("server.log"));
+        assertTrue(ignore.isExcluded("logs/deep/messages.log"));
+        assertTrue(ignore.isExcluded("build/classes/A.class"));
+        assertTrue(ignore.isExcluded("src/main/resources/tmp1"));
+        assertFalse(ignore.isExcluded("src/main/java/resources/tmp1"));
+        assertFalse(ignore.isExcluded("# comment"));
+        assertFalse(ignore.hasExceptions());
+    }
+
+    @Test
+    public void testExceptions() {
+        DockerIgnore ignore = new DockerIgnore(Arrays.asList("target", "!target/*.war", "target/excluded.war"));
+        assertTrue(ignore.hasExceptions());
+        assertTrue(ignore.isExcluded("target/classes/A.class"));
+        assertFalse(ignore.isExcluded("target/app.war"));
+        assertTrue(ignore.isExcluded("target/excluded.war"));
+    }
+}
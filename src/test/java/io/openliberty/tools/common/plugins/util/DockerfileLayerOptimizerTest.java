@@ -0,0 +1,146 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DockerfileLayerOptimizerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    File context;
+
+    @Before
+    public void setUp() throws Exception {
+        context = temp.getRoot();
+        write("server.xml", "<server><featureManager><feature>jaxrs-2.1</feature></featureManager></server>");
+        write("app.xml", "<server><httpEndpoint id=\"defaultHttpEndpoint\"/></server>");
+        write("features.xml", "<server><featureManager><feature>cdi-2.0</feature></featureManager></server>");
+        write("app.properties", "a=b");
+        write("driver.jar", "jar");
+        new File(context, "configdir").mkdir();
+    }
+
+    private void write(String name, String content) throws Exception {
+        Files.write(new File(context, name).toPath(), content.getBytes("UTF-8"));
+    }
+
+    @Test
+    public void testSplitCopies() {
+        assertEquals(Arrays.asList("FROM open-liberty", "COPY --chown=1001:0 app.xml /config/",
+                "COPY --chown=1001:0 driver.jar /config/"),
+                DockerfileLayerOptimizer.splitCopies(Arrays.asList("FROM open-liberty",
+                        "COPY --chown=1001:0 app.xml driver.jar /config/")));
+        List<String> unchanged = Arrays.asList("FROM open-liberty",
+                "COPY app.xml wild*card /config/",
+                "COPY app.xml $OTHER /config/",
+                "COPY [\"app.xml\", \"driver.jar\", \"/config/\"]",
+                "COPY --from=build app.xml driver.jar /config/",
+                "COPY app.xml /config/file.xml");
+        assertEquals(unchanged, DockerfileLayerOptimizer.splitCopies(unchanged));
+    }
+
+    @Test
+    public void testDeferPastFeatures() throws Exception {
+        List<String> lines = Arrays.asList("FROM open-liberty",
+                "COPY app.xml /config/configDropins/overrides/",
+                "COPY server.xml /config/",
+                "ARG VERBOSE=false",
+                "RUN features.sh",
+                "RUN configure.sh");
+        assertEquals(Arrays.asList("FROM open-liberty", "COPY server.xml /config/", "ARG VERBOSE=false",
+                "RUN features.sh", "COPY app.xml /config/configDropins/overrides/", "RUN configure.sh"),
+                DockerfileLayerOptimizer.deferPastFeatures(lines, context));
+
+        // server.xml could include app.xml
+        write("server.xml", "<server><include location=\"app.xml\"/></server>");
+        assertEquals(lines, DockerfileLayerOptimizer.deferPastFeatures(lines, context));
+    }
+
+    @Test
+    public void testDeferPastFeaturesKeepsOverlappingCopies() throws Exception {
+        List<String> lines = Arrays.asList("FROM open-liberty",
+                "COPY app.xml /config/server.xml",
+                "COPY configdir /config/",
+                "RUN features.sh");
+        assertEquals(lines, DockerfileLayerOptimizer.deferPastFeatures(lines, context));
+
+        List<String> afterRun = Arrays.asList("FROM open-liberty",
+                "COPY app.xml /config/",
+                "RUN mkdir /config/extra",
+                "RUN features.sh");
+        assertEquals(afterRun, DockerfileLayerOptimizer.deferPastFeatures(afterRun, context));
+    }
+
+    @Test
+    public void testOrderByChangeFrequency() {
+        assertEquals(Arrays.asList("FROM open-liberty",
+                "COPY features.xml /config/configDropins/defaults/",
+                "COPY driver.jar /opt/ol/wlp/usr/shared/resources/",
+                "COPY app.properties /config/",
+                "COPY index.html /config/static/",
+                "RUN configure.sh"),
+                DockerfileLayerOptimizer.orderByChangeFrequency(Arrays.asList("FROM open-liberty",
+                        "COPY index.html /config/static/",
+                        "COPY app.properties /config/",
+                        "COPY driver.jar /opt/ol/wlp/usr/shared/resources/",
+                        "COPY features.xml /config/configDropins/defaults/",
+                        "RUN configure.sh"), context));
+
+        // the directory could contain driver.jar, so the order is kept
+        List<String> overlapping = Arrays.asList("FROM open-liberty", "COPY configdir /config/", "COPY driver.jar /config/");
+        assertEquals(overlapping, DockerfileLayerOptimizer.orderByChangeFrequency(overlapping, context));
+    }
+
+    @Test
+    public void testGetRank() {
+        assertEquals(DockerfileLayerOptimizer.RANK_FEATURES, DockerfileLayerOptimizer.getRank("src/main/liberty/features.xml"));
+        assertEquals(DockerfileLayerOptimizer.RANK_LIBRARIES, DockerfileLayerOptimizer.getRank("target/liberty/lib/driver"));
+        assertEquals(DockerfileLayerOptimizer.RANK_LIBRARIES, DockerfileLayerOptimizer.getRank("driver.jar"));
+        assertEquals(DockerfileLayerOptimizer.RANK_CONFIG, DockerfileLayerOptimizer.getRank("src/main/liberty/config"));
+        assertEquals(DockerfileLayerOptimizer.RANK_CONFIG, DockerfileLayerOptimizer.getRank("jvm.options"));
+        assertEquals(DockerfileLayerOptimizer.RANK_OTHER, DockerfileLayerOptimizer.getRank("static/index.html"));
+    }
+
+    @Test
+    public void testLayerKeys() throws Exception {
+        List<String> lines = Arrays.asList("FROM open-liberty", "COPY driver.jar /config/", "COPY app.xml /config/",
+                "RUN configure.sh");
+        List<String> keys = DockerfileLayerOptimizer.getLayerKeys(lines, context);
+        assertEquals(4, DockerfileLayerOptimizer.countCacheHits(keys, DockerfileLayerOptimizer.getLayerKeys(lines, context)));
+
+        write("app.xml", "<server/>");
+        assertEquals(2, DockerfileLayerOptimizer.countCacheHits(keys, DockerfileLayerOptimizer.getLayerKeys(lines, context)));
+
+        List<String> remote = DockerfileLayerOptimizer.getLayerKeys(Arrays.asList("FROM open-liberty",
+                "ADD https://example.com/driver.jar /config/", "RUN configure.sh"), context);
+        assertNull(remote.get(1));
+        assertNull(remote.get(2));
+        assertEquals(1, DockerfileLayerOptimizer.countCacheHits(remote, remote));
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.openliberty.tools.common.plugins.util.DockerfileModel.Instruction;
+
+public class DockerfileModelTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testMatchesCleanedAndCombinedLines() throws Exception {
+        File dockerfiles = new File("src/test/resources/dockerbuild");
+        for (String name : Arrays.asList("basic.txt", "multiline.txt", "multilineEscape.txt", "copyParsing.txt")) {
+            List<String> lines = Files.readAllLines(new File(dockerfiles, name).toPath());
+            List<String> expected = DevUtil.getCombinedLines(DevUtil.getCleanedLines(lines), DevUtil.getEscapeCharacter(lines));
+            DockerfileModel model = DockerfileModel.parse(lines);
+            assertEquals(name, expected.size(), model.getInstructions().size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(name, expected.get(i), model.getInstructions().get(i).getLine());
+            }
+        }
+    }
+
+    @Test
+    public void testCopyFlagsAndPaths() throws Exception {
+        DockerfileModel model = DockerfileModel.parse(Arrays.asList("FROM open-liberty",
+                "COPY --chown=1001:0 --link a.xml \\", "  b.xml /config/",
+                "ADD [\"with space.xml\", \"/config/\"]"));
+        Instruction copy = model.getInstructions().get(1);
+        assertEquals("COPY", copy.getKeyword());
+        assertEquals("1001:0", copy.getFlag("chown"));
+        assertEquals("", copy.getFlag("link"));
+        assertNull(copy.getFlag("from"));
+        assertEquals(Arrays.asList("a.xml", "b.xml", "/config/"), copy.getPaths());
+        Instruction add = model.getInstructions().get(2);
+        assertEquals(Arrays.asList("with space.xml", "/config/"), add.getPaths());
+    }
+
+    @Test
+    public void testVariables() throws Exception {
+        DockerfileModel model = DockerfileModel.parse(Arrays.asList(
+                "ARG BASE=open-liberty",
+                "ARG DIR=config",
+                "FROM ${BASE}:full AS base",
+                "ARG DIR",
+                "ENV ROOT=/opt \"NAME\"=server.xml",
+                "ENV LEGACY some value",
+                "COPY $DIR/${NAME} ${ROOT}/${DIR:-x}/ ",
+                "COPY ${UNSET:-default}/$ROOT ${UNSET:+set}/",
+                "COPY $UNSET /config/",
+                "FROM base",
+                "COPY $DIR /config/"));
+        assertEquals("open-liberty:full", model.getStages().get(0).getImage());
+        assertEquals("base", model.getStages().get(0).getName());
+        assertEquals(Arrays.asList("config/server.xml", "/opt/config/"), model.getInstructions().get(6).getResolvedPaths());
+        assertEquals(Arrays.asList("default//opt", "/"), model.getInstructions().get(7).getResolvedPaths());
+        assertNull(model.getInstructions().get(8).getResolvedPaths());
+        // a stage does not see the ARGs of earlier stages unless it declares them
+        assertNull(model.getInstructions().get(10).getResolvedPaths());
+    }
+
+    @Test
+    public void testSubstitute() {
+        Map<String, String> variables = new HashMap<String, String>();
+        variables.put("A", "1");
+        variables.put("EMPTY", "");
+        variables.put("DECLARED", null);
+        assertEquals("1-1-1", DockerfileModel.substitute("$A-${A}-${A:-2}", variables));
+        assertEquals("2", DockerfileModel.substitute("${EMPTY:-2}", variables));
+        assertEquals("$A", DockerfileModel.substitute("\\$A", variables));
+        assertEquals("a$", DockerfileModel.substitute("a$", variables));
+        assertNull(DockerfileModel.substitute("$DECLARED", variables));
+        assertNull(DockerfileModel.substitute("${A", variables));
+        assertEquals("plain", DockerfileModel.substitute("plain", Collections.<String, String>emptyMap()));
+    }
+
+    @Test
+    public void testDevLines() throws Exception {
+        DockerfileModel model = DockerfileModel.parse(Arrays.asList("FROM open-liberty",
+                "COPY target/app.war /config/apps/", "COPY target/App.EAR /config/apps/",
+                "COPY server.xml /config/", "RUN features.sh", "RUN configure.sh"));
+        assertEquals(2, model.getApplicationCopies().size());
+        assertTrue(model.hasFeaturesSh());
+        assertTrue(model.hasConfigureSh());
+        assertEquals(Arrays.asList("FROM open-liberty", "COPY server.xml /config/", "RUN features.sh",
+                "ENV OPENJ9_SCC=false", "RUN configure.sh"), model.getDevLines());
+        // getting the lines again does not change the model
+        assertEquals(model.getDevLines(), model.getDevLines());
+    }
+
+    @Test
+    public void testStageSources() throws Exception {
+        DockerfileModel model = DockerfileModel.parse(Arrays.asList(
+                "FROM maven AS build",
+                "COPY src/main/liberty/config /staging/config",
+                "COPY server.env /staging/",
+                "FROM open-liberty",
+                "COPY --from=build /staging/config/server.xml /config/",
+                "COPY --from=0 /staging/server.env /config/",
+                "COPY --from=open-liberty /opt/ol/wlp/lib /opt/ol/wlp/lib",
+                "COPY --from=build /target/app /config/apps/"));
+        List<Instruction> instructions = model.getInstructions();
+        // the server.env file could also be a directory with a config/server.xml file
+        assertEquals(Arrays.asList("server.env/config/server.xml", "src/main/liberty/config/server.xml"),
+                model.getStageSources(instructions.get(4), "/staging/config/server.xml"));
+        assertEquals(Arrays.asList("server.env", "server.env/server.env"),
+                model.getStageSources(instructions.get(5), "/staging/server.env"));
+        assertTrue(model.getStageSources(instructions.get(6), "/opt/ol/wlp/lib").isEmpty());
+        assertTrue(model.getStageSources(instructions.get(7), "/target/app").isEmpty());
+    }
+
+    @Test
+    public void testLoadIsCached() throws Exception {
+        File dockerfile = temp.newFile("Dockerfile");
+        Files.write(dockerfile.toPath(), Arrays.asList("FROM open-liberty", "COPY server.xml /config/"));
+        DockerfileModel model = DockerfileModel.load(dockerfile);
+        assertSame(model, DockerfileModel.load(dockerfile));
+        assertFalse(model.hasFeaturesSh());
+
+        Files.write(dockerfile.toPath(), Arrays.asList("FROM open-liberty", "RUN features.sh", "# changed"));
+        DockerfileModel changed = DockerfileModel.load(dockerfile);
+        assertTrue(changed != model);
+        assertTrue(changed.hasFeaturesSh());
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FeatureIndexTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File jsonsDir;
+
+    @Before
+    public void setupJsons() throws IOException {
+        jsonsDir = temp.newFolder("jsons");
+        FileUtils.copyDirectory(new File(BaseInstallFeatureUtilTest.RESOURCES_DIR, "jsons"), jsonsDir);
+    }
+
+    @Test
+    public void testFromJson() throws Exception {
+        FeatureIndex index = FeatureIndex.fromJson(new File(jsonsDir, "ol.json"));
+        assertEquals(2, index.getFeatures().size());
+
+        FeatureIndex.Feature appClientSupport = index.getFeature("APPCLIENTSUPPORT-1.0");
+        assertNotNull(appClientSupport);
+        assertEquals("com.ibm.websphere.appserver.appClientSupport-1.0", appClientSupport.getSymbolicName());
+        assertEquals("io.openliberty.features:appClientSupport-1.0:18.0.0.2", appClientSupport.getMavenCoordinates());
+        assertEquals(2, appClientSupport.getDependencies().size());
+        assertTrue(index.contains("com.ibm.websphere.appserver.appClientSupport-1.0"));
+
+        FeatureIndex.Feature anno = index.getFeature("com.ibm.websphere.appserver.anno-1.0");
+        FeatureIndex.Dependency annotation = null;
+        for (FeatureIndex.Dependency dependency : anno.getDependencies()) {
+            if (dependency.getSymbolicName().equals("com.ibm.websphere.appserver.javax.annotation-1.1")) {
+                annotation = dependency;
+            }
+        }
+        assertNotNull(annotation);
+        assertEquals(Arrays.asList("com.ibm.websphere.appserver.javax.annotation-1.1",
+                "com.ibm.websphere.appserver.javax.annotation-1.2", "com.ibm.websphere.appserver.javax.annotation-1.3"),
+                annotation.getAcceptedSymbolicNames());
+    }
+
+    @Test
+    public void testIndexFile() throws Exception {
+        File json = new File(jsonsDir, "wlp.json");
+        File indexFile = new File(jsonsDir, "wlp.json" + FeatureIndex.INDEX_SUFFIX);
+        FeatureIndex index = FeatureIndex.load(json);
+        assertTrue(indexFile.exists());
+        assertEquals(new HashSet<String>(Arrays.asList("adminCenter-1.0", "com.ibm.websphere.appserver.adminCenter.collectiveController-1.0")),
+                index.getArtifactIds("com.ibm.websphere.appserver.features"));
+
+        // an index file for a different checksum is ignored and rewritten
+        File copy = new File(temp.newFolder("copy"), "wlp.json");
+        Files.write(copy.toPath(), "[]".getBytes(StandardCharsets.UTF_8));
+        File copyIndexFile = new File(copy.getParentFile(), "wlp.json" + FeatureIndex.INDEX_SUFFIX);
+        Files.copy(indexFile.toPath(), copyIndexFile.toPath());
+        assertTrue(FeatureIndex.load(copy).getFeatures().isEmpty());
+    }
+
+    @Test
+    public void testCombinedIndex() throws Exception {
+        List<File> jsons = Arrays.asList(new File(jsonsDir, "ol.json"), new File(jsonsDir, "wlp.json"),
+                new File(jsonsDir, "other.json"));
+        FeatureIndex index = FeatureIndex.load(jsons);
+        assertEquals(5, index.getFeatures().size());
+        assertEquals(2, index.getArtifactIds(InstallFeatureUtil.OPEN_LIBERTY_GROUP_ID).size());
+        assertTrue(index.contains("adminCenter-1.0"));
+        assertFalse(index.contains("servlet-4.0"));
+    }
+
+    @Test
+    public void testClosure() throws Exception {
+        File json = new File(jsonsDir, "closure.json");
+        String content = "[" + feature("a-1.0", "a-1.0", "\"com.example.b-1.0\"") + ","
+                + feature("com.example.b-1.0", null, "\"com.example.c-1.0\", \"com.example.missing-1.0\"") + ","
+                + feature("com.example.c-1.0", null, "\"com.example.b-1.0\"") + ","
+                + feature("d-1.0", "d-1.0", "") + "]";
+        Files.write(json.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+        Map<String, FeatureIndex.Feature> closure = FeatureIndex.load(json).getClosure(Arrays.asList("A-1.0", "unknown-1.0"));
+        assertEquals(3, closure.size());
+        assertTrue(closure.containsKey("com.example.a-1.0"));
+        assertTrue(closure.containsKey("com.example.b-1.0"));
+        assertTrue(closure.containsKey("com.example.c-1.0"));
+    }
+
+    private static String feature(String name, String shortName, String requires) {
+        String symbolicName = name.startsWith("com.") ? name : "com.example." + name;
+        return "{\"name\": \"" + symbolicName + "\", \"wlpInformation\": {"
+                + (shortName != null ? "\"shortName\": \"" + shortName + "\", " : "")
+                + "\"provideFeature\": [\"" + symbolicName + "\"], "
+                + "\"mavenCoordinates\": \"io.openliberty.features:" + (shortName != null ? shortName : symbolicName) + ":21.0.0.1\", "
+                + "\"requireFeature\": [" + requires + "]}}";
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FeatureResolutionCacheTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void testKey() throws Exception {
+        File json = temp.newFile("features.json");
+        Files.write(json.toPath(), "[]".getBytes(StandardCharsets.UTF_8));
+        List<File> jsons = Collections.singletonList(json);
+
+        String key = FeatureResolutionCache.getKey(Arrays.asList("jaxrs-2.1", "JSONP-1.1"), jsons, "21.0.0.1", null, null);
+        assertEquals(key, FeatureResolutionCache.getKey(Arrays.asList("jsonp-1.1", "jaxrs-2.1"), jsons, "21.0.0.1", null, null));
+        assertNotEquals(key, FeatureResolutionCache.getKey(Arrays.asList("jaxrs-2.1"), jsons, "21.0.0.1", null, null));
+        assertNotEquals(key, FeatureResolutionCache.getKey(Arrays.asList("jaxrs-2.1", "jsonp-1.1"), jsons, "21.0.0.2", null, null));
+        assertNotEquals(key, FeatureResolutionCache.getKey(Arrays.asList("jaxrs-2.1", "jsonp-1.1"), jsons, "21.0.0.1", "resolver.jar;bundle", null));
+        assertNotEquals(key, FeatureResolutionCache.getKey(Arrays.asList("jaxrs-2.1", "jsonp-1.1"), jsons, "21.0.0.1", null, "ext"));
+
+        Files.write(json.toPath(), "[ ]".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(key, FeatureResolutionCache.getKey(Arrays.asList("jaxrs-2.1", "jsonp-1.1"), jsons, "21.0.0.1", null, null));
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        File cacheFile = new File(temp.getRoot(), "usr/tmp/featureResolution.properties");
+        FeatureResolutionCache cache = new FeatureResolutionCache(cacheFile);
+        assertNull(cache.get("key"));
+
+        List<String> coordinates = Arrays.asList("io.openliberty.features:jaxrs-2.1:21.0.0.1",
+                "io.openliberty.features:jsonp-1.1:21.0.0.1");
+        cache.put("key", new FeatureResolutionCache.Entry(coordinates, false, "runtime1"));
+
+        // read back through a new instance to check it was persisted
+        FeatureResolutionCache.Entry entry = new FeatureResolutionCache(cacheFile).get("key");
+        assertEquals(coordinates, entry.getResolvedFeatures());
+        assertFalse(entry.isInstalled());
+        assertEquals("runtime1", entry.getRuntimeFingerprint());
+
+        cache.put("key", new FeatureResolutionCache.Entry(Collections.<String>emptyList(), true, "runtime2"));
+        entry = cache.get("key");
+        assertTrue(entry.getResolvedFeatures().isEmpty());
+        assertTrue(entry.isInstalled());
+        assertEquals("runtime2", entry.getRuntimeFingerprint());
+
+        cache.remove("key");
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void testRuntimeFingerprint() throws Exception {
+        File installDir = temp.newFolder("wlp");
+        File featuresDir = new File(installDir, "lib/features");
+        featuresDir.mkdirs();
+        File manifest = new File(featuresDir, "com.ibm.websphere.appserver.jaxrs-2.1.mf");
+        Files.write(manifest.toPath(), "Manifest-Version: 1.0".getBytes(StandardCharsets.UTF_8));
+
+        String fingerprint = FeatureResolutionCache.getRuntimeFingerprint(installDir);
+        assertEquals(fingerprint, FeatureResolutionCache.getRuntimeFingerprint(installDir));
+
+        Files.write(new File(featuresDir, "io.openliberty.jsonp-1.1.mf").toPath(),
+                "Manifest-Version: 1.0".getBytes(StandardCharsets.UTF_8));
+        String added = FeatureResolutionCache.getRuntimeFingerprint(installDir);
+        assertNotEquals(fingerprint, added);
+
+        manifest.setLastModified(manifest.lastModified() - 10000);
+        assertNotEquals(added, FeatureResolutionCache.getRuntimeFingerprint(installDir));
+    }
+}
@@ -0,0 +1,456 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import io.openliberty.tools.common.plugins.util.InstallFeatureUtil.ProductProperties;
+
+/**
+ * Tests installFeatures against a fake install map
+ */
+public class InstallFeatureUtilInstallTest extends BaseInstallFeatureUtilTest {
+
+    private static final File OL_JSON = new File(RESOURCES_DIR, "jsons/ol.json");
+
+    private List<ProductProperties> propertiesList;
+    private String openLibertyVersion;
+    private InstallFeatureFakeUtil util;
+
+    @Before
+    public void setupUtil() throws Exception {
+        propertiesList = InstallFeatureUtil.loadProperties(installDir);
+        openLibertyVersion = InstallFeatureUtil.getOpenLibertyVersion(propertiesList);
+        util = new InstallFeatureFakeUtil(installDir, propertiesList, openLibertyVersion);
+        util.setResolutionCache(null);
+        util.setArtifactCache(null);
+    }
+
+    @Test
+    public void testInstallMapReused() throws Exception {
+        util.installFeatures(true, Arrays.asList("a"));
+        util.installFeatures(true, Arrays.asList("b"));
+
+        assertEquals(1, util.installMaps.size());
+        assertEquals(1, util.loaders.size());
+        assertEquals(Arrays.asList("a", "b"), util.installMaps.get(0).installed);
+
+        ClassLoader loader = util.loaders.get(0);
+        util.close();
+        assertTrue(util.installMaps.get(0).isEmpty());
+
+        // a closed utility loads a new install map on the next call
+        util.installFeatures(true, Arrays.asList("c"));
+        assertEquals(2, util.installMaps.size());
+        assertEquals(2, util.loaders.size());
+        assertTrue(loader != util.loaders.get(1));
+        util.close();
+    }
+
+    @Test
+    public void testInstallMapDiscardedAfterError() throws Exception {
+        util.installFeatures(true, Arrays.asList("a"));
+        FakeInstallMap installMap = util.installMaps.get(0);
+        installMap.failingFeatures.add("bad");
+        try {
+            util.installFeatures(true, Arrays.asList("bad"));
+            fail("Expected PluginExecutionException");
+        } catch (PluginExecutionException e) {
+            assertEquals("CWWKF1234E: Could not install bad", e.getMessage());
+        }
+        assertTrue(installMap.isEmpty());
+
+        util.installFeatures(true, Arrays.asList("b"));
+        assertEquals(2, util.installMaps.size());
+        assertEquals(Arrays.asList("b"), util.installMaps.get(1).installed);
+        util.close();
+    }
+
+    @Test
+    public void testConcurrentDownloads() throws Exception {
+        final CountDownLatch abStarted = new CountDownLatch(2);
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        util = new InstallFeatureFakeUtil(installDir, propertiesList, openLibertyVersion) {
+            @Override
+            File downloadEsa(String artifactId) throws Exception {
+                int running = active.incrementAndGet();
+                synchronized (maxActive) {
+                    maxActive.set(Math.max(maxActive.get(), running));
+                }
+                try {
+                    if ("a".equals(artifactId) || "b".equals(artifactId)) {
+                        // only completes if a and b are downloaded at the same time
+                        abStarted.countDown();
+                        assertTrue(abStarted.await(10, TimeUnit.SECONDS));
+                    }
+                    return super.downloadEsa(artifactId);
+                } finally {
+                    active.decrementAndGet();
+                }
+            }
+        };
+        util.setResolutionCache(null);
+        util.setArtifactCache(null);
+        util.setDownloadConcurrency(2);
+
+        util.installFeatures(true, Arrays.asList("a", "b", "c", "d"));
+        assertEquals(Arrays.asList("a", "b", "c", "d"), util.installMaps.get(0).installed);
+        assertEquals(2, maxActive.get());
+        util.close();
+    }
+
+    @Test
+    public void testDownloadRetry() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        util = new InstallFeatureFakeUtil(installDir, propertiesList, openLibertyVersion) {
+            @Override
+            File downloadEsa(String artifactId) throws Exception {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new PluginExecutionException("Could not download " + artifactId);
+                }
+                return super.downloadEsa(artifactId);
+            }
+        };
+        util.setResolutionCache(null);
+        util.setArtifactCache(null);
+
+        // failed downloads are not retried by default
+        try {
+            util.installFeatures(true, Arrays.asList("a"));
+            fail("Expected PluginExecutionException");
+        } catch (PluginExecutionException e) {
+            assertEquals("Could not download a", e.getMessage());
+        }
+        assertEquals(1, attempts.get());
+
+        attempts.set(0);
+        util.setDownloadRetries(1);
+        util.installFeatures(true, Arrays.asList("a"));
+        assertEquals(2, attempts.get());
+        assertEquals(Arrays.asList("a"), util.installMaps.get(1).installed);
+        util.close();
+    }
+
+    @Test
+    public void testDownloadFailureCancelsRemainingDownloads() throws Exception {
+        final CountDownLatch bStarted = new CountDownLatch(1);
+        final CountDownLatch bInterrupted = new CountDownLatch(1);
+        final AtomicBoolean dStarted = new AtomicBoolean();
+        util = new InstallFeatureFakeUtil(installDir, propertiesList, openLibertyVersion) {
+            @Override
+            File downloadEsa(String artifactId) throws Exception {
+                if ("a".equals(artifactId)) {
+                    bStarted.await(10, TimeUnit.SECONDS);
+                    throw new PluginExecutionException("Could not download a");
+                } else if ("d".equals(artifactId)) {
+                    dStarted.set(true);
+                    return super.downloadEsa(artifactId);
+                }
+                if ("b".equals(artifactId)) {
+                    bStarted.countDown();
+                }
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    if ("b".equals(artifactId)) {
+                        bInterrupted.countDown();
+                    }
+                    throw e;
+                }
+                return super.downloadEsa(artifactId);
+            }
+        };
+        util.setResolutionCache(null);
+        util.setArtifactCache(null);
+        util.setDownloadConcurrency(2);
+
+        try {
+            util.installFeatures(true, Arrays.asList("a", "b", "c", "d"));
+            fail("Expected PluginExecutionException");
+        } catch (PluginExecutionException e) {
+            assertEquals("Could not download a", e.getMessage());
+        }
+        assertTrue(bInterrupted.await(10, TimeUnit.SECONDS));
+        assertFalse(dStarted.get());
+        assertTrue(util.installMaps.get(0).installed.isEmpty());
+    }
+
+    @Test
+    public void testBatchInstallOffByDefault() throws Exception {
+        util.batchSupport = BatchSupport.INSTALL;
+        util.installFeatures(true, Arrays.asList("a", "b"));
+        FakeInstallMap installMap = util.installMaps.get(0);
+        assertEquals(Arrays.asList("a", "b"), installMap.installed);
+        assertEquals(2, installMap.installCalls);
+        assertTrue(util.messages.contains("Installed a"));
+        assertTrue(util.messages.contains("Installed b"));
+        util.close();
+    }
+
+    @Test
+    public void testBatchInstall() throws Exception {
+        util.batchSupport = BatchSupport.INSTALL;
+        util.setBatchInstall(true);
+        util.installFeatures(true, Arrays.asList("a", "b"));
+        FakeInstallMap installMap = util.installMaps.get(0);
+        assertEquals(Arrays.asList("a", "b"), installMap.installed);
+        assertEquals(1, installMap.installCalls);
+        assertTrue(util.messages.contains("Installed a"));
+        assertTrue(util.messages.contains("Installed b"));
+        util.close();
+    }
+
+    @Test
+    public void testBatchInstallUnsupported() throws Exception {
+        util.batchSupport = BatchSupport.NONE;
+        util.setBatchInstall(true);
+        util.installFeatures(true, Arrays.asList("a", "b"));
+        FakeInstallMap installMap = util.installMaps.get(0);
+        assertEquals(Arrays.asList("a", "b"), installMap.installed);
+        // the rejected list and then one call for each ESA
+        assertEquals(3, installMap.installCalls);
+        assertTrue(util.messages.contains("Installed a"));
+        assertTrue(util.messages.contains("Installed b"));
+        util.close();
+    }
+
+    @Test
+    public void testBatchInstallError() throws Exception {
+        util.batchSupport = BatchSupport.ERROR;
+        util.setBatchInstall(true);
+        util.installFeatures(true, Arrays.asList("a", "b"));
+        FakeInstallMap installMap = util.installMaps.get(0);
+        assertEquals(Arrays.asList("a", "b"), installMap.installed);
+        assertEquals(3, installMap.installCalls);
+        util.close();
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> downloadThreads = Collections.synchronizedList(new ArrayList<String>());
+        util = new InstallFeatureFakeUtil(installDir, propertiesList, openLibertyVersion) {
+            @Override
+            File downloadEsa(String artifactId) throws Exception {
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+                downloadThreads.add(Thread.currentThread().getName());
+                return super.downloadEsa(artifactId);
+            }
+        };
+        util.setResolutionCache(new FeatureResolutionCache(new File(installDir, "usr/tmp/featureResolution.properties")));
+        util.setArtifactCache(null);
+
+        // returns while the downloads are blocked
+        util.prefetchFeatures(Arrays.asList("a", "b"));
+        release.countDown();
+        util.awaitPrefetch();
+        FakeInstallMap installMap = util.installMaps.get(0);
+        assertEquals(1, installMap.resolveCalls);
+        assertTrue(installMap.installed.isEmpty());
+        assertEquals(2, downloadThreads.size());
+        for (String thread : downloadThreads) {
+            assertTrue(thread, thread.startsWith("liberty-"));
+        }
+
+        // the install uses the resolution from the prefetch
+        util.installFeatures(true, Arrays.asList("b", "a"));
+        assertEquals(1, installMap.resolveCalls);
+        assertEquals(Arrays.asList("a", "b"), installMap.installed);
+        util.close();
+    }
+
+    @Test
+    public void testPrefetchFailureIgnored() throws Exception {
+        final AtomicInteger attempts = new AtomicInteger();
+        util = new InstallFeatureFakeUtil(installDir, propertiesList, openLibertyVersion) {
+            @Override
+            File downloadEsa(String artifactId) throws Exception {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new PluginExecutionException("Could not download " + artifactId);
+                }
+                return super.downloadEsa(artifactId);
+            }
+        };
+        util.setResolutionCache(null);
+        util.setArtifactCache(null);
+        util.setDownloadConcurrency(1);
+
+        util.prefetchFeatures(Arrays.asList("a"));
+        // waits for the failed prefetch, then downloads the ESA again
+        util.installFeatures(true, Arrays.asList("a"));
+        assertEquals(2, attempts.get());
+        assertEquals(Arrays.asList("a"), util.installMaps.get(0).installed);
+        util.close();
+    }
+
+    /**
+     * How the fake install map handles a list of ESAs for action.install
+     */
+    enum BatchSupport {
+        // reject the list like install maps that only accept one file
+        NONE,
+        INSTALL,
+        // report an install error without installing anything
+        ERROR
+    }
+
+    /**
+     * An install map that resolves each feature to one ESA and records the
+     * installed features
+     */
+    static class FakeInstallMap extends HashMap<String, Object> {
+        private static final long serialVersionUID = 1L;
+
+        private final File installDirectory;
+        final List<String> installed = new ArrayList<String>();
+        final Set<String> failingFeatures = new HashSet<String>();
+        private final BatchSupport batchSupport;
+        int installCalls;
+        int resolveCalls;
+
+        FakeInstallMap(File installDirectory, BatchSupport batchSupport) {
+            this.installDirectory = installDirectory;
+            this.batchSupport = batchSupport;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object put(String key, Object value) {
+            super.remove("action.error.message");
+            if ("features.to.resolve".equals(key)) {
+                resolveCalls++;
+                List<String> coordinates = new ArrayList<String>();
+                for (Object feature : (Collection<?>) value) {
+                    coordinates.add("io.openliberty.features:" + feature + ":21.0.0.1");
+                }
+                return super.put("action.result", coordinates);
+            }
+            if ("action.install".equals(key)) {
+                installCalls++;
+                if (value instanceof File) {
+                    return install((File) value);
+                }
+                if (batchSupport == BatchSupport.NONE) {
+                    throw new IllegalArgumentException("action.install requires a file");
+                }
+                if (batchSupport == BatchSupport.ERROR) {
+                    super.put("action.error.message", "CWWKF1234E: Could not install the ESAs");
+                    return super.put("action.result", 1);
+                }
+                List<String> results = new ArrayList<String>();
+                for (Object esa : (List<?>) value) {
+                    install((File) esa);
+                    results.addAll((Collection<String>) get("action.install.result"));
+                }
+                super.put("action.install.result", results);
+                return super.put("action.result", 0);
+            }
+            return super.put(key, value);
+        }
+
+        private Object install(File esa) {
+            String feature = esa.getName().substring(0, esa.getName().lastIndexOf('.'));
+            if (failingFeatures.contains(feature)) {
+                super.put("action.error.message", "CWWKF1234E: Could not install " + feature);
+                return super.put("action.result", 1);
+            }
+            try {
+                // the product validator checks the checksum files written by the install
+                File checksum = new File(installDirectory, "lib/features/checksums/" + feature + ".cs");
+                checksum.getParentFile().mkdirs();
+                checksum.createNewFile();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            installed.add(feature);
+            super.put("action.install.result", Arrays.asList(feature));
+            return super.put("action.result", 0);
+        }
+    }
+
+    public class InstallFeatureFakeUtil extends InstallFeatureTestUtil {
+        final List<FakeInstallMap> installMaps = new ArrayList<FakeInstallMap>();
+        final List<ClassLoader> loaders = new ArrayList<ClassLoader>();
+        final List<String> messages = new ArrayList<String>();
+        BatchSupport batchSupport = BatchSupport.NONE;
+
+        public InstallFeatureFakeUtil(File installDirectory, List<ProductProperties> propertiesList,
+                String openLibertyVersion) throws PluginScenarioException, PluginExecutionException {
+            super(installDirectory, null, null, new HashSet<String>(), propertiesList, openLibertyVersion);
+        }
+
+        @Override
+        Map<String, Object> loadInstallMap(ClassLoader loader) {
+            FakeInstallMap installMap = new FakeInstallMap(installDir, batchSupport);
+            installMaps.add(installMap);
+            loaders.add(loader);
+            return installMap;
+        }
+
+        @Override
+        public void info(String msg) {
+            messages.add(msg);
+        }
+
+        File downloadEsa(String artifactId) throws Exception {
+            File esa = new File(temp.getRoot(), artifactId + ".esa");
+            esa.createNewFile();
+            return esa;
+        }
+
+        @Override
+        public File downloadArtifact(String groupId, String artifactId, String type, String version)
+                throws PluginExecutionException {
+            if ("json".equals(type)) {
+                return OL_JSON;
+            }
+            if ("esa".equals(type)) {
+                try {
+                    return downloadEsa(artifactId);
+                } catch (PluginExecutionException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new PluginExecutionException(e);
+                }
+            }
+            throw new PluginExecutionException("Could not find " + groupId + ":" + artifactId);
+        }
+    }
+
+}
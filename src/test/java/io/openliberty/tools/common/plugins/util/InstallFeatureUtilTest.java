@@ -26,6 +26,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
 import io.openliberty.tools.common.plugins.util.InstallFeatureUtil;
@@ -228,10 +229,13 @@ public class InstallFeatureUtilTest extends BaseInstallFeatureUtilTest {
     
     @Test
     public void testGetLibertyFeatureSet() throws Exception {
+        // copy the JSONs since their feature indexes are written next to them
+        File jsonsDir = temp.newFolder("jsons");
+        FileUtils.copyDirectory(new File(RESOURCES_DIR, "jsons"), jsonsDir);
         Set<File> jsons = new HashSet<File>();
-        jsons.add(new File(RESOURCES_DIR, "jsons/ol.json"));
-        jsons.add(new File(RESOURCES_DIR, "jsons/wlp.json"));
-        jsons.add(new File(RESOURCES_DIR, "jsons/other.json"));
+        jsons.add(new File(jsonsDir, "ol.json"));
+        jsons.add(new File(jsonsDir, "wlp.json"));
+        jsons.add(new File(jsonsDir, "other.json"));
         
         Set<String> features = InstallFeatureUtil.getOpenLibertyFeatureSet(jsons);
         
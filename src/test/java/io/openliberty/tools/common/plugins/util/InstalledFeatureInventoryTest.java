@@ -0,0 +1,113 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InstalledFeatureInventoryTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File installDir;
+    private File featuresDir;
+
+    @Before
+    public void setupInstallDir() throws IOException {
+        installDir = temp.newFolder("wlp");
+        featuresDir = new File(installDir, "lib/features");
+        featuresDir.mkdirs();
+        writeManifest(featuresDir, "com.ibm.websphere.appserver.jaxrs-2.1", "jaxrs-2.1",
+                "com.ibm.websphere.appserver.jaxrsClient-2.1; type=\"osgi.subsystem.feature\",\n"
+                        + " com.ibm.websphere.appserver.servlet-4.0; type=\"osgi.subsystem.feature\"; ibm.tolerates:=\"3.1,5.0\",\n"
+                        + " com.ibm.ws.jaxrs.2.1.common; version=\"[1,1.0.100)\"");
+        writeManifest(featuresDir, "com.ibm.websphere.appserver.jaxrsClient-2.1", null,
+                "com.ibm.ws.jaxrs.2.1.client; version=\"[1,1.0.100)\"");
+        writeManifest(featuresDir, "com.ibm.websphere.appserver.servlet-3.1", "servlet-3.1", null);
+    }
+
+    @Test
+    public void testReadManifest() throws Exception {
+        InstalledFeatureInventory.InstalledFeature feature = InstalledFeatureInventory
+                .readManifest(new File(featuresDir, "com.ibm.websphere.appserver.jaxrs-2.1.mf"));
+        assertEquals("com.ibm.websphere.appserver.jaxrs-2.1", feature.getSymbolicName());
+        assertEquals("jaxrs-2.1", feature.getShortName());
+        assertEquals(2, feature.getDependencies().size());
+        FeatureIndex.Dependency servlet = feature.getDependencies().get(1);
+        assertEquals("com.ibm.websphere.appserver.servlet-4.0", servlet.getSymbolicName());
+        assertEquals(Arrays.asList("3.1", "5.0"), servlet.getToleratedVersions());
+    }
+
+    @Test
+    public void testContainsAll() throws Exception {
+        InstalledFeatureInventory inventory = InstalledFeatureInventory.load(installDir);
+        assertTrue(inventory.isInstalled("JAXRS-2.1"));
+        assertTrue(inventory.isInstalled("com.ibm.websphere.appserver.jaxrsClient-2.1"));
+        // servlet-4.0 is missing, but the tolerated servlet-3.1 is installed
+        assertTrue(inventory.containsAll(Arrays.asList("jaxrs-2.1", "servlet-3.1")));
+        assertEquals(Collections.singleton("jsonp-1.1"), inventory.getMissingFeatures(Arrays.asList("jaxrs-2.1", "jsonp-1.1")));
+    }
+
+    @Test
+    public void testMissingDependency() throws Exception {
+        new File(featuresDir, "com.ibm.websphere.appserver.jaxrsClient-2.1.mf").delete();
+        InstalledFeatureInventory inventory = InstalledFeatureInventory.load(installDir);
+        assertFalse(inventory.containsAll(Collections.singleton("jaxrs-2.1")));
+        assertEquals(Collections.singleton("com.ibm.websphere.appserver.jaxrsClient-2.1"),
+                inventory.getMissingFeatures(Collections.singleton("jaxrs-2.1")));
+    }
+
+    @Test
+    public void testUserFeatures() throws Exception {
+        File usrFeaturesDir = new File(installDir, "usr/extension/lib/features");
+        usrFeaturesDir.mkdirs();
+        writeManifest(usrFeaturesDir, "com.example.myFeature-1.0", "myFeature-1.0",
+                "com.ibm.websphere.appserver.servlet-3.1; type=\"osgi.subsystem.feature\"");
+        InstalledFeatureInventory inventory = InstalledFeatureInventory.load(installDir);
+        assertNotNull(inventory.getFeature("usr:myFeature-1.0"));
+        assertFalse(inventory.isInstalled("usr:servlet-3.1"));
+        assertTrue(inventory.containsAll(Collections.singleton("usr:myFeature-1.0")));
+    }
+
+    private static void writeManifest(File dir, String symbolicName, String shortName, String content) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Manifest-Version: 1.0\n");
+        sb.append("Subsystem-SymbolicName: ").append(symbolicName).append("; visibility:=public; singleton:=true\n");
+        if (shortName != null) {
+            sb.append("IBM-ShortName: ").append(shortName).append('\n');
+        }
+        if (content != null) {
+            sb.append("Subsystem-Content: ").append(content).append('\n');
+        }
+        sb.append("Subsystem-Type: osgi.subsystem.feature\n");
+        Files.write(new File(dir, symbolicName + ".mf").toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
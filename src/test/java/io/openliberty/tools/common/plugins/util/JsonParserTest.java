@@ -0,0 +1,62 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class JsonParserTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testParse() throws Exception {
+        Map<String, Object> object = (Map<String, Object>) JsonParser
+                .parse("{ \"name\": \"a\\\"b\\u0041\", \"list\": [1, -2.5e1, true, false, null], \"empty\": {} }");
+        assertEquals("a\"bA", object.get("name"));
+        List<Object> list = (List<Object>) object.get("list");
+        assertEquals(new BigDecimal("1"), list.get(0));
+        assertEquals(-25, ((BigDecimal) list.get(1)).intValue());
+        assertEquals(Boolean.TRUE, list.get(2));
+        assertEquals(Boolean.FALSE, list.get(3));
+        assertNull(list.get(4));
+        assertEquals(0, ((Map<String, Object>) object.get("empty")).size());
+        assertEquals(Arrays.asList("name", "list", "empty"), Arrays.asList(object.keySet().toArray()));
+    }
+
+    @Test
+    public void testQuote() throws Exception {
+        String value = "tab\there \"quoted\" back\\slash\n";
+        assertEquals(value, JsonParser.parse(JsonParser.quote(value)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnterminated() throws Exception {
+        JsonParser.parse("[1, 2");
+    }
+
+    @Test(expected = IOException.class)
+    public void testTrailingContent() throws Exception {
+        JsonParser.parse("{} {}");
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class LogPumpTest {
+
+    private static class CollectingHandler implements LogPump.LineHandler {
+        private final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+
+        @Override
+        public void handleLines(List<String> batch) {
+            lines.addAll(batch);
+        }
+    }
+
+    @Test
+    public void testPumpProcessStreams() throws Exception {
+        Assume.assumeFalse(OSUtil.isWindows());
+        Process process = new ProcessBuilder("sh", "-c",
+                "echo line one; echo error one >&2; sleep 0.2; printf 'line two\\r\\nno newline'; echo error two >&2").start();
+        CollectingHandler output = new CollectingHandler();
+        CollectingHandler error = new CollectingHandler();
+        LogPump pump = new LogPump();
+        LogPump.Handle outputHandle = pump.pump(process.getInputStream(), process, output);
+        LogPump.Handle errorHandle = pump.pump(process.getErrorStream(), process, error);
+
+        assertTrue(outputHandle.await(30, TimeUnit.SECONDS));
+        assertTrue(errorHandle.await(30, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("line one", "line two", "no newline"), output.lines);
+        assertEquals(Arrays.asList("error one", "error two"), error.lines);
+        assertEquals("error one", errorHandle.getFirstLine());
+    }
+
+    @Test
+    public void testManyProcesses() throws Exception {
+        Assume.assumeFalse(OSUtil.isWindows());
+        LogPump pump = new LogPump();
+        List<LogPump.Handle> handles = new ArrayList<LogPump.Handle>();
+        List<CollectingHandler> handlers = new ArrayList<CollectingHandler>();
+        for (int i = 0; i < 5; i++) {
+            Process process = new ProcessBuilder("sh", "-c", "i=0; while [ $i -lt 2000 ]; do echo line $i; i=$((i+1)); done").start();
+            CollectingHandler handler = new CollectingHandler();
+            handlers.add(handler);
+            handles.add(pump.pump(process.getInputStream(), process, handler));
+        }
+        for (int i = 0; i < handles.size(); i++) {
+            assertTrue(handles.get(i).await(60, TimeUnit.SECONDS));
+            List<String> lines = handlers.get(i).lines;
+            assertEquals(2000, lines.size());
+            assertEquals("line 0", lines.get(0));
+            assertEquals("line 1999", lines.get(1999));
+        }
+    }
+
+    @Test
+    public void testPatternMatcher() {
+        final List<String> matches = new ArrayList<String>();
+        LogPatternMatcher.Listener listener = new LogPatternMatcher.Listener() {
+            @Override
+            public void matched(String code, String line) {
+                matches.add(code);
+            }
+        };
+        LogPatternMatcher matcher = new LogPatternMatcher().register("JVMCFRE003", listener)
+                .register("CWWKF0001E", listener).register("CWWKF0011I:", listener);
+
+        assertFalse(matcher.match("[AUDIT   ] CWWKE0001I: The server defaultServer has been launched."));
+        assertTrue(matcher.match("[ERROR   ] CWWKF0001E: A feature definition could not be found for jaxrs-2.1"));
+        assertTrue(matcher.match("CWWKF0001E CWWKF0001E JVMCFRE003 bad major version"));
+        assertTrue(matcher.match("[AUDIT   ] CWWKF0011I: The defaultServer server is ready to run a smarter planet."));
+        assertEquals(Arrays.asList("CWWKF0001E", "CWWKF0001E", "JVMCFRE003", "CWWKF0011I:"), matches);
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProductValidatorTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File installDir;
+    private File checksumsDir;
+
+    @Before
+    public void setupInstallDir() throws IOException {
+        installDir = temp.newFolder("wlp");
+        FileUtils.copyDirectory(new File(BaseInstallFeatureUtilTest.RESOURCES_DIR, "installdir"), installDir);
+        checksumsDir = new File(installDir, "lib/features/checksums");
+        checksumsDir.mkdirs();
+    }
+
+    @Test
+    public void testValid() throws Exception {
+        File jar = writeFile("lib/com.example.bundle_1.0.jar", "bundle");
+        writeFile("lib/features/checksums/com.example.feature-1.0.cs", "lib/com.example.bundle_1.0.jar="
+                + ChecksumUtil.checksum(jar, ChecksumUtil.MD5) + "," + ChecksumUtil.sha256(jar) + "\n");
+
+        ProductValidator.Result result = new ProductValidator(installDir).validate(0);
+        assertTrue(result.isSupported());
+        assertTrue(result.getErrors().toString(), result.isValid());
+        assertEquals(2, result.getValidatedFileCount());
+    }
+
+    @Test
+    public void testModifiedAndMissingFiles() throws Exception {
+        File jar = writeFile("lib/com.example.bundle_1.0.jar", "bundle");
+        writeFile("lib/features/checksums/com.example.feature-1.0.cs", "lib/com.example.bundle_1.0.jar="
+                + ChecksumUtil.checksum(jar, ChecksumUtil.MD5) + "\nlib/com.example.missing_1.0.jar="
+                + ChecksumUtil.checksum(jar, ChecksumUtil.MD5) + "\n");
+        writeFile("lib/com.example.bundle_1.0.jar", "changed");
+
+        ProductValidator.Result result = new ProductValidator(installDir).validate(0);
+        assertTrue(result.isSupported());
+        assertFalse(result.isValid());
+        assertEquals(2, result.getErrors().size());
+    }
+
+    @Test
+    public void testOnlyModifiedChecksumFiles() throws Exception {
+        File old = writeFile("lib/features/checksums/com.example.old-1.0.cs", "lib/com.example.missing_1.0.jar="
+                + ChecksumUtil.sha256("missing") + "\n");
+        old.setLastModified(System.currentTimeMillis() - 60000);
+        File jar = writeFile("lib/com.example.bundle_1.0.jar", "bundle");
+        writeFile("lib/features/checksums/com.example.feature-1.0.cs",
+                "lib/com.example.bundle_1.0.jar=" + ChecksumUtil.sha256(jar) + "\n");
+
+        ProductValidator.Result result = new ProductValidator(installDir).validate(System.currentTimeMillis() - 10000);
+        assertTrue(result.getErrors().toString(), result.isValid());
+        assertEquals(1, result.getValidatedFileCount());
+    }
+
+    @Test
+    public void testUnsupportedLayouts() throws Exception {
+        writeFile("lib/features/checksums/com.example.feature-1.0.cs", "lib/com.example.bundle_1.0.jar=notachecksum\n");
+        assertFalse(new ProductValidator(installDir).validate(0).isSupported());
+
+        // no checksum files changed since the install started
+        FileUtils.deleteDirectory(checksumsDir);
+        assertFalse(new ProductValidator(installDir).validate(System.currentTimeMillis()).isSupported());
+
+        // no product properties
+        FileUtils.deleteDirectory(new File(installDir, "lib/versions"));
+        assertFalse(new ProductValidator(installDir).validate(0).isSupported());
+    }
+
+    private File writeFile(String path, String content) throws IOException {
+        File file = new File(installDir, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
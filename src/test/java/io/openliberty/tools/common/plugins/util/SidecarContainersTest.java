@@ -0,0 +1,205 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.openliberty.tools.common.plugins.util.AbstractContainerSupportUtil.OutputLineHandler;
+import io.openliberty.tools.common.plugins.util.SidecarContainers.Sidecar;
+
+public class SidecarContainersTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * Containers that take a while to start and become ready after a delay
+     */
+    private static class FakeDocker implements SidecarContainers.Docker {
+        private final long runMillis;
+        private final long readyMillis;
+        private final Map<String, Long> startTimes = new ConcurrentHashMap<String, Long>();
+        private final List<String> commands = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> removed = Collections.synchronizedList(new ArrayList<String>());
+        private volatile boolean exits;
+
+        private FakeDocker(long runMillis, long readyMillis) {
+            this.runMillis = runMillis;
+            this.readyMillis = readyMillis;
+        }
+
+        @Override
+        public void run(String command) throws PluginExecutionException {
+            commands.add(command);
+            try {
+                Thread.sleep(runMillis);
+            } catch (InterruptedException e) {
+                throw new PluginExecutionException(e);
+            }
+            startTimes.put(command.split(" ")[5], System.currentTimeMillis());
+        }
+
+        private boolean isReady(String containerName) {
+            Long start = startTimes.get(containerName);
+            return start != null && System.currentTimeMillis() - start >= readyMillis;
+        }
+
+        @Override
+        public ContainerMetadata inspect(String containerName) {
+            if (exits || !startTimes.containsKey(containerName)) {
+                return null;
+            }
+            String health = containerName.endsWith("-health")
+                    ? ", \"Health\": {\"Status\": \"" + (isReady(containerName) ? "healthy" : "starting") + "\"}" : "";
+            try {
+                return ContainerMetadata.fromInspect(JsonParser.parse("{\"Id\": \"1\", \"Name\": \"/" + containerName
+                        + "\", \"State\": {\"Running\": true" + health + "}}"));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void followLogs(String containerName, OutputLineHandler handler) {
+            boolean written = false;
+            // the output ends when the container is removed
+            while (startTimes.containsKey(containerName)) {
+                if (!written && isReady(containerName)) {
+                    handler.handleLine("LOG: ready to accept connections");
+                    written = true;
+                }
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void remove(String containerName) {
+            removed.add(containerName);
+            startTimes.remove(containerName);
+        }
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        File file = temp.newFile("sidecars.json");
+        Files.write(file.toPath(), ("[{\"name\": \"db\", \"image\": \"postgres:13\", \"options\": \"-e POSTGRES_PASSWORD=dev\","
+                + " \"readyMessage\": \"ready to accept connections\"},"
+                + " {\"name\": \"broker\", \"image\": \"rabbitmq:3\", \"command\": \"rabbitmq-server\"}]").getBytes("UTF-8"));
+        List<Sidecar> sidecars = SidecarContainers.load(file);
+        assertEquals(2, sidecars.size());
+        assertEquals("ready to accept connections", sidecars.get(0).getReadyMessage());
+        assertNull(sidecars.get(1).getReadyMessage());
+        assertEquals("docker run -d --rm --name app-db --network app-dev-network --network-alias db -e POSTGRES_PASSWORD=dev postgres:13",
+                sidecars.get(0).getRunCommand("app-db", "app-dev-network"));
+        assertEquals("docker run -d --rm --name app-broker --network net --network-alias broker rabbitmq:3 rabbitmq-server",
+                sidecars.get(1).getRunCommand("app-broker", "net"));
+
+        for (String invalid : Arrays.asList("{}", "[{\"image\": \"postgres\"}]", "[{\"name\": \"db\"}]",
+                "[{\"name\": \"db x\", \"image\": \"postgres\"}]",
+                "[{\"name\": \"db\", \"image\": \"postgres\"}, {\"name\": \"db\", \"image\": \"mysql\"}]")) {
+            Files.write(file.toPath(), invalid.getBytes("UTF-8"));
+            try {
+                SidecarContainers.load(file);
+                fail("Expected an IOException for " + invalid);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testStartsInParallel() throws Exception {
+        FakeDocker docker = new FakeDocker(500, 500);
+        SidecarContainers sidecars = new SidecarContainers(Arrays.asList(
+                new Sidecar("db", "postgres", null, null, "ready"),
+                new Sidecar("health", "broker", null, null, null),
+                new Sidecar("cache", "redis", null, null, null)), "app", "app-dev-network", docker);
+        long start = System.currentTimeMillis();
+        assertTrue(sidecars.start(10000));
+        Map<Sidecar, ContainerReadiness.Result> results = sidecars.awaitReady();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(3, results.size());
+        assertEquals(ContainerReadiness.Strategy.LOG, results.get(sidecars.getSidecars().get(0)).getStrategy());
+        assertEquals(ContainerReadiness.Strategy.HEALTH, results.get(sidecars.getSidecars().get(1)).getStrategy());
+        // a running container without a ready message or a HEALTHCHECK is ready right away
+        assertTrue(results.get(sidecars.getSidecars().get(2)).getElapsedMillis() < 500);
+        // started one after another, the containers would take at least 2.5 seconds
+        assertTrue("elapsed " + elapsed, elapsed < 2500);
+
+        // starting again does not run the containers again
+        assertFalse(sidecars.start(10000));
+        assertEquals(3, docker.commands.size());
+
+        docker.removed.clear();
+        sidecars.stop(5000);
+        assertEquals(3, docker.removed.size());
+        assertTrue(docker.removed.containsAll(Arrays.asList("app-db", "app-health", "app-cache")));
+    }
+
+    @Test
+    public void testStoppedContainer() throws Exception {
+        FakeDocker docker = new FakeDocker(0, 60000);
+        docker.exits = true;
+        SidecarContainers sidecars = new SidecarContainers(Collections.singletonList(new Sidecar("db", "postgres", null, null, "ready")),
+                "app", "app-dev-network", docker);
+        sidecars.start(10000);
+        try {
+            sidecars.awaitReady();
+            fail("Expected the stopped container to fail");
+        } catch (PluginExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("app-db stopped"));
+        }
+        sidecars.stop(5000);
+    }
+
+    @Test
+    public void testReadinessTimeout() throws Exception {
+        FakeDocker docker = new FakeDocker(0, 60000);
+        SidecarContainers sidecars = new SidecarContainers(Collections.singletonList(new Sidecar("db", "postgres", null, null, "ready")),
+                "app", "app-dev-network", docker);
+        sidecars.start(300);
+        try {
+            sidecars.awaitReady();
+            fail("Expected the container not to be ready");
+        } catch (PluginExecutionException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("was not ready"));
+        }
+        sidecars.stop(5000);
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * (C) Copyright IBM Corporation 2021.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openliberty.tools.common.plugins.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+public class XmlParserUtilTest {
+
+    @Test
+    public void testReusedWithinThread() throws Exception {
+        assertSame(XmlParserUtil.getDocumentBuilder(), XmlParserUtil.getDocumentBuilder());
+        assertSame(XmlParserUtil.getConfigDocumentBuilder(), XmlParserUtil.getConfigDocumentBuilder());
+        assertNotSame(XmlParserUtil.getDocumentBuilder(), XmlParserUtil.getConfigDocumentBuilder());
+        assertSame(XmlParserUtil.getIndentingTransformer(), XmlParserUtil.getIndentingTransformer());
+        assertSame(XmlParserUtil.getXPathExpression("/server/application"),
+                XmlParserUtil.getXPathExpression("/server/application"));
+    }
+
+    @Test
+    public void testConfinedToThread() throws Exception {
+        final DocumentBuilder builder = XmlParserUtil.getConfigDocumentBuilder();
+        final XPathExpression expression = XmlParserUtil.getXPathExpression("/server/variable");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertNotSame(builder, executor.submit(new Callable<DocumentBuilder>() {
+                @Override
+                public DocumentBuilder call() throws Exception {
+                    return XmlParserUtil.getConfigDocumentBuilder();
+                }
+            }).get());
+            assertNotSame(expression, executor.submit(new Callable<XPathExpression>() {
+                @Override
+                public XPathExpression call() throws Exception {
+                    return XmlParserUtil.getXPathExpression("/server/variable");
+                }
+            }).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelParsing() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+            for (int i = 0; i < 40; i++) {
+                final int count = i % 5 + 1;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        StringBuilder xml = new StringBuilder("<server>");
+                        for (int j = 0; j < count; j++) {
+                            xml.append("<variable name=\"v").append(j).append("\" value=\"").append(j).append("\"/>");
+                        }
+                        xml.append("</server>");
+                        Document doc = XmlParserUtil.getConfigDocumentBuilder()
+                                .parse(new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)));
+                        NodeList nodes = (NodeList) XmlParserUtil.getXPathExpression("/server/variable").evaluate(doc,
+                                XPathConstants.NODESET);
+                        return nodes.getLength();
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 5 + 1, results.get(i).get().intValue());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}